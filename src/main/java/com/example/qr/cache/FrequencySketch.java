@@ -0,0 +1,187 @@
+package com.example.qr.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Approximate access counts of recent keys, in a count-min sketch of 4-bit counters.
+ * <p>
+ * Each key maps to one counter in each of {@value #DEPTH} rows; its frequency is the smallest of them, so
+ * collisions can only overestimate it. Counters saturate at 15. After ten increments per expected key every
+ * counter is halved, so frequencies describe recent traffic and a key that was hot an hour ago does not keep
+ * its place forever. Sixteen counters are packed into each {@code long}, so the sketch of a cache of a
+ * thousand entries takes 8 KB.
+ * <p>
+ * Every cache lookup counts an access, so the sketch must not serialize them. Reads take no lock.
+ * Increments are recorded in small per-thread-stripe ring buffers, and whichever thread takes the drain
+ * lock without waiting applies them to the counters. When the lock is busy, the increment waits in the
+ * buffer for the next drain. When a buffer is full, the increment is dropped, which under heavy load
+ * samples the traffic rather than blocking it. Frequencies are therefore eventually consistent: a count
+ * may lag by the increments still buffered.
+ */
+public class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    /** Counters per row for each expected key; with four, a key collides in all rows about 0.2% of the time. */
+    private static final int COUNTERS_PER_KEY = 4;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+    /** Every counter's high bit cleared after a one-bit shift, which halves all sixteen at once. */
+    private static final long HALF_MASK = 0x7777777777777777L;
+    /** Increments each buffer holds before further ones are dropped. */
+    private static final int BUFFER_SIZE = 16;
+    /** Marks an empty buffer slot; the one hash equal to it is counted as its neighbour. */
+    private static final long EMPTY = 0;
+
+    private final AtomicLongArray table;
+    private final int widthMask;
+    private final int widthShift;
+    private final int sampleSize;
+    private final Buffer[] buffers;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    // Guarded by drainLock
+    private int additions;
+    private volatile int resets;
+
+    /**
+     * @param expectedKeys number of keys whose frequencies should stay accurate, such as the cache capacity
+     */
+    public FrequencySketch(int expectedKeys) {
+        int keys = Integer.highestOneBit(Math.max(64, expectedKeys - 1) << 1);
+        int width = keys * COUNTERS_PER_KEY;
+        this.widthMask = width - 1;
+        this.widthShift = Integer.numberOfTrailingZeros(width);
+        this.table = new AtomicLongArray(DEPTH * width / 16);
+        this.sampleSize = 10 * keys;
+        this.buffers = new Buffer[Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) << 1)];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new Buffer();
+        }
+    }
+
+    /**
+     * Counts one access to the key with this hash, now or at the next drain.
+     */
+    public void increment(long hash) {
+        long threadId = Thread.currentThread().threadId();
+        buffers[(int) (threadId ^ (threadId >>> 16)) & (buffers.length - 1)].offer(hash == EMPTY ? 1 : hash);
+        if (drainLock.tryLock()) {
+            try {
+                for (Buffer buffer : buffers) {
+                    buffer.drain();
+                }
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Estimated recent accesses to the key with this hash, from 0 to 15.
+     */
+    public int frequency(long hash) {
+        if (hash == EMPTY) {
+            hash = 1;
+        }
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            int counter = counterOf(hash, row);
+            frequency = Math.min(frequency, (int) (table.get(counter >>> 4) >>> ((counter & 15) << 2)) & MAX_COUNT);
+        }
+        return frequency;
+    }
+
+    /**
+     * Increments after which all counters are halved.
+     */
+    public int sampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * How many times the counters have been halved, so holders of old frequencies can tell they are stale.
+     */
+    public int resets() {
+        return resets;
+    }
+
+    /**
+     * A 64-bit hash of a string key, spread so that the rows' counters are independent.
+     */
+    public static long hash(String key) {
+        long hash = key.hashCode() * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    /**
+     * Applies one increment. Only the thread holding the drain lock writes to the table.
+     */
+    private void apply(long hash) {
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int counter = counterOf(hash, row);
+            int word = counter >>> 4;
+            int shift = (counter & 15) << 2;
+            long value = table.get(word);
+            if (((value >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                table.set(word, value + (1L << shift));
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            age();
+        }
+    }
+
+    private void age() {
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, (table.get(i) >>> 1) & HALF_MASK);
+        }
+        additions /= 2;
+        resets++;
+    }
+
+    /**
+     * A lossy ring of pending increments: threads claim a slot by advancing the write count and then fill
+     * it, and the drainer stops at the first slot not yet filled.
+     */
+    private final class Buffer {
+        private final AtomicLongArray slots = new AtomicLongArray(BUFFER_SIZE);
+        private final AtomicLong writes = new AtomicLong();
+        private volatile long reads;
+
+        void offer(long hash) {
+            long write = writes.get();
+            if (write - reads < BUFFER_SIZE && writes.compareAndSet(write, write + 1)) {
+                slots.set((int) (write & (BUFFER_SIZE - 1)), hash);
+            }
+        }
+
+        void drain() {
+            long read = reads;
+            long end = writes.get();
+            for (; read < end; read++) {
+                int slot = (int) (read & (BUFFER_SIZE - 1));
+                long hash = slots.get(slot);
+                if (hash == EMPTY) {
+                    break;
+                }
+                slots.set(slot, EMPTY);
+                apply(hash);
+            }
+            reads = read;
+        }
+    }
+
+    /**
+     * Index of the key's counter in {@code row}, counting 4-bit counters from the start of the table.
+     */
+    private int counterOf(long hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 32;
+        return (row << widthShift) + ((int) h & widthMask);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.qr.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The keys with the most requests seen recently, at most {@code capacity} of them.
+ * <p>
+ * The frequency sketch saturates at 15, which cannot tell a hot key from a very hot one, so tracked keys
+ * are ranked by counts of their own: every access to a tracked key increments its count without taking a
+ * lock, and the counts are halved whenever the sketch ages, so they describe recent traffic on the same
+ * scale. An untracked key is admitted with its sketch frequency and replaces the coldest tracked key only
+ * when that frequency is higher than the coldest count. Offers at or below the coldest count of a full table
+ * return without taking the lock.
+ */
+class HotKeys {
+
+    private final int capacity;
+    private final FrequencySketch sketch;
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private volatile long admissionFloor;
+    private volatile int seenResets;
+
+    HotKeys(int capacity, FrequencySketch sketch) {
+        this.capacity = capacity;
+        this.sketch = sketch;
+    }
+
+    /**
+     * Counts one access to {@code key}, whose sketch hash is {@code hash}.
+     */
+    void offer(String key, long hash) {
+        if (capacity == 0) {
+            return;
+        }
+        AtomicLong count = counts.get(key);
+        boolean aged = sketch.resets() != seenResets;
+        if (count != null && !aged) {
+            count.incrementAndGet();
+            return;
+        }
+        int frequency = count == null ? sketch.frequency(hash) : 0;
+        if (count == null && frequency <= admissionFloor && !aged) {
+            return;
+        }
+        synchronized (this) {
+            if (sketch.resets() != seenResets) {
+                seenResets = sketch.resets();
+                counts.values().forEach(tracked -> tracked.updateAndGet(value -> value / 2));
+            }
+            count = counts.get(key);
+            if (count != null) {
+                count.incrementAndGet();
+            } else if (counts.size() < capacity) {
+                counts.put(key, new AtomicLong(frequency));
+            } else {
+                Map.Entry<String, AtomicLong> coldest = coldest();
+                if (frequency > coldest.getValue().get()) {
+                    counts.remove(coldest.getKey());
+                    counts.put(key, new AtomicLong(frequency));
+                }
+            }
+            updateFloor();
+        }
+    }
+
+    /**
+     * Tracked keys by descending recent request count.
+     */
+    synchronized List<LocalRenderCache.HotKey> list() {
+        updateFloor();
+        List<LocalRenderCache.HotKey> hot = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> hot.add(new LocalRenderCache.HotKey(key, count.get())));
+        hot.sort(Comparator.comparingLong(LocalRenderCache.HotKey::frequency).reversed()
+                           .thenComparing(LocalRenderCache.HotKey::key));
+        return hot;
+    }
+
+    private void updateFloor() {
+        admissionFloor = counts.size() == capacity ? coldest().getValue().get() : 0;
+    }
+
+    private Map.Entry<String, AtomicLong> coldest() {
+        return counts.entrySet().stream().min(Comparator.comparingLong(entry -> entry.getValue().get()))
+                     .orElseThrow();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.qr.cache;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/hotkeys} lists the most requested render cache keys on this instance with their
+ * estimated recent request counts, for sizing the cache and spotting clients that hammer one payload.
+ * Keys are digests of the data and style, so the encoded data is not exposed.
+ */
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeysEndpoint {
+
+    private final LocalRenderCache cache;
+
+    public HotKeysEndpoint(LocalRenderCache cache) {
+        this.cache = cache;
+    }
+
+    @ReadOperation
+    public HotKeysReport hotKeys() {
+        return new HotKeysReport(cache.bytes(), cache.admitted(), cache.rejected(), cache.hottest());
+    }
+
+    /**
+     * @param cachedBytes estimated memory held by this instance's cached images
+     * @param admitted    images that displaced colder ones from a full cache
+     * @param rejected    images refused by a full cache because the ones they would displace were as hot
+     * @param keys        hottest keys first; frequencies are recent request counts, halved as the frequency
+     *                    sketch ages
+     */
+    public record HotKeysReport(long cachedBytes, long admitted, long rejected, List<LocalRenderCache.HotKey> keys) {
+    }
+}
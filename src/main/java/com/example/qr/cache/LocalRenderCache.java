@@ -0,0 +1,182 @@
+package com.example.qr.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rendered images held in this process, bounded by their total size.
+ * <p>
+ * The cache is split into lock stripes selected by key hash. Each stripe is an access-ordered map bounded
+ * by its share of the budget; an image larger than a stripe's share is not cached.
+ * <p>
+ * Admission follows TinyLFU: every lookup is counted in a {@link FrequencySketch}, and once a stripe is full
+ * a new image only displaces the least recently used images if it has been requested more often recently
+ * than each of them. A long tail of one-off payloads therefore cannot flush a small set of hot ones, as it
+ * would under plain LRU. Lookups count into the sketch without taking a shared lock. The hottest keys, which
+ * are digests rather than the encoded data, are tracked for {@link #hottest()} with counts that do not
+ * saturate.
+ */
+public class LocalRenderCache implements RenderCache {
+
+    private static final int STRIPES = 16;
+    /** Map entry, key and array headers, estimated for a 64-bit JVM with compressed pointers. */
+    private static final int ENTRY_OVERHEAD = 200;
+    /** Size of a typical standard render, for sizing the frequency sketch to the number of entries. */
+    private static final int TYPICAL_IMAGE_BYTES = 16 * 1024;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final FrequencySketch sketch;
+    private final HotKeys hotKeys;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public LocalRenderCache(long maxBytes) {
+        this(maxBytes, 20);
+    }
+
+    /**
+     * @param hotKeyCount how many of the hottest keys to track
+     */
+    public LocalRenderCache(long maxBytes, int hotKeyCount) {
+        long perStripe = maxBytes / STRIPES;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+        this.sketch = new FrequencySketch((int) Math.clamp(maxBytes / TYPICAL_IMAGE_BYTES, 0, 1 << 24));
+        this.hotKeys = new HotKeys(hotKeyCount, sketch);
+    }
+
+    @Override
+    public Optional<byte[]> get(String key) {
+        long hash = FrequencySketch.hash(key);
+        sketch.increment(hash);
+        hotKeys.offer(key, hash);
+
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            return Optional.ofNullable(stripe.images.get(key));
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(String key, byte[] image) {
+        stripe(key).put(key, image);
+    }
+
+    /**
+     * Estimated bytes held by all cached images.
+     */
+    public long bytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                bytes += stripe.bytes;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Images admitted to a full stripe by displacing colder ones, and images refused because the ones they
+     * would displace were requested at least as often.
+     */
+    public long admitted() {
+        return admitted.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * The most frequently requested keys, hottest first, with their estimated recent request counts.
+     */
+    public List<HotKey> hottest() {
+        return hotKeys.list();
+    }
+
+    /**
+     * @param frequency recent requests for the key, halved each time the frequency sketch ages
+     */
+    public record HotKey(String key, long frequency) {
+    }
+
+    private Stripe stripe(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static long weight(String key, byte[] image) {
+        return ENTRY_OVERHEAD + 2L * key.length() + image.length;
+    }
+
+    private final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, byte[]> images = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxBytes;
+        private long bytes;
+
+        Stripe(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        void put(String key, byte[] image) {
+            long weight = weight(key, image);
+            if (weight > maxBytes) {
+                return;
+            }
+            lock.lock();
+            try {
+                byte[] previous = images.remove(key);
+                if (previous != null) {
+                    bytes -= weight(key, previous);
+                } else if (bytes + weight > maxBytes) {
+                    if (!admit(key, weight)) {
+                        rejected.increment();
+                        return;
+                    }
+                    admitted.increment();
+                }
+                images.put(key, image);
+                bytes += weight;
+                Iterator<Map.Entry<String, byte[]>> eldest = images.entrySet().iterator();
+                while (bytes > maxBytes) {
+                    Map.Entry<String, byte[]> entry = eldest.next();
+                    bytes -= weight(entry.getKey(), entry.getValue());
+                    eldest.remove();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Whether the candidate is more frequent than every least recently used image it would displace.
+         */
+        private boolean admit(String candidate, long weight) {
+            int candidateFrequency = sketch.frequency(FrequencySketch.hash(candidate));
+            long free = maxBytes - bytes;
+            for (Map.Entry<String, byte[]> victim : images.entrySet()) {
+                if (free >= weight) {
+                    break;
+                }
+                if (sketch.frequency(FrequencySketch.hash(victim.getKey())) >= candidateFrequency) {
+                    return false;
+                }
+                free += weight(victim.getKey(), victim.getValue());
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.qr.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A render cache shared by several instances, each owning the keys the hash ring assigns to it.
+ * <p>
+ * Keys owned by this instance are served from its {@link LocalRenderCache}. For other keys the owner is
+ * asked over HTTP first, and an image rendered here after a miss is sent to the owner in the background,
+ * so every image is held once in the cluster and total capacity grows with the number of instances.
+ * <p>
+ * A peer that fails to answer in time is skipped for {@code peerBackoff}. Meanwhile its keys are read from
+ * and stored in the local cache, so a down peer costs renders but never fails or slows a request for long.
+ */
+public class PeerRenderCache implements RenderCache, AutoCloseable {
+
+    public static final String PATH = "/internal/render-cache/";
+    public static final String TOKEN_HEADER = "X-Peer-Token";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PeerRenderCache.class);
+
+    private final String self;
+    private final ConsistentHashRing ring;
+    private final LocalRenderCache local;
+    private final String peerToken;
+    private final Duration requestTimeout;
+    private final long peerBackoffNanos;
+    private final HttpClient client;
+    private final ConcurrentMap<String, Long> downUntil = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+
+    public PeerRenderCache(String self, ConsistentHashRing ring, LocalRenderCache local, String peerToken,
+                           Duration connectTimeout, Duration requestTimeout, Duration peerBackoff,
+                           MeterRegistry registry) {
+        this.self = self;
+        this.ring = ring;
+        this.local = local;
+        this.peerToken = peerToken == null || peerToken.isEmpty() ? null : peerToken;
+        this.requestTimeout = requestTimeout;
+        this.peerBackoffNanos = peerBackoff.toNanos();
+        this.registry = registry;
+        this.client = HttpClient.newBuilder()
+                                .version(HttpClient.Version.HTTP_1_1)
+                                .connectTimeout(connectTimeout)
+                                .build();
+    }
+
+    @Override
+    public Optional<byte[]> get(String key) {
+        String owner = ring.owner(key);
+        if (owner.equals(self) || isDown(owner)) {
+            return local.get(key);
+        }
+        try {
+            HttpResponse<byte[]> response = client.send(request(owner, key).GET().build(),
+                                                        HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() == 200) {
+                count("hit");
+                return Optional.of(response.body());
+            }
+            if (response.statusCode() != 404) {
+                LOGGER.warn("Render cache peer {} answered {}", owner, response.statusCode());
+                count("error");
+                return local.get(key);
+            }
+            count("miss");
+            return Optional.empty();
+        } catch (IOException e) {
+            markDown(owner, e);
+            return local.get(key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void put(String key, byte[] image) {
+        String owner = ring.owner(key);
+        if (owner.equals(self) || isDown(owner)) {
+            local.put(key, image);
+            return;
+        }
+        HttpRequest request = request(owner, key).header("Content-Type", "image/png")
+                                                 .PUT(HttpRequest.BodyPublishers.ofByteArray(image))
+                                                 .build();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+              .whenComplete((response, failure) -> {
+                  if (failure != null) {
+                      markDown(owner, failure);
+                  }
+              });
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    private HttpRequest.Builder request(String owner, String key) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(owner + PATH + key))
+                                                 .timeout(requestTimeout);
+        if (peerToken != null) {
+            request.header(TOKEN_HEADER, peerToken);
+        }
+        return request;
+    }
+
+    private boolean isDown(String peer) {
+        Long until = downUntil.get(peer);
+        if (until == null) {
+            return false;
+        }
+        if (System.nanoTime() - until < 0) {
+            return true;
+        }
+        downUntil.remove(peer, until);
+        return false;
+    }
+
+    private void markDown(String peer, Throwable failure) {
+        count("error");
+        if (downUntil.put(peer, System.nanoTime() + peerBackoffNanos) == null) {
+            LOGGER.warn("Render cache peer {} unreachable, using the local cache for {} ms: {}",
+                        peer, peerBackoffNanos / 1_000_000, failure.toString());
+        }
+    }
+
+    private void count(String result) {
+        Counter.builder("qr.render.cache.peer.requests")
+               .description("Render cache lookups sent to the owning peer")
+               .tag("result", result)
+               .register(registry)
+               .increment();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.qr.cache;
+
+import java.util.Optional;
+
+/**
+ * Storage for rendered images, keyed by a digest of everything that determines the image.
+ * <p>
+ * Implementations may keep images in process or share them between replicas. They must never fail a
+ * render: when the backing store is unavailable, lookups miss and stores are dropped. Returned arrays may
+ * be shared between callers and must not be modified.
+ */
+public interface RenderCache {
+
+    Optional<byte[]> get(String key);
+
+    void put(String key, byte[] image);
+
+    /**
+     * A cache that stores nothing.
+     */
+    static RenderCache none() {
+        return new RenderCache() {
+            @Override
+            public Optional<byte[]> get(String key) {
+                return Optional.empty();
+            }
+
+            @Override
+            public void put(String key, byte[] image) {
+            }
+        };
+    }
+}
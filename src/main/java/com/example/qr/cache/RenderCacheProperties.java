@@ -0,0 +1,51 @@
+package com.example.qr.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Rendered-image cache, configured under {@code qr.render-cache}.
+ *
+ * @param enabled        whether rendered images are cached at all
+ * @param maxBytes       memory for images owned by this instance
+ * @param self           base URL under which the other members reach this instance
+ * @param members        base URLs of all instances sharing the cache, including {@code self}; empty for a
+ *                       cache local to this instance
+ * @param peerToken      shared secret sent to and required from peers; required when {@code members} is set
+ * @param connectTimeout how long to wait for a connection to a peer
+ * @param requestTimeout how long to wait for a peer's response
+ * @param peerBackoff    how long an unreachable peer is skipped before it is tried again
+ * @param virtualNodes   hash ring points per member; more points spread keys more evenly
+ * @param hotKeys        how many of the most requested keys to report at {@code /actuator/hotkeys}
+ */
+@ConfigurationProperties("qr.render-cache")
+public record RenderCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("33554432") long maxBytes,
+        String self,
+        List<String> members,
+        String peerToken,
+        @DefaultValue("200ms") Duration connectTimeout,
+        @DefaultValue("500ms") Duration requestTimeout,
+        @DefaultValue("10s") Duration peerBackoff,
+        @DefaultValue("128") int virtualNodes,
+        @DefaultValue("20") int hotKeys) {
+
+    public RenderCacheProperties {
+        members = members == null ? List.of() : List.copyOf(members);
+        // Keys are digests of public inputs, so without a secret anyone could plant an image for a payload
+        if (!members.isEmpty() && (peerToken == null || peerToken.isBlank())) {
+            throw new IllegalArgumentException("qr.render-cache.peer-token is required when members are set");
+        }
+    }
+
+    /**
+     * Whether the cache is shared with other instances.
+     */
+    public boolean clustered() {
+        return !members.isEmpty();
+    }
+}
@@ -0,0 +1,380 @@
+package com.example.qr.cli;
+
+import com.example.qr.model.FileNames;
+import com.example.qr.model.SerialRange;
+import com.example.qr.service.BandEncoder;
+import com.example.qr.service.MatrixCache;
+import com.example.qr.service.PreparedStyle;
+import com.example.qr.service.QrRenderer;
+import com.example.qr.service.RenderMemoryBudget;
+import com.example.qr.service.RenderWindow;
+import com.example.qr.service.SvgLogoRasterizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Renders a file of payloads to PNG or SVG files, or to one ZIP archive, without starting the web
+ * application.
+ * <p>
+ * Each input line is either a payload, named after its line number, or a name and a payload separated by a
+ * tab; blank lines are skipped. Codes are rendered on a pool of worker threads by {@link QrRenderer} and
+ * written by the main thread in input order through a {@link RenderWindow}, with at most a few renders per
+ * worker in flight so memory stays bounded however long the input is. Progress goes to standard error once a second. A payload that cannot be
+ * encoded is reported and skipped, and the exit status is 1 if any were.
+ * <p>
+ * With {@code --from} and {@code --to} the payloads are a {@link SerialRange} instead, generated as they are
+ * rendered and named after themselves. An interrupted run resumes with {@code --offset} set to the number of
+ * codes already written.
+ */
+public final class BatchRender {
+
+    static final String USAGE = """
+            Usage: BatchRender [options]
+              --input FILE           payloads, one per line, optionally NAME<TAB>PAYLOAD (default: stdin)
+              --output DIR           directory to write to (default: current directory)
+              --format png|svg       image format (default: png)
+              --archive NAME.zip     write one ZIP archive in the output directory instead of separate files
+              --threads N            render threads (default: available processors)
+              --foreground RRGGBB    data module color (default: 000000)
+              --background RRGGBB    background color (default: FFFFFF)
+              --logo FILE            SVG, PNG or JPEG logo (default: the built-in logo)
+              --from N --to M        render the serial range N to M instead of reading payloads
+              --prefix TEXT          text before each serial number (default: none)
+              --padding DIGITS       minimum digits per serial number (default: the digits of M)
+              --offset K             skip the first K serials of the range, to resume a run (default: 0)
+            """;
+    private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+
+    private BatchRender() {
+    }
+
+    public static void main(String[] args) {
+        if (System.getProperty("logback.configurationFile") == null) {
+            System.setProperty("logback.configurationFile", "logback-cli.xml");
+        }
+        System.exit(run(args, System.in, System.err));
+    }
+
+    /**
+     * Runs a batch, returning the process exit status: 0 when every payload was written, 1 when some were
+     * skipped or the batch failed, 2 for invalid arguments.
+     */
+    static int run(String[] args, InputStream stdin, PrintStream err) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.print(USAGE);
+            return 2;
+        }
+        try (SvgLogoRasterizer svgLogoRasterizer = new SvgLogoRasterizer();
+             BandEncoder bandEncoder = new BandEncoder(1, Integer.MAX_VALUE)) {
+            QrRenderer renderer = new QrRenderer(readDefaultLogo(), svgLogoRasterizer, bandEncoder, new MatrixCache(),
+                                                 new RenderMemoryBudget(0, 60_000, new SimpleMeterRegistry()));
+            PreparedStyle style = renderer.prepareStyle(options.foreground(), options.background(),
+                                                        options.logo() == null ? null : Files.readAllBytes(options.logo()),
+                                                        logoContentType(options.logo()));
+            Batch batch = new Batch(renderer, style, options, err);
+            try (InputStream in = options.input() == null ? stdin : Files.newInputStream(options.input())) {
+                return batch.run(in);
+            }
+        } catch (Exception e) {
+            err.println("Batch failed: " + e);
+            return 1;
+        }
+    }
+
+    private static byte[] readDefaultLogo() throws IOException {
+        try (InputStream in = BatchRender.class.getResourceAsStream("/logo.svg")) {
+            if (in == null) {
+                throw new IOException("Default logo logo.svg is not on the classpath");
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    private static String logoContentType(Path logo) {
+        if (logo == null) {
+            return null;
+        }
+        String name = logo.getFileName().toString().toLowerCase(Locale.ROOT);
+        String extension = name.substring(name.lastIndexOf('.') + 1);
+        return switch (extension) {
+            case "svg" -> "image/svg+xml";
+            case "png" -> "image/png";
+            case "jpg", "jpeg" -> "image/jpeg";
+            default -> throw new IllegalArgumentException("Invalid logo file extension. Supported: .svg, .png, .jpg, .jpeg");
+        };
+    }
+
+    /**
+     * @param serials the serial range to render instead of reading payloads, or {@code null}
+     * @param offset  serials of the range to skip
+     */
+    record Options(Path input, Path output, String format, String archive, int threads, int foreground,
+                   int background, Path logo, SerialRange serials, long offset) {
+
+        static Options parse(String[] args) {
+            Path input = null;
+            Path output = Path.of(".");
+            String format = "png";
+            String archive = null;
+            int threads = Runtime.getRuntime().availableProcessors();
+            int foreground = QrRenderer.parseHexColor("000000");
+            int background = QrRenderer.parseHexColor("FFFFFF");
+            Path logo = null;
+            Long from = null;
+            Long to = null;
+            String prefix = null;
+            Integer padding = null;
+            long offset = 0;
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--input" -> input = Path.of(value);
+                    case "--output" -> output = Path.of(value);
+                    case "--format" -> {
+                        format = value.toLowerCase(Locale.ROOT);
+                        if (!format.equals("png") && !format.equals("svg")) {
+                            throw new IllegalArgumentException("Format must be png or svg");
+                        }
+                    }
+                    case "--archive" -> {
+                        if (!value.toLowerCase(Locale.ROOT).endsWith(".zip")) {
+                            throw new IllegalArgumentException("Archive name must end with .zip");
+                        }
+                        archive = value;
+                    }
+                    case "--threads" -> {
+                        try {
+                            threads = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Threads must be a number");
+                        }
+                        if (threads < 1) {
+                            throw new IllegalArgumentException("Threads must be at least 1");
+                        }
+                    }
+                    case "--foreground" -> foreground = QrRenderer.parseHexColor(value);
+                    case "--background" -> background = QrRenderer.parseHexColor(value);
+                    case "--logo" -> {
+                        logo = Path.of(value);
+                        logoContentType(logo);
+                    }
+                    case "--from" -> from = number(option, value);
+                    case "--to" -> to = number(option, value);
+                    case "--prefix" -> prefix = value;
+                    case "--padding" -> padding = (int) number(option, value);
+                    case "--offset" -> offset = number(option, value);
+                    default -> throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+            SerialRange serials = null;
+            if (from != null || to != null) {
+                if (from == null || to == null) {
+                    throw new IllegalArgumentException("A serial range needs both --from and --to");
+                }
+                if (input != null) {
+                    throw new IllegalArgumentException("--input cannot be combined with a serial range");
+                }
+                serials = new SerialRange(prefix, from, to, padding == null ? Long.toString(to).length() : padding);
+                if (offset < 0 || offset >= serials.count()) {
+                    throw new IllegalArgumentException("Offset must be between 0 and " + (serials.count() - 1));
+                }
+            } else if (prefix != null || padding != null || offset != 0) {
+                throw new IllegalArgumentException("--prefix, --padding and --offset need --from and --to");
+            }
+            return new Options(input, output, format, archive, threads, foreground, background, logo, serials,
+                               offset);
+        }
+
+        private static long number(String option, String value) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(option.substring(2) + " must be a number");
+            }
+        }
+    }
+
+    private static final class Batch implements RenderWindow.Writer<Item> {
+        private final QrRenderer renderer;
+        private final PreparedStyle style;
+        private final Options options;
+        private final PrintStream err;
+        private final Set<String> names = new HashSet<>();
+        private ZipOutputStream archive;
+        private long started;
+        private long lastProgress;
+        private long written;
+        private long skipped;
+        private long outputBytes;
+        /** Wall-clock time of the first write, compared with the JVM start time in the report. */
+        private long firstImage;
+
+        Batch(QrRenderer renderer, PreparedStyle style, Options options, PrintStream err) {
+            this.renderer = renderer;
+            this.style = style;
+            this.options = options;
+            this.err = err;
+        }
+
+        int run(InputStream in) throws IOException {
+            Files.createDirectories(options.output());
+            started = System.nanoTime();
+            lastProgress = started;
+            ExecutorService workers = Executors.newFixedThreadPool(options.threads(), runnable -> {
+                Thread thread = new Thread(runnable, "batch-render");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                 OutputStream archiveOut = options.archive() == null ? null
+                         : Files.newOutputStream(options.output().resolve(options.archive()));
+                 RenderWindow<Item> window = new RenderWindow<>(workers::submit,
+                                                                options.threads() * RenderWindow.IN_FLIGHT_PER_THREAD,
+                                                                this)) {
+                if (archiveOut != null) {
+                    archive = new ZipOutputStream(archiveOut);
+                }
+                if (options.serials() != null) {
+                    SerialRange serials = options.serials();
+                    for (long index = options.offset(); index < serials.count(); index++) {
+                        String payload = serials.payload(index);
+                        submit(window, "Serial " + payload, serials.name(index), payload);
+                    }
+                } else {
+                    readPayloads(reader, window);
+                }
+                window.finish();
+                if (archive != null) {
+                    archive.finish();
+                }
+            } finally {
+                workers.shutdownNow();
+            }
+            report();
+            return skipped == 0 ? 0 : 1;
+        }
+
+        private byte[] render(String payload) throws IOException {
+            if (payload.isEmpty()) {
+                throw new IllegalArgumentException("QR code data cannot be null or empty");
+            }
+            return options.format().equals("svg")
+                    ? renderer.renderSvg(payload, style).getBytes(StandardCharsets.UTF_8)
+                    : renderer.renderPng(payload, style);
+        }
+
+        private void readPayloads(BufferedReader reader, RenderWindow<Item> window) throws IOException {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                int tab = line.indexOf('\t');
+                String name = tab < 0 ? String.format(Locale.ROOT, "%06d", lineNumber)
+                        : FileNames.safe(line.substring(0, tab));
+                String payload = tab < 0 ? line : line.substring(tab + 1);
+                if (name.isEmpty() || !names.add(name)) {
+                    err.println("Line " + lineNumber + ": skipped, name '" + name + "' is empty or repeated");
+                    skipped++;
+                    continue;
+                }
+                submit(window, "Line " + lineNumber, name, payload);
+            }
+        }
+
+        /**
+         * Queues a render, first writing the oldest one in flight if the window is full.
+         *
+         * @param source where the payload came from, for messages
+         */
+        private void submit(RenderWindow<Item> window, String source, String name, String payload)
+                throws IOException {
+            window.submit(new Item(source, name), () -> render(payload));
+        }
+
+        /**
+         * A payload that cannot be encoded is skipped; any other failure ends the batch.
+         */
+        @Override
+        public void failed(Item item, Throwable cause) throws IOException {
+            if (!(cause instanceof IllegalArgumentException)) {
+                throw new IOException(item.source() + " failed", cause);
+            }
+            err.println(item.source() + ": skipped, " + cause.getMessage());
+            skipped++;
+        }
+
+        @Override
+        public void write(Item item, byte[] image) throws IOException {
+            String fileName = item.name() + "." + options.format();
+            if (archive != null) {
+                archive.putNextEntry(new ZipEntry(fileName));
+                archive.write(image);
+                archive.closeEntry();
+            } else {
+                Files.write(options.output().resolve(fileName), image);
+            }
+            if (firstImage == 0) {
+                firstImage = System.currentTimeMillis();
+            }
+            written++;
+            outputBytes += image.length;
+
+            long now = System.nanoTime();
+            if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                lastProgress = now;
+                err.printf(Locale.ROOT, "%d written, %d skipped, %.0f codes/s%n", written, skipped,
+                           written / seconds(now - started));
+            }
+        }
+
+        private void report() {
+            long elapsed = System.nanoTime() - started;
+            err.printf(Locale.ROOT, "Wrote %d %s codes (%d bytes), skipped %d, in %.2f s: %.0f codes/s%n",
+                       written, options.format().toUpperCase(Locale.ROOT), outputBytes, skipped, seconds(elapsed),
+                       written / seconds(elapsed));
+            if (firstImage != 0) {
+                err.printf(Locale.ROOT, "First image written %d ms after JVM start%n",
+                           firstImage - ManagementFactory.getRuntimeMXBean().getStartTime());
+            }
+        }
+
+        private static double seconds(long nanos) {
+            return Math.max(nanos, 1) / 1e9;
+        }
+    }
+
+    /**
+     * @param source where the payload came from, for messages
+     * @param name   file or entry name without extension
+     */
+    private record Item(String source, String name) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.qr.config;
+
+import com.example.qr.cache.ConsistentHashRing;
+import com.example.qr.cache.LocalRenderCache;
+import com.example.qr.cache.PeerRenderCache;
+import com.example.qr.cache.RenderCache;
+import com.example.qr.cache.RenderCacheProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Chooses the render cache: local to this instance, or shared with the configured members by consistent
+ * hashing. Either way this instance's own images live in the {@link LocalRenderCache}, which also backs the
+ * peer endpoint.
+ */
+@Configuration
+@EnableConfigurationProperties(RenderCacheProperties.class)
+public class RenderCacheConfig {
+
+    @Bean
+    public LocalRenderCache localRenderCache(RenderCacheProperties properties, MeterRegistry registry) {
+        LocalRenderCache cache = new LocalRenderCache(properties.enabled() ? properties.maxBytes() : 0,
+                                                      properties.hotKeys());
+        Gauge.builder("qr.render.cache.bytes", cache, LocalRenderCache::bytes)
+             .description("Estimated memory held by rendered images owned by this instance")
+             .baseUnit("bytes")
+             .register(registry);
+        FunctionCounter.builder("qr.render.cache.admissions", cache, LocalRenderCache::admitted)
+                       .description("Images offered to a full cache, by whether they displaced colder images")
+                       .tag("result", "admitted")
+                       .register(registry);
+        FunctionCounter.builder("qr.render.cache.admissions", cache, LocalRenderCache::rejected)
+                       .description("Images offered to a full cache, by whether they displaced colder images")
+                       .tag("result", "rejected")
+                       .register(registry);
+        return cache;
+    }
+
+    @Bean
+    @Primary
+    public RenderCache renderCache(RenderCacheProperties properties, LocalRenderCache local, MeterRegistry registry) {
+        if (!properties.enabled()) {
+            return RenderCache.none();
+        }
+        if (!properties.clustered()) {
+            return local;
+        }
+        if (!properties.members().contains(properties.self())) {
+            throw new IllegalArgumentException("qr.render-cache.self must be one of qr.render-cache.members");
+        }
+        return new PeerRenderCache(properties.self(),
+                                   new ConsistentHashRing(properties.members(), properties.virtualNodes()),
+                                   local, properties.peerToken(), properties.connectTimeout(),
+                                   properties.requestTimeout(), properties.peerBackoff(), registry);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.qr.config;
+
+import com.example.qr.ratelimit.RateLimitInterceptor;
+import com.example.qr.ratelimit.RateLimitProperties;
+import com.example.qr.ratelimit.TokenBucketTable;
+import com.example.qr.timing.ServerTimingFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers one rate-limit interceptor per configured endpoint, all sharing a single bucket table, and the
+ * stage timing filter for standard renders.
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class WebConfig implements WebMvcConfigurer {
+
+    private final RateLimitProperties rateLimits;
+    private final MeterRegistry registry;
+    private final TokenBucketTable buckets;
+
+    public WebConfig(RateLimitProperties rateLimits, MeterRegistry registry) {
+        this.rateLimits = rateLimits;
+        this.registry = registry;
+        this.buckets = new TokenBucketTable(rateLimits.maxClients());
+        Gauge.builder("qr.ratelimit.clients", buckets, TokenBucketTable::size)
+             .description("Clients currently tracked by the rate limiter")
+             .register(registry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        if (!rateLimits.enabled()) {
+            return;
+        }
+        rateLimits.endpoints().forEach((name, endpoint) ->
+                interceptors.addInterceptor(new RateLimitInterceptor(name, endpoint, rateLimits, buckets, registry))
+                            .addPathPatterns(endpoint.pattern()));
+    }
+
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter(
+            @Value("${qr.timing.enabled:true}") boolean enabled,
+            @Value("${qr.timing.slow-threshold-ms:500}") long slowThresholdMillis,
+            @Value("${qr.timing.slow-log-sample-rate:1.0}") double sampleRate) {
+        FilterRegistrationBean<ServerTimingFilter> registration =
+                new FilterRegistrationBean<>(new ServerTimingFilter(slowThresholdMillis, sampleRate));
+        registration.addUrlPatterns("/generate");
+        registration.setEnabled(enabled);
+        return registration;
+    }
+}
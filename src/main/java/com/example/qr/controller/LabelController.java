@@ -0,0 +1,84 @@
+package com.example.qr.controller;
+
+import com.example.qr.model.LabelSheetRequest;
+import com.example.qr.service.LabelSheet;
+import com.example.qr.service.PreparedStyle;
+import com.example.qr.service.PresetRegistry;
+import com.example.qr.service.QrCodeService;
+import com.example.qr.service.RenderCapacityException;
+import org.apache.batik.transcoder.TranscoderException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Label sheets: many codes laid out on printable pages.
+ */
+@RestController
+public class LabelController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LabelController.class);
+
+    private final QrCodeService service;
+    private final PresetRegistry presetRegistry;
+
+    public LabelController(QrCodeService service, PresetRegistry presetRegistry) {
+        this.service = service;
+        this.presetRegistry = presetRegistry;
+    }
+
+    /**
+     * Streams a multi-page PDF of labels. The response has no content length.
+     */
+    @PostMapping(value = "/labels/pdf", consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.APPLICATION_PDF_VALUE)
+    public ResponseEntity<StreamingResponseBody> generateLabelSheet(@RequestBody LabelSheetRequest request) {
+        int labelCount = request.labels() == null ? 0 : request.labels().size();
+        LOGGER.info("Received request to generate label sheet with {} labels, preset: {}", labelCount, request.preset());
+
+        try {
+            PreparedStyle style;
+            if (request.preset() != null) {
+                Optional<PreparedStyle> preset = presetRegistry.findStyle(request.preset());
+                if (preset.isEmpty()) {
+                    LOGGER.warn("Unknown preset: {}", request.preset());
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+                }
+                style = preset.get();
+            } else {
+                style = service.prepareStyle(orDefault(request.foregroundColor(), "5DADE2"),
+                                             orDefault(request.backgroundColor(), "FFFFFF"), null, null);
+            }
+
+            LabelSheet sheet = service.prepareLabelSheet(request.labels(), request.layout(), style);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_PDF);
+            headers.setContentDisposition(ContentDisposition.inline().filename("labels.pdf").build());
+            return new ResponseEntity<>(sheet::writePdf, headers, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RenderCapacityException e) {
+            LOGGER.warn("Rejected request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (IOException | TranscoderException e) {
+            LOGGER.error("Failed to prepare label sheet with {} labels", labelCount, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private static String orDefault(String value, String defaultValue) {
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.qr.controller;
+
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Validation shared by every endpoint that accepts an uploaded logo.
+ */
+final class LogoFiles {
+
+    static final long MAX_FILE_SIZE = 5L * 1024 * 1024; // 5MB
+
+    private LogoFiles() {
+    }
+
+    static boolean isPresent(MultipartFile file) {
+        return file != null && !file.isEmpty();
+    }
+
+    static void validate(MultipartFile file) {
+        if (file.getSize() > MAX_FILE_SIZE) {
+            throw new IllegalArgumentException("Logo file size exceeds maximum allowed size of 5MB");
+        }
+
+        String contentType = file.getContentType();
+        if (contentType == null || (!contentType.equals("image/svg+xml") &&
+                                     !contentType.equals("image/png") &&
+                                     !contentType.equals("image/jpeg"))) {
+            throw new IllegalArgumentException("Invalid logo file format. Supported formats: SVG, PNG, JPEG");
+        }
+
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null || originalFilename.isEmpty()) {
+            throw new IllegalArgumentException("Logo file name is required");
+        }
+
+        String extension = originalFilename.substring(originalFilename.lastIndexOf('.') + 1).toLowerCase();
+        if (!extension.matches("svg|png|jpg|jpeg")) {
+            throw new IllegalArgumentException("Invalid logo file extension. Supported: .svg, .png, .jpg, .jpeg");
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.qr.controller;
+
+import com.example.qr.model.MatrixResponse;
+import com.example.qr.service.ModuleMatrix;
+import com.example.qr.service.QrCodeService;
+import io.nayuki.qrcodegen.QrCode;
+import jakarta.validation.constraints.NotBlank;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * The encoded module matrix alone, for clients that draw the code themselves. Nothing is rendered, so
+ * these are the cheapest responses the service produces.
+ */
+@RestController
+@Validated
+public class MatrixController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MatrixController.class);
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+    private final QrCodeService service;
+
+    public MatrixController(QrCodeService service) {
+        this.service = service;
+    }
+
+    @PostMapping(value = "/matrix", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<MatrixResponse> getMatrix(
+            @RequestParam("data") @NotBlank(message = "Data cannot be empty") String data,
+            @RequestParam(value = "ecc", defaultValue = "H") String ecc) {
+        try {
+            ModuleMatrix matrix = service.encodeMatrix(data, parseEcc(ecc));
+            return ResponseEntity.ok(new MatrixResponse(matrix.version(), matrix.size(), eccLetter(matrix.ecc()),
+                                                        matrix.mask(),
+                                                        Base64.getEncoder().encodeToString(matrix.modules())));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    /**
+     * The bitmap after a four-byte header of version, size, ECC level and mask.
+     */
+    @PostMapping(value = "/matrix", params = "format=binary", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> getBinaryMatrix(
+            @RequestParam("data") @NotBlank(message = "Data cannot be empty") String data,
+            @RequestParam(value = "ecc", defaultValue = "H") String ecc) {
+        try {
+            byte[] body = service.encodeMatrix(data, parseEcc(ecc)).toBinary();
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+            headers.setContentLength(body.length);
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    /**
+     * Half-block text for terminals. {@code invert} draws light modules instead of dark ones.
+     */
+    @PostMapping(value = "/matrix", params = "format=text", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> getTextMatrix(
+            @RequestParam("data") @NotBlank(message = "Data cannot be empty") String data,
+            @RequestParam(value = "ecc", defaultValue = "H") String ecc,
+            @RequestParam(value = "invert", defaultValue = "false") boolean invert) {
+        try {
+            String text = service.encodeMatrix(data, parseEcc(ecc)).toText(invert);
+            return ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).body(text);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    private static String eccLetter(QrCode.Ecc ecc) {
+        return String.valueOf("LMQH".charAt(ecc.ordinal()));
+    }
+
+    private static QrCode.Ecc parseEcc(String ecc) {
+        return switch (ecc.toUpperCase(Locale.ROOT)) {
+            case "L" -> QrCode.Ecc.LOW;
+            case "M" -> QrCode.Ecc.MEDIUM;
+            case "Q" -> QrCode.Ecc.QUARTILE;
+            case "H" -> QrCode.Ecc.HIGH;
+            default -> throw new IllegalArgumentException("Invalid error correction level: " + ecc);
+        };
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.qr.controller;
+
+import com.example.qr.model.StylePreset;
+import com.example.qr.service.PresetRegistry;
+import com.example.qr.service.RenderCapacityException;
+import jakarta.validation.constraints.Pattern;
+import org.apache.batik.transcoder.TranscoderException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Admin API for named style presets used with {@code POST /generate?preset=<id>}. Anyone may read presets;
+ * creating, replacing and deleting them needs the admin token in {@value #TOKEN_HEADER}, and is refused
+ * when no token is configured.
+ */
+@RestController
+@RequestMapping("/admin/presets")
+@Validated
+public class PresetController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PresetController.class);
+    static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private final PresetRegistry presetRegistry;
+    private final byte[] adminToken;
+
+    /**
+     * @param adminToken token required to change presets; blank disables changes
+     */
+    public PresetController(PresetRegistry presetRegistry, @Value("${qr.presets.admin-token:}") String adminToken) {
+        this.presetRegistry = presetRegistry;
+        this.adminToken = adminToken == null || adminToken.isBlank() ? null : adminToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @GetMapping
+    public List<StylePreset> list() {
+        return presetRegistry.list();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<StylePreset> get(@PathVariable String id) {
+        return ResponseEntity.of(presetRegistry.get(id));
+    }
+
+    @PostMapping
+    public ResponseEntity<StylePreset> save(
+            @RequestHeader(value = TOKEN_HEADER, required = false) String token,
+            @RequestParam("id") String id,
+            @RequestParam(value = "foregroundColor", defaultValue = "5DADE2")
+            @Pattern(regexp = "^#?[0-9A-Fa-f]{6}$", message = "Invalid foreground color format")
+            String foregroundColor,
+            @RequestParam(value = "backgroundColor", defaultValue = "FFFFFF")
+            @Pattern(regexp = "^#?[0-9A-Fa-f]{6}$", message = "Invalid background color format")
+            String backgroundColor,
+            @RequestParam(value = "logo", required = false) MultipartFile logoFile) {
+
+        if (!authorized(token)) {
+            LOGGER.warn("Refused to save preset '{}' without the admin token", id);
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            byte[] logo = null;
+            String logoContentType = null;
+            if (LogoFiles.isPresent(logoFile)) {
+                LogoFiles.validate(logoFile);
+                logo = logoFile.getBytes();
+                logoContentType = logoFile.getContentType();
+            }
+            StylePreset preset = presetRegistry.save(id, foregroundColor, backgroundColor, logo, logoContentType);
+            return ResponseEntity.status(HttpStatus.CREATED).body(preset);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid preset '{}': {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RenderCapacityException e) {
+            LOGGER.warn("Rejected preset '{}': {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (IOException | TranscoderException e) {
+            LOGGER.error("Failed to save preset '{}'", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@RequestHeader(value = TOKEN_HEADER, required = false) String token,
+                                       @PathVariable String id) throws IOException {
+        if (!authorized(token)) {
+            LOGGER.warn("Refused to delete preset '{}' without the admin token", id);
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return presetRegistry.delete(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Compares in constant time, so the token cannot be guessed byte by byte.
+     */
+    private boolean authorized(String token) {
+        return adminToken != null && token != null
+               && MessageDigest.isEqual(adminToken, token.getBytes(StandardCharsets.UTF_8));
+    }
+}
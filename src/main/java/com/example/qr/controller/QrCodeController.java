@@ -1,6 +1,15 @@
 package com.example.qr.controller;
 
+import com.example.qr.service.PreparedStyle;
+import com.example.qr.service.PresetRegistry;
+import com.example.qr.service.PrintImage;
 import com.example.qr.service.QrCodeService;
+import com.example.qr.service.RenderCapacityException;
+import com.example.qr.service.RenderedCode;
+import com.example.qr.shortlink.ShortLinkStore;
+import com.example.qr.shortlink.ShortLinkStoreFullException;
+import com.example.qr.timing.RenderStageEvent;
+import com.example.qr.timing.RenderTrace;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import org.apache.batik.transcoder.TranscoderException;
@@ -17,19 +26,27 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Controller
 @Validated
 public class QrCodeController {
     private static final Logger LOGGER = LoggerFactory.getLogger(QrCodeController.class);
-    private static final long MAX_FILE_SIZE = 5L * 1024 * 1024; // 5MB
+    static final String SHORT_LINK_HEADER = "X-Short-Link";
+    static final String RENDER_TIER_HEADER = "X-Render-Tier";
 
     private final QrCodeService service;
+    private final PresetRegistry presetRegistry;
+    private final ShortLinkStore shortLinks;
 
-    public QrCodeController(QrCodeService service) {
+    public QrCodeController(QrCodeService service, PresetRegistry presetRegistry, ShortLinkStore shortLinks) {
         this.service = service;
+        this.presetRegistry = presetRegistry;
+        this.shortLinks = shortLinks;
     }
 
 
@@ -48,55 +65,155 @@ public class QrCodeController {
             @RequestParam(value = "backgroundColor", defaultValue = "FFFFFF")
             @Pattern(regexp = "^#?[0-9A-Fa-f]{6}$", message = "Invalid background color format")
             String backgroundColor,
-            @RequestParam(value = "logo", required = false) MultipartFile logoFile) {
+            @RequestParam(value = "logo", required = false) MultipartFile logoFile,
+            @RequestParam(value = "shortLink", defaultValue = "false") boolean shortLink) {
 
         LOGGER.info("Received request to generate QR code for data length: {}, colors: fg={}, bg={}, hasCustomLogo={}",
                     data.length(), foregroundColor, backgroundColor, logoFile != null && !logoFile.isEmpty());
 
         try {
+            RenderTrace trace = RenderTrace.current();
+
             // Validate custom logo if provided
-            if (logoFile != null && !logoFile.isEmpty()) {
-                validateLogoFile(logoFile);
+            if (LogoFiles.isPresent(logoFile)) {
+                RenderStageEvent validation = trace.begin(RenderTrace.Stage.VALIDATE)
+                                                   .logo(logoFile.getContentType(), logoFile.getSize());
+                LogoFiles.validate(logoFile);
+                validation.finish();
+                trace.logo(logoFile.getContentType(), logoFile.getSize());
             }
 
-            byte[] qrCode = service.generateQrCodeWithLogo(data, foregroundColor, backgroundColor, logoFile);
-
             HttpHeaders headers = new HttpHeaders();
+            String encoded = shortLink ? shorten(data, headers) : data;
+            RenderedCode qrCode = service.renderQrCodeWithLogo(encoded, foregroundColor, backgroundColor, logoFile);
+
             headers.setContentType(MediaType.IMAGE_PNG);
-            headers.setContentLength(qrCode.length);
+            headers.setContentLength(qrCode.png().length);
+            headers.set(RENDER_TIER_HEADER, qrCode.tier().value());
+            addServerTiming(headers, trace);
 
             LOGGER.info("QR code generated successfully");
-            return new ResponseEntity<>(qrCode, headers, HttpStatus.OK);
+            return new ResponseEntity<>(qrCode.png(), headers, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             LOGGER.warn("Invalid request: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RenderCapacityException e) {
+            LOGGER.warn("Rejected request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (ShortLinkStoreFullException e) {
+            LOGGER.warn("Rejected short link: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).build();
         } catch (IOException | TranscoderException e) {
             LOGGER.error("Failed to generate QR code for data length: {}", data.length(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
-    private void validateLogoFile(MultipartFile file) {
-        if (file.getSize() > MAX_FILE_SIZE) {
-            throw new IllegalArgumentException("Logo file size exceeds maximum allowed size of 5MB");
+    @PostMapping(value = "/generate", params = "preset", produces = MediaType.IMAGE_PNG_VALUE)
+    @ResponseBody
+    public ResponseEntity<byte[]> generateQrCodeWithPreset(
+            @RequestParam("data") @NotBlank(message = "Data cannot be empty") String data,
+            @RequestParam("preset") String presetId,
+            @RequestParam(value = "shortLink", defaultValue = "false") boolean shortLink) {
+
+        LOGGER.info("Received request to generate QR code for data length: {}, preset: {}", data.length(), presetId);
+
+        Optional<PreparedStyle> style = presetRegistry.findStyle(presetId);
+        if (style.isEmpty()) {
+            LOGGER.warn("Unknown preset: {}", presetId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        String contentType = file.getContentType();
-        if (contentType == null || (!contentType.equals("image/svg+xml") &&
-                                     !contentType.equals("image/png") &&
-                                     !contentType.equals("image/jpeg"))) {
-            throw new IllegalArgumentException("Invalid logo file format. Supported formats: SVG, PNG, JPEG");
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            String encoded = shortLink ? shorten(data, headers) : data;
+            RenderedCode qrCode = service.renderQrCode(encoded, style.get());
+
+            headers.setContentType(MediaType.IMAGE_PNG);
+            headers.setContentLength(qrCode.png().length);
+            headers.set(RENDER_TIER_HEADER, qrCode.tier().value());
+            addServerTiming(headers, RenderTrace.current());
+            return new ResponseEntity<>(qrCode.png(), headers, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RenderCapacityException e) {
+            LOGGER.warn("Rejected request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (ShortLinkStoreFullException e) {
+            LOGGER.warn("Rejected short link: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).build();
+        } catch (IOException e) {
+            LOGGER.error("Failed to generate QR code for data length: {}", data.length(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
+    }
+
+    /**
+     * Print-resolution PNG, rendered and compressed while it is sent. The response has no content length.
+     */
+    @PostMapping(value = "/generate/print", produces = MediaType.IMAGE_PNG_VALUE)
+    @ResponseBody
+    public ResponseEntity<StreamingResponseBody> generatePrintQrCode(
+            @RequestParam("data") @NotBlank(message = "Data cannot be empty") String data,
+            @RequestParam(value = "foregroundColor", defaultValue = "5DADE2")
+            @Pattern(regexp = "^#?[0-9A-Fa-f]{6}$", message = "Invalid foreground color format")
+            String foregroundColor,
+            @RequestParam(value = "backgroundColor", defaultValue = "FFFFFF")
+            @Pattern(regexp = "^#?[0-9A-Fa-f]{6}$", message = "Invalid background color format")
+            String backgroundColor,
+            @RequestParam(value = "size", defaultValue = "4000") int size,
+            @RequestParam(value = "dpi", defaultValue = "300") int dpi,
+            @RequestParam(value = "logo", required = false) MultipartFile logoFile) {
+
+        LOGGER.info("Received request to generate print QR code for data length: {}, size: {}px, dpi: {}, hasCustomLogo={}",
+                    data.length(), size, dpi, LogoFiles.isPresent(logoFile));
+
+        try {
+            byte[] logo = null;
+            String logoContentType = null;
+            if (LogoFiles.isPresent(logoFile)) {
+                LogoFiles.validate(logoFile);
+                logo = logoFile.getBytes();
+                logoContentType = logoFile.getContentType();
+            }
+
+            PrintImage image = service.preparePrint(data, foregroundColor, backgroundColor, logo, logoContentType,
+                                                    size, dpi);
 
-        String originalFilename = file.getOriginalFilename();
-        if (originalFilename == null || originalFilename.isEmpty()) {
-            throw new IllegalArgumentException("Logo file name is required");
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.IMAGE_PNG);
+            return new ResponseEntity<>(image::writePng, headers, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RenderCapacityException e) {
+            LOGGER.warn("Rejected request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (IOException | TranscoderException e) {
+            LOGGER.error("Failed to prepare print QR code for data length: {}", data.length(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
+    }
 
-        String extension = originalFilename.substring(originalFilename.lastIndexOf('.') + 1).toLowerCase();
-        if (!extension.matches("svg|png|jpg|jpeg")) {
-            throw new IllegalArgumentException("Invalid logo file extension. Supported: .svg, .png, .jpg, .jpeg");
+    /**
+     * Stores {@code url} as a short link and returns the short URL to encode in its place, which is also
+     * reported in a response header.
+     */
+    private String shorten(String url, HttpHeaders headers) throws IOException {
+        String shortUrl = shortLinks.shortUrl(shortLinks.shorten(url),
+                                              ServletUriComponentsBuilder.fromCurrentContextPath().toUriString());
+        headers.set(SHORT_LINK_HEADER, shortUrl);
+        return shortUrl;
+    }
+
+    /**
+     * The traced stages as {@code Server-Timing}, present only while timing is enabled.
+     */
+    private static void addServerTiming(HttpHeaders headers, RenderTrace trace) {
+        String serverTiming = trace.serverTiming();
+        if (serverTiming != null && !serverTiming.isEmpty()) {
+            headers.set("Server-Timing", serverTiming);
         }
     }
 }
-
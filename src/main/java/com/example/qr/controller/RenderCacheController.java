@@ -0,0 +1,81 @@
+package com.example.qr.controller;
+
+import com.example.qr.cache.LocalRenderCache;
+import com.example.qr.cache.PeerRenderCache;
+import com.example.qr.cache.RenderCacheProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.regex.Pattern;
+
+/**
+ * The peer side of the shared render cache: other instances read and store the images this instance owns.
+ * Only the local cache is consulted, so a request is never forwarded again. The endpoint answers only when
+ * the cache is clustered, and only to callers that send the peer token.
+ */
+@RestController
+public class RenderCacheController {
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final int MAX_IMAGE_BYTES = 1 << 20;
+
+    private final LocalRenderCache cache;
+    private final RenderCacheProperties properties;
+
+    public RenderCacheController(LocalRenderCache cache, RenderCacheProperties properties) {
+        this.cache = cache;
+        this.properties = properties;
+    }
+
+    @GetMapping(value = PeerRenderCache.PATH + "{key}", produces = MediaType.IMAGE_PNG_VALUE)
+    public ResponseEntity<byte[]> getImage(
+            @PathVariable("key") String key,
+            @RequestHeader(value = PeerRenderCache.TOKEN_HEADER, required = false) String token) {
+        HttpStatus rejection = check(key, token);
+        if (rejection != null) {
+            return ResponseEntity.status(rejection).build();
+        }
+        return cache.get(key).map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    @PutMapping(value = PeerRenderCache.PATH + "{key}", consumes = MediaType.IMAGE_PNG_VALUE)
+    public ResponseEntity<Void> putImage(
+            @PathVariable("key") String key,
+            @RequestHeader(value = PeerRenderCache.TOKEN_HEADER, required = false) String token,
+            @RequestBody byte[] image) {
+        HttpStatus rejection = check(key, token);
+        if (rejection != null) {
+            return ResponseEntity.status(rejection).build();
+        }
+        if (image.length == 0 || image.length > MAX_IMAGE_BYTES) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        cache.put(key, image);
+        return ResponseEntity.noContent().build();
+    }
+
+    private HttpStatus check(String key, String token) {
+        if (!properties.enabled() || !properties.clustered()) {
+            return HttpStatus.NOT_FOUND;
+        }
+        // A clustered cache always has a token; compared in constant time so it cannot be guessed byte by byte
+        if (token == null || !MessageDigest.isEqual(properties.peerToken().getBytes(StandardCharsets.UTF_8),
+                                                    token.getBytes(StandardCharsets.UTF_8))) {
+            return HttpStatus.FORBIDDEN;
+        }
+        if (!KEY_PATTERN.matcher(key).matches()) {
+            return HttpStatus.BAD_REQUEST;
+        }
+        return null;
+    }
+}
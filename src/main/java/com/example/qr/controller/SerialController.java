@@ -0,0 +1,93 @@
+package com.example.qr.controller;
+
+import com.example.qr.model.SerialRange;
+import com.example.qr.model.SerialRunRequest;
+import com.example.qr.service.PreparedStyle;
+import com.example.qr.service.PresetRegistry;
+import com.example.qr.service.QrCodeService;
+import com.example.qr.service.RenderCapacityException;
+import com.example.qr.service.SerialRun;
+import org.apache.batik.transcoder.TranscoderException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Sequentially numbered codes, such as asset tags, rendered while they are sent as a ZIP archive. The
+ * response has no content length.
+ */
+@RestController
+public class SerialController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SerialController.class);
+    private static final MediaType APPLICATION_ZIP = MediaType.parseMediaType("application/zip");
+    static final String COUNT_HEADER = "X-Serial-Count";
+    static final String OFFSET_HEADER = "X-Serial-Offset";
+
+    private final QrCodeService service;
+    private final PresetRegistry presetRegistry;
+
+    public SerialController(QrCodeService service, PresetRegistry presetRegistry) {
+        this.service = service;
+        this.presetRegistry = presetRegistry;
+    }
+
+    @PostMapping(value = "/generate/serials", consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> generateSerials(@RequestBody SerialRunRequest request) {
+        LOGGER.info("Received request to generate serials {} to {}, padding: {}, format: {}, offset: {}, preset: {}",
+                    request.from(), request.to(), request.padding(), request.format(), request.offset(),
+                    request.preset());
+
+        try {
+            if (request.from() == null || request.to() == null) {
+                throw new IllegalArgumentException("Serial range needs from and to");
+            }
+            int padding = request.padding() == null ? Long.toString(request.to()).length() : request.padding();
+            SerialRange range = new SerialRange(request.prefix(), request.from(), request.to(), padding);
+
+            PreparedStyle style;
+            if (request.preset() != null) {
+                Optional<PreparedStyle> preset = presetRegistry.findStyle(request.preset());
+                if (preset.isEmpty()) {
+                    LOGGER.warn("Unknown preset: {}", request.preset());
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+                }
+                style = preset.get();
+            } else {
+                style = service.prepareStyle(request.foregroundColor() == null ? "5DADE2" : request.foregroundColor(),
+                                             request.backgroundColor() == null ? "FFFFFF" : request.backgroundColor(),
+                                             null, null);
+            }
+
+            long offset = request.offset() == null ? 0 : request.offset();
+            SerialRun run = service.prepareSerialRun(range, request.format(), offset, style);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(APPLICATION_ZIP);
+            headers.setContentDisposition(ContentDisposition.attachment().filename("qrcode-serials.zip").build());
+            headers.set(COUNT_HEADER, Long.toString(run.count()));
+            headers.set(OFFSET_HEADER, Long.toString(offset));
+            return new ResponseEntity<>(run::writeZip, headers, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RenderCapacityException e) {
+            LOGGER.warn("Rejected request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (IOException | TranscoderException e) {
+            LOGGER.error("Failed to prepare serials", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.qr.controller;
+
+import com.example.qr.shortlink.ShortLinkStore;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Redirects scanned short-link codes to their stored URLs. Lookups are served from memory.
+ */
+@RestController
+public class ShortLinkController {
+
+    private final ShortLinkStore shortLinks;
+
+    public ShortLinkController(ShortLinkStore shortLinks) {
+        this.shortLinks = shortLinks;
+    }
+
+    @GetMapping({"/R/{key}", "/r/{key}"})
+    public ResponseEntity<Void> redirect(@PathVariable("key") String key) {
+        return shortLinks.resolve(key)
+                         .map(url -> ResponseEntity.status(HttpStatus.FOUND)
+                                                   .header(HttpHeaders.LOCATION, url)
+                                                   .<Void>build())
+                         .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+}
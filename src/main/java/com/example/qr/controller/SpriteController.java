@@ -0,0 +1,113 @@
+package com.example.qr.controller;
+
+import com.example.qr.model.SpriteIndex;
+import com.example.qr.model.SpriteSheetRequest;
+import com.example.qr.service.PreparedStyle;
+import com.example.qr.service.PresetRegistry;
+import com.example.qr.service.QrCodeService;
+import com.example.qr.service.RenderCapacityException;
+import com.example.qr.service.SpriteSheet;
+import org.apache.batik.transcoder.TranscoderException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Sprite sheets: many codes tiled into one PNG, plus the index that maps tiles back to payloads.
+ */
+@RestController
+public class SpriteController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpriteController.class);
+
+    private final QrCodeService service;
+    private final PresetRegistry presetRegistry;
+
+    public SpriteController(QrCodeService service, PresetRegistry presetRegistry) {
+        this.service = service;
+        this.presetRegistry = presetRegistry;
+    }
+
+    @PostMapping(value = "/sprites", consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.IMAGE_PNG_VALUE)
+    public ResponseEntity<byte[]> generateSpriteSheet(@RequestBody SpriteSheetRequest request) {
+        int count = request.payloads() == null ? 0 : request.payloads().size();
+        LOGGER.info("Received request to generate sprite sheet with {} codes, tileSize: {}", count, request.tileSize());
+
+        try {
+            Optional<SpriteSheet> sheet = prepare(request);
+            if (sheet.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            sheet.get().writePng(png);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.IMAGE_PNG);
+            headers.setContentLength(png.size());
+            return new ResponseEntity<>(png.toByteArray(), headers, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RenderCapacityException e) {
+            LOGGER.warn("Rejected request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (IOException | TranscoderException e) {
+            LOGGER.error("Failed to generate sprite sheet with {} codes", count, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Tile coordinates for the same request body as {@code /sprites}, computed from the layout alone:
+     * nothing is encoded or rendered, so a tile too small for its code is only rejected by {@code /sprites}.
+     */
+    @PostMapping(value = "/sprites/index", consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SpriteIndex> getSpriteIndex(@RequestBody SpriteSheetRequest request) {
+        if (request.preset() != null && presetRegistry.get(request.preset()).isEmpty()) {
+            LOGGER.warn("Unknown preset: {}", request.preset());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        try {
+            return ResponseEntity.ok(service.prepareSpriteIndex(request.payloads(), request.columns(),
+                                                                request.tileSize()));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    /**
+     * Returns an empty result when the request names an unknown preset.
+     */
+    private Optional<SpriteSheet> prepare(SpriteSheetRequest request) throws IOException, TranscoderException {
+        PreparedStyle style;
+        if (request.preset() != null) {
+            Optional<PreparedStyle> preset = presetRegistry.findStyle(request.preset());
+            if (preset.isEmpty()) {
+                LOGGER.warn("Unknown preset: {}", request.preset());
+                return Optional.empty();
+            }
+            style = preset.get();
+        } else {
+            style = service.prepareStyle(orDefault(request.foregroundColor(), "5DADE2"),
+                                         orDefault(request.backgroundColor(), "FFFFFF"), null, null);
+        }
+        return Optional.of(service.prepareSpriteSheet(request.payloads(), request.columns(), request.tileSize(), style));
+    }
+
+    private static String orDefault(String value, String defaultValue) {
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.qr.controller;
+
+import com.example.qr.model.VariantSetRequest;
+import com.example.qr.service.PreparedStyle;
+import com.example.qr.service.PresetRegistry;
+import com.example.qr.service.QrCodeService;
+import com.example.qr.service.RenderCapacityException;
+import com.example.qr.service.VariantSet;
+import org.apache.batik.transcoder.TranscoderException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Several sizes, color pairs and formats of one code, encoded once and returned together as a ZIP archive,
+ * written while it is sent. The response has no content length.
+ */
+@RestController
+public class VariantController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VariantController.class);
+    private static final MediaType APPLICATION_ZIP = MediaType.parseMediaType("application/zip");
+
+    private final QrCodeService service;
+    private final PresetRegistry presetRegistry;
+
+    public VariantController(QrCodeService service, PresetRegistry presetRegistry) {
+        this.service = service;
+        this.presetRegistry = presetRegistry;
+    }
+
+    @PostMapping(value = "/generate/variants", consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> generateVariants(@RequestBody VariantSetRequest request) {
+        LOGGER.info("Received request to generate variants, sizes: {}, colors: {}, formats: {}, preset: {}",
+                    request.sizes(), request.colors() == null ? 0 : request.colors().size(), request.formats(),
+                    request.preset());
+
+        try {
+            PreparedStyle style;
+            if (request.preset() != null) {
+                Optional<PreparedStyle> preset = presetRegistry.findStyle(request.preset());
+                if (preset.isEmpty()) {
+                    LOGGER.warn("Unknown preset: {}", request.preset());
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+                }
+                style = preset.get();
+            } else {
+                style = service.prepareStyle("5DADE2", "FFFFFF", null, null);
+            }
+
+            VariantSet variants = service.prepareVariants(request.data(), request.sizes(), request.colors(),
+                                                          request.formats(), style);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(APPLICATION_ZIP);
+            headers.setContentDisposition(ContentDisposition.attachment().filename("qrcode-variants.zip").build());
+            return new ResponseEntity<>(variants::writeZip, headers, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RenderCapacityException e) {
+            LOGGER.warn("Rejected request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (IOException | TranscoderException e) {
+            LOGGER.error("Failed to generate variants", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.qr.model;
+
+/**
+ * File and archive entry names derived from user input.
+ */
+public final class FileNames {
+
+    private FileNames() {
+    }
+
+    /**
+     * {@code name} made safe to use as a file or entry name: anything besides letters, digits, dots, dashes
+     * and underscores is replaced, and a leading dot is not allowed, so the name never leaves its directory.
+     */
+    public static String safe(String name) {
+        String safe = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        return safe.startsWith(".") ? "_" + safe.substring(1) : safe;
+    }
+}
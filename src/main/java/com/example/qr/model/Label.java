@@ -0,0 +1,10 @@
+package com.example.qr.model;
+
+/**
+ * One label on a label sheet.
+ *
+ * @param data    text or URL to encode
+ * @param caption text printed under the code, or {@code null} for none
+ */
+public record Label(String data, String caption) {
+}
@@ -0,0 +1,55 @@
+package com.example.qr.model;
+
+/**
+ * Placement of labels on the pages of a label sheet. Missing values fall back to a 3 x 8 grid on A4
+ * with 10 mm margins, 4 mm gutters and 8 pt captions.
+ *
+ * @param pageSize        paper size
+ * @param columns         labels per row
+ * @param rows            label rows per page
+ * @param marginMm        blank border around the grid, in millimetres
+ * @param gutterMm        space between neighbouring labels, in millimetres
+ * @param captionFontSize caption size, in points
+ */
+public record LabelLayout(PageSize pageSize, Integer columns, Integer rows, Double marginMm, Double gutterMm,
+                          Double captionFontSize) {
+
+    public static final LabelLayout DEFAULT = new LabelLayout(null, null, null, null, null, null);
+
+    public LabelLayout {
+        pageSize = pageSize == null ? PageSize.A4 : pageSize;
+        columns = columns == null ? 3 : columns;
+        rows = rows == null ? 8 : rows;
+        marginMm = marginMm == null ? 10.0 : marginMm;
+        gutterMm = gutterMm == null ? 4.0 : gutterMm;
+        captionFontSize = captionFontSize == null ? 8.0 : captionFontSize;
+    }
+
+    public int labelsPerPage() {
+        return columns * rows;
+    }
+
+    /**
+     * Paper sizes in PostScript points (1/72 inch).
+     */
+    public enum PageSize {
+        A4(595.28, 841.89),
+        LETTER(612, 792);
+
+        private final double width;
+        private final double height;
+
+        PageSize(double width, double height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        public double width() {
+            return width;
+        }
+
+        public double height() {
+            return height;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.qr.model;
+
+import java.util.List;
+
+/**
+ * Body of {@code POST /labels/pdf}.
+ *
+ * @param labels          labels in print order, filling each page row by row
+ * @param layout          page layout, or {@code null} for {@link LabelLayout#DEFAULT}
+ * @param foregroundColor hex color of the data modules (RRGGBB); ignored when a preset is given
+ * @param backgroundColor hex background color (RRGGBB); ignored when a preset is given
+ * @param preset          id of a style preset supplying the colors and logo, or {@code null}
+ */
+public record LabelSheetRequest(List<Label> labels, LabelLayout layout, String foregroundColor,
+                                String backgroundColor, String preset) {
+}
@@ -0,0 +1,13 @@
+package com.example.qr.model;
+
+/**
+ * The encoded modules of a code, for clients that render it themselves.
+ *
+ * @param version QR version, 1 to 40
+ * @param size    modules per side
+ * @param ecc     error correction level: L, M, Q or H
+ * @param mask    mask pattern, 0 to 7
+ * @param modules base64 of the bitmap, one bit per module, row by row, most significant bit first
+ */
+public record MatrixResponse(int version, int size, String ecc, int mask, String modules) {
+}
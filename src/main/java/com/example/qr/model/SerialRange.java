@@ -0,0 +1,66 @@
+package com.example.qr.model;
+
+/**
+ * Sequentially numbered payloads such as {@code ASSET-000001} to {@code ASSET-250000}, produced one at a
+ * time rather than held as a list.
+ *
+ * @param prefix  text before each number, possibly empty
+ * @param first   first number, inclusive
+ * @param last    last number, inclusive
+ * @param padding minimum number of digits; shorter numbers are padded with leading zeros
+ */
+public record SerialRange(String prefix, long first, long last, int padding) {
+
+    public static final int MAX_PREFIX_LENGTH = 256;
+    public static final int MAX_PADDING = 18;
+    public static final long MAX_NUMBER = 999_999_999_999_999_999L;
+
+    public SerialRange {
+        if (prefix == null) {
+            prefix = "";
+        }
+        if (prefix.length() > MAX_PREFIX_LENGTH) {
+            throw new IllegalArgumentException("Prefix is limited to " + MAX_PREFIX_LENGTH + " characters");
+        }
+        if (first < 0 || last > MAX_NUMBER) {
+            throw new IllegalArgumentException("Serial numbers must be between 0 and " + MAX_NUMBER);
+        }
+        if (last < first) {
+            throw new IllegalArgumentException("Last serial number must not be below the first");
+        }
+        if (padding < 0 || padding > MAX_PADDING) {
+            throw new IllegalArgumentException("Padding must be between 0 and " + MAX_PADDING + " digits");
+        }
+    }
+
+    /**
+     * Number of payloads in the range.
+     */
+    public long count() {
+        return last - first + 1;
+    }
+
+    /**
+     * The payload at {@code index}, counted from 0 for {@link #first}.
+     */
+    public String payload(long index) {
+        if (index < 0 || index >= count()) {
+            throw new IndexOutOfBoundsException("Index " + index + " outside a range of " + count());
+        }
+        String number = Long.toString(first + index);
+        StringBuilder payload = new StringBuilder(prefix.length() + Math.max(number.length(), padding));
+        payload.append(prefix);
+        for (int i = number.length(); i < padding; i++) {
+            payload.append('0');
+        }
+        return payload.append(number).toString();
+    }
+
+    /**
+     * The payload at {@code index} as a file name without extension, made safe by {@link FileNames#safe}.
+     * Names in one range are distinct, since payloads differ only in their digits.
+     */
+    public String name(long index) {
+        return FileNames.safe(payload(index));
+    }
+}
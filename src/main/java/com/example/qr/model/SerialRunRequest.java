@@ -0,0 +1,19 @@
+package com.example.qr.model;
+
+/**
+ * Body of {@code POST /generate/serials}: one code per number from {@code from} to {@code to}, each
+ * encoding the prefix followed by the zero-padded number.
+ *
+ * @param prefix          text before each number, or {@code null} for none
+ * @param from            first number, inclusive
+ * @param to              last number, inclusive
+ * @param padding         minimum digits per number, or {@code null} for the digits of {@code to}
+ * @param format          {@code png} or {@code svg}, or {@code null} for PNG
+ * @param offset          codes of the range to skip, to resume an interrupted download, or {@code null}
+ * @param preset          id of a style preset supplying the logo and colors, or {@code null}
+ * @param foregroundColor hex color of the data modules (RRGGBB), or {@code null} for the default
+ * @param backgroundColor hex background color (RRGGBB), or {@code null} for the default
+ */
+public record SerialRunRequest(String prefix, Long from, Long to, Integer padding, String format, Long offset,
+                               String preset, String foregroundColor, String backgroundColor) {
+}
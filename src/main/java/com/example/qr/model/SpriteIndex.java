@@ -0,0 +1,24 @@
+package com.example.qr.model;
+
+import java.util.List;
+
+/**
+ * Where each payload's code is in a sprite sheet.
+ *
+ * @param width    width of the sheet in pixels
+ * @param height   height of the sheet in pixels
+ * @param tileSize edge length of every tile in pixels
+ * @param columns  tiles per row
+ * @param tiles    one entry per payload, in request order
+ */
+public record SpriteIndex(int width, int height, int tileSize, int columns, List<Tile> tiles) {
+
+    /**
+     * @param index position of the payload in the request
+     * @param data  the encoded payload
+     * @param x     left edge of the tile
+     * @param y     top edge of the tile
+     */
+    public record Tile(int index, String data, int x, int y) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.qr.model;
+
+import java.util.List;
+
+/**
+ * Body of {@code POST /sprites} and {@code POST /sprites/index}.
+ *
+ * @param payloads        texts or URLs to encode, placed row by row
+ * @param columns         tiles per row, or {@code null} for a square-ish grid
+ * @param tileSize        edge length of each tile in pixels, or {@code null} for 200
+ * @param foregroundColor hex color of the data modules (RRGGBB); ignored when a preset is given
+ * @param backgroundColor hex background color (RRGGBB); ignored when a preset is given
+ * @param preset          id of a style preset supplying the colors and logo, or {@code null}
+ */
+public record SpriteSheetRequest(List<String> payloads, Integer columns, Integer tileSize, String foregroundColor,
+                                 String backgroundColor, String preset) {
+}
@@ -0,0 +1,12 @@
+package com.example.qr.model;
+
+/**
+ * A named, persisted combination of colors and logo that can be referenced from {@code /generate}.
+ *
+ * @param id              identifier used in the {@code preset} request parameter
+ * @param foregroundColor hex color of the data modules (RRGGBB)
+ * @param backgroundColor hex background color (RRGGBB)
+ * @param logoContentType content type of the stored logo, or {@code null} for the default logo
+ */
+public record StylePreset(String id, String foregroundColor, String backgroundColor, String logoContentType) {
+}
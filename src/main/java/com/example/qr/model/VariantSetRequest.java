@@ -0,0 +1,25 @@
+package com.example.qr.model;
+
+import java.util.List;
+
+/**
+ * Body of {@code POST /generate/variants}. One output is rendered for every combination of size, colors
+ * and format.
+ *
+ * @param data    text or URL to encode
+ * @param sizes   edge lengths in pixels
+ * @param colors  color pairs, or {@code null} for the preset's colors or the default ones
+ * @param formats {@code png} and/or {@code svg}, or {@code null} for PNG only
+ * @param preset  id of a style preset supplying the logo and default colors, or {@code null}
+ */
+public record VariantSetRequest(String data, List<Integer> sizes, List<Colors> colors, List<String> formats,
+                                String preset) {
+
+    /**
+     * @param name            part of the output names, or {@code null} to use the two colors
+     * @param foregroundColor hex color of the data modules (RRGGBB)
+     * @param backgroundColor hex background color (RRGGBB)
+     */
+    public record Colors(String name, String foregroundColor, String backgroundColor) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.qr.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Applies one endpoint's token-bucket limit to each client before the request reaches the controller.
+ * <p>
+ * Clients are identified by the configured API key header when it holds a configured key, and otherwise by
+ * the remote address, so sending a fresh key with every request neither escapes the limit nor evicts the
+ * buckets of other clients. Requests
+ * that upload an SVG logo are charged {@link RateLimitProperties#svgLogoCost()} tokens, because rasterizing
+ * them costs far more than a plain render. Rejected requests get {@code 429 Too Many Requests} with a
+ * {@code Retry-After} header; every limited response carries {@code X-RateLimit-Limit} and
+ * {@code X-RateLimit-Remaining}.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateLimitInterceptor.class);
+
+    static final String LIMIT_HEADER = "X-RateLimit-Limit";
+    static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    private final String endpoint;
+    private final RateLimitProperties.Endpoint config;
+    private final TokenBucketTable.Limit limit;
+    private final String clientHeader;
+    private final Set<String> apiKeys;
+    private final double svgLogoCost;
+    private final TokenBucketTable table;
+    private final LongSupplier clock;
+    private final Counter throttled;
+    private final String limitHeaderValue;
+
+    public RateLimitInterceptor(String endpoint, RateLimitProperties.Endpoint config, RateLimitProperties properties,
+                                TokenBucketTable table, MeterRegistry registry) {
+        this(endpoint, config, properties, table, registry, System::nanoTime);
+    }
+
+    RateLimitInterceptor(String endpoint, RateLimitProperties.Endpoint config, RateLimitProperties properties,
+                         TokenBucketTable table, MeterRegistry registry, LongSupplier clock) {
+        this.endpoint = endpoint;
+        this.config = config;
+        this.limit = new TokenBucketTable.Limit(config.capacity(), config.refillPerSecond());
+        this.clientHeader = properties.clientHeader();
+        this.apiKeys = properties.apiKeys();
+        this.svgLogoCost = properties.svgLogoCost();
+        this.table = table;
+        this.clock = clock;
+        this.throttled = Counter.builder("qr.ratelimit.throttled")
+                                .description("Requests rejected by the per-client rate limit")
+                                .tag("endpoint", endpoint)
+                                .register(registry);
+        this.limitHeaderValue = Long.toString((long) config.capacity());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String client = clientOf(request);
+        TokenBucketTable.Decision decision = table.tryAcquire(endpoint + '|' + client, limit, costOf(request),
+                                                              clock.getAsLong());
+        response.setHeader(LIMIT_HEADER, limitHeaderValue);
+        response.setHeader(REMAINING_HEADER, Long.toString(decision.remaining()));
+        if (decision.allowed()) {
+            return true;
+        }
+
+        long retryAfterSeconds = Math.max(1, (decision.retryAfterNanos() + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        throttled.increment();
+        LOGGER.debug("Throttled {} request from {}, retry after {}s", endpoint, client, retryAfterSeconds);
+        return false;
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String apiKey = request.getHeader(clientHeader);
+        if (apiKey != null && apiKeys.contains(apiKey)) {
+            return "key:" + apiKey;
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    /**
+     * Multipart requests are already resolved when interceptors run, so the uploaded parts can be inspected
+     * without reading the body a second time.
+     */
+    private double costOf(HttpServletRequest request) {
+        if (request instanceof MultipartHttpServletRequest multipart) {
+            for (MultipartFile file : multipart.getFileMap().values()) {
+                if (isSvg(file)) {
+                    return Math.max(config.cost(), svgLogoCost);
+                }
+            }
+        }
+        return config.cost();
+    }
+
+    private static boolean isSvg(MultipartFile file) {
+        String contentType = file.getContentType();
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("image/svg")) {
+            return true;
+        }
+        String filename = file.getOriginalFilename();
+        return filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".svg");
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.qr.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-client rate limits, configured under {@code qr.rate-limit}.
+ *
+ * @param enabled      whether requests are rate limited at all
+ * @param clientHeader header identifying API clients; requests without it are limited by remote address
+ * @param apiKeys      values of {@code clientHeader} that identify a client; any other value is ignored, so
+ *                     a made-up key cannot escape the remote address limit
+ * @param maxClients   upper bound on tracked clients, which bounds the limiter's memory
+ * @param svgLogoCost  tokens charged, instead of the endpoint's cost, for requests that upload an SVG logo
+ * @param endpoints    limits by endpoint name; every capacity must hold at least its cost and
+ *                     {@code svgLogoCost}
+ */
+@ConfigurationProperties("qr.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("X-API-Key") String clientHeader,
+        Set<String> apiKeys,
+        @DefaultValue("100000") int maxClients,
+        @DefaultValue("5") double svgLogoCost,
+        Map<String, Endpoint> endpoints) {
+
+    public RateLimitProperties {
+        apiKeys = apiKeys == null ? Set.of() : Set.copyOf(apiKeys);
+        endpoints = endpoints == null ? Map.of() : Map.copyOf(endpoints);
+        for (Map.Entry<String, Endpoint> endpoint : endpoints.entrySet()) {
+            // A request costing more than the bucket holds would be rejected however long the client waited
+            double largestCost = Math.max(endpoint.getValue().cost(), svgLogoCost);
+            if (endpoint.getValue().capacity() < largestCost) {
+                throw new IllegalArgumentException("qr.rate-limit.endpoints." + endpoint.getKey()
+                                                   + ".capacity must be at least " + largestCost
+                                                   + ", the cost of its largest request");
+            }
+        }
+    }
+
+    /**
+     * @param pattern         request path pattern, for example {@code /generate}
+     * @param capacity        maximum burst, in tokens
+     * @param refillPerSecond sustained rate, in tokens per second
+     * @param cost            tokens charged per request
+     */
+    public record Endpoint(String pattern, double capacity, double refillPerSecond, @DefaultValue("1") double cost) {
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.qr.ratelimit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token buckets for many clients in bounded memory.
+ * <p>
+ * The table is split into lock stripes selected by key hash, so concurrent requests from different
+ * clients rarely contend. Each stripe is a small access-ordered map that evicts its least recently used
+ * client once it holds {@code maxClients / stripes} entries; an evicted client simply starts again with a
+ * full bucket.
+ */
+public class TokenBucketTable {
+
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public TokenBucketTable(int maxClients) {
+        int perStripe = Math.max(1, maxClients / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /**
+     * Takes {@code cost} tokens from the bucket for {@code key} if it holds enough.
+     *
+     * @param nowNanos current {@link System#nanoTime()}
+     */
+    public Decision tryAcquire(String key, Limit limit, double cost, long nowNanos) {
+        Stripe stripe = stripes[spread(key.hashCode()) & (STRIPES - 1)];
+        stripe.lock.lock();
+        try {
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(limit.capacity(), nowNanos);
+                stripe.buckets.put(key, bucket);
+            } else {
+                bucket.refill(limit, nowNanos);
+            }
+            if (bucket.tokens >= cost) {
+                bucket.tokens -= cost;
+                return new Decision(true, (long) bucket.tokens, 0);
+            }
+            double missing = cost - bucket.tokens;
+            long retryAfterNanos = (long) Math.ceil(missing / limit.refillPerSecond() * 1_000_000_000L);
+            return new Decision(false, (long) bucket.tokens, retryAfterNanos);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Number of clients currently tracked.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.buckets.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @param capacity         maximum burst, in tokens
+     * @param refillPerSecond  sustained rate, in tokens per second
+     */
+    public record Limit(double capacity, double refillPerSecond) {
+    }
+
+    /**
+     * @param allowed          whether the tokens were taken
+     * @param remaining        whole tokens left in the bucket
+     * @param retryAfterNanos  when rejected, how long until enough tokens have accumulated
+     */
+    public record Decision(boolean allowed, long remaining, long retryAfterNanos) {
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefillNanos;
+
+        Bucket(double tokens, long nowNanos) {
+            this.tokens = tokens;
+            this.lastRefillNanos = nowNanos;
+        }
+
+        void refill(Limit limit, long nowNanos) {
+            long elapsed = nowNanos - lastRefillNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(limit.capacity(), tokens + elapsed * limit.refillPerSecond() / 1_000_000_000.0);
+                lastRefillNanos = nowNanos;
+            }
+        }
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Bucket> buckets;
+
+        Stripe(int maxEntries) {
+            this.buckets = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+    }
+}
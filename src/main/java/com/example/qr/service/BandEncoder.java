@@ -0,0 +1,222 @@
+package com.example.qr.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Renders and compresses the scanlines of a print image into one zlib stream.
+ * <p>
+ * Images below the size threshold are rendered and deflated on the calling thread. Larger images are cut
+ * into horizontal bands that are rendered and deflated in parallel on a dedicated fork/join pool, the way
+ * pigz does it: every band is compressed as raw deflate primed with the last 32 KB of the band before it,
+ * ends with a sync flush so the pieces concatenate on byte boundaries, and only the last band finishes
+ * the stream. The per-band Adler-32 checksums are combined into the zlib trailer. At most two bands per
+ * worker are in flight, so memory stays bounded however tall the image is.
+ */
+@Component
+public class BandEncoder implements AutoCloseable {
+
+    private static final int WINDOW_SIZE = 32 * 1024;
+    private static final int ADLER_BASE = 65521;
+    private static final int SEQUENTIAL_BAND_BYTES = 256 * 1024;
+    private static final int PARALLEL_BAND_BYTES = 1024 * 1024;
+    private static final int COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+    /** zlib's state for a 32 KB window at the default memory level. */
+    private static final int DEFLATER_BYTES = 268 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final int parallelBandBytes;
+
+    public BandEncoder() {
+        this(0, 2000);
+    }
+
+    @Autowired
+    public BandEncoder(@Value("${qr.print.parallelism:0}") int parallelism,
+                       @Value("${qr.print.parallel-threshold:2000}") int parallelThreshold) {
+        this(parallelism, parallelThreshold, PARALLEL_BAND_BYTES);
+    }
+
+    BandEncoder(int parallelism, int parallelThreshold, int parallelBandBytes) {
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(workers, daemonThreads(), null, false);
+        this.parallelThreshold = parallelThreshold;
+        this.parallelBandBytes = parallelBandBytes;
+    }
+
+    /**
+     * Upper estimate of the memory {@link #encode} holds at once for a {@code size} x {@code size} image:
+     * the band buffers in flight, their compressed copies and the deflaters' native state.
+     */
+    long workingSetBytes(int size) {
+        long scanline = ScanlineRaster.scanlineLength(size);
+        if (size < parallelThreshold || pool.getParallelism() == 1) {
+            return 2 * Math.max(SEQUENTIAL_BAND_BYTES, scanline) + DEFLATER_BYTES;
+        }
+        long band = Math.max(parallelBandBytes, scanline) + WINDOW_SIZE + scanline;
+        return pool.getParallelism() * 2L * (2 * band + DEFLATER_BYTES);
+    }
+
+    /**
+     * Writes the complete zlib stream of the raster's scanlines.
+     */
+    void encode(ScanlineRaster raster, OutputStream out) throws IOException {
+        if (raster.size() < parallelThreshold || pool.getParallelism() == 1) {
+            encodeSequentially(raster, out);
+        } else {
+            encodeInParallel(raster, out);
+        }
+    }
+
+    private static void encodeSequentially(ScanlineRaster raster, OutputStream out) throws IOException {
+        int size = raster.size();
+        int scanline = raster.scanlineLength();
+        int bandRows = Math.max(1, SEQUENTIAL_BAND_BYTES / scanline);
+        byte[] band = new byte[bandRows * scanline];
+        ScanlineRaster.Cursor cursor = raster.cursor();
+
+        Deflater deflater = new Deflater(COMPRESSION_LEVEL);
+        try {
+            DeflaterOutputStream compressed = new DeflaterOutputStream(out, deflater, PngWriter.IDAT_CHUNK_SIZE);
+            for (int row = 0; row < size; row += bandRows) {
+                int rows = Math.min(bandRows, size - row);
+                cursor.render(row, rows, band, 0);
+                compressed.write(band, 0, rows * scanline);
+            }
+            compressed.finish();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void encodeInParallel(ScanlineRaster raster, OutputStream out) throws IOException {
+        int size = raster.size();
+        int bandRows = Math.max(1, parallelBandBytes / raster.scanlineLength());
+        int maxInFlight = pool.getParallelism() * 2;
+
+        // zlib header: deflate with a 32K window, default compression, no preset dictionary
+        out.write(0x78);
+        out.write(0x9C);
+
+        long adler = 1;
+        Deque<ForkJoinTask<CompressedBand>> inFlight = new ArrayDeque<>();
+        int nextRow = 0;
+        try {
+            while (nextRow < size || !inFlight.isEmpty()) {
+                while (nextRow < size && inFlight.size() < maxInFlight) {
+                    int firstRow = nextRow;
+                    int rows = Math.min(bandRows, size - firstRow);
+                    inFlight.add(pool.submit(() -> compressBand(raster, firstRow, rows)));
+                    nextRow += rows;
+                }
+                CompressedBand band = inFlight.removeFirst().join();
+                out.write(band.data());
+                adler = adler32Combine(adler, band.adler(), band.length());
+            }
+        } finally {
+            inFlight.forEach(task -> task.cancel(true));
+        }
+
+        byte[] trailer = new byte[4];
+        PngWriter.putInt(trailer, 0, (int) adler);
+        out.write(trailer);
+    }
+
+    private static CompressedBand compressBand(ScanlineRaster raster, int firstRow, int rows) {
+        int scanline = raster.scanlineLength();
+        ScanlineRaster.Cursor cursor = raster.cursor();
+
+        // The band before this one ends with these rows; their bytes prime the deflate window
+        int dictionaryRows = Math.min(firstRow, (WINDOW_SIZE + scanline - 1) / scanline);
+        byte[] data = new byte[(dictionaryRows + rows) * scanline];
+        cursor.render(firstRow - dictionaryRows, dictionaryRows + rows, data, 0);
+        int dictionaryBytes = Math.min(WINDOW_SIZE, dictionaryRows * scanline);
+        int offset = dictionaryRows * scanline;
+        int length = rows * scanline;
+
+        boolean last = firstRow + rows == raster.size();
+        Deflater deflater = new Deflater(COMPRESSION_LEVEL, true);
+        try {
+            if (dictionaryBytes > 0) {
+                deflater.setDictionary(data, offset - dictionaryBytes, dictionaryBytes);
+            }
+            deflater.setInput(data, offset, length);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(1024, length / 16));
+            byte[] buffer = new byte[64 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, n);
+                }
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+
+            Adler32 adler = new Adler32();
+            adler.update(data, offset, length);
+            return new CompressedBand(compressed.toByteArray(), adler.getValue(), length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Adler-32 of two concatenated sequences from the checksums of each, as in zlib's
+     * {@code adler32_combine}.
+     */
+    static long adler32Combine(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= ((long) ADLER_BASE << 1)) {
+            sum2 -= ((long) ADLER_BASE << 1);
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private static ForkJoinPool.ForkJoinWorkerThreadFactory daemonThreads() {
+        return pool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("print-band-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record CompressedBand(byte[] data, long adler, int length) {
+    }
+}
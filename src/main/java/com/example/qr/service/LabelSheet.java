@@ -0,0 +1,311 @@
+package com.example.qr.service;
+
+import com.example.qr.model.Label;
+import com.example.qr.model.LabelLayout;
+import io.nayuki.qrcodegen.QrCode;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A multi-page PDF of QR code labels that is generated while it is written.
+ * <p>
+ * Each code is drawn as filled vector rectangles, one per horizontal run of modules, so it stays sharp
+ * at any print resolution. The logo badge is embedded once as an image XObject with a soft mask and
+ * referenced from every label. Pages are encoded and written one at a time and only object offsets are
+ * kept, so memory does not grow with the number of pages.
+ */
+public final class LabelSheet {
+
+    private static final double POINTS_PER_MM = 72 / 25.4;
+    private static final int QUIET_ZONE = 1;
+    private static final double CAPTION_LINE_HEIGHT = 1.5;
+    private static final String ELLIPSIS = "...";
+    /** Glyph widths of Helvetica for ASCII 32 to 126, in 1/1000 em. */
+    private static final int[] HELVETICA_WIDTHS = {
+            278, 278, 355, 556, 556, 889, 667, 191, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 278, 278, 584, 584, 584, 556,
+            1015, 667, 667, 722, 722, 667, 611, 778, 722, 278, 500, 667, 556, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 278, 278, 278, 469, 556,
+            333, 556, 556, 500, 556, 556, 278, 556, 556, 222, 222, 500, 222, 833, 556, 556,
+            556, 556, 333, 500, 278, 556, 500, 722, 500, 500, 500, 334, 260, 334, 584
+    };
+    private static final int DEFAULT_WIDTH = 556;
+    /** Smallest code edge accepted, in points; below this codes are too small to scan reliably. */
+    private static final double MIN_CODE_SIZE = 36;
+
+    private final List<Label> labels;
+    private final LabelLayout layout;
+    private final PreparedStyle style;
+    private final int standardSize;
+    private final boolean hasCaptions;
+
+    /**
+     * @param standardSize edge length of the standard raster render; the badge keeps the same proportion
+     *                     to the code as it has there
+     */
+    LabelSheet(List<Label> labels, LabelLayout layout, PreparedStyle style, int standardSize) {
+        this.labels = labels;
+        this.layout = layout;
+        this.style = style;
+        this.standardSize = standardSize;
+        this.hasCaptions = labels.stream().anyMatch(label -> label.caption() != null && !label.caption().isBlank());
+        if (layout.columns() < 1 || layout.rows() < 1 || layout.marginMm() < 0 || layout.gutterMm() < 0
+            || layout.captionFontSize() < 4 || layout.captionFontSize() > 72) {
+            throw new IllegalArgumentException("Invalid label layout: " + layout);
+        }
+        if (codeSize() < MIN_CODE_SIZE) {
+            throw new IllegalArgumentException("Label layout leaves less than " + (int) MIN_CODE_SIZE
+                                               + "pt per code");
+        }
+    }
+
+    public int pageCount() {
+        return (labels.size() + layout.labelsPerPage() - 1) / layout.labelsPerPage();
+    }
+
+    /**
+     * Generates the document and writes it as a PDF. The stream is not closed.
+     */
+    public void writePdf(OutputStream out) throws IOException {
+        PdfWriter pdf = new PdfWriter(out);
+        int catalog = pdf.reserve();
+        int pages = pdf.reserve();
+
+        String resources = writeResources(pdf);
+
+        double pageWidth = layout.pageSize().width();
+        double pageHeight = layout.pageSize().height();
+        String mediaBox = "[0 0 " + PdfWriter.number(pageWidth) + " " + PdfWriter.number(pageHeight) + "]";
+        int[] kids = new int[pageCount()];
+        int perPage = layout.labelsPerPage();
+        for (int page = 0; page < kids.length; page++) {
+            int first = page * perPage;
+            List<Label> pageLabels = labels.subList(first, Math.min(labels.size(), first + perPage));
+
+            int contents = pdf.reserve();
+            pdf.writeStream(contents, "/Filter /FlateDecode", deflate(pageContent(pageLabels)));
+            kids[page] = pdf.reserve();
+            pdf.writeObject(kids[page], "<< /Type /Page /Parent " + pages + " 0 R /MediaBox " + mediaBox
+                                        + " /Resources " + resources + " /Contents " + contents + " 0 R >>");
+            pdf.flush();
+        }
+
+        StringBuilder kidList = new StringBuilder(kids.length * 8);
+        for (int kid : kids) {
+            kidList.append(kid).append(" 0 R ");
+        }
+        pdf.writeObject(pages, "<< /Type /Pages /Kids [" + kidList.toString().trim() + "] /Count " + kids.length + " >>");
+        pdf.writeObject(catalog, "<< /Type /Catalog /Pages " + pages + " 0 R >>");
+        pdf.finish(catalog);
+    }
+
+    /**
+     * Writes the objects shared by every page and returns the resource dictionary that refers to them.
+     */
+    private String writeResources(PdfWriter pdf) throws IOException {
+        StringBuilder resources = new StringBuilder("<< /ProcSet [/PDF /Text /ImageC]");
+        if (style.badge() != null) {
+            BufferedImage image = style.badge().image();
+            int width = image.getWidth();
+            int height = image.getHeight();
+            byte[] rgb = new byte[width * height * 3];
+            byte[] alpha = new byte[width * height];
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    int i = y * width + x;
+                    rgb[i * 3] = (byte) (row[x] >>> 16);
+                    rgb[i * 3 + 1] = (byte) (row[x] >>> 8);
+                    rgb[i * 3 + 2] = (byte) row[x];
+                    alpha[i] = (byte) (row[x] >>> 24);
+                }
+            }
+            String size = " /Width " + width + " /Height " + height + " /BitsPerComponent 8 /Filter /FlateDecode";
+            int mask = pdf.reserve();
+            pdf.writeStream(mask, "/Type /XObject /Subtype /Image /ColorSpace /DeviceGray" + size, deflate(alpha));
+            int logo = pdf.reserve();
+            pdf.writeStream(logo, "/Type /XObject /Subtype /Image /ColorSpace /DeviceRGB" + size
+                                  + " /SMask " + mask + " 0 R", deflate(rgb));
+            resources.append(" /XObject << /Logo ").append(logo).append(" 0 R >>");
+        }
+        if (hasCaptions) {
+            int font = pdf.reserve();
+            pdf.writeObject(font, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>");
+            resources.append(" /Font << /F1 ").append(font).append(" 0 R >>");
+        }
+        return resources.append(" >>").toString();
+    }
+
+    private byte[] pageContent(List<Label> pageLabels) {
+        double margin = layout.marginMm() * POINTS_PER_MM;
+        double gutter = layout.gutterMm() * POINTS_PER_MM;
+        double fontSize = layout.captionFontSize();
+        double cellWidth = cellWidth();
+        double cellHeight = cellHeight();
+        double codeSize = codeSize();
+
+        StringBuilder content = new StringBuilder(pageLabels.size() * 8192);
+        for (int i = 0; i < pageLabels.size(); i++) {
+            Label label = pageLabels.get(i);
+            double cellLeft = margin + (i % layout.columns()) * (cellWidth + gutter);
+            double cellTop = layout.pageSize().height() - margin - (i / layout.columns()) * (cellHeight + gutter);
+            double left = cellLeft + (cellWidth - codeSize) / 2;
+            double bottom = cellTop - codeSize;
+
+            drawCode(content, QrCode.encodeText(label.data(), QrCode.Ecc.HIGH), left, bottom, codeSize);
+            if (label.caption() != null && !label.caption().isBlank()) {
+                drawCaption(content, label.caption(), cellLeft, cellWidth, bottom - fontSize * 1.1, fontSize);
+            }
+        }
+        return content.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private double cellWidth() {
+        double margin = layout.marginMm() * POINTS_PER_MM;
+        double gutter = layout.gutterMm() * POINTS_PER_MM;
+        return (layout.pageSize().width() - 2 * margin - (layout.columns() - 1) * gutter) / layout.columns();
+    }
+
+    private double cellHeight() {
+        double margin = layout.marginMm() * POINTS_PER_MM;
+        double gutter = layout.gutterMm() * POINTS_PER_MM;
+        return (layout.pageSize().height() - 2 * margin - (layout.rows() - 1) * gutter) / layout.rows();
+    }
+
+    /**
+     * Edge length of every code: the largest square that fits a cell above the caption line.
+     */
+    private double codeSize() {
+        double captionHeight = hasCaptions ? layout.captionFontSize() * CAPTION_LINE_HEIGHT : 0;
+        return Math.min(cellWidth(), cellHeight() - captionHeight);
+    }
+
+    private void drawCode(StringBuilder content, QrCode qr, double left, double bottom, double size) {
+        double module = size / (qr.size + QUIET_ZONE * 2);
+        content.append("q\n");
+        appendColor(content, style.backgroundColor());
+        content.append(PdfWriter.number(left)).append(' ').append(PdfWriter.number(bottom)).append(' ')
+               .append(PdfWriter.number(size)).append(' ').append(PdfWriter.number(size)).append(" re f\n");
+
+        // Module space: one unit per module, origin at the top-left module, y growing downwards
+        content.append("q ").append(number4(module)).append(" 0 0 ").append(number4(-module)).append(' ')
+               .append(PdfWriter.number(left + module * QUIET_ZONE)).append(' ')
+               .append(PdfWriter.number(bottom + size - module * QUIET_ZONE)).append(" cm\n");
+        appendColor(content, style.foregroundColor());
+        appendRuns(content, qr, false);
+        content.append("0 0 0 rg\n");
+        appendRuns(content, qr, true);
+        content.append("Q\n");
+
+        LogoBadge badge = style.badge();
+        if (badge != null) {
+            int canvas = (qr.size + QUIET_ZONE * 2) * (standardSize / qr.size);
+            double scale = size / canvas;
+            double width = badge.image().getWidth() * scale;
+            double height = badge.image().getHeight() * scale;
+            double x = left + badge.x(canvas) * scale;
+            double y = bottom + size - badge.y(canvas) * scale - height;
+            content.append("q ").append(PdfWriter.number(width)).append(" 0 0 ").append(PdfWriter.number(height))
+                   .append(' ').append(PdfWriter.number(x)).append(' ').append(PdfWriter.number(y))
+                   .append(" cm /Logo Do Q\n");
+        }
+        content.append("Q\n");
+    }
+
+    /**
+     * Appends one rectangle per horizontal run of dark modules, either those of the position patterns or
+     * all the others, and fills them together.
+     */
+    private static void appendRuns(StringBuilder content, QrCode qr, boolean positionPatterns) {
+        for (int y = 0; y < qr.size; y++) {
+            int x = 0;
+            while (x < qr.size) {
+                if (!isDark(qr, x, y, positionPatterns)) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < qr.size && isDark(qr, x, y, positionPatterns)) {
+                    x++;
+                }
+                content.append(start).append(' ').append(y).append(' ').append(x - start).append(" 1 re\n");
+            }
+        }
+        content.append("f\n");
+    }
+
+    private static boolean isDark(QrCode qr, int x, int y, boolean positionPatterns) {
+        return qr.getModule(x, y) && ScanlineRaster.isInPositionPattern(x, y, qr.size) == positionPatterns;
+    }
+
+    private static void drawCaption(StringBuilder content, String caption, double cellLeft, double cellWidth,
+                                    double baseline, double fontSize) {
+        String text = fit(caption.strip(), cellWidth, fontSize);
+        double x = cellLeft + (cellWidth - width(text, fontSize)) / 2;
+        content.append("BT 0 0 0 rg /F1 ").append(PdfWriter.number(fontSize)).append(" Tf ")
+               .append(PdfWriter.number(x)).append(' ').append(PdfWriter.number(baseline)).append(" Td ")
+               .append(PdfWriter.literal(text)).append(" Tj ET\n");
+    }
+
+    /**
+     * Shortens the caption with an ellipsis until it fits the label width, in one pass over the prefix
+     * widths.
+     */
+    static String fit(String text, double maxWidth, double fontSize) {
+        if (width(text, fontSize) <= maxWidth) {
+            return text;
+        }
+        long prefix = units(ELLIPSIS);
+        int end = 0;
+        while (end < text.length() && (prefix + units(text.charAt(end))) * fontSize / 1000 <= maxWidth) {
+            prefix += units(text.charAt(end));
+            end++;
+        }
+        return text.substring(0, end) + ELLIPSIS;
+    }
+
+    static double width(String text, double fontSize) {
+        return units(text) * fontSize / 1000;
+    }
+
+    private static long units(String text) {
+        long units = 0;
+        for (int i = 0; i < text.length(); i++) {
+            units += units(text.charAt(i));
+        }
+        return units;
+    }
+
+    private static int units(char c) {
+        return c >= 32 && c <= 126 ? HELVETICA_WIDTHS[c - 32] : DEFAULT_WIDTH;
+    }
+
+    private static void appendColor(StringBuilder content, int argb) {
+        content.append(String.format(Locale.ROOT, "%.3f %.3f %.3f rg\n", ((argb >>> 16) & 0xFF) / 255.0,
+                                     ((argb >>> 8) & 0xFF) / 255.0, (argb & 0xFF) / 255.0));
+    }
+
+    private static String number4(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(256, data.length / 4));
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+            out.write(data);
+        } finally {
+            deflater.end();
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.qr.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A logo composed with its shadow, rounded background and border into one transparent image.
+ *
+ * @param image      the composed badge, {@code margin} pixels larger than the background on each side
+ *                   plus room for the shadow offset
+ * @param logoWidth  width of the logo inside the badge
+ * @param logoHeight height of the logo inside the badge
+ * @param border     padding between the logo and the edge of its background
+ * @param margin     room left around the background for the border stroke, which is centered on the
+ *                   background edge
+ */
+public record LogoBadge(BufferedImage image, int logoWidth, int logoHeight, int border, int margin) {
+
+    /**
+     * Horizontal position of the badge image that centers the logo on a canvas of the given width.
+     */
+    public int x(int canvasWidth) {
+        return (canvasWidth - logoWidth) / 2 - border - margin;
+    }
+
+    /**
+     * Vertical position of the badge image that centers the logo on a canvas of the given height.
+     */
+    public int y(int canvasHeight) {
+        return (canvasHeight - logoHeight) / 2 - border - margin;
+    }
+
+    /**
+     * Returns the badge resized by {@code factor}, with the logo position scaled to match.
+     */
+    LogoBadge scaled(double factor) {
+        if (factor == 1) {
+            return this;
+        }
+        int longerSide = Math.max(image.getWidth(), image.getHeight());
+        BufferedImage resized = RasterLogoDecoder.scaleToFit(image, Math.max(1, (int) Math.round(longerSide * factor)));
+        return new LogoBadge(resized, (int) Math.round(logoWidth * factor), (int) Math.round(logoHeight * factor),
+                             (int) Math.round(border * factor), (int) Math.round(margin * factor));
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.qr.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nayuki.qrcodegen.QrCode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Encoded matrices of recently requested payloads, so restyling the same payload only costs rendering.
+ * <p>
+ * Entries are held in their bit-packed {@link ModuleMatrix} form and the cache is bounded by an estimate of
+ * the bytes they occupy, not by entry count, since a version 40 matrix is 180 times the size of a
+ * version 1 matrix. The cache is split into lock stripes selected by key hash, each an access-ordered map
+ * that evicts its least recently used entries once it exceeds its share of the budget. Encoding happens
+ * outside the lock, so two concurrent misses on one payload may both encode it. Misses are encoded by the
+ * {@link QrEncoder} selected with {@code qr.encoder}.
+ */
+@Component
+public class MatrixCache {
+
+    private static final int STRIPES = 16;
+    /** Map entry, key, string and matrix headers, estimated for a 64-bit JVM with compressed pointers. */
+    private static final int ENTRY_OVERHEAD = 160;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Counter hits;
+    private final Counter misses;
+    private final QrEncoder encoder;
+
+    public MatrixCache() {
+        this(8L << 20, new SimpleMeterRegistry());
+    }
+
+    public MatrixCache(long maxBytes, MeterRegistry registry) {
+        this(maxBytes, registry, QrEncoder.NAYUKI);
+    }
+
+    @Autowired
+    public MatrixCache(@Value("${qr.matrix-cache.max-bytes:8388608}") long maxBytes, MeterRegistry registry,
+                       @Value("${qr.encoder:nayuki}") String encoder) {
+        this(maxBytes, registry, QrEncoder.named(encoder));
+    }
+
+    public MatrixCache(long maxBytes, MeterRegistry registry, QrEncoder encoder) {
+        this.encoder = encoder;
+        long perStripe = maxBytes / STRIPES;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+        this.hits = Counter.builder("qr.matrix.cache.requests")
+                           .description("Encoded matrix lookups")
+                           .tag("result", "hit")
+                           .register(registry);
+        this.misses = Counter.builder("qr.matrix.cache.requests")
+                             .description("Encoded matrix lookups")
+                             .tag("result", "miss")
+                             .register(registry);
+        Gauge.builder("qr.matrix.cache.bytes", this, MatrixCache::bytes)
+             .description("Estimated memory held by cached matrices")
+             .baseUnit("bytes")
+             .register(registry);
+    }
+
+    /**
+     * Returns the matrix for {@code data} at error correction level {@code ecc} or higher, encoding it on a
+     * miss with the library's default policy of boosting the level when it fits in the same version.
+     */
+    public ModuleMatrix encode(String data, QrCode.Ecc ecc) {
+        Key key = new Key(data, ecc, true);
+        Stripe stripe = stripes[spread(key.hashCode()) & (STRIPES - 1)];
+
+        stripe.lock.lock();
+        try {
+            ModuleMatrix cached = stripe.matrices.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        misses.increment();
+        ModuleMatrix matrix = encoder.encode(data, ecc);
+        stripe.put(key, matrix, weight(data, matrix));
+        return matrix;
+    }
+
+    /**
+     * Encodes {@code data} as {@link #encode} does, with the same encoder, but neither looks it up nor
+     * keeps it. For one-off payloads such as the codes of a sprite sheet, which would otherwise evict the
+     * matrices of repeated interactive requests.
+     */
+    public ModuleMatrix encodeUncached(String data, QrCode.Ecc ecc) {
+        return encoder.encode(data, ecc);
+    }
+
+    /**
+     * Estimated bytes held by all cached matrices.
+     */
+    public long bytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                bytes += stripe.bytes;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return bytes;
+    }
+
+    private static long weight(String data, ModuleMatrix matrix) {
+        return ENTRY_OVERHEAD + 2L * data.length() + (matrix.size() * matrix.size() + 7) / 8;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @param boostEcc whether the encoder may raise the level above {@code ecc}; it changes the matrix, so it
+     *                 is part of the key
+     */
+    private record Key(String data, QrCode.Ecc ecc, boolean boostEcc) {
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Key, ModuleMatrix> matrices = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxBytes;
+        private long bytes;
+
+        Stripe(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        void put(Key key, ModuleMatrix matrix, long weight) {
+            if (weight > maxBytes) {
+                return;
+            }
+            lock.lock();
+            try {
+                if (matrices.putIfAbsent(key, matrix) != null) {
+                    return;
+                }
+                bytes += weight;
+                Iterator<Map.Entry<Key, ModuleMatrix>> eldest = matrices.entrySet().iterator();
+                while (bytes > maxBytes) {
+                    Map.Entry<Key, ModuleMatrix> entry = eldest.next();
+                    bytes -= weight(entry.getKey().data(), entry.getValue());
+                    eldest.remove();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.qr.service;
+
+import io.nayuki.qrcodegen.QrCode;
+
+import java.util.Arrays;
+
+/**
+ * The encoded modules of a QR code, without any rendering, so clients can draw the code themselves.
+ * <p>
+ * Modules are packed one bit per module, row by row from the top left, most significant bit first, with
+ * a set bit for a dark module. Rows are not padded, so module {@code (x, y)} is bit {@code y * size + x}.
+ */
+public final class ModuleMatrix {
+
+    /** Bytes before the bitmap in {@link #toBinary()}: version, size, ECC level and mask. */
+    public static final int BINARY_HEADER_LENGTH = 4;
+    private static final int TEXT_QUIET_ZONE = 2;
+
+    private final int version;
+    private final int size;
+    private final QrCode.Ecc ecc;
+    private final int mask;
+    private final byte[] modules;
+
+    private ModuleMatrix(int version, int size, QrCode.Ecc ecc, int mask, byte[] modules) {
+        this.version = version;
+        this.size = size;
+        this.ecc = ecc;
+        this.mask = mask;
+        this.modules = modules;
+    }
+
+    public static ModuleMatrix of(QrCode qrCode) {
+        int size = qrCode.size;
+        byte[] modules = new byte[(size * size + 7) / 8];
+        int bit = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++, bit++) {
+                if (qrCode.getModule(x, y)) {
+                    modules[bit >>> 3] |= (byte) (0x80 >>> (bit & 7));
+                }
+            }
+        }
+        return new ModuleMatrix(qrCode.version, size, qrCode.errorCorrectionLevel, qrCode.mask, modules);
+    }
+
+    /**
+     * Wraps an already packed bitmap of a version {@code version} code; the array is not copied.
+     */
+    static ModuleMatrix of(int version, QrCode.Ecc ecc, int mask, byte[] modules) {
+        return new ModuleMatrix(version, version * 4 + 17, ecc, mask, modules);
+    }
+
+    public int version() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public QrCode.Ecc ecc() {
+        return ecc;
+    }
+
+    public int mask() {
+        return mask;
+    }
+
+    public boolean isDark(int x, int y) {
+        int bit = y * size + x;
+        return (modules[bit >>> 3] & (0x80 >>> (bit & 7))) != 0;
+    }
+
+    /**
+     * The packed bitmap on its own.
+     */
+    public byte[] modules() {
+        return modules.clone();
+    }
+
+    /**
+     * The bitmap preceded by a {@value #BINARY_HEADER_LENGTH}-byte header of version, size, ECC level
+     * (0 = L, 1 = M, 2 = Q, 3 = H) and mask, each one unsigned byte.
+     */
+    public byte[] toBinary() {
+        byte[] out = new byte[BINARY_HEADER_LENGTH + modules.length];
+        out[0] = (byte) version;
+        out[1] = (byte) size;
+        out[2] = (byte) ecc.ordinal();
+        out[3] = (byte) mask;
+        System.arraycopy(modules, 0, out, BINARY_HEADER_LENGTH, modules.length);
+        return out;
+    }
+
+    /**
+     * Renders two module rows per line with Unicode half blocks, inside a quiet zone of
+     * {@value #TEXT_QUIET_ZONE} modules. Blocks are drawn for dark modules; with {@code invert} they are
+     * drawn for light modules instead, which scans better on terminals with a dark background.
+     */
+    public String toText(boolean invert) {
+        int extent = size + 2 * TEXT_QUIET_ZONE;
+        StringBuilder text = new StringBuilder((extent + 1) * (extent + 1) / 2);
+        for (int y = 0; y < extent; y += 2) {
+            for (int x = 0; x < extent; x++) {
+                boolean top = textModule(x, y) != invert;
+                boolean bottom = textModule(x, y + 1) != invert;
+                text.append(top ? (bottom ? '█' : '▀') : (bottom ? '▄' : ' '));
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Whether the module is dark, in coordinates that include the quiet zone.
+     */
+    private boolean textModule(int x, int y) {
+        int moduleX = x - TEXT_QUIET_ZONE;
+        int moduleY = y - TEXT_QUIET_ZONE;
+        return moduleX >= 0 && moduleX < size && moduleY >= 0 && moduleY < size && isDark(moduleX, moduleY);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ModuleMatrix other && version == other.version && ecc == other.ecc
+                && mask == other.mask && Arrays.equals(modules, other.modules);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(modules) + version;
+    }
+}
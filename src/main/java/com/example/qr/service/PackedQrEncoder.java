@@ -0,0 +1,616 @@
+package com.example.qr.service;
+
+import io.nayuki.qrcodegen.DataTooLongException;
+import io.nayuki.qrcodegen.QrCode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Encodes the same codes as the Nayuki library with less work per code.
+ * <p>
+ * Modules are held as rows of 64-bit words, one bit per module, alongside a column-major copy of the same
+ * bits. Everything that depends only on the version (function patterns, the codeword placement order and
+ * the eight mask patterns restricted to data modules) is built once per version and cached. Trying a mask
+ * is then one XOR per word on each copy plus the 30 format modules, and the penalty rules are scored a
+ * word at a time for 2x2 blocks and dark balance and a run at a time, from the bit transitions, for runs
+ * and finder-like patterns. Reed-Solomon division uses log and antilog tables.
+ * <p>
+ * Segmentation, version choice, error correction boosting, bit placement and every penalty rule follow
+ * the library exactly, including its tie-breaking, so both encoders pick the same mask.
+ */
+final class PackedQrEncoder implements QrEncoder {
+
+    private static final int PENALTY_N1 = 3;
+    private static final int PENALTY_N2 = 3;
+    private static final int PENALTY_N3 = 40;
+    private static final int PENALTY_N4 = 10;
+    private static final String ALPHANUMERIC_CHARSET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+
+    private static final int MODE_NUMERIC = 0x1;
+    private static final int MODE_ALPHANUMERIC = 0x2;
+    private static final int MODE_BYTE = 0x4;
+
+    /** Indexed by ECC ordinal (L, M, Q, H) and version. */
+    private static final int[][] ECC_CODEWORDS_PER_BLOCK = {
+            {-1, 7, 10, 15, 20, 26, 18, 20, 24, 30, 18, 20, 24, 26, 30, 22, 24, 28, 30, 28, 28, 28, 28, 30, 30, 26, 28, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30},
+            {-1, 10, 16, 26, 18, 24, 16, 18, 22, 22, 26, 30, 22, 22, 24, 24, 28, 28, 26, 26, 26, 26, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28},
+            {-1, 13, 22, 18, 26, 18, 24, 18, 22, 20, 24, 28, 26, 24, 20, 30, 24, 28, 28, 26, 30, 28, 30, 30, 30, 30, 28, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30},
+            {-1, 17, 28, 22, 16, 22, 28, 26, 26, 24, 28, 24, 28, 22, 24, 24, 30, 28, 28, 26, 28, 30, 24, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30},
+    };
+    private static final int[][] NUM_ERROR_CORRECTION_BLOCKS = {
+            {-1, 1, 1, 1, 1, 1, 2, 2, 2, 2, 4, 4, 4, 4, 4, 6, 6, 6, 6, 7, 8, 8, 9, 9, 10, 12, 12, 12, 13, 14, 15, 16, 17, 18, 19, 19, 20, 21, 22, 24, 25},
+            {-1, 1, 1, 1, 2, 2, 4, 4, 4, 5, 5, 5, 8, 9, 9, 10, 10, 11, 13, 14, 16, 17, 17, 18, 20, 21, 23, 25, 26, 28, 29, 31, 33, 35, 37, 38, 40, 43, 45, 47, 49},
+            {-1, 1, 1, 2, 2, 4, 4, 6, 6, 8, 8, 8, 10, 12, 16, 12, 17, 16, 18, 21, 20, 23, 23, 25, 27, 29, 34, 34, 35, 38, 40, 43, 45, 48, 51, 53, 56, 59, 62, 65, 68},
+            {-1, 1, 1, 2, 4, 4, 4, 5, 6, 8, 8, 11, 11, 16, 16, 18, 16, 19, 21, 25, 25, 25, 34, 30, 32, 35, 37, 40, 42, 45, 48, 51, 54, 57, 60, 63, 66, 70, 74, 77, 81},
+    };
+    /** Format bits of each ECC ordinal. */
+    private static final int[] ECC_FORMAT_BITS = {1, 0, 3, 2};
+
+    private static final int[] GF_EXP = new int[512];
+    private static final int[] GF_LOG = new int[256];
+    /** Logs of the generator coefficients for each degree, or -1 for a zero coefficient. */
+    private static final int[][] DIVISOR_LOGS = new int[31][];
+
+    static {
+        int x = 1;
+        for (int i = 0; i < 255; i++) {
+            GF_EXP[i] = x;
+            GF_LOG[x] = i;
+            x <<= 1;
+            if (x >= 0x100) {
+                x ^= 0x11D;
+            }
+        }
+        for (int i = 255; i < GF_EXP.length; i++) {
+            GF_EXP[i] = GF_EXP[i - 255];
+        }
+        for (int degree = 1; degree < DIVISOR_LOGS.length; degree++) {
+            DIVISOR_LOGS[degree] = divisorLogs(degree);
+        }
+    }
+
+    private final AtomicReferenceArray<Template> templates = new AtomicReferenceArray<>(VersionLayout.MAX_VERSION + 1);
+
+    @Override
+    public ModuleMatrix encode(String text, QrCode.Ecc ecc) {
+        Segment segment = Segment.of(text);
+
+        int version;
+        int dataUsedBits;
+        for (version = VersionLayout.MIN_VERSION; ; version++) {
+            int dataCapacityBits = numDataCodewords(version, ecc.ordinal()) * 8;
+            dataUsedBits = segment == null ? 0 : segment.totalBits(version);
+            if (dataUsedBits != -1 && dataUsedBits <= dataCapacityBits) {
+                break;
+            }
+            if (version >= VersionLayout.MAX_VERSION) {
+                String message = "Segment too long";
+                if (dataUsedBits != -1) {
+                    message = String.format("Data length = %d bits, Max capacity = %d bits", dataUsedBits,
+                                            dataCapacityBits);
+                }
+                throw new DataTooLongException(message);
+            }
+        }
+        int ecl = ecc.ordinal();
+        for (int boosted = 0; boosted < ECC_FORMAT_BITS.length; boosted++) {
+            if (dataUsedBits <= numDataCodewords(version, boosted) * 8) {
+                ecl = boosted;
+            }
+        }
+
+        byte[] codewords = addEccAndInterleave(dataCodewords(segment, version, ecl), version, ecl);
+        return draw(template(version), codewords, ecl);
+    }
+
+    /**
+     * The data codewords: the segment, a terminator of up to four zero bits, zero bits to a byte boundary,
+     * then alternating pad bytes.
+     */
+    private static byte[] dataCodewords(Segment segment, int version, int ecl) {
+        int capacityBits = numDataCodewords(version, ecl) * 8;
+        BitWriter bits = new BitWriter(capacityBits / 8);
+        if (segment != null) {
+            bits.append(segment.mode(), 4);
+            bits.append(segment.numChars(), charCountBits(segment.mode(), version));
+            segment.appendData(bits);
+        }
+        bits.append(0, Math.min(4, capacityBits - bits.length()));
+        bits.append(0, (8 - bits.length() % 8) % 8);
+        for (int pad = 0xEC; bits.length() < capacityBits; pad ^= 0xEC ^ 0x11) {
+            bits.append(pad, 8);
+        }
+        return bits.bytes();
+    }
+
+    private static byte[] addEccAndInterleave(byte[] data, int version, int ecl) {
+        int numBlocks = NUM_ERROR_CORRECTION_BLOCKS[ecl][version];
+        int blockEccLength = ECC_CODEWORDS_PER_BLOCK[ecl][version];
+        int rawCodewords = numRawDataModules(version) / 8;
+        int numShortBlocks = numBlocks - rawCodewords % numBlocks;
+        int shortBlockLength = rawCodewords / numBlocks;
+        int[] divisor = DIVISOR_LOGS[blockEccLength];
+
+        byte[][] blocks = new byte[numBlocks][];
+        for (int i = 0, k = 0; i < numBlocks; i++) {
+            int dataLength = shortBlockLength - blockEccLength + (i < numShortBlocks ? 0 : 1);
+            byte[] block = new byte[shortBlockLength + 1];
+            System.arraycopy(data, k, block, 0, dataLength);
+            reedSolomonRemainder(data, k, dataLength, divisor, block, block.length - blockEccLength);
+            k += dataLength;
+            blocks[i] = block;
+        }
+
+        byte[] result = new byte[rawCodewords];
+        for (int i = 0, k = 0; i < blocks[0].length; i++) {
+            for (int j = 0; j < blocks.length; j++) {
+                // The short blocks have no codeword at this position
+                if (i != shortBlockLength - blockEccLength || j >= numShortBlocks) {
+                    result[k++] = blocks[j][i];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the remainder of {@code data[offset, offset + length)} divided by the generator into
+     * {@code out} from {@code outOffset}.
+     */
+    private static void reedSolomonRemainder(byte[] data, int offset, int length, int[] divisorLogs, byte[] out,
+                                             int outOffset) {
+        int degree = divisorLogs.length;
+        int[] remainder = new int[degree];
+        for (int i = offset; i < offset + length; i++) {
+            int factor = (data[i] & 0xFF) ^ remainder[0];
+            System.arraycopy(remainder, 1, remainder, 0, degree - 1);
+            remainder[degree - 1] = 0;
+            if (factor != 0) {
+                int factorLog = GF_LOG[factor];
+                for (int j = 0; j < degree; j++) {
+                    if (divisorLogs[j] >= 0) {
+                        remainder[j] ^= GF_EXP[divisorLogs[j] + factorLog];
+                    }
+                }
+            }
+        }
+        for (int j = 0; j < degree; j++) {
+            out[outOffset + j] = (byte) remainder[j];
+        }
+    }
+
+    /**
+     * Coefficients of the product of {@code (x - 2^i)} for {@code i} below {@code degree}, highest first and
+     * without the leading 1, as logs.
+     */
+    private static int[] divisorLogs(int degree) {
+        int[] coefficients = new int[degree];
+        coefficients[degree - 1] = 1;
+        int root = 1;
+        for (int i = 0; i < degree; i++) {
+            for (int j = 0; j < degree; j++) {
+                coefficients[j] = multiply(coefficients[j], root);
+                if (j + 1 < degree) {
+                    coefficients[j] ^= coefficients[j + 1];
+                }
+            }
+            root = multiply(root, 0x02);
+        }
+        int[] logs = new int[degree];
+        for (int j = 0; j < degree; j++) {
+            logs[j] = coefficients[j] == 0 ? -1 : GF_LOG[coefficients[j]];
+        }
+        return logs;
+    }
+
+    private static int multiply(int x, int y) {
+        return x == 0 || y == 0 ? 0 : GF_EXP[GF_LOG[x] + GF_LOG[y]];
+    }
+
+    /**
+     * Places the codewords, scores every mask, and returns the modules with the best one applied.
+     */
+    private static ModuleMatrix draw(Template template, byte[] codewords, int ecl) {
+        int size = template.size;
+        int words = template.words;
+        long[] baseRows = template.functionRows.clone();
+        long[] baseColumns = template.functionColumns.clone();
+        int[] positions = template.dataPositions;
+        int bitCount = Math.min(codewords.length * 8, positions.length);
+        for (int i = 0; i < bitCount; i++) {
+            if (((codewords[i >>> 3] >>> (7 - (i & 7))) & 1) != 0) {
+                int x = positions[i] % size;
+                int y = positions[i] / size;
+                baseRows[y * words + (x >>> 6)] |= 1L << x;
+                baseColumns[x * words + (y >>> 6)] |= 1L << y;
+            }
+        }
+
+        long[] rows = new long[baseRows.length];
+        long[] columns = new long[baseColumns.length];
+        int bestMask = 0;
+        int minPenalty = Integer.MAX_VALUE;
+        for (int mask = 0; mask < 8; mask++) {
+            applyMask(template, baseRows, baseColumns, mask, ecl, rows, columns);
+            int penalty = penalty(rows, columns, size, words);
+            if (penalty < minPenalty) {
+                bestMask = mask;
+                minPenalty = penalty;
+            }
+        }
+        applyMask(template, baseRows, baseColumns, bestMask, ecl, rows, columns);
+
+        byte[] modules = new byte[(size * size + 7) / 8];
+        int bit = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++, bit++) {
+                if ((rows[y * words + (x >>> 6)] & (1L << x)) != 0) {
+                    modules[bit >>> 3] |= (byte) (0x80 >>> (bit & 7));
+                }
+            }
+        }
+        return ModuleMatrix.of(template.version, QrCode.Ecc.values()[ecl], bestMask, modules);
+    }
+
+    private static void applyMask(Template template, long[] baseRows, long[] baseColumns, int mask, int ecl,
+                                  long[] rows, long[] columns) {
+        long[] maskRows = template.maskRows[mask];
+        long[] maskColumns = template.maskColumns[mask];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = baseRows[i] ^ maskRows[i];
+            columns[i] = baseColumns[i] ^ maskColumns[i];
+        }
+        int bits = formatBits(ecl, mask);
+        int[] formatPositions = template.formatPositions;
+        for (int i = 0; i < formatPositions.length; i++) {
+            // Both copies of bit i / 2 of the format information
+            int x = formatPositions[i] % template.size;
+            int y = formatPositions[i] / template.size;
+            long rowBit = 1L << x;
+            long columnBit = 1L << y;
+            if (((bits >>> (i >>> 1)) & 1) != 0) {
+                rows[y * template.words + (x >>> 6)] |= rowBit;
+                columns[x * template.words + (y >>> 6)] |= columnBit;
+            } else {
+                rows[y * template.words + (x >>> 6)] &= ~rowBit;
+                columns[x * template.words + (y >>> 6)] &= ~columnBit;
+            }
+        }
+    }
+
+    private static int formatBits(int ecl, int mask) {
+        int data = ECC_FORMAT_BITS[ecl] << 3 | mask;
+        int remainder = data;
+        for (int i = 0; i < 10; i++) {
+            remainder = (remainder << 1) ^ ((remainder >>> 9) * 0x537);
+        }
+        return (data << 10 | remainder) ^ 0x5412;
+    }
+
+    private static int penalty(long[] rows, long[] columns, int size, int words) {
+        int result = 0;
+        for (int line = 0; line < size; line++) {
+            result += linePenalty(rows, line * words, size);
+            result += linePenalty(columns, line * words, size);
+        }
+
+        // 2x2 blocks of one color: equal vertically at x and x + 1, and equal horizontally in the top row
+        int blocks = 0;
+        int lastValidBits = size - 1 - 64 * (words - 1);
+        long lastMask = lastValidBits >= 64 ? -1L : (1L << lastValidBits) - 1;
+        for (int y = 0; y < size - 1; y++) {
+            int top = y * words;
+            int bottom = top + words;
+            for (int i = 0; i < words; i++) {
+                long a = rows[top + i];
+                long b = rows[bottom + i];
+                long nextA = i + 1 < words ? rows[top + i + 1] : 0;
+                long nextB = i + 1 < words ? rows[bottom + i + 1] : 0;
+                long vertical = ~(a ^ b);
+                long nextVertical = ~(nextA ^ nextB);
+                long horizontal = ~(a ^ ((a >>> 1) | (nextA << 63)));
+                long same = vertical & ((vertical >>> 1) | (nextVertical << 63)) & horizontal;
+                blocks += Long.bitCount(i == words - 1 ? same & lastMask : same);
+            }
+        }
+        result += blocks * PENALTY_N2;
+
+        int dark = 0;
+        for (long word : rows) {
+            dark += Long.bitCount(word);
+        }
+        int total = size * size;
+        int k = (int) ((Math.abs(dark * 20L - total * 10L) + total - 1) / total) - 1;
+        result += k * PENALTY_N4;
+        return result;
+    }
+
+    /**
+     * Run and finder-like pattern penalties of one row or column, walking the runs between color
+     * transitions. The run history treats the area outside the code as light, as the library does.
+     */
+    private static int linePenalty(long[] plane, int offset, int size) {
+        int result = 0;
+        int[] history = new int[7];
+        boolean color = (plane[offset] & 1) != 0;
+        if (color) {
+            // A dark first module ends an empty light run
+            addHistory(history, 0, size);
+            result += countFinderPatterns(history) * PENALTY_N3;
+        }
+        int runStart = 0;
+        int words = (size + 63) >>> 6;
+        for (int i = 0; i < words; i++) {
+            long word = plane[offset + i];
+            long previous = i == 0 ? word & 1 : plane[offset + i - 1] >>> 63;
+            long transitions = word ^ ((word << 1) | previous);
+            int validBits = size - 64 * i;
+            if (validBits < 64) {
+                transitions &= (1L << validBits) - 1;
+            }
+            while (transitions != 0) {
+                int x = 64 * i + Long.numberOfTrailingZeros(transitions);
+                transitions &= transitions - 1;
+                int run = x - runStart;
+                if (run >= 5) {
+                    result += PENALTY_N1 + run - 5;
+                }
+                addHistory(history, run, size);
+                if (!color) {
+                    result += countFinderPatterns(history) * PENALTY_N3;
+                }
+                color = !color;
+                runStart = x;
+            }
+        }
+        int run = size - runStart;
+        if (run >= 5) {
+            result += PENALTY_N1 + run - 5;
+        }
+        if (color) {
+            addHistory(history, run, size);
+            run = 0;
+        }
+        addHistory(history, run + size, size);
+        result += countFinderPatterns(history) * PENALTY_N3;
+        return result;
+    }
+
+    private static void addHistory(int[] history, int run, int size) {
+        if (history[0] == 0) {
+            run += size;
+        }
+        history[6] = history[5];
+        history[5] = history[4];
+        history[4] = history[3];
+        history[3] = history[2];
+        history[2] = history[1];
+        history[1] = history[0];
+        history[0] = run;
+    }
+
+    private static int countFinderPatterns(int[] history) {
+        int n = history[1];
+        boolean core = n > 0 && history[2] == n && history[3] == n * 3 && history[4] == n && history[5] == n;
+        return (core && history[0] >= n * 4 && history[6] >= n ? 1 : 0)
+               + (core && history[6] >= n * 4 && history[0] >= n ? 1 : 0);
+    }
+
+    private Template template(int version) {
+        Template template = templates.get(version);
+        if (template == null) {
+            template = new Template(version);
+            templates.set(version, template);
+        }
+        return template;
+    }
+
+    private static int numRawDataModules(int version) {
+        int result = (16 * version + 128) * version + 64;
+        if (version >= 2) {
+            int numAlign = version / 7 + 2;
+            result -= (25 * numAlign - 10) * numAlign - 55;
+            if (version >= 7) {
+                result -= 36;
+            }
+        }
+        return result;
+    }
+
+    private static int numDataCodewords(int version, int ecl) {
+        return numRawDataModules(version) / 8
+               - ECC_CODEWORDS_PER_BLOCK[ecl][version] * NUM_ERROR_CORRECTION_BLOCKS[ecl][version];
+    }
+
+    private static int charCountBits(int mode, int version) {
+        int index = (version + 7) / 17;
+        return switch (mode) {
+            case MODE_NUMERIC -> new int[]{10, 12, 14}[index];
+            case MODE_ALPHANUMERIC -> new int[]{9, 11, 13}[index];
+            default -> new int[]{8, 16, 16}[index];
+        };
+    }
+
+    /**
+     * The single segment {@link io.nayuki.qrcodegen.QrSegment#makeSegments} produces for non-empty text:
+     * numeric, alphanumeric, or the UTF-8 bytes.
+     */
+    private record Segment(int mode, int numChars, String text, byte[] bytes) {
+
+        static Segment of(String text) {
+            if (text.isEmpty()) {
+                return null;
+            }
+            boolean numeric = true;
+            boolean alphanumeric = true;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                numeric &= c >= '0' && c <= '9';
+                alphanumeric &= ALPHANUMERIC_CHARSET.indexOf(c) >= 0;
+            }
+            if (numeric) {
+                return new Segment(MODE_NUMERIC, text.length(), text, null);
+            }
+            if (alphanumeric) {
+                return new Segment(MODE_ALPHANUMERIC, text.length(), text, null);
+            }
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            return new Segment(MODE_BYTE, bytes.length, null, bytes);
+        }
+
+        int dataBits() {
+            return switch (mode) {
+                case MODE_NUMERIC -> numChars * 3 + (numChars + 2) / 3;
+                case MODE_ALPHANUMERIC -> numChars * 5 + (numChars + 1) / 2;
+                default -> bytes.length * 8;
+            };
+        }
+
+        /**
+         * Bits of the mode, count and data at {@code version}, or -1 if the count does not fit its field.
+         */
+        int totalBits(int version) {
+            int countBits = charCountBits(mode, version);
+            if (numChars >= 1 << countBits) {
+                return -1;
+            }
+            return 4 + countBits + dataBits();
+        }
+
+        void appendData(BitWriter bits) {
+            switch (mode) {
+                case MODE_NUMERIC -> {
+                    for (int i = 0; i < numChars; i += 3) {
+                        int n = Math.min(numChars - i, 3);
+                        bits.append(Integer.parseInt(text, i, i + n, 10), n * 3 + 1);
+                    }
+                }
+                case MODE_ALPHANUMERIC -> {
+                    int i;
+                    for (i = 0; i + 2 <= numChars; i += 2) {
+                        int value = ALPHANUMERIC_CHARSET.indexOf(text.charAt(i)) * 45;
+                        value += ALPHANUMERIC_CHARSET.indexOf(text.charAt(i + 1));
+                        bits.append(value, 11);
+                    }
+                    if (i < numChars) {
+                        bits.append(ALPHANUMERIC_CHARSET.indexOf(text.charAt(i)), 6);
+                    }
+                }
+                default -> {
+                    for (byte b : bytes) {
+                        bits.append(b & 0xFF, 8);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends big-endian bit fields into a byte array of the final capacity.
+     */
+    private static final class BitWriter {
+        private final byte[] bytes;
+        private int length;
+
+        BitWriter(int capacityBytes) {
+            this.bytes = new byte[capacityBytes];
+        }
+
+        void append(int value, int count) {
+            for (int i = count - 1; i >= 0; i--, length++) {
+                if (((value >>> i) & 1) != 0) {
+                    bytes[length >>> 3] |= (byte) (0x80 >>> (length & 7));
+                }
+            }
+        }
+
+        int length() {
+            return length;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * What is fixed for a version: the function modules, where the data bits go, where the format bits go,
+     * and each mask pattern over the data modules, in both row-major and column-major form.
+     */
+    private static final class Template {
+        final int version;
+        final int size;
+        final int words;
+        final long[] functionRows;
+        final long[] functionColumns;
+        final int[] dataPositions;
+        final int[] formatPositions;
+        final long[][] maskRows = new long[8][];
+        final long[][] maskColumns = new long[8][];
+
+        Template(int version) {
+            VersionLayout layout = VersionLayout.of(version);
+            this.version = version;
+            this.size = layout.size();
+            this.words = (size + 63) >>> 6;
+            this.formatPositions = layout.formatPositions();
+
+            // Codeword bits fill the non-function modules in two-column zigzags from the bottom right
+            dataPositions = new int[numRawDataModules(version)];
+            int count = 0;
+            for (int right = size - 1; right >= 1; right -= 2) {
+                if (right == 6) {
+                    right = 5;
+                }
+                for (int vertical = 0; vertical < size; vertical++) {
+                    for (int j = 0; j < 2; j++) {
+                        int x = right - j;
+                        boolean upward = ((right + 1) & 2) == 0;
+                        int y = upward ? size - 1 - vertical : vertical;
+                        if (!layout.isFunction(x, y)) {
+                            dataPositions[count++] = y * size + x;
+                        }
+                    }
+                }
+            }
+
+            functionRows = new long[size * words];
+            functionColumns = new long[size * words];
+            for (int mask = 0; mask < 8; mask++) {
+                maskRows[mask] = new long[size * words];
+                maskColumns[mask] = new long[size * words];
+            }
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    if (layout.isFunction(x, y)) {
+                        if (layout.isDark(x, y)) {
+                            functionRows[y * words + (x >>> 6)] |= 1L << x;
+                            functionColumns[x * words + (y >>> 6)] |= 1L << y;
+                        }
+                        continue;
+                    }
+                    for (int mask = 0; mask < 8; mask++) {
+                        if (masked(mask, x, y)) {
+                            maskRows[mask][y * words + (x >>> 6)] |= 1L << x;
+                            maskColumns[mask][x * words + (y >>> 6)] |= 1L << y;
+                        }
+                    }
+                }
+            }
+        }
+
+        private static boolean masked(int mask, int x, int y) {
+            return switch (mask) {
+                case 0 -> (x + y) % 2 == 0;
+                case 1 -> y % 2 == 0;
+                case 2 -> x % 3 == 0;
+                case 3 -> (x + y) % 3 == 0;
+                case 4 -> (x / 3 + y / 2) % 2 == 0;
+                case 5 -> x * y % 2 + x * y % 3 == 0;
+                case 6 -> (x * y % 2 + x * y % 3) % 2 == 0;
+                default -> ((x + y) % 2 + x * y % 3) % 2 == 0;
+            };
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.qr.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Writes PDF objects to a stream one at a time.
+ * <p>
+ * Object numbers are reserved up front so objects can refer to each other before they are written, and
+ * only the byte offset of each object is remembered for the cross-reference table. Nothing else is
+ * retained, so the document can be far larger than memory.
+ */
+final class PdfWriter {
+
+    private final OutputStream out;
+    private long position;
+    private long[] offsets = new long[64];
+    private int objectCount;
+
+    PdfWriter(OutputStream out) throws IOException {
+        this.out = out;
+        // The comment with high-bit bytes marks the file as binary for transfer tools
+        write("%PDF-1.4\n%âãÏÓ\n");
+    }
+
+    /**
+     * Reserves the next object number.
+     */
+    int reserve() {
+        objectCount++;
+        if (objectCount >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        return objectCount;
+    }
+
+    void writeObject(int number, String body) throws IOException {
+        offsets[number] = position;
+        write(number + " 0 obj\n" + body + "\nendobj\n");
+    }
+
+    /**
+     * Writes a stream object. {@code dictionary} holds the entries other than {@code /Length}, which is
+     * added here.
+     */
+    void writeStream(int number, String dictionary, byte[] data) throws IOException {
+        offsets[number] = position;
+        write(number + " 0 obj\n<< " + dictionary + " /Length " + data.length + " >>\nstream\n");
+        out.write(data);
+        position += data.length;
+        write("\nendstream\nendobj\n");
+    }
+
+    /**
+     * Writes the cross-reference table and trailer. Every reserved object must have been written.
+     */
+    void finish(int catalog) throws IOException {
+        long xref = position;
+        StringBuilder table = new StringBuilder(32 + objectCount * 20);
+        table.append("xref\n0 ").append(objectCount + 1).append('\n');
+        table.append("0000000000 65535 f \n");
+        for (int i = 1; i <= objectCount; i++) {
+            table.append(String.format(Locale.ROOT, "%010d 00000 n \n", offsets[i]));
+        }
+        table.append("trailer\n<< /Size ").append(objectCount + 1).append(" /Root ").append(catalog)
+             .append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+        write(table.toString());
+        out.flush();
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    private void write(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    /**
+     * Formats a coordinate with at most two decimals, as PDF content streams expect.
+     */
+    static String number(double value) {
+        long hundredths = Math.round(value * 100);
+        if (hundredths % 100 == 0) {
+            return Long.toString(hundredths / 100);
+        }
+        String text = String.format(Locale.ROOT, "%.2f", hundredths / 100.0);
+        return text.endsWith("0") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    /**
+     * Encodes text as a PDF literal string for a WinAnsi-encoded standard font. Characters outside
+     * Latin-1 are replaced with {@code ?}.
+     */
+    static String literal(String text) {
+        StringBuilder literal = new StringBuilder(text.length() + 2).append('(');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < 0x20 || (c >= 0x7F && c < 0xA0) || c > 0xFF) {
+                literal.append('?');
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append(')').toString();
+    }
+}
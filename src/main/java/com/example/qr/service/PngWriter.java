@@ -0,0 +1,126 @@
+package com.example.qr.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Writes PNG chunks directly to a stream, for images that are produced row by row and never exist as a
+ * whole in memory.
+ */
+final class PngWriter {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final double METRES_PER_INCH = 0.0254;
+
+    /** Size of the IDAT chunks emitted while streaming compressed image data. */
+    static final int IDAT_CHUNK_SIZE = 64 * 1024;
+
+    private PngWriter() {
+    }
+
+    /**
+     * Writes the signature and the header of an 8-bit RGB image, plus its physical resolution.
+     */
+    static void writeHeader(OutputStream out, int width, int height, int dpi) throws IOException {
+        out.write(SIGNATURE);
+
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8;
+        header[9] = COLOR_TYPE_RGB;
+        // Compression, filter and interlace methods are all 0
+        writeChunk(out, "IHDR", header, 0, header.length);
+
+        int pixelsPerMetre = (int) Math.round(dpi / METRES_PER_INCH);
+        byte[] physical = new byte[9];
+        putInt(physical, 0, pixelsPerMetre);
+        putInt(physical, 4, pixelsPerMetre);
+        physical[8] = 1; // Unit is the metre
+        writeChunk(out, "pHYs", physical, 0, physical.length);
+    }
+
+    static void writeEnd(OutputStream out) throws IOException {
+        writeChunk(out, "IEND", new byte[0], 0, 0);
+    }
+
+    static void writeChunk(OutputStream out, String type, byte[] data, int offset, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        byte[] prefix = new byte[8];
+        putInt(prefix, 0, length);
+        System.arraycopy(typeBytes, 0, prefix, 4, 4);
+
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, offset, length);
+        byte[] suffix = new byte[4];
+        putInt(suffix, 0, (int) crc.getValue());
+
+        out.write(prefix);
+        out.write(data, offset, length);
+        out.write(suffix);
+    }
+
+    static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Packs the compressed image data written to it into IDAT chunks of {@link #IDAT_CHUNK_SIZE} bytes.
+     * Closing it writes the last, partial chunk but leaves the underlying stream open.
+     */
+    static final class IdatOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[IDAT_CHUNK_SIZE];
+        private int count;
+        private boolean closed;
+
+        IdatOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flushChunk();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                if (count > 0) {
+                    flushChunk();
+                }
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            writeChunk(out, "IDAT", buffer, 0, count);
+            count = 0;
+        }
+    }
+}
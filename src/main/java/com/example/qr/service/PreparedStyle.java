@@ -0,0 +1,57 @@
+package com.example.qr.service;
+
+import org.apache.batik.transcoder.TranscoderException;
+
+import java.io.IOException;
+
+/**
+ * Colors and logo badge resolved once and reused across renders.
+ *
+ * @param foregroundColor ARGB color of the data modules
+ * @param backgroundColor ARGB background color
+ * @param badge           composed logo badge drawn at the center of the code
+ * @param fingerprint     digest of the inputs the style was prepared from, identical on every instance for
+ *                        the same inputs; {@code null} when renders with this style must not be cached
+ * @param badgeSource     composes the badge again from the logo for renders larger than the standard one;
+ *                        {@code null} when only {@code badge} is known
+ */
+public record PreparedStyle(int foregroundColor, int backgroundColor, LogoBadge badge, String fingerprint,
+                            BadgeSource badgeSource) {
+
+    public PreparedStyle(int foregroundColor, int backgroundColor, LogoBadge badge) {
+        this(foregroundColor, backgroundColor, badge, null, null);
+    }
+
+    public PreparedStyle(int foregroundColor, int backgroundColor, LogoBadge badge, String fingerprint) {
+        this(foregroundColor, backgroundColor, badge, fingerprint, null);
+    }
+
+    /**
+     * The badge for a render of {@code size} pixels, covering the same share of the code as {@link #badge}
+     * does in the standard render: the standard badge scaled down, or for a larger size composed again from
+     * the logo, so it is never enlarged. {@code null} when the style has no badge.
+     */
+    LogoBadge badgeFor(int size, int standardSize) throws IOException {
+        if (badge == null) {
+            return null;
+        }
+        double factor = (double) size / standardSize;
+        if (factor <= 1 || badgeSource == null) {
+            return badge.scaled(factor);
+        }
+        try {
+            return badgeSource.compose(factor);
+        } catch (TranscoderException e) {
+            throw new IOException("Failed to rasterize the logo for a " + size + " px render", e);
+        }
+    }
+
+    /**
+     * Composes the badge for a render {@code scale} times the standard size, with the logo rasterized at
+     * that size rather than enlarged.
+     */
+    @FunctionalInterface
+    public interface BadgeSource {
+        LogoBadge compose(double scale) throws IOException, TranscoderException;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.qr.service;
+
+import com.example.qr.model.StylePreset;
+import org.apache.batik.transcoder.TranscoderException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Named style presets, persisted as one JSON file plus an optional logo file per preset.
+ * <p>
+ * Each preset is prepared into a {@link PreparedStyle} when it is created or loaded at startup, so
+ * rendering with a preset never parses colors, decodes the logo or composes the badge again. Every preset
+ * is held in memory for the life of the process, so their number and logo size are capped.
+ */
+@Service
+public class PresetRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PresetRegistry.class);
+    private static final Pattern ID_PATTERN = Pattern.compile("[a-z0-9][a-z0-9-]{0,63}");
+
+    private final QrCodeService qrCodeService;
+    private final Path directory;
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final ConcurrentMap<String, Entry> presets = new ConcurrentHashMap<>();
+    private final int maxPresets;
+    private final int maxLogoBytes;
+
+    public PresetRegistry(QrCodeService qrCodeService, Path directory) throws IOException {
+        this(qrCodeService, directory, 100, 512 * 1024);
+    }
+
+    /**
+     * @param maxPresets   presets that can exist at once
+     * @param maxLogoBytes largest logo a preset may store
+     */
+    @Autowired
+    public PresetRegistry(QrCodeService qrCodeService,
+                          @Value("${qr.presets.dir:data/presets}") Path directory,
+                          @Value("${qr.presets.max-presets:100}") int maxPresets,
+                          @Value("${qr.presets.max-logo-bytes:524288}") int maxLogoBytes) throws IOException {
+        this.qrCodeService = qrCodeService;
+        this.directory = directory;
+        this.maxPresets = maxPresets;
+        this.maxLogoBytes = maxLogoBytes;
+        load();
+    }
+
+    /**
+     * Creates or replaces a preset. The colors and logo are validated and prepared before anything is
+     * written, so an invalid preset never reaches disk.
+     *
+     * @throws IllegalArgumentException if the preset is invalid, its logo is larger than
+     *                                  {@code max-logo-bytes}, or it is new and {@code max-presets} exist
+     */
+    public synchronized StylePreset save(String id, String foregroundColor, String backgroundColor,
+                                         byte[] logo, String logoContentType) throws IOException, TranscoderException {
+        if (id == null || !ID_PATTERN.matcher(id).matches()) {
+            throw new IllegalArgumentException("Preset id must match " + ID_PATTERN.pattern());
+        }
+        if (!presets.containsKey(id) && presets.size() >= maxPresets) {
+            throw new IllegalArgumentException("Preset limit of " + maxPresets + " reached");
+        }
+        boolean hasLogo = logo != null && logo.length > 0;
+        if (hasLogo && logo.length > maxLogoBytes) {
+            throw new IllegalArgumentException("Preset logos are limited to " + maxLogoBytes + " bytes");
+        }
+        StylePreset preset = new StylePreset(id, normalizeColor(foregroundColor), normalizeColor(backgroundColor),
+                                             hasLogo ? logoContentType : null);
+        PreparedStyle style = qrCodeService.prepareStyle(preset.foregroundColor(), preset.backgroundColor(),
+                                                         logo, logoContentType);
+
+        Files.createDirectories(directory);
+        if (hasLogo) {
+            writeAtomically(logoFile(id), logo);
+        } else {
+            Files.deleteIfExists(logoFile(id));
+        }
+        writeAtomically(metadataFile(id), jsonMapper.writeValueAsBytes(preset));
+
+        presets.put(id, new Entry(preset, style));
+        LOGGER.info("Saved preset '{}' (customLogo={})", id, hasLogo);
+        return preset;
+    }
+
+    public Optional<StylePreset> get(String id) {
+        return Optional.ofNullable(presets.get(id)).map(Entry::preset);
+    }
+
+    /**
+     * Returns the prepared rendering assets of a preset.
+     */
+    public Optional<PreparedStyle> findStyle(String id) {
+        return Optional.ofNullable(presets.get(id)).map(Entry::style);
+    }
+
+    public List<StylePreset> list() {
+        return presets.values().stream()
+                      .map(Entry::preset)
+                      .sorted(Comparator.comparing(StylePreset::id))
+                      .toList();
+    }
+
+    public synchronized boolean delete(String id) throws IOException {
+        if (presets.remove(id) == null) {
+            return false;
+        }
+        Files.deleteIfExists(metadataFile(id));
+        Files.deleteIfExists(logoFile(id));
+        LOGGER.info("Deleted preset '{}'", id);
+        return true;
+    }
+
+    private void load() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+            for (Path file : files) {
+                try {
+                    StylePreset preset = jsonMapper.readValue(file.toFile(), StylePreset.class);
+                    byte[] logo = preset.logoContentType() == null ? null : Files.readAllBytes(logoFile(preset.id()));
+                    PreparedStyle style = qrCodeService.prepareStyle(preset.foregroundColor(), preset.backgroundColor(),
+                                                                     logo, preset.logoContentType());
+                    presets.put(preset.id(), new Entry(preset, style));
+                } catch (IOException | JacksonException | TranscoderException | IllegalArgumentException e) {
+                    LOGGER.warn("Skipping unreadable preset {}: {}", file.getFileName(), e.getMessage());
+                }
+            }
+        }
+        LOGGER.info("Loaded {} style presets from {}", presets.size(), directory);
+    }
+
+    private Path metadataFile(String id) {
+        return directory.resolve(id + ".json");
+    }
+
+    private Path logoFile(String id) {
+        return directory.resolve(id + ".logo");
+    }
+
+    private static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String normalizeColor(String hexColor) {
+        if (hexColor == null) {
+            return null;
+        }
+        return (hexColor.startsWith("#") ? hexColor.substring(1) : hexColor).toUpperCase(Locale.ROOT);
+    }
+
+    private record Entry(StylePreset preset, PreparedStyle style) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.qr.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A print-resolution QR code that is rendered while it is written.
+ * <p>
+ * Scanlines are produced a band at a time from the module matrix and the logo badge and compressed by
+ * the {@link BandEncoder} into IDAT chunks, so memory use is a few bands of rows plus the badge, however
+ * large the image. The PNG carries a {@code pHYs} chunk with the requested resolution. The memory
+ * reserved for the badge and the bands is released once the image is written.
+ */
+public final class PrintImage {
+
+    private final ScanlineRaster raster;
+    private final BandEncoder encoder;
+    private final int dpi;
+    private final RenderMemoryBudget.Reservation reservation;
+
+    PrintImage(ScanlineRaster raster, BandEncoder encoder, int dpi, RenderMemoryBudget.Reservation reservation) {
+        this.raster = raster;
+        this.encoder = encoder;
+        this.dpi = dpi;
+        this.reservation = reservation;
+    }
+
+    /**
+     * Width and height of the image, in pixels.
+     */
+    public int size() {
+        return raster.size();
+    }
+
+    public int dpi() {
+        return dpi;
+    }
+
+    /**
+     * Renders the image and writes it as a PNG. The stream is not closed.
+     */
+    public void writePng(OutputStream out) throws IOException {
+        try (reservation) {
+            PngWriter.writeHeader(out, raster.size(), raster.size(), dpi);
+            try (PngWriter.IdatOutputStream idat = new PngWriter.IdatOutputStream(out)) {
+                encoder.encode(raster, idat);
+            }
+            PngWriter.writeEnd(out);
+        }
+    }
+}
@@ -1,45 +1,116 @@
 package com.example.qr.service;
 
+import com.example.qr.cache.RenderCache;
+import com.example.qr.model.Label;
+import com.example.qr.model.LabelLayout;
+import com.example.qr.model.SerialRange;
+import com.example.qr.model.SpriteIndex;
+import com.example.qr.model.VariantSetRequest;
+import com.example.qr.timing.RenderStageEvent;
+import com.example.qr.timing.RenderTrace;
 import io.nayuki.qrcodegen.QrCode;
-import org.apache.batik.transcoder.SVGAbstractTranscoder;
 import org.apache.batik.transcoder.TranscoderException;
-import org.apache.batik.transcoder.TranscoderInput;
-import org.apache.batik.transcoder.TranscoderOutput;
-import org.apache.batik.transcoder.image.PNGTranscoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The web side of rendering: takes uploads and hex colors, consults the render cache, and checks batch
+ * inputs, leaving the drawing itself to {@link QrRenderer}.
+ */
 @Service
 public class QrCodeService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(QrCodeService.class);
-    private static final int QR_CODE_SIZE = 400;
-    private static final int LOGO_SIZE = 60;
-    private static final int LOGO_BORDER = 8;
-
-    private final Resource defaultLogoResource;
+    private static final int MAX_LABELS = 100_000;
+    /** Longest label caption; captions are cut to the label width anyway. */
+    private static final int MAX_CAPTION_LENGTH = 256;
+    /** Byte-mode capacity of the largest QR code at high error correction. */
+    private static final int MAX_BATCH_DATA_BYTES = 1273;
+    private static final int MAX_SPRITES = 1000;
+    private static final int MIN_TILE_SIZE = 64;
+    private static final int MAX_TILE_SIZE = 1000;
+    private static final long MAX_SPRITE_PIXELS = 25_000_000L;
+    private static final int MAX_VARIANTS = 48;
+    private static final int MIN_VARIANT_SIZE = 64;
+    private static final int MAX_VARIANT_SIZE = 2000;
+    /** Bounds the central directory a serial archive holds until it finishes; see {@link SerialRun}. */
+    private static final long MAX_SERIALS = 250_000;
+    /** Part of every render cache key; change it whenever the same inputs start producing different images. */
+    private static final String RENDER_KEY_VERSION = "png-400-v1";
+
+    private final QrRenderer renderer;
+    private final String defaultLogoDigest;
     private final int defaultForegroundColor;
     private final int defaultBackgroundColor;
+    private final MatrixCache matrixCache;
+    private final BandEncoder bandEncoder;
+    private final RenderCache renderCache;
+    private final RenderMemoryBudget memoryBudget;
+    private final RenderTierPolicy tiers;
+    private final SerialRenderPool serialPool;
+
+    public QrCodeService(Resource defaultLogoResource, String foregroundColorHex, String backgroundColorHex) {
+        this(defaultLogoResource, foregroundColorHex, backgroundColorHex, new SvgLogoRasterizer(), new BandEncoder(),
+             new MatrixCache(), RenderCache.none(), new RenderMemoryBudget());
+    }
+
+    public QrCodeService(Resource defaultLogoResource, String foregroundColorHex, String backgroundColorHex,
+                         SvgLogoRasterizer svgLogoRasterizer, BandEncoder bandEncoder, MatrixCache matrixCache,
+                         RenderCache renderCache, RenderMemoryBudget memoryBudget) {
+        this(defaultLogoResource, foregroundColorHex, backgroundColorHex, svgLogoRasterizer, bandEncoder,
+             matrixCache, renderCache, memoryBudget, new RenderTierPolicy());
+    }
 
+    public QrCodeService(Resource defaultLogoResource, String foregroundColorHex, String backgroundColorHex,
+                         SvgLogoRasterizer svgLogoRasterizer, BandEncoder bandEncoder, MatrixCache matrixCache,
+                         RenderCache renderCache, RenderMemoryBudget memoryBudget, RenderTierPolicy tiers) {
+        this(defaultLogoResource, foregroundColorHex, backgroundColorHex, svgLogoRasterizer, bandEncoder,
+             matrixCache, renderCache, memoryBudget, tiers, new SerialRenderPool());
+    }
+
+    @Autowired
     public QrCodeService(
             @Value("classpath:logo.svg") Resource defaultLogoResource,
             @Value("${qr.foreground-color:000000}") String foregroundColorHex,
-            @Value("${qr.background-color:FFFFFF}") String backgroundColorHex) {
-        this.defaultLogoResource = defaultLogoResource;
-        this.defaultForegroundColor = parseHexColor(foregroundColorHex);
-        this.defaultBackgroundColor = parseHexColor(backgroundColorHex);
+            @Value("${qr.background-color:FFFFFF}") String backgroundColorHex,
+            SvgLogoRasterizer svgLogoRasterizer,
+            BandEncoder bandEncoder,
+            MatrixCache matrixCache,
+            RenderCache renderCache,
+            RenderMemoryBudget memoryBudget,
+            RenderTierPolicy tiers,
+            SerialRenderPool serialPool) {
+        byte[] defaultLogo = readDefaultLogo(defaultLogoResource);
+        this.renderer = new QrRenderer(defaultLogo, svgLogoRasterizer, bandEncoder, matrixCache, memoryBudget);
+        // The default logo is part of the fingerprint, so replacing it invalidates cached renders everywhere
+        this.defaultLogoDigest = "default|" + HexFormat.of().formatHex(sha256().digest(defaultLogo));
+        this.matrixCache = matrixCache;
+        this.bandEncoder = bandEncoder;
+        this.renderCache = renderCache;
+        this.memoryBudget = memoryBudget;
+        this.tiers = tiers;
+        this.serialPool = serialPool;
+        this.defaultForegroundColor = QrRenderer.parseHexColor(foregroundColorHex);
+        this.defaultBackgroundColor = QrRenderer.parseHexColor(backgroundColorHex);
     }
 
     public byte[] generateQrCodeWithLogo(String data) throws IOException, TranscoderException {
@@ -51,228 +122,391 @@ public class QrCodeService {
     public byte[] generateQrCodeWithLogo(String data, String foregroundColorHex, String backgroundColorHex,
                                           MultipartFile customLogo)
             throws IOException, TranscoderException {
+        return renderQrCodeWithLogo(data, foregroundColorHex, backgroundColorHex, customLogo).png();
+    }
+
+    /**
+     * Generates a QR code like {@link #generateQrCodeWithLogo(String, String, String, MultipartFile)} and
+     * reports the render tier it was served at.
+     */
+    public RenderedCode renderQrCodeWithLogo(String data, String foregroundColorHex, String backgroundColorHex,
+                                             MultipartFile customLogo)
+            throws IOException, TranscoderException {
         if (data == null || data.isEmpty()) {
             throw new IllegalArgumentException("QR code data cannot be null or empty");
         }
 
         // Validate and parse colors
-        int fgColor = parseHexColor(foregroundColorHex);
-        int bgColor = parseHexColor(backgroundColorHex);
-
-        LOGGER.debug("Generating QR code for data: {}, fg={}, bg={}, customLogo={}",
-                     data, foregroundColorHex, backgroundColorHex, customLogo != null && !customLogo.isEmpty());
-
-        // Generate QR code using Nayuki library with high error correction
-        QrCode qrCode = QrCode.encodeText(data, QrCode.Ecc.HIGH);
-
-        // Convert QR code to BufferedImage
-        int qrSize = qrCode.size;
-        int scale = QR_CODE_SIZE / qrSize;
-        int border = 1;
-        BufferedImage qrImage = toBufferedImage(qrCode, scale, border, fgColor, bgColor);
-
-        // Load logo (custom or default)
-        BufferedImage logo = loadLogo(customLogo);
-        BufferedImage finalImage = overlayLogo(qrImage, logo);
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(finalImage, "png", baos);
-        LOGGER.debug("QR code generated successfully, size: {} bytes", baos.size());
-        return baos.toByteArray();
-    }
-
-    private BufferedImage loadLogo(MultipartFile customLogo) throws IOException, TranscoderException {
-        if (customLogo != null && !customLogo.isEmpty()) {
-            return loadCustomLogo(customLogo);
+        int fgColor = QrRenderer.parseHexColor(foregroundColorHex);
+        int bgColor = QrRenderer.parseHexColor(backgroundColorHex);
+
+        LOGGER.debug("Generating QR code for data length: {}, fg={}, bg={}, customLogo={}",
+                     data.length(), foregroundColorHex, backgroundColorHex, customLogo != null && !customLogo.isEmpty());
+
+        boolean hasCustomLogo = customLogo != null && !customLogo.isEmpty();
+        byte[] logo = hasCustomLogo ? customLogo.getBytes() : null;
+        String logoContentType = hasCustomLogo ? customLogo.getContentType() : null;
+
+        try (RenderTierPolicy.Admission admission = tiers.admit()) {
+            RenderTier tier = admission.tier();
+            RenderTrace.current().tier(tier.value());
+
+            // An identical earlier request, here or on a peer, makes loading the logo and rendering unnecessary
+            String key = renderKey(data, styleFingerprint(fgColor, bgColor, logo, logoContentType));
+            Optional<byte[]> cached = renderCache.get(key);
+            if (cached.isEmpty() && hasCustomLogo && tier.atLeast(RenderTier.DEFAULT_LOGO)) {
+                // The upload is dropped at this tier, so the same code with the default logo will do
+                key = renderKey(data, styleFingerprint(fgColor, bgColor, null, null));
+                cached = renderCache.get(key);
+            }
+            if (cached.isPresent()) {
+                RenderTrace.current().cacheHit();
+                return new RenderedCode(cached.get(), tier);
+            }
+            rejectUncached(tier);
+            admission.rendering();
+
+            // Load logo (custom or default)
+            boolean useLogo = hasCustomLogo && !tier.atLeast(RenderTier.DEFAULT_LOGO);
+            boolean plainBadge = useLogo && tier.atLeast(RenderTier.PLAIN_BADGE);
+            RenderStageEvent logoStage = RenderTrace.current().begin(RenderTrace.Stage.LOGO);
+            LogoBadge badge = renderer.badge(useLogo ? logo : null, logoContentType, plainBadge);
+            logoStage.logo(useLogo ? logoContentType : "default", useLogo ? logo.length : 0)
+                     .dimensions(badge.image().getWidth(), badge.image().getHeight())
+                     .finish();
+
+            boolean fastDeflate = tier.atLeast(RenderTier.FAST_DEFLATE);
+            byte[] qrCode = renderer.renderPng(data, new PreparedStyle(fgColor, bgColor, badge), fastDeflate);
+            // Only output identical to a full-quality render is cached, so no degraded code outlasts the overload
+            if (!plainBadge && !fastDeflate) {
+                renderCache.put(key, qrCode);
+            }
+            return new RenderedCode(qrCode, tier);
         }
-        return convertSvgToPng(defaultLogoResource);
     }
 
-    private BufferedImage loadCustomLogo(MultipartFile logoFile) throws IOException, TranscoderException {
-        String contentType = logoFile.getContentType();
+    /**
+     * Generates a QR code with a style prepared earlier by {@link #prepareStyle}. The badge is already built,
+     * so of the degraded tiers only faster compression and serving cached results only apply.
+     */
+    public byte[] generateQrCode(String data, PreparedStyle style) throws IOException {
+        return renderQrCode(data, style).png();
+    }
 
-        if ("image/svg+xml".equals(contentType)) {
-            return convertSvgToPng(logoFile.getInputStream());
-        } else if ("image/png".equals(contentType) || "image/jpeg".equals(contentType)) {
-            BufferedImage originalLogo = ImageIO.read(logoFile.getInputStream());
-            if (originalLogo == null) {
-                throw new IOException("Failed to read logo image");
+    /**
+     * Generates a QR code like {@link #generateQrCode(String, PreparedStyle)} and reports the render tier it
+     * was served at.
+     */
+    public RenderedCode renderQrCode(String data, PreparedStyle style) throws IOException {
+        if (data == null || data.isEmpty()) {
+            throw new IllegalArgumentException("QR code data cannot be null or empty");
+        }
+        try (RenderTierPolicy.Admission admission = tiers.admit()) {
+            RenderTier tier = admission.tier();
+            RenderTrace.current().tier(tier.value());
+            String key = style.fingerprint() == null ? null : renderKey(data, style.fingerprint());
+            if (key != null) {
+                Optional<byte[]> cached = renderCache.get(key);
+                if (cached.isPresent()) {
+                    RenderTrace.current().cacheHit();
+                    return new RenderedCode(cached.get(), tier);
+                }
             }
-            return resizeLogo(originalLogo);
-        } else {
-            throw new IllegalArgumentException("Unsupported logo format: " + contentType);
+            rejectUncached(tier);
+            admission.rendering();
+            boolean fastDeflate = tier.atLeast(RenderTier.FAST_DEFLATE);
+            byte[] qrCode = renderer.renderPng(data, style, fastDeflate);
+            if (key != null && !fastDeflate) {
+                renderCache.put(key, qrCode);
+            }
+            return new RenderedCode(qrCode, tier);
         }
     }
 
-    private BufferedImage resizeLogo(BufferedImage original) {
-        // Calculate dimensions to maintain aspect ratio
-        int originalWidth = original.getWidth();
-        int originalHeight = original.getHeight();
-
-        double aspectRatio = (double) originalWidth / originalHeight;
-        int newWidth = LOGO_SIZE;
-        int newHeight = LOGO_SIZE;
-
-        if (aspectRatio > 1) {
-            newHeight = (int) (LOGO_SIZE / aspectRatio);
-        } else {
-            newWidth = (int) (LOGO_SIZE * aspectRatio);
+    private void rejectUncached(RenderTier tier) {
+        if (tier == RenderTier.CACHED_ONLY) {
+            tiers.rejected();
+            throw new RenderCapacityException("Only cached renders are served at render tier " + tier.value());
         }
+    }
 
-        BufferedImage resized = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = resized.createGraphics();
+    /**
+     * Encodes the data without rendering it, for clients that draw the modules themselves. {@code ecc} is a
+     * minimum: the encoder raises it when a higher level fits in the same version.
+     */
+    public ModuleMatrix encodeMatrix(String data, QrCode.Ecc ecc) {
+        if (data == null || data.isEmpty()) {
+            throw new IllegalArgumentException("QR code data cannot be null or empty");
+        }
+        return matrixCache.encode(data, ecc);
+    }
 
-        // High-quality rendering
-        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    /**
+     * Parses the colors and builds the logo badge once, so the result can be reused for any number of
+     * renders. Without a logo the default logo is used.
+     */
+    public PreparedStyle prepareStyle(String foregroundColorHex, String backgroundColorHex,
+                                      byte[] logo, String logoContentType)
+            throws IOException, TranscoderException {
+        int fgColor = QrRenderer.parseHexColor(foregroundColorHex);
+        int bgColor = QrRenderer.parseHexColor(backgroundColorHex);
+        boolean hasLogo = logo != null && logo.length > 0;
+        LogoBadge badge = renderer.badge(hasLogo ? logo : null, logoContentType);
+        return new PreparedStyle(fgColor, bgColor, badge,
+                                 styleFingerprint(fgColor, bgColor, hasLogo ? logo : null, logoContentType),
+                                 scale -> renderer.badge(hasLogo ? logo : null, logoContentType, scale));
+    }
 
-        g.drawImage(original, 0, 0, newWidth, newHeight, null);
-        g.dispose();
+    /**
+     * Prepares a print-resolution rendering of {@code size} x {@code size} pixels. The code and the logo
+     * badge are scaled together, so the badge covers the same share of the code as in the standard render,
+     * and the logo is rasterized at that scale rather than enlarged. Pixels are only produced when the
+     * result is written.
+     */
+    public PrintImage preparePrint(String data, String foregroundColorHex, String backgroundColorHex,
+                                   byte[] logo, String logoContentType, int size, int dpi)
+            throws IOException, TranscoderException {
+        return renderer.preparePrint(data, QrRenderer.parseHexColor(foregroundColorHex),
+                                     QrRenderer.parseHexColor(backgroundColorHex), logo, logoContentType, size, dpi);
+    }
 
-        return resized;
+    /**
+     * Prepares a PDF label sheet. Labels are checked up front so that a bad label fails the request before
+     * any of the document is written; the codes themselves are encoded page by page while it is written.
+     */
+    public LabelSheet prepareLabelSheet(List<Label> labels, LabelLayout layout, PreparedStyle style) {
+        if (labels == null || labels.isEmpty()) {
+            throw new IllegalArgumentException("Label sheet needs at least one label");
+        }
+        if (labels.size() > MAX_LABELS) {
+            throw new IllegalArgumentException("Label sheet is limited to " + MAX_LABELS + " labels");
+        }
+        for (int i = 0; i < labels.size(); i++) {
+            Label label = labels.get(i);
+            checkBatchData("Label", i, label == null ? null : label.data());
+            if (label.caption() != null && label.caption().length() > MAX_CAPTION_LENGTH) {
+                throw new IllegalArgumentException("Label " + i + " caption exceeds " + MAX_CAPTION_LENGTH
+                                                   + " characters");
+            }
+        }
+        LOGGER.debug("Prepared label sheet: {} labels, {}", labels.size(), layout);
+        return new LabelSheet(List.copyOf(labels), layout == null ? LabelLayout.DEFAULT : layout, style,
+                              QrRenderer.STANDARD_SIZE);
     }
 
-    private int parseHexColor(String hexColor) {
-        if (hexColor == null || hexColor.isEmpty()) {
-            throw new IllegalArgumentException("Color cannot be null or empty");
+    /**
+     * Prepares a sprite sheet of one {@code tileSize} tile per payload, {@code columns} tiles wide. Either
+     * may be {@code null} for a square-ish grid of 200 px tiles. Every payload is encoded here, once, and
+     * bypasses the matrix cache: sheets are made of one-off payloads that would evict its working set.
+     */
+    public SpriteSheet prepareSpriteSheet(List<String> payloads, Integer columns, Integer tileSize,
+                                          PreparedStyle style) {
+        SpriteLayout layout = spriteLayout(payloads, columns, tileSize);
+        List<ModuleMatrix> matrices = payloads.parallelStream()
+                                              .map(payload -> matrixCache.encodeUncached(payload, QrCode.Ecc.HIGH))
+                                              .toList();
+        // A tile needs at least one pixel per module and quiet-zone module, or its code would not be drawn
+        for (int i = 0; i < matrices.size(); i++) {
+            ModuleMatrix matrix = matrices.get(i);
+            if (layout.tileSize() < matrix.size() + 2) {
+                throw new IllegalArgumentException("Tile size " + layout.tileSize() + " is too small for payload "
+                                                   + i + ", a version " + matrix.version() + " code");
+            }
         }
+        return new SpriteSheet(List.copyOf(payloads), matrices, layout.columns(), layout.tileSize(), style,
+                               QrRenderer.STANDARD_SIZE, memoryBudget);
+    }
 
-        // Remove # if present
-        String cleanHex = hexColor.startsWith("#") ? hexColor.substring(1) : hexColor;
+    /**
+     * The index of the sprite sheet {@link #prepareSpriteSheet} would prepare, computed from the layout
+     * alone. Nothing is encoded, so a tile too small for its code is only rejected when the sheet itself is
+     * requested.
+     */
+    public SpriteIndex prepareSpriteIndex(List<String> payloads, Integer columns, Integer tileSize) {
+        SpriteLayout layout = spriteLayout(payloads, columns, tileSize);
+        return SpriteSheet.index(List.copyOf(payloads), layout.columns(), layout.tileSize());
+    }
 
-        // Validate hex format
-        if (!cleanHex.matches("[0-9A-Fa-f]{6}")) {
-            throw new IllegalArgumentException("Invalid hex color format: " + hexColor + ". Expected format: RRGGBB or #RRGGBB");
+    private static SpriteLayout spriteLayout(List<String> payloads, Integer columns, Integer tileSize) {
+        if (payloads == null || payloads.isEmpty()) {
+            throw new IllegalArgumentException("Sprite sheet needs at least one payload");
         }
-
-        return 0xFF000000 | Integer.parseInt(cleanHex, 16);
+        if (payloads.size() > MAX_SPRITES) {
+            throw new IllegalArgumentException("Sprite sheet is limited to " + MAX_SPRITES + " payloads");
+        }
+        for (int i = 0; i < payloads.size(); i++) {
+            checkBatchData("Payload", i, payloads.get(i));
+        }
+        int tile = tileSize == null ? 200 : tileSize;
+        if (tile < MIN_TILE_SIZE || tile > MAX_TILE_SIZE) {
+            throw new IllegalArgumentException("Tile size must be between " + MIN_TILE_SIZE + " and "
+                                               + MAX_TILE_SIZE + " pixels");
+        }
+        int cols = columns == null ? (int) Math.ceil(Math.sqrt(payloads.size())) : columns;
+        if (cols < 1 || cols > payloads.size()) {
+            throw new IllegalArgumentException("Columns must be between 1 and the number of payloads");
+        }
+        int rows = (payloads.size() + cols - 1) / cols;
+        if ((long) cols * rows * tile * tile > MAX_SPRITE_PIXELS) {
+            throw new IllegalArgumentException("Sprite sheet would exceed " + MAX_SPRITE_PIXELS + " pixels");
+        }
+        return new SpriteLayout(cols, tile);
     }
 
-    private BufferedImage toBufferedImage(QrCode qr, int scale, int border, int foregroundColor, int backgroundColor) {
-        int size = (qr.size + border * 2) * scale;
-        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = image.createGraphics();
-
-        // Fill background
-        g.setColor(new Color(backgroundColor));
-        g.fillRect(0, 0, size, size);
-
-        // Draw QR code modules
-        for (int y = 0; y < qr.size; y++) {
-            for (int x = 0; x < qr.size; x++) {
-                if (qr.getModule(x, y)) {
-                    // Check if this module is part of a position detection pattern (corner squares)
-                    // Position patterns are 7x7 squares at (0,0), (size-7,0), and (0,size-7)
-                    boolean isPositionPattern = isInPositionPattern(x, y, qr.size);
-
-                    // Use black for position patterns, custom color for data
-                    if (isPositionPattern) {
-                        g.setColor(Color.BLACK);
-                    } else {
-                        g.setColor(new Color(foregroundColor));
-                    }
+    /**
+     * Prepares one output per combination of size, color pair and format, all from a single encode of
+     * {@code data} and the badge of {@code style}. Without color pairs the style's colors are used, named
+     * {@code default}; without formats only PNGs are produced. The memory to render the set is reserved
+     * here and held until it is written.
+     *
+     * @throws RenderCapacityException if the memory budget cannot take the set
+     */
+    public VariantSet prepareVariants(String data, List<Integer> sizes, List<VariantSetRequest.Colors> colors,
+                                      List<String> formats, PreparedStyle style) {
+        if (data == null || data.isEmpty()) {
+            throw new IllegalArgumentException("QR code data cannot be null or empty");
+        }
+        if (sizes == null || sizes.isEmpty()) {
+            throw new IllegalArgumentException("Variants need at least one size");
+        }
+        List<String> formatList = formats == null || formats.isEmpty() ? List.of("png") : formats;
+        List<VariantSetRequest.Colors> colorList = colors == null || colors.isEmpty()
+                ? List.of(new VariantSetRequest.Colors("default", hex(style.foregroundColor()),
+                                                       hex(style.backgroundColor())))
+                : colors;
+        if ((long) sizes.size() * colorList.size() * formatList.size() > MAX_VARIANTS) {
+            throw new IllegalArgumentException("Variants are limited to " + MAX_VARIANTS + " outputs");
+        }
 
-                    g.fillRect((x + border) * scale, (y + border) * scale, scale, scale);
+        ModuleMatrix matrix = matrixCache.encode(data, QrCode.Ecc.HIGH);
+        List<VariantSet.Output> outputs = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (VariantSetRequest.Colors pair : colorList) {
+            if (pair == null) {
+                throw new IllegalArgumentException("Color pair cannot be null");
+            }
+            int fgColor = QrRenderer.parseHexColor(pair.foregroundColor());
+            int bgColor = QrRenderer.parseHexColor(pair.backgroundColor());
+            String colorName = pair.name() == null ? hex(fgColor) + "-" + hex(bgColor) : pair.name();
+            if (!colorName.matches("[A-Za-z0-9_-]{1,32}")) {
+                throw new IllegalArgumentException("Invalid color name: " + colorName);
+            }
+            for (Integer size : sizes) {
+                if (size == null || size < MIN_VARIANT_SIZE || size > MAX_VARIANT_SIZE) {
+                    throw new IllegalArgumentException("Variant size must be between " + MIN_VARIANT_SIZE + " and "
+                                                       + MAX_VARIANT_SIZE + " pixels");
+                }
+                if (size < matrix.size() + 2) {
+                    throw new IllegalArgumentException("Size " + size + " is too small for a version "
+                                                       + matrix.version() + " code");
+                }
+                for (String format : formatList) {
+                    String extension = format == null ? "" : format.toLowerCase(Locale.ROOT);
+                    if (!extension.equals("png") && !extension.equals("svg")) {
+                        throw new IllegalArgumentException("Variant format must be png or svg");
+                    }
+                    String name = colorName + "-" + size + "." + extension;
+                    if (!names.add(name)) {
+                        throw new IllegalArgumentException("Duplicate variant " + name);
+                    }
+                    outputs.add(new VariantSet.Output(name, size, fgColor, bgColor, extension.equals("svg")));
                 }
             }
         }
-
-        g.dispose();
-        return image;
+        LOGGER.debug("Prepared {} variants of a version {} code", outputs.size(), matrix.version());
+        List<VariantSet.Output> copy = List.copyOf(outputs);
+        RenderMemoryBudget.Reservation reservation = memoryBudget.reserve(
+                "variants", VariantSet.estimateBytes(matrix, style.badge(), QrRenderer.STANDARD_SIZE, copy, bandEncoder));
+        return new VariantSet(matrix, style, QrRenderer.STANDARD_SIZE, copy, bandEncoder, reservation);
     }
 
-    private boolean isInPositionPattern(int x, int y, int size) {
-        // Top-left position pattern (0,0 to 6,6)
-        if (x < 7 && y < 7) {
-            return true;
+    /**
+     * Prepares the codes of {@code range} from {@code offset} on, rendered as {@code png} or {@code svg} in
+     * the standard size. The prefix and number limits of {@link SerialRange} keep every payload well within
+     * the capacity of a version 40 code, so nothing can fail to encode once the archive has started.
+     *
+     * @throws RenderCapacityException if the serial render pool is busy, or the archive's central directory
+     *                                  does not fit the memory budget
+     */
+    public SerialRun prepareSerialRun(SerialRange range, String format, long offset, PreparedStyle style) {
+        if (range.count() > MAX_SERIALS) {
+            throw new IllegalArgumentException("Serial runs are limited to " + MAX_SERIALS + " codes");
+        }
+        if (offset < 0 || offset >= range.count()) {
+            throw new IllegalArgumentException("Offset must be between 0 and " + (range.count() - 1));
+        }
+        String extension = format == null ? "png" : format.toLowerCase(Locale.ROOT);
+        if (!extension.equals("png") && !extension.equals("svg")) {
+            throw new IllegalArgumentException("Serial format must be png or svg");
         }
-        // Top-right position pattern (size-7,0 to size-1,6)
-        if (x >= size - 7 && y < 7) {
-            return true;
+        LOGGER.debug("Prepared serial run of {} codes from offset {}", range.count() - offset, offset);
+        SerialRenderPool.Slot slot = serialPool.admit();
+        try {
+            RenderMemoryBudget.Reservation index = memoryBudget.reserve("serial-index",
+                                                                        SerialRun.indexBytes(range, offset));
+            return new SerialRun(range, offset, extension.equals("svg"), style, renderer, serialPool, slot, index);
+        } catch (RuntimeException e) {
+            slot.close();
+            throw e;
         }
-        // Bottom-left position pattern (0,size-7 to 6,size-1)
-        return x < 7 && y >= size - 7;
     }
 
+    private static String hex(int color) {
+        return String.format(Locale.ROOT, "%06X", color & 0xFFFFFF);
+    }
 
-    private BufferedImage convertSvgToPng(Resource svgResource) throws IOException, TranscoderException {
-        return convertSvgToPng(svgResource.getInputStream());
+    private static void checkBatchData(String kind, int index, String data) {
+        if (data == null || data.isEmpty()) {
+            throw new IllegalArgumentException(kind + " " + index + " has no data");
+        }
+        if (data.getBytes(StandardCharsets.UTF_8).length > MAX_BATCH_DATA_BYTES) {
+            throw new IllegalArgumentException(kind + " " + index + " data exceeds " + MAX_BATCH_DATA_BYTES + " bytes");
+        }
     }
 
-    private BufferedImage convertSvgToPng(InputStream svgInputStream) throws IOException, TranscoderException {
-        PNGTranscoder transcoder = new PNGTranscoder();
-        transcoder.addTranscodingHint(SVGAbstractTranscoder.KEY_WIDTH, (float) LOGO_SIZE);
-        transcoder.addTranscodingHint(SVGAbstractTranscoder.KEY_HEIGHT, (float) LOGO_SIZE);
+    /**
+     * Digest of everything besides the data that determines a standard render, so equal inputs give equal
+     * render cache keys on every instance.
+     *
+     * @param logo uploaded logo, or {@code null} for the default logo
+     */
+    private String styleFingerprint(int foregroundColor, int backgroundColor, byte[] logo, String logoContentType) {
+        MessageDigest digest = sha256();
+        String header = RENDER_KEY_VERSION + "|" + Integer.toHexString(foregroundColor) + "|"
+                + Integer.toHexString(backgroundColor) + "|";
+        digest.update(header.getBytes(StandardCharsets.UTF_8));
+        if (logo == null) {
+            digest.update(defaultLogoDigest.getBytes(StandardCharsets.UTF_8));
+        } else {
+            digest.update((logoContentType + "|").getBytes(StandardCharsets.UTF_8));
+            digest.update(logo);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-        TranscoderInput input = new TranscoderInput(svgInputStream);
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        TranscoderOutput output = new TranscoderOutput(outputStream);
+    private static String renderKey(String data, String styleFingerprint) {
+        MessageDigest digest = sha256();
+        digest.update(styleFingerprint.getBytes(StandardCharsets.UTF_8));
+        digest.update(data.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-        transcoder.transcode(input, output);
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-        return ImageIO.read(inputStream);
+    private static byte[] readDefaultLogo(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Default logo could not be read: " + resource, e);
+        }
     }
 
-    private BufferedImage overlayLogo(BufferedImage qrImage, BufferedImage logo) {
-        int deltaHeight = qrImage.getHeight() - logo.getHeight();
-        int deltaWidth = qrImage.getWidth() - logo.getWidth();
-
-        BufferedImage combined = new BufferedImage(qrImage.getWidth(), qrImage.getHeight(), BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = combined.createGraphics();
-
-        // Enable high-quality rendering
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-
-        g.drawImage(qrImage, 0, 0, null);
-
-        int logoX = deltaWidth / 2;
-        int logoY = deltaHeight / 2;
-        int backgroundWidth = logo.getWidth() + (LOGO_BORDER * 2);
-        int backgroundHeight = logo.getHeight() + (LOGO_BORDER * 2);
-        int cornerRadius = 12;
-
-        // Draw subtle shadow for depth
-        g.setColor(new Color(0, 0, 0, 30));
-        g.fillRoundRect(
-                logoX - LOGO_BORDER + 2,
-                logoY - LOGO_BORDER + 2,
-                backgroundWidth,
-                backgroundHeight,
-                cornerRadius,
-                cornerRadius
-        );
-
-        // Draw white background
-        g.setColor(Color.WHITE);
-        g.fillRoundRect(
-                logoX - LOGO_BORDER,
-                logoY - LOGO_BORDER,
-                backgroundWidth,
-                backgroundHeight,
-                cornerRadius,
-                cornerRadius
-        );
-
-        // Draw black border around logo
-        g.setColor(Color.BLACK);
-        g.setStroke(new BasicStroke(2.0f));
-        g.drawRoundRect(
-                logoX - LOGO_BORDER,
-                logoY - LOGO_BORDER,
-                backgroundWidth,
-                backgroundHeight,
-                cornerRadius,
-                cornerRadius
-        );
-
-        // Draw logo
-        g.drawImage(logo, logoX, logoY, null);
-        g.dispose();
-
-        return combined;
+    private record SpriteLayout(int columns, int tileSize) {
     }
 }
@@ -0,0 +1,36 @@
+package com.example.qr.service;
+
+import io.nayuki.qrcodegen.QrCode;
+
+import java.util.Locale;
+
+/**
+ * Turns text into the modules of a QR code.
+ * <p>
+ * Implementations must agree module for module: text is segmented, the smallest version is chosen, the
+ * error correction level is raised while the data still fits, and the mask with the lowest penalty is
+ * applied, all exactly as {@link QrCode#encodeText} does. Data that does not fit any version raises
+ * {@link io.nayuki.qrcodegen.DataTooLongException}.
+ */
+@FunctionalInterface
+public interface QrEncoder {
+
+    /** The Nayuki library's encoder. */
+    QrEncoder NAYUKI = (text, ecc) -> ModuleMatrix.of(QrCode.encodeText(text, ecc));
+
+    /**
+     * Encodes {@code text} at error correction level {@code ecc} or higher.
+     */
+    ModuleMatrix encode(String text, QrCode.Ecc ecc);
+
+    /**
+     * The encoder selected by {@code qr.encoder}: {@code nayuki} or {@code packed}.
+     */
+    static QrEncoder named(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "nayuki" -> NAYUKI;
+            case "packed" -> new PackedQrEncoder();
+            default -> throw new IllegalArgumentException("Unknown QR encoder: " + name);
+        };
+    }
+}
@@ -0,0 +1,504 @@
+package com.example.qr.service;
+
+import com.example.qr.timing.RenderStageEvent;
+import com.example.qr.timing.RenderTrace;
+import io.nayuki.qrcodegen.QrCode;
+import org.apache.batik.transcoder.TranscoderException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * The rendering core: encodes payloads and draws them with their logo badge as PNG, SVG or print-resolution
+ * images.
+ * <p>
+ * Nothing here depends on Spring or on how the inputs arrived, so the same code serves
+ * {@link QrCodeService} and the command-line batch renderer. Callers pass logos as bytes with their
+ * content type; the default logo is given once as SVG bytes and its badge is built on first use. All
+ * methods are safe to call from many threads.
+ */
+public class QrRenderer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QrRenderer.class);
+    /** Side of the standard render, in pixels. */
+    public static final int STANDARD_SIZE = 400;
+    private static final int LOGO_SIZE = 60;
+    private static final int LOGO_BORDER = 8;
+    private static final int MAX_PRINT_SIZE = 10_000;
+    private static final int MIN_DPI = 72;
+    private static final int MAX_DPI = 2400;
+    /** Estimated bytes per pixel of a standard render: the ARGB image and the PNG writer's buffers. */
+    private static final int RENDER_BYTES_PER_PIXEL = 5;
+    /** Estimated bytes per pixel of drawing a standard render without a template: the RGB code image too. */
+    private static final int DIRECT_RENDER_BYTES_PER_PIXEL = 9;
+    /** Estimated bytes per pixel of building a raster template: its RGB and ARGB images. */
+    private static final int TEMPLATE_BYTES_PER_PIXEL = 8;
+    /** Raster templates kept for recurring styles, about 650 KB each at the standard size. */
+    private static final int MAX_TEMPLATES = 16;
+    /** Compression quality at which the JDK PNG writer deflates at level 1, see {@link #writeFastPng}. */
+    private static final float FAST_DEFLATE_QUALITY = 0.85f;
+
+    private final byte[] defaultLogoSvg;
+    private final SvgLogoRasterizer svgLogoRasterizer;
+    private final BandEncoder bandEncoder;
+    private final MatrixCache matrixCache;
+    private final RenderMemoryBudget memoryBudget;
+    private final RasterTemplate.Cache templates = new RasterTemplate.Cache(MAX_TEMPLATES);
+    private volatile LogoBadge defaultBadge;
+    private volatile SvgBadge svgBadge;
+
+    public QrRenderer(byte[] defaultLogoSvg, SvgLogoRasterizer svgLogoRasterizer, BandEncoder bandEncoder,
+                      MatrixCache matrixCache, RenderMemoryBudget memoryBudget) {
+        this.defaultLogoSvg = defaultLogoSvg.clone();
+        this.svgLogoRasterizer = svgLogoRasterizer;
+        this.bandEncoder = bandEncoder;
+        this.matrixCache = matrixCache;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Parses {@code RRGGBB} or {@code #RRGGBB} into an opaque ARGB color.
+     */
+    public static int parseHexColor(String hexColor) {
+        if (hexColor == null || hexColor.isEmpty()) {
+            throw new IllegalArgumentException("Color cannot be null or empty");
+        }
+
+        // Remove # if present
+        String cleanHex = hexColor.startsWith("#") ? hexColor.substring(1) : hexColor;
+
+        // Validate hex format
+        if (!cleanHex.matches("[0-9A-Fa-f]{6}")) {
+            throw new IllegalArgumentException("Invalid hex color format: " + hexColor + ". Expected format: RRGGBB or #RRGGBB");
+        }
+
+        return 0xFF000000 | Integer.parseInt(cleanHex, 16);
+    }
+
+    /**
+     * Builds the logo badge once, so the result can be reused for any number of renders. Without a logo the
+     * default logo is used. The style has no fingerprint, so renders with it are not cached.
+     */
+    public PreparedStyle prepareStyle(int foregroundColor, int backgroundColor, byte[] logo, String logoContentType)
+            throws IOException, TranscoderException {
+        return new PreparedStyle(foregroundColor, backgroundColor, badge(logo, logoContentType), null,
+                                 scale -> badge(logo, logoContentType, scale));
+    }
+
+    /**
+     * The standard-size badge for an uploaded logo, or the shared default badge when {@code logo} is
+     * {@code null} or empty.
+     */
+    public LogoBadge badge(byte[] logo, String logoContentType) throws IOException, TranscoderException {
+        return badge(logo, logoContentType, false);
+    }
+
+    /**
+     * As {@link #badge(byte[], String)}; a {@code plain} badge for an uploaded logo is drawn without the drop
+     * shadow and antialiasing. The default badge is shared and always drawn in full.
+     */
+    public LogoBadge badge(byte[] logo, String logoContentType, boolean plain) throws IOException, TranscoderException {
+        if (logo == null || logo.length == 0) {
+            return defaultBadge();
+        }
+        return composeBadge(loadCustomLogo(logo, logoContentType, LOGO_SIZE), 1, plain);
+    }
+
+    /**
+     * The badge for a render {@code scale} times the standard size, with the logo rasterized at that size
+     * rather than enlarged, as in {@link #preparePrint}. Without a logo the default logo is used.
+     */
+    LogoBadge badge(byte[] logo, String logoContentType, double scale) throws IOException, TranscoderException {
+        return composeBadge(loadLogo(logo, logoContentType, (int) Math.round(LOGO_SIZE * scale)), scale, false);
+    }
+
+    /**
+     * Renders the standard {@value #STANDARD_SIZE} pixel PNG.
+     */
+    public byte[] renderPng(String data, PreparedStyle style) throws IOException {
+        return renderPng(data, style, false);
+    }
+
+    /**
+     * As {@link #renderPng(String, PreparedStyle)}; with {@code fastDeflate} the PNG is compressed at the
+     * fastest deflate level, about twice as fast as the default level for a file about twice as large.
+     */
+    public byte[] renderPng(String data, PreparedStyle style, boolean fastDeflate) throws IOException {
+        RenderTrace trace = RenderTrace.current();
+
+        // Encode with high error correction, or reuse the matrix from an earlier request for the same data
+        RenderStageEvent stage = trace.begin(RenderTrace.Stage.ENCODE);
+        ModuleMatrix matrix = matrixCache.encode(data, QrCode.Ecc.HIGH);
+        stage.qrVersion(matrix.version()).dimensions(matrix.size(), matrix.size()).finish();
+        trace.version(matrix.version());
+
+        int qrSize = matrix.size();
+        int scale = STANDARD_SIZE / qrSize;
+        int border = 1;
+        long imageSide = (long) (qrSize + border * 2) * scale;
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        // Background, function patterns and badge come from the template; only the data is painted. A style
+        // seen for the first time is drawn directly, since a template used once costs more than it saves
+        RasterTemplate.Key key = new RasterTemplate.Key(matrix.version(), style.foregroundColor(),
+                                                        style.backgroundColor(), style.badge());
+        RasterTemplate template = templates.get(key);
+        boolean buildTemplate = template == null && templates.admit(key);
+        int bytesPerPixel = template != null ? RENDER_BYTES_PER_PIXEL
+                : buildTemplate ? RENDER_BYTES_PER_PIXEL + TEMPLATE_BYTES_PER_PIXEL
+                : DIRECT_RENDER_BYTES_PER_PIXEL;
+        try (RenderMemoryBudget.Reservation rendering =
+                     memoryBudget.reserve("render", bytesPerPixel * imageSide * imageSide)) {
+            BufferedImage finalImage;
+            if (template == null && !buildTemplate) {
+                stage = trace.begin(RenderTrace.Stage.RASTERIZE);
+                BufferedImage qrImage = toBufferedImage(matrix, scale, border, style.foregroundColor(),
+                                                        style.backgroundColor());
+                stage.qrVersion(matrix.version()).dimensions(qrImage.getWidth(), qrImage.getHeight()).finish();
+
+                stage = trace.begin(RenderTrace.Stage.OVERLAY);
+                finalImage = overlayBadge(qrImage, style.badge());
+                stage.qrVersion(matrix.version()).dimensions(finalImage.getWidth(), finalImage.getHeight()).finish();
+            } else {
+                if (template == null) {
+                    stage = trace.begin(RenderTrace.Stage.OVERLAY);
+                    template = new RasterTemplate(matrix.version(), scale, border, style.foregroundColor(),
+                                                  style.backgroundColor(), style.badge());
+                    templates.put(key, template);
+                    stage.qrVersion(matrix.version()).dimensions(template.side(), template.side()).finish();
+                }
+
+                stage = trace.begin(RenderTrace.Stage.RASTERIZE);
+                finalImage = template.render(matrix);
+                stage.qrVersion(matrix.version()).dimensions(finalImage.getWidth(), finalImage.getHeight()).finish();
+            }
+
+            stage = trace.begin(RenderTrace.Stage.IMAGE_ENCODE);
+            if (fastDeflate) {
+                writeFastPng(finalImage, baos);
+            } else {
+                ImageIO.write(finalImage, "png", baos);
+            }
+            stage.qrVersion(matrix.version()).dimensions(finalImage.getWidth(), finalImage.getHeight())
+                 .outputBytes(baos.size())
+                 .finish();
+        }
+        LOGGER.debug("QR code generated successfully, size: {} bytes", baos.size());
+        return baos.toByteArray();
+    }
+
+    /**
+     * Renders the same code as {@link #renderPng} as an SVG document with the same geometry: one path for
+     * the data modules, one for the position patterns, and the badge embedded as a PNG image.
+     */
+    public String renderSvg(String data, PreparedStyle style) throws IOException {
+        RenderTrace trace = RenderTrace.current();
+        RenderStageEvent stage = trace.begin(RenderTrace.Stage.ENCODE);
+        ModuleMatrix matrix = matrixCache.encode(data, QrCode.Ecc.HIGH);
+        stage.qrVersion(matrix.version()).dimensions(matrix.size(), matrix.size()).finish();
+        trace.version(matrix.version());
+
+        stage = trace.begin(RenderTrace.Stage.RASTERIZE);
+        int scale = STANDARD_SIZE / matrix.size();
+        int side = (matrix.size() + 2) * scale;
+        String svg = svg(matrix, side, scale, style.foregroundColor(), style.backgroundColor(), style.badge(),
+                         badgeHref(style.badge()));
+        stage.qrVersion(matrix.version()).dimensions(side, side).outputBytes(svg.length()).finish();
+        return svg;
+    }
+
+    /**
+     * An SVG document of {@code side} x {@code side} pixels with modules of {@code scale} pixels centered in
+     * it, the same placement as {@link ScanlineRaster}: one path for the data modules, one for the position
+     * patterns, and the badge image on top.
+     *
+     * @param badgeHref the badge as a data URI, see {@link #pngDataUri}
+     */
+    static String svg(ModuleMatrix matrix, int side, int scale, int foregroundColor, int backgroundColor,
+                      LogoBadge badge, String badgeHref) {
+        int qrSize = matrix.size();
+        int origin = (side - qrSize * scale) / 2;
+        StringBuilder dataPath = new StringBuilder(qrSize * qrSize * 4);
+        StringBuilder patternPath = new StringBuilder(3 * 49 * 8);
+        for (int y = 0; y < qrSize; y++) {
+            for (int x = 0; x < qrSize; x++) {
+                if (matrix.isDark(x, y)) {
+                    StringBuilder path = ScanlineRaster.isInPositionPattern(x, y, qrSize) ? patternPath : dataPath;
+                    path.append('M').append(x).append(' ').append(y).append("h1v1h-1z");
+                }
+            }
+        }
+        StringBuilder svg = new StringBuilder(dataPath.length() + patternPath.length() + badgeHref.length() + 1024);
+        svg.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+           .append("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" width=\"").append(side)
+           .append("\" height=\"").append(side).append("\" viewBox=\"0 0 ").append(side).append(' ').append(side)
+           .append("\">\n")
+           .append("<rect width=\"100%\" height=\"100%\" fill=\"").append(hex(backgroundColor))
+           .append("\"/>\n")
+           .append("<g transform=\"translate(").append(origin).append(' ').append(origin).append(") scale(")
+           .append(scale).append(")\" shape-rendering=\"crispEdges\">\n")
+           .append("<path fill=\"").append(hex(foregroundColor)).append("\" d=\"").append(dataPath)
+           .append("\"/>\n")
+           .append("<path fill=\"#000000\" d=\"").append(patternPath).append("\"/>\n")
+           .append("</g>\n");
+        if (badge != null) {
+            svg.append("<image x=\"").append(badge.x(side)).append("\" y=\"").append(badge.y(side))
+               .append("\" width=\"").append(badge.image().getWidth()).append("\" height=\"")
+               .append(badge.image().getHeight()).append("\" href=\"").append(badgeHref).append("\"/>\n");
+        }
+        svg.append("</svg>\n");
+        return svg.toString();
+    }
+
+    /**
+     * Writes {@code image} as a PNG at deflate level 1. The JDK writer takes the level as a compression
+     * quality, level {@code 9 * (1 - quality)} rounded down, so 0.85 selects level 1.
+     */
+    private static void writeFastPng(BufferedImage image, ByteArrayOutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(FAST_DEFLATE_QUALITY);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * An image as a PNG data URI, for embedding in SVG.
+     */
+    static String pngDataUri(BufferedImage image) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray());
+    }
+
+    /**
+     * Prepares a print-resolution rendering of {@code size} x {@code size} pixels. The code and the logo
+     * badge are scaled together, so the badge covers the same share of the code as in the standard render,
+     * and the logo is rasterized at that scale rather than enlarged. Pixels are only produced when the
+     * result is written.
+     */
+    public PrintImage preparePrint(String data, int foregroundColor, int backgroundColor,
+                                   byte[] logo, String logoContentType, int size, int dpi)
+            throws IOException, TranscoderException {
+        if (data == null || data.isEmpty()) {
+            throw new IllegalArgumentException("QR code data cannot be null or empty");
+        }
+        if (size < STANDARD_SIZE || size > MAX_PRINT_SIZE) {
+            throw new IllegalArgumentException("Print size must be between " + STANDARD_SIZE + " and "
+                                               + MAX_PRINT_SIZE + " pixels");
+        }
+        if (dpi < MIN_DPI || dpi > MAX_DPI) {
+            throw new IllegalArgumentException("DPI must be between " + MIN_DPI + " and " + MAX_DPI);
+        }
+
+        ModuleMatrix matrix = matrixCache.encode(data, QrCode.Ecc.HIGH);
+        int border = 1;
+        int scale = size / (matrix.size() + border * 2);
+
+        double badgeScale = (double) size / STANDARD_SIZE;
+        int logoSize = (int) Math.round(LOGO_SIZE * badgeScale);
+        BufferedImage logoImage = loadLogo(logo, logoContentType, logoSize);
+
+        // Held until the image is written: the badge, and the bands the encoder renders and compresses
+        RenderMemoryBudget.Reservation rendering = memoryBudget.reserve(
+                "print", badgeBytes(logoImage, badgeScale) + bandEncoder.workingSetBytes(size));
+        try {
+            LogoBadge badge = composeBadge(logoImage, badgeScale, false);
+            LOGGER.debug("Prepared print rendering: {}px, {}dpi, module scale {}", size, dpi, scale);
+            return new PrintImage(new ScanlineRaster(matrix, size, scale, foregroundColor, backgroundColor, badge),
+                                  bandEncoder, dpi, rendering);
+        } catch (RuntimeException e) {
+            rendering.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The default logo never changes, so its badge is built on first use and shared by all renders.
+     */
+    private LogoBadge defaultBadge() throws IOException, TranscoderException {
+        LogoBadge badge = defaultBadge;
+        if (badge == null) {
+            synchronized (this) {
+                badge = defaultBadge;
+                if (badge == null) {
+                    badge = composeBadge(SvgLogoRasterizer.transcode(new ByteArrayInputStream(defaultLogoSvg),
+                                                                     LOGO_SIZE), 1, false);
+                    defaultBadge = badge;
+                }
+            }
+        }
+        return badge;
+    }
+
+    /**
+     * The badge as a PNG data URI. Batches render many codes with one style, so the last badge's URI is
+     * kept rather than encoding the same image for every code.
+     */
+    private String badgeHref(LogoBadge badge) throws IOException {
+        if (badge == null) {
+            return "";
+        }
+        SvgBadge cached = svgBadge;
+        if (cached != null && cached.badge() == badge) {
+            return cached.href();
+        }
+        String href = pngDataUri(badge.image());
+        svgBadge = new SvgBadge(badge, href);
+        return href;
+    }
+
+    private static String hex(int color) {
+        return String.format(Locale.ROOT, "#%06X", color & 0xFFFFFF);
+    }
+
+    /**
+     * Rasterizes {@code logo}, or the default logo when it is {@code null} or empty, at {@code size}.
+     */
+    private BufferedImage loadLogo(byte[] logo, String contentType, int size) throws IOException, TranscoderException {
+        if (logo == null || logo.length == 0) {
+            try (RenderMemoryBudget.Reservation decoding =
+                         memoryBudget.reserve("logo", SvgLogoRasterizer.estimateBytes(defaultLogoSvg.length, size))) {
+                return SvgLogoRasterizer.transcode(new ByteArrayInputStream(defaultLogoSvg), size);
+            }
+        }
+        return loadCustomLogo(logo, contentType, size);
+    }
+
+    /**
+     * Decodes an uploaded logo within a memory reservation sized from the SVG length or the raster image's
+     * header dimensions, released once the logo is scaled down to {@code size}.
+     */
+    private BufferedImage loadCustomLogo(byte[] logo, String contentType, int size)
+            throws IOException, TranscoderException {
+        if ("image/svg+xml".equals(contentType)) {
+            try (RenderMemoryBudget.Reservation decoding =
+                         memoryBudget.reserve("logo", SvgLogoRasterizer.estimateBytes(logo.length, size))) {
+                return svgLogoRasterizer.rasterize(logo, size);
+            }
+        } else if ("image/png".equals(contentType) || "image/jpeg".equals(contentType)) {
+            Dimension dimensions = RasterLogoDecoder.readDimensions(new ByteArrayInputStream(logo));
+            RasterLogoDecoder.checkDimensions(dimensions.width, dimensions.height);
+            long bytes = RasterLogoDecoder.estimateBytes(dimensions.width, dimensions.height, size);
+            try (RenderMemoryBudget.Reservation decoding = memoryBudget.reserve("logo", bytes)) {
+                return RasterLogoDecoder.decode(new ByteArrayInputStream(logo), size);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported logo format: " + contentType);
+        }
+    }
+
+    /**
+     * Draws every module of {@code matrix} on the background, position patterns in black.
+     */
+    private static BufferedImage toBufferedImage(ModuleMatrix matrix, int scale, int border, int foregroundColor,
+                                                 int backgroundColor) {
+        int size = (matrix.size() + border * 2) * scale;
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+
+        // Fill background
+        g.setColor(new Color(backgroundColor));
+        g.fillRect(0, 0, size, size);
+
+        // Draw QR code modules
+        for (int y = 0; y < matrix.size(); y++) {
+            for (int x = 0; x < matrix.size(); x++) {
+                if (matrix.isDark(x, y)) {
+                    // Use black for position patterns, custom color for data
+                    boolean isPositionPattern = ScanlineRaster.isInPositionPattern(x, y, matrix.size());
+                    g.setColor(isPositionPattern ? Color.BLACK : new Color(foregroundColor));
+                    g.fillRect((x + border) * scale, (y + border) * scale, scale, scale);
+                }
+            }
+        }
+
+        g.dispose();
+        return image;
+    }
+
+    private static BufferedImage overlayBadge(BufferedImage qrImage, LogoBadge badge) {
+        BufferedImage combined = new BufferedImage(qrImage.getWidth(), qrImage.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = combined.createGraphics();
+        g.drawImage(qrImage, 0, 0, null);
+        g.drawImage(badge.image(), badge.x(qrImage.getWidth()), badge.y(qrImage.getHeight()), null);
+        g.dispose();
+        return combined;
+    }
+
+    /**
+     * Bytes of the ARGB image {@link #composeBadge} draws around {@code logo}: the logo plus the padding, and
+     * the stroke and shadow, both about {@code 2 * scale} pixels.
+     */
+    private static long badgeBytes(BufferedImage logo, double scale) {
+        long side = Math.max(logo.getWidth(), logo.getHeight()) + (long) Math.ceil((2 * LOGO_BORDER + 4) * scale) + 2;
+        return 4 * side * side;
+    }
+
+    /**
+     * Draws the shadow, rounded white background, border and logo into a transparent image once, so that
+     * overlaying it on a QR code is a single image draw. The padding, corners, stroke and shadow are
+     * multiplied by {@code scale}, which is 1 for the standard render. A {@code plain} badge has no shadow
+     * and hard edges.
+     */
+    private LogoBadge composeBadge(BufferedImage logo, double scale, boolean plain) {
+        int logoBorder = (int) Math.round(LOGO_BORDER * scale);
+        int backgroundWidth = logo.getWidth() + (logoBorder * 2);
+        int backgroundHeight = logo.getHeight() + (logoBorder * 2);
+        int cornerRadius = (int) Math.round(12 * scale);
+        float strokeWidth = (float) (2.0 * scale);
+        int shadowOffset = (int) Math.round(2 * scale);
+        // The border stroke extends half its width outside the background and the shadow past it
+        int origin = (int) Math.ceil(strokeWidth / 2);
+
+        BufferedImage image = new BufferedImage(backgroundWidth + origin * 2 + shadowOffset,
+                                                backgroundHeight + origin * 2 + shadowOffset,
+                                                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+
+        if (!plain) {
+            // Enable high-quality rendering
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+
+            // Draw subtle shadow for depth
+            g.setColor(new Color(0, 0, 0, 30));
+            g.fillRoundRect(origin + shadowOffset, origin + shadowOffset, backgroundWidth, backgroundHeight, cornerRadius, cornerRadius);
+        }
+
+        // Draw white background
+        g.setColor(Color.WHITE);
+        g.fillRoundRect(origin, origin, backgroundWidth, backgroundHeight, cornerRadius, cornerRadius);
+
+        // Draw black border around logo
+        g.setColor(Color.BLACK);
+        g.setStroke(new BasicStroke(strokeWidth));
+        g.drawRoundRect(origin, origin, backgroundWidth, backgroundHeight, cornerRadius, cornerRadius);
+
+        // Draw logo
+        g.drawImage(logo, origin + logoBorder, origin + logoBorder, null);
+        g.dispose();
+
+        return new LogoBadge(image, logo.getWidth(), logo.getHeight(), logoBorder, origin);
+    }
+
+    private record SvgBadge(LogoBadge badge, String href) {
+    }
+}
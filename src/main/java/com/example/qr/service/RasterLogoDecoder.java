@@ -0,0 +1,153 @@
+package com.example.qr.service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Decodes uploaded PNG and JPEG logos without materializing them at full resolution.
+ * <p>
+ * The image header is read first so that oversized images are rejected before any pixel data is
+ * inflated. Images larger than twice the target logo size are decoded with source subsampling to at most
+ * twice the target size on their longer side, then reduced by halving and a final bicubic pass, so the
+ * decoded pixels stay within four times the target area regardless of the uploaded dimensions.
+ */
+public final class RasterLogoDecoder {
+
+    /** Largest accepted width or height of an uploaded logo, in pixels. */
+    public static final int MAX_DIMENSION = 8192;
+    /** Largest accepted pixel count of an uploaded logo; bounds the decoder's work per upload. */
+    public static final long MAX_PIXELS = 25_000_000L;
+
+    private RasterLogoDecoder() {
+    }
+
+    /**
+     * Reads only the image header and returns the dimensions of the first image.
+     *
+     * @throws IOException if no decoder recognizes the data
+     */
+    public static Dimension readDimensions(InputStream input) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            ImageReader reader = readerFor(stream);
+            try {
+                reader.setInput(stream, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decodes the image and scales it to fit within a {@code targetSize} square, keeping its aspect ratio.
+     *
+     * @throws IllegalArgumentException if the image exceeds {@link #MAX_DIMENSION} or {@link #MAX_PIXELS}
+     * @throws IOException              if the image cannot be decoded
+     */
+    public static BufferedImage decode(InputStream input, int targetSize) throws IOException {
+        BufferedImage decoded;
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            ImageReader reader = readerFor(stream);
+            try {
+                reader.setInput(stream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                checkDimensions(width, height);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = subsamplingFor(width, height, targetSize);
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                decoded = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+        if (decoded == null) {
+            throw new IOException("Failed to read logo image");
+        }
+        return scaleToFit(decoded, targetSize);
+    }
+
+    /**
+     * Upper estimate of the bytes {@link #decode} allocates for an image of the given header dimensions: the
+     * subsampled decode, the halving passes, which add at most a third of it, and the final image.
+     */
+    public static long estimateBytes(int width, int height, int targetSize) {
+        int subsampling = subsamplingFor(width, height, targetSize);
+        long decoded = 4L * ((width + subsampling - 1) / subsampling) * ((height + subsampling - 1) / subsampling);
+        return decoded + decoded / 3 + 4L * targetSize * targetSize;
+    }
+
+    static void checkDimensions(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Logo image has invalid dimensions: " + width + "x" + height);
+        }
+        if (width > MAX_DIMENSION || height > MAX_DIMENSION || (long) width * height > MAX_PIXELS) {
+            throw new IllegalArgumentException("Logo image dimensions " + width + "x" + height
+                                               + " exceed the maximum of " + MAX_DIMENSION + "px per side or "
+                                               + MAX_PIXELS + " pixels");
+        }
+    }
+
+    /**
+     * Smallest integer subsampling factor that leaves at most twice the target resolution on the longer
+     * side. That is still at least the target resolution, which keeps enough detail for the high-quality
+     * downscale that follows.
+     */
+    static int subsamplingFor(int width, int height, int targetSize) {
+        return Math.max(1, Math.ceilDiv(Math.max(width, height), targetSize * 2));
+    }
+
+    /**
+     * Scales the image to fit within a {@code targetSize} square. Large reductions are done by halving
+     * with bilinear interpolation first, which avoids the aliasing a single bicubic pass produces.
+     */
+    static BufferedImage scaleToFit(BufferedImage source, int targetSize) {
+        double aspectRatio = (double) source.getWidth() / source.getHeight();
+        int targetWidth = targetSize;
+        int targetHeight = targetSize;
+        if (aspectRatio > 1) {
+            targetHeight = Math.max(1, (int) (targetSize / aspectRatio));
+        } else {
+            targetWidth = Math.max(1, (int) (targetSize * aspectRatio));
+        }
+
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2,
+                           RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        return draw(current, targetWidth, targetHeight, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, Object interpolation) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+
+    private static ImageReader readerFor(ImageInputStream stream) throws IOException {
+        if (stream == null) {
+            throw new IOException("Failed to read logo image");
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+        if (!readers.hasNext()) {
+            throw new IOException("Failed to read logo image");
+        }
+        return readers.next();
+    }
+}
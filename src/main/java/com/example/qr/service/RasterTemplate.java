@@ -0,0 +1,211 @@
+package com.example.qr.service;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The standard render of one version in one style with everything but the data already drawn: the
+ * background, the function patterns and the logo badge.
+ * <p>
+ * Rendering a code copies the template and paints only its data and format modules. The badge is partly
+ * transparent at its shadow and rounded edges, so a module under it does not simply take the foreground
+ * color there. Every module under the badge is either light or a non-position-pattern dark module, so the
+ * template keeps the badge composited over the background in its pixels and, separately, the badge
+ * composited over the foreground. A dark module takes its pixels inside the badge from the second.
+ * Both are composited by Java 2D exactly as an overlay on a finished code would be, so the output is
+ * identical pixel for pixel.
+ */
+final class RasterTemplate {
+
+    private static final int POSITION_PATTERN_COLOR = 0xFF000000;
+
+    private final int size;
+    private final int scale;
+    private final int origin;
+    private final int side;
+    private final int foregroundColor;
+    private final int[] pixels;
+    /** Modules that differ between codes of this version, as {@code y * size + x}. */
+    private final int[] variableModules;
+    private final int badgeX;
+    private final int badgeY;
+    private final int badgeWidth;
+    private final int badgeHeight;
+    private final int[] badgeOverForeground;
+
+    /**
+     * @param border quiet zone around the modules, in modules
+     * @param scale  width and height of one module, in pixels
+     */
+    RasterTemplate(int version, int scale, int border, int foregroundColor, int backgroundColor, LogoBadge badge) {
+        VersionLayout layout = VersionLayout.of(version);
+        this.size = layout.size();
+        this.scale = scale;
+        this.origin = border * scale;
+        this.side = (size + border * 2) * scale;
+        this.foregroundColor = 0xFF000000 | foregroundColor;
+
+        BufferedImage code = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = code.createGraphics();
+        g.setColor(new Color(backgroundColor));
+        g.fillRect(0, 0, side, side);
+        int variable = 0;
+        int[] positions = new int[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (!layout.isFunction(x, y) || layout.isFormat(x, y)) {
+                    positions[variable++] = y * size + x;
+                } else if (layout.isDark(x, y)) {
+                    boolean positionPattern = ScanlineRaster.isInPositionPattern(x, y, size);
+                    g.setColor(new Color(positionPattern ? POSITION_PATTERN_COLOR : this.foregroundColor));
+                    g.fillRect(origin + x * scale, origin + y * scale, scale, scale);
+                }
+            }
+        }
+        g.dispose();
+        this.variableModules = Arrays.copyOf(positions, variable);
+
+        BufferedImage composed = new BufferedImage(side, side, BufferedImage.TYPE_INT_ARGB);
+        g = composed.createGraphics();
+        g.drawImage(code, 0, 0, null);
+        g.drawImage(badge.image(), badge.x(side), badge.y(side), null);
+        g.dispose();
+        this.pixels = ((DataBufferInt) composed.getRaster().getDataBuffer()).getData();
+
+        this.badgeX = badge.x(side);
+        this.badgeY = badge.y(side);
+        this.badgeWidth = badge.image().getWidth();
+        this.badgeHeight = badge.image().getHeight();
+        BufferedImage overForeground = new BufferedImage(badgeWidth, badgeHeight, BufferedImage.TYPE_INT_ARGB);
+        g = overForeground.createGraphics();
+        g.setColor(new Color(this.foregroundColor));
+        g.fillRect(0, 0, badgeWidth, badgeHeight);
+        g.drawImage(badge.image(), 0, 0, null);
+        g.dispose();
+        this.badgeOverForeground = ((DataBufferInt) overForeground.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Width and height of the rendered image, in pixels.
+     */
+    int side() {
+        return side;
+    }
+
+    /**
+     * Bytes held by the template's pixels.
+     */
+    long bytes() {
+        return 4L * (pixels.length + badgeOverForeground.length + variableModules.length);
+    }
+
+    /**
+     * Renders {@code matrix}, which must be of this template's version, as an ARGB image.
+     */
+    BufferedImage render(ModuleMatrix matrix) {
+        BufferedImage image = new BufferedImage(side, side, BufferedImage.TYPE_INT_ARGB);
+        int[] out = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        System.arraycopy(pixels, 0, out, 0, pixels.length);
+        for (int position : variableModules) {
+            int x = position % size;
+            int y = position / size;
+            if (matrix.isDark(x, y)) {
+                paint(out, origin + x * scale, origin + y * scale);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Paints one dark module at pixel {@code (left, top)}, taking the badge-composited pixels where the
+     * module lies under the badge.
+     */
+    private void paint(int[] out, int left, int top) {
+        boolean crossesBadge = left < badgeX + badgeWidth && left + scale > badgeX
+                               && top < badgeY + badgeHeight && top + scale > badgeY;
+        for (int row = top; row < top + scale; row++) {
+            int start = row * side + left;
+            if (!crossesBadge || row < badgeY || row >= badgeY + badgeHeight) {
+                Arrays.fill(out, start, start + scale, foregroundColor);
+                continue;
+            }
+            int badgeRow = (row - badgeY) * badgeWidth - badgeX;
+            for (int x = left; x < left + scale; x++) {
+                boolean underBadge = x >= badgeX && x < badgeX + badgeWidth;
+                out[row * side + x] = underBadge ? badgeOverForeground[badgeRow + x] : foregroundColor;
+            }
+        }
+    }
+
+    /**
+     * Templates of the styles in recent use, least recently used evicted first.
+     * <p>
+     * A template is only worth its memory when its style comes back, and a request with an uploaded logo
+     * has a badge of its own that never does. Building a template costs more than drawing one code directly,
+     * so a template is only built, and kept, the second time its style is seen within the last few styles;
+     * until then, codes are drawn directly.
+     */
+    static final class Cache {
+        private static final int RECENT_STYLES = 32;
+
+        private final int maxTemplates;
+        private final Map<Key, RasterTemplate> templates = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<Key, Boolean> recent = new LinkedHashMap<>(16, 0.75f, true);
+
+        Cache(int maxTemplates) {
+            this.maxTemplates = maxTemplates;
+        }
+
+        /**
+         * The cached template, or {@code null} to ask {@link #admit} whether to build one.
+         */
+        synchronized RasterTemplate get(Key key) {
+            return templates.get(key);
+        }
+
+        /**
+         * Records a sighting of a style without a template, and returns whether one should be built and
+         * {@link #put}: whether the style was seen recently.
+         */
+        synchronized boolean admit(Key key) {
+            if (maxTemplates == 0) {
+                return false;
+            }
+            if (recent.remove(key) != null) {
+                return true;
+            }
+            recent.put(key, Boolean.TRUE);
+            evict(recent, RECENT_STYLES);
+            return false;
+        }
+
+        synchronized void put(Key key, RasterTemplate template) {
+            templates.putIfAbsent(key, template);
+            evict(templates, maxTemplates);
+        }
+
+        synchronized int size() {
+            return templates.size();
+        }
+
+        private static void evict(Map<Key, ?> map, int maxEntries) {
+            Iterator<Key> eldest = map.keySet().iterator();
+            while (map.size() > maxEntries) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * The badge is compared by identity, through the image it holds, so a template is only shared by
+     * renders that use the same prepared badge.
+     */
+    record Key(int version, int foregroundColor, int backgroundColor, LogoBadge badge) {
+    }
+}
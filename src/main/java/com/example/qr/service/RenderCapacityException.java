@@ -0,0 +1,12 @@
+package com.example.qr.service;
+
+/**
+ * Thrown when a render cannot be accepted because a shared rendering resource is saturated.
+ * The request may succeed if retried later.
+ */
+public class RenderCapacityException extends RuntimeException {
+
+    public RenderCapacityException(String message) {
+        super(message);
+    }
+}
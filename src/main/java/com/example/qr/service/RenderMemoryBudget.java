@@ -0,0 +1,122 @@
+package com.example.qr.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A global budget for the memory of in-flight decodes and renders.
+ * <p>
+ * A request count does not bound memory: a print-size render or a large logo needs as much as hundreds of
+ * standard renders. Before allocating its buffers, each decode or render reserves an estimate of their
+ * bytes and releases it when they are no longer needed. A reservation that does not fit waits briefly for
+ * others to be released, first come first served, and is then rejected with a
+ * {@link RenderCapacityException}. A single reservation larger than the whole budget is reduced to the
+ * budget, so it can still run, alone.
+ */
+@Component
+public class RenderMemoryBudget {
+
+    /** Reservations are counted in units of this many bytes, so budgets beyond 2 GB fit a semaphore. */
+    private static final int UNIT = 1024;
+
+    private final Semaphore units;
+    private final int capacityUnits;
+    private final long maxWaitNanos;
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final MeterRegistry registry;
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    public RenderMemoryBudget() {
+        this(0, 250, new SimpleMeterRegistry());
+    }
+
+    /**
+     * @param maxBytes budget in bytes; 0 or less uses half the maximum heap
+     */
+    @Autowired
+    public RenderMemoryBudget(@Value("${qr.memory-budget.max-bytes:0}") long maxBytes,
+                              @Value("${qr.memory-budget.max-wait-ms:250}") long maxWaitMillis,
+                              MeterRegistry registry) {
+        long budget = maxBytes > 0 ? maxBytes : Runtime.getRuntime().maxMemory() / 2;
+        this.capacityUnits = (int) Math.clamp(budget / UNIT, 1, Integer.MAX_VALUE);
+        this.units = new Semaphore(capacityUnits, true);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.registry = registry;
+        Gauge.builder("qr.render.memory.reserved", reservedBytes, AtomicLong::get)
+             .description("Estimated memory reserved by in-flight decodes and renders")
+             .baseUnit("bytes")
+             .register(registry);
+        Gauge.builder("qr.render.memory.capacity", this, RenderMemoryBudget::capacityBytes)
+             .description("Memory budget for in-flight decodes and renders")
+             .baseUnit("bytes")
+             .register(registry);
+    }
+
+    /**
+     * Reserves {@code bytes} for {@code purpose}, which names the work in the rejection metric.
+     *
+     * @throws RenderCapacityException if the bytes do not become available within the maximum wait
+     */
+    public Reservation reserve(String purpose, long bytes) {
+        int requested = (int) Math.clamp((bytes + UNIT - 1) / UNIT, 1, capacityUnits);
+        boolean acquired;
+        try {
+            acquired = units.tryAcquire(requested, maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejections.computeIfAbsent(purpose, p -> Counter.builder("qr.render.memory.rejected")
+                                                             .description("Work rejected for lack of memory budget")
+                                                             .tag("purpose", p)
+                                                             .register(registry))
+                      .increment();
+            throw new RenderCapacityException("Render memory budget exhausted: " + purpose + " needs "
+                                              + requested + " KB");
+        }
+        reservedBytes.addAndGet((long) requested * UNIT);
+        return new Reservation(requested);
+    }
+
+    public long capacityBytes() {
+        return (long) capacityUnits * UNIT;
+    }
+
+    public long reservedBytes() {
+        return reservedBytes.get();
+    }
+
+    /**
+     * Reserved memory, returned to the budget by {@link #close()}. Closing more than once has no effect, so
+     * a reservation handed to a later stage may be closed on every path without counting it twice.
+     */
+    public final class Reservation implements AutoCloseable {
+        private final int units;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Reservation(int units) {
+            this.units = units;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                reservedBytes.addAndGet(-(long) units * UNIT);
+                RenderMemoryBudget.this.units.release(units);
+            }
+        }
+    }
+}
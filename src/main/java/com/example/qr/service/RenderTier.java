@@ -0,0 +1,35 @@
+package com.example.qr.service;
+
+/**
+ * How much of the standard render a {@code /generate} request gets, from full quality down to cached
+ * results only. Each tier keeps the savings of the tiers before it. See {@link RenderTierPolicy}.
+ */
+public enum RenderTier {
+    /** Everything as usual. */
+    FULL("full"),
+    /** Uploaded logos are framed without the drop shadow and antialiasing. */
+    PLAIN_BADGE("plain-badge"),
+    /** PNGs are compressed at the fastest deflate level: the same pixels in a larger file. */
+    FAST_DEFLATE("fast-deflate"),
+    /** Uploaded logos are not decoded; codes carry the default logo, whose badge is already built. */
+    DEFAULT_LOGO("default-logo"),
+    /** Only render cache hits are served; anything else is rejected as over capacity. */
+    CACHED_ONLY("cached-only");
+
+    private final String value;
+
+    RenderTier(String value) {
+        this.value = value;
+    }
+
+    /**
+     * The tier as reported in the {@code X-Render-Tier} header.
+     */
+    public String value() {
+        return value;
+    }
+
+    public boolean atLeast(RenderTier other) {
+        return compareTo(other) >= 0;
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.qr.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Chooses the {@link RenderTier} of {@code /generate} requests from the current load, so that an overloaded
+ * server degrades the least visible parts of its output first instead of timing out everything.
+ * <p>
+ * Load is the larger of two ratios: requests in flight to {@code maxInFlight}, and the moving average of
+ * render latency to {@code targetLatency}. Latency only counts while renders keep finishing, so a server
+ * serving cached results only is not held there by renders it no longer runs. Tiers change one step at a
+ * time, with hysteresis: a step down needs load at or above 1 for {@code degradeAfter}, a step up needs it
+ * at or below {@code recoverBelow} for the longer {@code recoverAfter}, and each step restarts the wait.
+ * Load between the two thresholds keeps the current tier.
+ */
+@Component
+public class RenderTierPolicy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RenderTierPolicy.class);
+    /**
+     * Weight of the newest render in the latency average. The average starts at zero, so one slow render,
+     * such as the first after startup, does not count as overload on its own.
+     */
+    private static final double LATENCY_WEIGHT = 0.2;
+    private static final RenderTier[] TIERS = RenderTier.values();
+
+    private final boolean enabled;
+    private final int maxInFlight;
+    private final long targetLatencyNanos;
+    private final double recoverBelow;
+    private final long degradeAfterNanos;
+    private final long recoverAfterNanos;
+    private final LongSupplier clock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<RenderTier, Counter> entered = new EnumMap<>(RenderTier.class);
+    private final Counter rejections;
+
+    // Guarded by this
+    private RenderTier tier = RenderTier.FULL;
+    private double latencyNanos;
+    private long lastRenderAt;
+    private boolean rendered;
+    private long overloadedSince;
+    private boolean overloaded;
+    private long calmSince;
+    private boolean calm;
+
+    /**
+     * A policy that always renders at full quality.
+     */
+    public RenderTierPolicy() {
+        this(false, 1, 1, 0, 0, 0, new SimpleMeterRegistry(), System::nanoTime);
+    }
+
+    /**
+     * @param maxInFlight requests in flight at which the server counts as overloaded; 0 or less uses four
+     *                    per available processor
+     */
+    @Autowired
+    public RenderTierPolicy(@Value("${qr.tiers.enabled:true}") boolean enabled,
+                            @Value("${qr.tiers.max-in-flight:0}") int maxInFlight,
+                            @Value("${qr.tiers.target-latency-ms:500}") long targetLatencyMillis,
+                            @Value("${qr.tiers.recover-below:0.5}") double recoverBelow,
+                            @Value("${qr.tiers.degrade-after-ms:2000}") long degradeAfterMillis,
+                            @Value("${qr.tiers.recover-after-ms:10000}") long recoverAfterMillis,
+                            MeterRegistry registry) {
+        this(enabled, maxInFlight, targetLatencyMillis, recoverBelow, degradeAfterMillis, recoverAfterMillis,
+             registry, System::nanoTime);
+    }
+
+    RenderTierPolicy(boolean enabled, int maxInFlight, long targetLatencyMillis, double recoverBelow,
+                     long degradeAfterMillis, long recoverAfterMillis, MeterRegistry registry, LongSupplier clock) {
+        if (recoverBelow < 0 || recoverBelow >= 1) {
+            throw new IllegalArgumentException("qr.tiers.recover-below must be at least 0 and below 1");
+        }
+        this.enabled = enabled;
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : 4 * Runtime.getRuntime().availableProcessors();
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, targetLatencyMillis));
+        this.recoverBelow = recoverBelow;
+        this.degradeAfterNanos = TimeUnit.MILLISECONDS.toNanos(degradeAfterMillis);
+        this.recoverAfterNanos = TimeUnit.MILLISECONDS.toNanos(recoverAfterMillis);
+        this.clock = clock;
+        Gauge.builder("qr.render.tier", this, policy -> policy.current().ordinal())
+             .description("Render quality tier of /generate requests: 0 full to 4 cached results only")
+             .register(registry);
+        Gauge.builder("qr.render.in-flight", inFlight, AtomicInteger::get)
+             .description("/generate requests being served")
+             .register(registry);
+        for (RenderTier tier : TIERS) {
+            entered.put(tier, Counter.builder("qr.render.tier.changes")
+                                     .description("Render quality tier changes, by the tier entered")
+                                     .tag("tier", tier.value())
+                                     .register(registry));
+        }
+        this.rejections = Counter.builder("qr.render.tier.rejected")
+                                 .description("Requests rejected because only cached results were served")
+                                 .register(registry);
+    }
+
+    /**
+     * Counts a request in flight until the returned admission is closed, and gives it the current tier.
+     */
+    public Admission admit() {
+        inFlight.incrementAndGet();
+        return new Admission(current(), clock.getAsLong());
+    }
+
+    /**
+     * The tier for a request starting now.
+     */
+    public RenderTier current() {
+        if (!enabled) {
+            return RenderTier.FULL;
+        }
+        synchronized (this) {
+            evaluate(clock.getAsLong());
+            return tier;
+        }
+    }
+
+    /**
+     * Counts a request turned away because its result was not cached.
+     */
+    void rejected() {
+        rejections.increment();
+    }
+
+    private synchronized void renderFinished(long nanos, long now) {
+        latencyNanos += LATENCY_WEIGHT * (nanos - latencyNanos);
+        rendered = true;
+        lastRenderAt = now;
+        evaluate(now);
+    }
+
+    private void evaluate(long now) {
+        double load = (double) inFlight.get() / maxInFlight;
+        if (rendered && now - lastRenderAt <= recoverAfterNanos) {
+            load = Math.max(load, latencyNanos / targetLatencyNanos);
+        }
+
+        if (load >= 1) {
+            calm = false;
+            if (!overloaded) {
+                overloaded = true;
+                overloadedSince = now;
+            }
+            if (tier != RenderTier.CACHED_ONLY && now - overloadedSince >= degradeAfterNanos) {
+                change(TIERS[tier.ordinal() + 1], load, now);
+            }
+        } else {
+            overloaded = false;
+            if (load > recoverBelow) {
+                calm = false;
+            } else {
+                if (!calm) {
+                    calm = true;
+                    calmSince = now;
+                }
+                if (tier != RenderTier.FULL && now - calmSince >= recoverAfterNanos) {
+                    change(TIERS[tier.ordinal() - 1], load, now);
+                }
+            }
+        }
+    }
+
+    private void change(RenderTier next, double load, long now) {
+        LOGGER.warn("Render tier {} -> {} at load {}", tier.value(), next.value(), String.format(Locale.ROOT, "%.2f", load));
+        tier = next;
+        entered.get(next).increment();
+        // The next step waits for the full period again, so each step has time to take effect
+        overloadedSince = now;
+        calmSince = now;
+    }
+
+    /**
+     * A request in flight. Closing it more than once has no effect.
+     */
+    public final class Admission implements AutoCloseable {
+        private final RenderTier tier;
+        private final long admittedAt;
+        private boolean rendering;
+        private boolean closed;
+
+        private Admission(RenderTier tier, long admittedAt) {
+            this.tier = tier;
+            this.admittedAt = admittedAt;
+        }
+
+        public RenderTier tier() {
+            return tier;
+        }
+
+        /**
+         * Marks the request as rendered rather than served from the cache, so its duration counts toward the
+         * render latency.
+         */
+        public void rendering() {
+            this.rendering = true;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            inFlight.decrementAndGet();
+            if (rendering && enabled) {
+                long now = clock.getAsLong();
+                renderFinished(now - admittedAt, now);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.qr.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Renders run on a pool of workers and written in the order they were submitted, with at most
+ * {@code size} in flight: submitting to a full window first writes the oldest render, waiting for it if it
+ * has not finished. The workers stay busy while the images held at a time depend on the window, not on the
+ * number of renders. Closing the window cancels the renders still in flight, so a run that fails part way
+ * does not leave them running.
+ *
+ * @param <K> what identifies a render to its writer, such as its name
+ */
+public final class RenderWindow<K> implements AutoCloseable {
+
+    /** Renders a run keeps in flight per worker thread. */
+    public static final int IN_FLIGHT_PER_THREAD = 4;
+
+    /**
+     * Receives the finished renders in submission order.
+     */
+    public interface Writer<K> {
+
+        void write(K key, byte[] image) throws IOException;
+
+        /**
+         * Called instead of {@link #write} when the render of {@code key} threw {@code cause}. By default
+         * the failure ends the run: runtime and I/O exceptions are rethrown, anything else is wrapped.
+         */
+        default void failed(K key, Throwable cause) throws IOException {
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException("Rendering " + key + " failed", cause);
+        }
+    }
+
+    private final Function<Callable<byte[]>, Future<byte[]>> workers;
+    private final int size;
+    private final Writer<K> writer;
+    private final Deque<Pending<K>> inFlight = new ArrayDeque<>();
+
+    /**
+     * @param workers submits a render to the pool, such as {@code ExecutorService::submit}
+     * @param size    renders in flight at most
+     */
+    public RenderWindow(Function<Callable<byte[]>, Future<byte[]>> workers, int size, Writer<K> writer) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Render window must hold at least one render");
+        }
+        this.workers = workers;
+        this.size = size;
+        this.writer = writer;
+    }
+
+    /**
+     * Submits a render, first writing the oldest one in flight if the window is full.
+     */
+    public void submit(K key, Callable<byte[]> render) throws IOException {
+        inFlight.add(new Pending<>(key, workers.apply(render)));
+        if (inFlight.size() >= size) {
+            writeOldest();
+        }
+    }
+
+    /**
+     * Writes every render still in flight.
+     */
+    public void finish() throws IOException {
+        while (!inFlight.isEmpty()) {
+            writeOldest();
+        }
+    }
+
+    /**
+     * Cancels the renders still in flight, which are only left after a failure.
+     */
+    @Override
+    public void close() {
+        for (Pending<K> pending : inFlight) {
+            pending.image().cancel(true);
+        }
+        inFlight.clear();
+    }
+
+    private void writeOldest() throws IOException {
+        Pending<K> pending = inFlight.poll();
+        byte[] image;
+        try {
+            image = pending.image().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rendering " + pending.key());
+        } catch (ExecutionException e) {
+            writer.failed(pending.key(), e.getCause());
+            return;
+        }
+        writer.write(pending.key(), image);
+    }
+
+    private record Pending<K>(K key, Future<byte[]> image) {
+    }
+}
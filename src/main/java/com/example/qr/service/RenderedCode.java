@@ -0,0 +1,11 @@
+package com.example.qr.service;
+
+/**
+ * A generated QR code together with the render tier it was served at, which the caller reports whether or
+ * not the request is traced.
+ *
+ * @param png  the encoded image
+ * @param tier the tier admitted for the render, also when the image came from the cache
+ */
+public record RenderedCode(byte[] png, RenderTier tier) {
+}
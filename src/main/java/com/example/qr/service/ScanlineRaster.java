@@ -0,0 +1,200 @@
+package com.example.qr.service;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Produces the pixel rows of a QR code with its logo badge straight from the module matrix, without an
+ * image of the whole code.
+ * <p>
+ * Rows are emitted as PNG scanlines: 8-bit RGB, each preceded by the "Up" filter byte. Every module row is
+ * repeated {@code scale} times, so all but the first row of a module row filter to zeros and compress to
+ * almost nothing.
+ */
+final class ScanlineRaster {
+
+    private static final int BYTES_PER_PIXEL = 3;
+    private static final int FILTER_UP = 2;
+    private static final int POSITION_PATTERN_COLOR = 0x000000;
+
+    private final ModuleMatrix matrix;
+    private final int scale;
+    private final int origin;
+    private final int foregroundColor;
+    private final int backgroundColor;
+    private final LogoBadge badge;
+    private final int size;
+    private final int badgeX;
+    private final int badgeY;
+
+    /**
+     * @param size  width and height of the image; the modules are centered and the remainder is quiet zone
+     * @param scale width and height of one module, in pixels
+     */
+    ScanlineRaster(ModuleMatrix matrix, int size, int scale, int foregroundColor, int backgroundColor, LogoBadge badge) {
+        this.matrix = matrix;
+        this.size = size;
+        this.scale = scale;
+        this.origin = (size - matrix.size() * scale) / 2;
+        this.foregroundColor = foregroundColor & 0xFFFFFF;
+        this.backgroundColor = backgroundColor & 0xFFFFFF;
+        this.badge = badge;
+        this.badgeX = badge == null ? 0 : badge.x(size);
+        this.badgeY = badge == null ? 0 : badge.y(size);
+    }
+
+    /**
+     * Width and height of the image, in pixels.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Length of one filtered scanline, including its filter byte.
+     */
+    int scanlineLength() {
+        return scanlineLength(size);
+    }
+
+    static int scanlineLength(int size) {
+        return 1 + size * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Returns a cursor with its own row buffers. Cursors are not thread-safe; the raster itself is, so
+     * separate cursors may render different rows concurrently.
+     */
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Position patterns (the three 7x7 corner squares) are always drawn in black so the code stays easy to
+     * locate whatever the foreground color.
+     */
+    static boolean isInPositionPattern(int x, int y, int size) {
+        // Top-left position pattern (0,0 to 6,6)
+        if (x < 7 && y < 7) {
+            return true;
+        }
+        // Top-right position pattern (size-7,0 to size-1,6)
+        if (x >= size - 7 && y < 7) {
+            return true;
+        }
+        // Bottom-left position pattern (0,size-7 to 6,size-1)
+        return x < 7 && y >= size - 7;
+    }
+
+    final class Cursor {
+
+        private byte[] previous = new byte[size * BYTES_PER_PIXEL];
+        private byte[] current = new byte[size * BYTES_PER_PIXEL];
+        private final byte[] moduleRow = new byte[size * BYTES_PER_PIXEL];
+        private final int[] badgeRow = badge == null ? null : new int[badge.image().getWidth()];
+        private int cachedModuleRow = Integer.MIN_VALUE;
+
+        private Cursor() {
+        }
+
+        /**
+         * Writes {@code rowCount} filtered scanlines starting at image row {@code firstRow} into {@code out}.
+         */
+        void render(int firstRow, int rowCount, byte[] out, int offset) {
+            if (firstRow > 0) {
+                fillRow(firstRow - 1, previous);
+            } else {
+                Arrays.fill(previous, (byte) 0);
+            }
+            int length = scanlineLength();
+            for (int i = 0; i < rowCount; i++) {
+                fillRow(firstRow + i, current);
+                int base = offset + i * length;
+                out[base] = FILTER_UP;
+                for (int b = 0; b < current.length; b++) {
+                    out[base + 1 + b] = (byte) (current[b] - previous[b]);
+                }
+                byte[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+        }
+
+        private void fillRow(int y, byte[] row) {
+            int moduleY = Math.floorDiv(y - origin, scale);
+            if (moduleY != cachedModuleRow) {
+                fillModuleRow(moduleY);
+                cachedModuleRow = moduleY;
+            }
+            System.arraycopy(moduleRow, 0, row, 0, row.length);
+            if (badge != null && y >= badgeY && y < badgeY + badge.image().getHeight()) {
+                blendBadgeRow(y - badgeY, row);
+            }
+        }
+
+        private void fillModuleRow(int moduleY) {
+            fill(moduleRow, 0, size, backgroundColor);
+            int modules = matrix.size();
+            if (moduleY < 0 || moduleY >= modules) {
+                return;
+            }
+            for (int x = 0; x < modules; x++) {
+                if (matrix.isDark(x, moduleY)) {
+                    int color = isInPositionPattern(x, moduleY, modules) ? POSITION_PATTERN_COLOR : foregroundColor;
+                    fill(moduleRow, origin + x * scale, scale, color);
+                }
+            }
+        }
+
+        /**
+         * Composites one row of the badge over the row with source-over blending.
+         */
+        private void blendBadgeRow(int badgeRowIndex, byte[] row) {
+            BufferedImage image = badge.image();
+            image.getRGB(0, badgeRowIndex, badgeRow.length, 1, badgeRow, 0, badgeRow.length);
+            int from = Math.max(0, -badgeX);
+            int to = Math.min(badgeRow.length, size - badgeX);
+            for (int i = from; i < to; i++) {
+                int argb = badgeRow[i];
+                int alpha = argb >>> 24;
+                if (alpha == 0) {
+                    continue;
+                }
+                int p = (badgeX + i) * BYTES_PER_PIXEL;
+                if (alpha == 255) {
+                    row[p] = (byte) (argb >>> 16);
+                    row[p + 1] = (byte) (argb >>> 8);
+                    row[p + 2] = (byte) argb;
+                } else {
+                    row[p] = blend((argb >>> 16) & 0xFF, row[p] & 0xFF, alpha);
+                    row[p + 1] = blend((argb >>> 8) & 0xFF, row[p + 1] & 0xFF, alpha);
+                    row[p + 2] = blend(argb & 0xFF, row[p + 2] & 0xFF, alpha);
+                }
+            }
+        }
+    }
+
+    static byte blend(int source, int destination, int alpha) {
+        return (byte) ((source * alpha + destination * (255 - alpha) + 127) / 255);
+    }
+
+    /**
+     * Fills {@code count} pixels starting at pixel {@code from}, doubling the copied span each step.
+     */
+    private static void fill(byte[] row, int from, int count, int rgb) {
+        if (count <= 0) {
+            return;
+        }
+        int start = from * BYTES_PER_PIXEL;
+        int end = start + count * BYTES_PER_PIXEL;
+        row[start] = (byte) (rgb >>> 16);
+        row[start + 1] = (byte) (rgb >>> 8);
+        row[start + 2] = (byte) rgb;
+        int filled = BYTES_PER_PIXEL;
+        while (start + filled < end) {
+            int n = Math.min(filled, end - start - filled);
+            System.arraycopy(row, start, row, start + filled, n);
+            filled += n;
+        }
+    }
+}
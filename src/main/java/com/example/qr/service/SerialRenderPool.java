@@ -0,0 +1,105 @@
+package com.example.qr.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The render workers shared by every serial run, so that concurrent archives do not each start a pool of
+ * their own.
+ * <p>
+ * Runs are admitted up to {@code maxRuns} at a time and each keeps at most {@link #window()} renders in
+ * flight through a {@link RenderWindow}, so the queue of pending renders is bounded by the number of runs,
+ * not by the length of their ranges. A run that cannot be admitted is refused before its response starts.
+ */
+@Component
+public class SerialRenderPool implements AutoCloseable {
+
+    private final ExecutorService workers;
+    private final int threads;
+    private final int maxRuns;
+    private final Semaphore runs;
+
+    public SerialRenderPool() {
+        this(0, 2);
+    }
+
+    /**
+     * @param threads render workers; 0 or less uses one per available processor
+     * @param maxRuns serial runs streamed at the same time
+     */
+    @Autowired
+    public SerialRenderPool(@Value("${qr.serials.threads:0}") int threads,
+                            @Value("${qr.serials.max-runs:2}") int maxRuns) {
+        if (maxRuns < 1) {
+            throw new IllegalArgumentException("qr.serials.max-runs must be positive");
+        }
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.maxRuns = maxRuns;
+        this.runs = new Semaphore(maxRuns);
+        this.workers = Executors.newFixedThreadPool(this.threads, daemonThreads());
+    }
+
+    /**
+     * Admits a run until the returned slot is closed.
+     *
+     * @throws RenderCapacityException if {@code maxRuns} runs are already streaming
+     */
+    Slot admit() {
+        if (!runs.tryAcquire()) {
+            throw new RenderCapacityException("Serial render pool is busy with " + maxRuns + " runs");
+        }
+        return new Slot();
+    }
+
+    /**
+     * Renders a run may have in flight at once.
+     */
+    int window() {
+        return threads * RenderWindow.IN_FLIGHT_PER_THREAD;
+    }
+
+    <T> Future<T> submit(Callable<T> render) {
+        return workers.submit(render);
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "serial-render-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * An admitted run. Closing it more than once has no effect.
+     */
+    final class Slot implements AutoCloseable {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Slot() {
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                runs.release();
+            }
+        }
+    }
+}
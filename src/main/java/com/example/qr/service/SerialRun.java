@@ -0,0 +1,140 @@
+package com.example.qr.service;
+
+import com.example.qr.model.FileNames;
+import com.example.qr.model.SerialRange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A serial range rendered to a ZIP archive while it is sent, one entry per number in range order.
+ * <p>
+ * Payloads are generated as they are submitted to the shared {@link SerialRenderPool}, which keeps a few
+ * renders per worker thread in flight, so the images held at a time do not depend on the length of the
+ * range. Every render reserves its own memory as a standard render does, and waits and retries when the
+ * budget is exhausted rather than abort the archive half way. The one thing that does grow with the range
+ * is the archive's central directory, which the ZIP stream keeps until it finishes; its estimate
+ * ({@link #indexBytes}) is reserved for the whole run. Each entry is written in full before the next begins,
+ * and entries carry a fixed timestamp, so the same range and style always produce the same bytes. A
+ * transfer that breaks off can be resumed by requesting the range again from an offset: the number of
+ * complete entries received.
+ */
+public final class SerialRun {
+
+    /** The earliest time a ZIP entry can hold. */
+    private static final LocalDateTime ENTRY_TIME = LocalDateTime.of(1980, 1, 1, 0, 0);
+    /**
+     * Heap the ZIP stream keeps per entry until it finishes, besides the name: the entry, its offset record
+     * and its slot in the set of names.
+     */
+    private static final long ZIP_ENTRY_BYTES = 256;
+    /** Longest a single entry keeps retrying for memory budget before the archive is abandoned. */
+    private static final long MAX_ENTRY_WAIT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long MAX_RETRY_PAUSE_MILLIS = 1000;
+
+    private final SerialRange range;
+    private final long offset;
+    private final boolean svg;
+    private final PreparedStyle style;
+    private final QrRenderer renderer;
+    private final SerialRenderPool pool;
+    private final SerialRenderPool.Slot slot;
+    private final RenderMemoryBudget.Reservation index;
+
+    /**
+     * @param offset index of the first number to render
+     * @param slot   the run's admission to the pool, released when the archive is written
+     * @param index  memory reserved for the central directory, released when the archive is written
+     */
+    SerialRun(SerialRange range, long offset, boolean svg, PreparedStyle style, QrRenderer renderer,
+              SerialRenderPool pool, SerialRenderPool.Slot slot, RenderMemoryBudget.Reservation index) {
+        this.range = range;
+        this.offset = offset;
+        this.svg = svg;
+        this.style = style;
+        this.renderer = renderer;
+        this.pool = pool;
+        this.slot = slot;
+        this.index = index;
+    }
+
+    /**
+     * Estimated heap the archive's central directory holds by the time the last of its entries is written.
+     */
+    static long indexBytes(SerialRange range, long offset) {
+        // Names of later numbers are never shorter
+        return (range.count() - offset) * (ZIP_ENTRY_BYTES + range.name(range.count() - 1).length() + 4);
+    }
+
+    /**
+     * Number of codes the archive will hold.
+     */
+    public long count() {
+        return range.count() - offset;
+    }
+
+    /**
+     * Renders the range from the offset and writes it as a ZIP archive. PNGs are stored, since they are
+     * already compressed, and SVGs are deflated. The stream is not closed. Renders still in flight are
+     * cancelled if writing fails. The run's pool slot and memory are released either way, so a run is
+     * written at most once.
+     *
+     * @throws RenderCapacityException if the memory budget cannot take a render for a long time
+     */
+    public void writeZip(OutputStream out) throws IOException {
+        try (slot; index) {
+            ZipOutputStream zip = new ZipOutputStream(out);
+            try (RenderWindow<String> window = new RenderWindow<>(pool::submit, pool.window(),
+                                                                  (payload, image) -> write(zip, payload, image))) {
+                for (long index = offset; index < range.count(); index++) {
+                    String payload = range.payload(index);
+                    window.submit(payload, () -> render(payload));
+                }
+                window.finish();
+            }
+            zip.finish();
+        }
+    }
+
+    /**
+     * Renders one code, pausing and retrying while the memory budget is exhausted: the archive is already
+     * under way, so waiting longer beats failing it.
+     */
+    private byte[] render(String payload) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + MAX_ENTRY_WAIT_NANOS;
+        long pause = 10;
+        while (true) {
+            try {
+                return svg ? renderer.renderSvg(payload, style).getBytes(StandardCharsets.UTF_8)
+                        : renderer.renderPng(payload, style);
+            } catch (RenderCapacityException e) {
+                if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pause) > deadline) {
+                    throw e;
+                }
+                Thread.sleep(pause);
+                pause = Math.min(pause * 2, MAX_RETRY_PAUSE_MILLIS);
+            }
+        }
+    }
+
+    private void write(ZipOutputStream zip, String payload, byte[] image) throws IOException {
+        ZipEntry entry = new ZipEntry(FileNames.safe(payload) + (svg ? ".svg" : ".png"));
+        entry.setTimeLocal(ENTRY_TIME);
+        if (!svg) {
+            CRC32 crc = new CRC32();
+            crc.update(image);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(image.length);
+            entry.setCrc(crc.getValue());
+        }
+        zip.putNextEntry(entry);
+        zip.write(image);
+        zip.closeEntry();
+    }
+}
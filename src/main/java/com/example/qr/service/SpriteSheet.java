@@ -0,0 +1,170 @@
+package com.example.qr.service;
+
+import com.example.qr.model.SpriteIndex;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Many codes tiled into one image.
+ * <p>
+ * All tiles share one RGB pixel buffer. The codes are encoded when the sheet is prepared, and tiles are
+ * rasterized in parallel, each task writing module runs directly into its own region of the buffer. The
+ * logo badge is prepared for the tile size once, scaled down or composed again from the logo for tiles
+ * larger than the standard render, and blended into every tile. Writing reserves memory for the buffer
+ * and the PNG writer first.
+ */
+public final class SpriteSheet {
+
+    private static final int POSITION_PATTERN_COLOR = 0x000000;
+    /** The RGB buffer and the PNG writer's buffers. */
+    private static final int BYTES_PER_PIXEL = 5;
+
+    private final List<String> payloads;
+    private final List<ModuleMatrix> matrices;
+    private final int columns;
+    private final int tileSize;
+    private final PreparedStyle style;
+    private final int standardSize;
+    private final RenderMemoryBudget memoryBudget;
+
+    /**
+     * @param matrices     the encoded code of every payload, in the same order
+     * @param standardSize edge length of the standard render; the badge keeps the same proportion to each
+     *                     tile as it has there
+     */
+    SpriteSheet(List<String> payloads, List<ModuleMatrix> matrices, int columns, int tileSize, PreparedStyle style,
+                int standardSize, RenderMemoryBudget memoryBudget) {
+        this.payloads = payloads;
+        this.matrices = matrices;
+        this.columns = columns;
+        this.tileSize = tileSize;
+        this.style = style;
+        this.standardSize = standardSize;
+        this.memoryBudget = memoryBudget;
+    }
+
+    public int width() {
+        return columns * tileSize;
+    }
+
+    public int height() {
+        return rows() * tileSize;
+    }
+
+    private int rows() {
+        return (payloads.size() + columns - 1) / columns;
+    }
+
+    /**
+     * Tile coordinates by payload, so clients can map regions of the image back to their data.
+     */
+    public SpriteIndex index() {
+        return index(payloads, columns, tileSize);
+    }
+
+    /**
+     * The index of a sheet of {@code payloads} laid out {@code columns} tiles wide, which depends on the
+     * layout alone.
+     */
+    static SpriteIndex index(List<String> payloads, int columns, int tileSize) {
+        List<SpriteIndex.Tile> tiles = new ArrayList<>(payloads.size());
+        for (int i = 0; i < payloads.size(); i++) {
+            tiles.add(new SpriteIndex.Tile(i, payloads.get(i), (i % columns) * tileSize, (i / columns) * tileSize));
+        }
+        int rows = (payloads.size() + columns - 1) / columns;
+        return new SpriteIndex(columns * tileSize, rows * tileSize, tileSize, columns, tiles);
+    }
+
+    /**
+     * Renders every tile and writes the sheet as a PNG. The stream is not closed.
+     *
+     * @throws RenderCapacityException if the memory budget cannot take the sheet
+     */
+    public void writePng(OutputStream out) throws IOException {
+        try (RenderMemoryBudget.Reservation rendering =
+                     memoryBudget.reserve("sprites", (long) BYTES_PER_PIXEL * width() * height())) {
+            ImageIO.write(render(), "png", out);
+        }
+    }
+
+    BufferedImage render() throws IOException {
+        int width = width();
+        BufferedImage image = new BufferedImage(width, height(), BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int background = style.backgroundColor() & 0xFFFFFF;
+        Arrays.fill(pixels, background);
+
+        LogoBadge badge = style.badgeFor(tileSize, standardSize);
+        int[] badgePixels = badge == null ? null : badge.image().getRGB(0, 0, badge.image().getWidth(),
+                                                                         badge.image().getHeight(), null, 0,
+                                                                         badge.image().getWidth());
+
+        IntStream.range(0, payloads.size()).parallel().forEach(i -> {
+            int left = (i % columns) * tileSize;
+            int top = (i / columns) * tileSize;
+            drawModules(pixels, width, left, top, matrices.get(i));
+            if (badge != null) {
+                blendBadge(pixels, width, left, top, badge, badgePixels);
+            }
+        });
+        return image;
+    }
+
+    private void drawModules(int[] pixels, int width, int left, int top, ModuleMatrix matrix) {
+        int size = matrix.size();
+        int scale = tileSize / (size + 2);
+        int origin = (tileSize - size * scale) / 2;
+        int foreground = style.foregroundColor() & 0xFFFFFF;
+        for (int y = 0; y < size; y++) {
+            int rowStart = (top + origin + y * scale) * width + left + origin;
+            int x = 0;
+            while (x < size) {
+                if (!matrix.isDark(x, y)) {
+                    x++;
+                    continue;
+                }
+                boolean positionPattern = ScanlineRaster.isInPositionPattern(x, y, size);
+                int start = x;
+                while (x < size && matrix.isDark(x, y)
+                       && ScanlineRaster.isInPositionPattern(x, y, size) == positionPattern) {
+                    x++;
+                }
+                int color = positionPattern ? POSITION_PATTERN_COLOR : foreground;
+                for (int row = 0; row < scale; row++) {
+                    int from = rowStart + row * width + start * scale;
+                    Arrays.fill(pixels, from, from + (x - start) * scale, color);
+                }
+            }
+        }
+    }
+
+    private void blendBadge(int[] pixels, int width, int left, int top, LogoBadge badge, int[] badgePixels) {
+        int badgeWidth = badge.image().getWidth();
+        int badgeHeight = badge.image().getHeight();
+        int badgeLeft = left + badge.x(tileSize);
+        int badgeTop = top + badge.y(tileSize);
+        for (int y = 0; y < badgeHeight; y++) {
+            int target = (badgeTop + y) * width + badgeLeft;
+            for (int x = 0; x < badgeWidth; x++) {
+                int argb = badgePixels[y * badgeWidth + x];
+                int alpha = argb >>> 24;
+                if (alpha == 255) {
+                    pixels[target + x] = argb & 0xFFFFFF;
+                } else if (alpha > 0) {
+                    int rgb = pixels[target + x];
+                    pixels[target + x] = (ScanlineRaster.blend((argb >>> 16) & 0xFF, (rgb >>> 16) & 0xFF, alpha) & 0xFF) << 16
+                                         | (ScanlineRaster.blend((argb >>> 8) & 0xFF, (rgb >>> 8) & 0xFF, alpha) & 0xFF) << 8
+                                         | ScanlineRaster.blend(argb & 0xFF, rgb & 0xFF, alpha) & 0xFF;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.qr.service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming pre-parse of an uploaded SVG that rejects documents which are too expensive or unsafe to hand
+ * to Batik: too many elements, counting every copy that {@code <use>} instantiates, too deep a nesting, too
+ * many filter primitives, scripts, or references to anything other than fragments inside the document and
+ * small inline PNG or JPEG images.
+ * <p>
+ * DTDs and external entities are disabled, so the check itself never performs I/O. Embedded images are
+ * only read as far as their header.
+ */
+final class SvgComplexityCheck {
+
+    /** Largest total size of the {@code data:} URIs in one document, in characters. */
+    static final int MAX_EMBEDDED_CHARS = 256 * 1024;
+    /** Largest pixel count of one embedded image. */
+    static final long MAX_EMBEDDED_PIXELS = 4_000_000L;
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+    private static final Pattern EMBEDDED_IMAGE = Pattern.compile("(?i)data:image/(png|jpe?g);base64,");
+
+    private final Limits limits;
+    private int elements;
+    private int depth;
+    private int filters;
+    private int embeddedChars;
+    private boolean inStyle;
+    /** Open elements, innermost first, with the fragments their {@code <use>} descendants reference. */
+    private final Deque<Subtree> open = new ArrayDeque<>();
+    private final Map<String, Subtree> byId = new HashMap<>();
+    private final List<String> useTargets = new ArrayList<>();
+
+    private SvgComplexityCheck(Limits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * @throws SvgRejectedException naming the first limit the document exceeds
+     */
+    static void inspect(byte[] svg, Limits limits) {
+        new SvgComplexityCheck(limits).run(svg);
+    }
+
+    private void run(byte[] svg) {
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(svg));
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    start(reader);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    end();
+                } else if (inStyle && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)) {
+                    checkCss(reader.getText());
+                } else if (event == XMLStreamConstants.ENTITY_REFERENCE) {
+                    throw new SvgRejectedException("external-reference", "entity references are not allowed");
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new SvgRejectedException("malformed", "not well-formed XML");
+        } finally {
+            close(reader);
+        }
+        checkExpandedElements();
+    }
+
+    private void start(XMLStreamReader reader) {
+        elements++;
+        depth++;
+        String name = reader.getLocalName();
+        if (elements > limits.maxElements()) {
+            throw new SvgRejectedException("elements", "more than " + limits.maxElements() + " elements");
+        }
+        if (depth > limits.maxDepth()) {
+            throw new SvgRejectedException("depth", "nesting deeper than " + limits.maxDepth());
+        }
+        if (name.equals("filter") || name.startsWith("fe")) {
+            if (++filters > limits.maxFilters()) {
+                throw new SvgRejectedException("filters", "more than " + limits.maxFilters() + " filter elements");
+            }
+        }
+        if (name.equals("script") || name.equals("foreignObject")) {
+            throw new SvgRejectedException("script", "<" + name + "> is not allowed");
+        }
+        inStyle = name.equals("style");
+
+        Subtree subtree = new Subtree(elements);
+        open.push(subtree);
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String attribute = reader.getAttributeLocalName(i);
+            String value = reader.getAttributeValue(i).trim();
+            if (attribute.equals("href")) {
+                checkReference(value);
+                if (name.equals("use") && value.startsWith("#")) {
+                    useTargets.add(value.substring(1));
+                    for (Subtree ancestor : open) {
+                        ancestor.useTargets.add(value.substring(1));
+                    }
+                }
+            } else if (attribute.equals("id")) {
+                byId.putIfAbsent(value, subtree);
+            }
+            if (attribute.startsWith("on")) {
+                throw new SvgRejectedException("script", "event handler attributes are not allowed");
+            }
+            checkCss(value);
+        }
+    }
+
+    private void end() {
+        depth--;
+        inStyle = false;
+        Subtree subtree = open.pop();
+        subtree.elements = elements - subtree.first + 1;
+    }
+
+    /**
+     * Only fragments of this document and small PNG or JPEG images are allowed as link targets; an
+     * embedded SVG would escape every other check here.
+     */
+    private void checkReference(String href) {
+        if (href.startsWith("#")) {
+            return;
+        }
+        Matcher image = EMBEDDED_IMAGE.matcher(href);
+        if (!image.lookingAt()) {
+            throw new SvgRejectedException("external-reference", "only fragments and embedded PNG or JPEG "
+                                                                 + "images may be referenced");
+        }
+        embeddedChars += href.length();
+        if (embeddedChars > MAX_EMBEDDED_CHARS) {
+            throw new SvgRejectedException("embedded-image", "embedded images larger than "
+                                                             + MAX_EMBEDDED_CHARS + " characters");
+        }
+        Dimension dimensions;
+        try {
+            byte[] bytes = Base64.getMimeDecoder().decode(href.substring(image.end()));
+            dimensions = RasterLogoDecoder.readDimensions(new ByteArrayInputStream(bytes));
+        } catch (IllegalArgumentException | IOException e) {
+            throw new SvgRejectedException("embedded-image", "embedded image is not a readable PNG or JPEG");
+        }
+        if ((long) dimensions.width * dimensions.height > MAX_EMBEDDED_PIXELS) {
+            throw new SvgRejectedException("embedded-image", "embedded image larger than "
+                                                             + MAX_EMBEDDED_PIXELS + " pixels");
+        }
+    }
+
+    /**
+     * Every {@code <use>} renders another copy of the subtree it references, including the copies made by
+     * the {@code <use>} elements inside it, so a few nested references can multiply a small document.
+     */
+    private void checkExpandedElements() {
+        Map<String, Long> expanded = new HashMap<>();
+        long total = elements;
+        for (String target : useTargets) {
+            total = Math.min(total + expandedSize(target, expanded, new HashSet<>()), Integer.MAX_VALUE);
+            if (total > limits.maxElements()) {
+                throw new SvgRejectedException("elements", "more than " + limits.maxElements()
+                                                           + " elements once <use> references are expanded");
+            }
+        }
+    }
+
+    private long expandedSize(String id, Map<String, Long> expanded, Set<String> visiting) {
+        Long known = expanded.get(id);
+        if (known != null) {
+            return known;
+        }
+        Subtree subtree = byId.get(id);
+        if (subtree == null) {
+            return 0;
+        }
+        if (!visiting.add(id)) {
+            throw new SvgRejectedException("elements", "<use> references form a cycle");
+        }
+        if (visiting.size() > limits.maxDepth()) {
+            throw new SvgRejectedException("depth", "<use> references nested deeper than " + limits.maxDepth());
+        }
+        long size = subtree.elements;
+        for (String target : subtree.useTargets) {
+            // Saturates well above any element limit, so deep chains of references cannot overflow
+            size = Math.min(size + expandedSize(target, expanded, visiting), Integer.MAX_VALUE);
+        }
+        visiting.remove(id);
+        expanded.put(id, size);
+        return size;
+    }
+
+    /**
+     * Only {@code url(#fragment)} references are allowed in presentation attributes and stylesheets.
+     */
+    private static void checkCss(String css) {
+        String lower = css.toLowerCase(Locale.ROOT);
+        int url = lower.indexOf("url(");
+        while (url >= 0) {
+            String target = lower.substring(url + 4).replaceFirst("^[\\s'\"]+", "");
+            if (!target.startsWith("#")) {
+                throw new SvgRejectedException("external-reference", "external references are not allowed");
+            }
+            url = lower.indexOf("url(", url + 4);
+        }
+        if (lower.contains("@import")) {
+            throw new SvgRejectedException("external-reference", "stylesheet imports are not allowed");
+        }
+    }
+
+    private static void close(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+        return factory;
+    }
+
+    record Limits(int maxElements, int maxDepth, int maxFilters) {
+    }
+
+    /**
+     * An element with its descendants: its position in document order, its size once closed, and the
+     * fragments referenced by {@code <use>} elements inside it.
+     */
+    private static final class Subtree {
+        private final int first;
+        private int elements;
+        private final List<String> useTargets = new ArrayList<>();
+
+        private Subtree(int first) {
+            this.first = first;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.qr.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.batik.transcoder.SVGAbstractTranscoder;
+import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.image.PNGTranscoder;
+import org.apache.batik.util.HaltingThread;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rasterizes uploaded SVG logos off the request thread.
+ * <p>
+ * Every upload is pre-parsed by {@link SvgComplexityCheck} and then transcoded on a small, bounded pool
+ * with a per-render deadline. A render that misses its deadline is halted and the request fails fast. Batik
+ * stops a halted render at its next element; until it has, the worker counts as overdue, and while every
+ * worker is overdue new SVG uploads are refused, as they are when the pool and its queue are full. So a
+ * single pathological logo can occupy at most one worker, and never one that the pool believes is free.
+ */
+@Component
+public class SvgLogoRasterizer implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SvgLogoRasterizer.class);
+
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+    private final long timeoutMillis;
+    private final AtomicInteger overdue = new AtomicInteger();
+    private final SvgComplexityCheck.Limits limits;
+    private final MeterRegistry registry;
+    private final Timer renderTimer;
+    private final Counter timeouts;
+    private final Counter saturated;
+
+    public SvgLogoRasterizer() {
+        this(2, 16, 2000, 10_000, 64, 8, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public SvgLogoRasterizer(
+            @Value("${qr.svg.threads:2}") int threads,
+            @Value("${qr.svg.queue-capacity:16}") int queueCapacity,
+            @Value("${qr.svg.timeout-ms:2000}") long timeoutMillis,
+            @Value("${qr.svg.max-elements:10000}") int maxElements,
+            @Value("${qr.svg.max-depth:64}") int maxDepth,
+            @Value("${qr.svg.max-filters:8}") int maxFilters,
+            MeterRegistry registry) {
+        this.threads = threads;
+        this.timeoutMillis = timeoutMillis;
+        this.limits = new SvgComplexityCheck.Limits(maxElements, maxDepth, maxFilters);
+        this.registry = registry;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(queueCapacity), daemonThreads(),
+                                               new ThreadPoolExecutor.AbortPolicy());
+        this.renderTimer = Timer.builder("qr.logo.svg.render")
+                                .description("Time spent rasterizing uploaded SVG logos")
+                                .register(registry);
+        this.timeouts = Counter.builder("qr.logo.svg.timeouts")
+                               .description("Uploaded SVG logos that missed the render deadline")
+                               .register(registry);
+        this.saturated = Counter.builder("qr.logo.svg.saturated")
+                                .description("Uploaded SVG logos refused because the render pool was full")
+                                .register(registry);
+        Gauge.builder("qr.logo.svg.overdue", overdue, AtomicInteger::get)
+             .description("Halted SVG logo renders still occupying a worker")
+             .register(registry);
+    }
+
+    /**
+     * Checks and rasterizes an uploaded SVG to fit within a {@code size} square.
+     *
+     * @throws SvgRejectedException     if the SVG exceeds a complexity limit or misses the deadline
+     * @throws RenderCapacityException  if the render pool is saturated
+     */
+    public BufferedImage rasterize(byte[] svg, int size) throws IOException, TranscoderException {
+        try {
+            SvgComplexityCheck.inspect(svg, limits);
+        } catch (SvgRejectedException e) {
+            rejected(e.getReason());
+            throw e;
+        }
+
+        // Workers still finishing a halted render are busy even though their requests have failed
+        if (overdue.get() >= threads) {
+            saturated.increment();
+            throw new RenderCapacityException("SVG logo renderer is saturated by overdue renders");
+        }
+        Render task = new Render(svg, size);
+        Future<BufferedImage> render;
+        try {
+            render = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            saturated.increment();
+            throw new RenderCapacityException("SVG logo renderer is saturated");
+        }
+
+        try {
+            return render.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            render.cancel(false);
+            task.halt();
+            timeouts.increment();
+            LOGGER.warn("SVG logo render halted after {}ms ({} bytes)", timeoutMillis, svg.length);
+            throw new SvgRejectedException("timeout", "rendering took longer than " + timeoutMillis + "ms");
+        } catch (InterruptedException e) {
+            render.cancel(false);
+            task.halt();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering SVG logo", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof TranscoderException te) {
+                throw te;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("SVG logo rendering failed", cause);
+        }
+    }
+
+    /**
+     * Estimate of the bytes a rasterization holds at its peak: the parsed document, taken as a multiple of
+     * the source length, and the transcoder's image, its PNG encoding and the decoded copy.
+     */
+    static long estimateBytes(int svgBytes, int size) {
+        return 20L * svgBytes + 3 * 4L * size * size;
+    }
+
+    /**
+     * Transcodes an SVG document to a {@code size} x {@code size} image on the calling thread, with
+     * external resources disabled. Intended for trusted documents and for the render workers.
+     */
+    static BufferedImage transcode(InputStream svgInputStream, int size) throws IOException, TranscoderException {
+        PNGTranscoder transcoder = new PNGTranscoder();
+        transcoder.addTranscodingHint(SVGAbstractTranscoder.KEY_WIDTH, (float) size);
+        transcoder.addTranscodingHint(SVGAbstractTranscoder.KEY_HEIGHT, (float) size);
+        transcoder.addTranscodingHint(SVGAbstractTranscoder.KEY_ALLOW_EXTERNAL_RESOURCES, Boolean.FALSE);
+
+        TranscoderInput input = new TranscoderInput(svgInputStream);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        TranscoderOutput output = new TranscoderOutput(outputStream);
+
+        transcoder.transcode(input, output);
+
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
+        return ImageIO.read(inputStream);
+    }
+
+    /**
+     * One rasterization on a worker, which can be halted from the request thread. A halted render that is
+     * still running counts as overdue until it returns, so the pool is never taken for free while it does.
+     */
+    private final class Render implements Callable<BufferedImage> {
+        private final byte[] svg;
+        private final int size;
+        // Guarded by this
+        private Thread worker;
+        private boolean halted;
+        private boolean counted;
+        private boolean finished;
+
+        private Render(byte[] svg, int size) {
+            this.svg = svg;
+            this.size = size;
+        }
+
+        @Override
+        public BufferedImage call() throws Exception {
+            synchronized (this) {
+                if (halted) {
+                    throw new CancellationException("SVG logo render halted before it started");
+                }
+                worker = Thread.currentThread();
+                // A halt meant for an earlier render on this worker has already taken effect
+                if (worker instanceof HaltingThread haltingThread) {
+                    haltingThread.clearHalted();
+                }
+            }
+            try {
+                return renderTimer.recordCallable(() -> transcode(new ByteArrayInputStream(svg), size));
+            } finally {
+                synchronized (this) {
+                    finished = true;
+                    if (counted) {
+                        overdue.decrementAndGet();
+                    }
+                }
+            }
+        }
+
+        synchronized void halt() {
+            if (halted || finished) {
+                return;
+            }
+            halted = true;
+            if (worker != null) {
+                HaltingThread.haltThread(worker);
+                overdue.incrementAndGet();
+                counted = true;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void rejected(String reason) {
+        Counter.builder("qr.logo.svg.rejected")
+               .description("Uploaded SVG logos rejected by the complexity check")
+               .tag("reason", reason)
+               .register(registry)
+               .increment();
+    }
+
+    /**
+     * Batik ignores interrupts, but checks whether its thread has been halted while it builds and paints the
+     * graphics tree, so workers are {@link HaltingThread}s.
+     */
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new HaltingThread(runnable, "svg-logo-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
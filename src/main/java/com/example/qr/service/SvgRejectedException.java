@@ -0,0 +1,21 @@
+package com.example.qr.service;
+
+/**
+ * Thrown when an uploaded SVG logo exceeds a complexity limit or cannot be rendered within its deadline.
+ */
+public class SvgRejectedException extends IllegalArgumentException {
+
+    private final String reason;
+
+    public SvgRejectedException(String reason, String detail) {
+        super("SVG logo rejected: " + detail);
+        this.reason = reason;
+    }
+
+    /**
+     * Short machine-readable reason, used as a metric tag.
+     */
+    public String getReason() {
+        return reason;
+    }
+}
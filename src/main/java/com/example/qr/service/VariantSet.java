@@ -0,0 +1,172 @@
+package com.example.qr.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Several renderings of one payload, at different sizes, in different colors or formats, from a single
+ * encode.
+ * <p>
+ * The matrix is encoded once and the logo badge is prepared once per size, then the outputs render in
+ * parallel: PNGs as scanlines straight from the matrix, like {@link PrintImage}, and SVGs as paths. The
+ * badge keeps the share of the code it has in the standard render; for sizes larger than the standard one
+ * it is composed again from the logo rasterized at that size, as for print renders, rather than enlarged.
+ * The memory for the badges, the renders in flight and the finished outputs is reserved when the set is
+ * prepared and held until it is written.
+ */
+public final class VariantSet {
+
+    /**
+     * One output of the set.
+     *
+     * @param name file name in the archive, with its extension
+     */
+    public record Output(String name, int size, int foregroundColor, int backgroundColor, boolean svg) {
+    }
+
+    private static final int PNG_DPI = 72;
+
+    private final ModuleMatrix matrix;
+    private final PreparedStyle style;
+    private final int standardSize;
+    private final List<Output> outputs;
+    private final BandEncoder bandEncoder;
+    private final RenderMemoryBudget.Reservation reservation;
+
+    /**
+     * @param style        supplies the badge, if any; the colors come from the outputs
+     * @param standardSize edge length of the standard render
+     * @param reservation  at least {@link #estimateBytes} of memory, released once the set is written
+     */
+    VariantSet(ModuleMatrix matrix, PreparedStyle style, int standardSize, List<Output> outputs,
+               BandEncoder bandEncoder, RenderMemoryBudget.Reservation reservation) {
+        this.matrix = matrix;
+        this.style = style;
+        this.standardSize = standardSize;
+        this.outputs = outputs;
+        this.bandEncoder = bandEncoder;
+        this.reservation = reservation;
+    }
+
+    public List<Output> outputs() {
+        return outputs;
+    }
+
+    /**
+     * Renders every output and writes them as a ZIP archive, in request order. PNGs are stored, since they
+     * are already compressed, and SVGs are deflated. The stream is not closed.
+     */
+    public void writeZip(OutputStream out) throws IOException {
+        try (reservation) {
+            byte[][] rendered = render();
+            ZipOutputStream zip = new ZipOutputStream(out);
+            for (int i = 0; i < outputs.size(); i++) {
+                ZipEntry entry = new ZipEntry(outputs.get(i).name());
+                if (!outputs.get(i).svg()) {
+                    CRC32 crc = new CRC32();
+                    crc.update(rendered[i]);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(rendered[i].length);
+                    entry.setCrc(crc.getValue());
+                }
+                zip.putNextEntry(entry);
+                zip.write(rendered[i]);
+                zip.closeEntry();
+            }
+            zip.finish();
+        }
+    }
+
+    byte[][] render() throws IOException {
+        Map<Integer, LogoBadge> badges = new HashMap<>();
+        Map<Integer, String> badgeHrefs = new HashMap<>();
+        for (Output output : outputs) {
+            if (style.badge() == null) {
+                break;
+            }
+            LogoBadge sized = badges.get(output.size());
+            if (sized == null) {
+                sized = style.badgeFor(output.size(), standardSize);
+                badges.put(output.size(), sized);
+            }
+            if (output.svg() && !badgeHrefs.containsKey(output.size())) {
+                badgeHrefs.put(output.size(), QrRenderer.pngDataUri(sized.image()));
+            }
+        }
+
+        byte[][] rendered = new byte[outputs.size()][];
+        try {
+            IntStream.range(0, outputs.size()).parallel().forEach(i -> {
+                Output output = outputs.get(i);
+                LogoBadge sized = badges.get(output.size());
+                try {
+                    rendered[i] = output.svg()
+                            ? QrRenderer.svg(matrix, output.size(), scale(output.size()), output.foregroundColor(),
+                                             output.backgroundColor(), sized, badgeHrefs.getOrDefault(output.size(), ""))
+                                        .getBytes(StandardCharsets.UTF_8)
+                            : png(output, sized);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return rendered;
+    }
+
+    private byte[] png(Output output, LogoBadge sized) throws IOException {
+        ScanlineRaster raster = new ScanlineRaster(matrix, output.size(), scale(output.size()),
+                                                   output.foregroundColor(), output.backgroundColor(), sized);
+        ByteArrayOutputStream png = new ByteArrayOutputStream(output.size() * output.size() / 8);
+        PngWriter.writeHeader(png, output.size(), output.size(), PNG_DPI);
+        try (PngWriter.IdatOutputStream idat = new PngWriter.IdatOutputStream(png)) {
+            bandEncoder.encode(raster, idat);
+        }
+        PngWriter.writeEnd(png);
+        return png.toByteArray();
+    }
+
+    private int scale(int size) {
+        return size / (matrix.size() + 2);
+    }
+
+    /**
+     * The encoders' working sets for as many outputs as render at once, every finished output, a PNG at most
+     * the size of its raw RGB pixels and an SVG up to 16 bytes per module plus its embedded badge, and the
+     * badge of every size larger than the standard one with the logo it is composed from.
+     */
+    static long estimateBytes(ModuleMatrix matrix, LogoBadge badge, int standardSize, List<Output> outputs,
+                              BandEncoder bandEncoder) {
+        long largestWorkingSet = 0;
+        long finished = 0;
+        long badges = 0;
+        Set<Integer> sizes = new HashSet<>();
+        for (Output output : outputs) {
+            if (badge != null && output.size() > standardSize && sizes.add(output.size())) {
+                double factor = (double) output.size() / standardSize;
+                long side = (long) Math.ceil(Math.max(badge.image().getWidth(), badge.image().getHeight()) * factor);
+                badges += 2 * 4 * side * side;
+            }
+            largestWorkingSet = Math.max(largestWorkingSet, bandEncoder.workingSetBytes(output.size()));
+            finished += output.svg()
+                    ? 16L * matrix.size() * matrix.size() + 2L * output.size() * output.size()
+                    : 3L * output.size() * output.size();
+        }
+        int concurrent = Math.min(outputs.size(), ForkJoinPool.getCommonPoolParallelism() + 1);
+        return concurrent * largestWorkingSet + finished + badges;
+    }
+}
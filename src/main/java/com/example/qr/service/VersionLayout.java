@@ -0,0 +1,179 @@
+package com.example.qr.service;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The function modules of one QR code version: finder, separator, timing and alignment patterns, version
+ * information and the always-dark module, which are the same in every code of that version, and the
+ * format information modules, whose position is fixed but whose value depends on the error correction
+ * level and mask. Everything else carries data.
+ * <p>
+ * Patterns are drawn in the same order and with the same overlaps as the Nayuki library draws them.
+ * Layouts are immutable and built once per version.
+ */
+final class VersionLayout {
+
+    static final int MIN_VERSION = 1;
+    static final int MAX_VERSION = 40;
+    private static final AtomicReferenceArray<VersionLayout> LAYOUTS = new AtomicReferenceArray<>(MAX_VERSION + 1);
+
+    private final int version;
+    private final int size;
+    private final boolean[][] dark;
+    private final boolean[][] function;
+    private final boolean[][] format;
+    /** Pairs of positions, {@code y * size + x}, holding the two copies of each format bit, bit 0 first. */
+    private final int[] formatPositions = new int[30];
+
+    private VersionLayout(int version) {
+        this.version = version;
+        this.size = version * 4 + 17;
+        this.dark = new boolean[size][size];
+        this.function = new boolean[size][size];
+        this.format = new boolean[size][size];
+
+        // Timing patterns, then finder and alignment patterns over them
+        for (int i = 0; i < size; i++) {
+            set(6, i, i % 2 == 0);
+            set(i, 6, i % 2 == 0);
+        }
+        drawFinder(3, 3);
+        drawFinder(size - 4, 3);
+        drawFinder(3, size - 4);
+        int[] alignment = alignmentPatternPositions();
+        for (int i = 0; i < alignment.length; i++) {
+            for (int j = 0; j < alignment.length; j++) {
+                boolean corner = i == 0 && j == 0 || i == 0 && j == alignment.length - 1
+                                 || i == alignment.length - 1 && j == 0;
+                if (!corner) {
+                    drawAlignment(alignment[i], alignment[j]);
+                }
+            }
+        }
+
+        // Both copies of the format bits, and the module beside the second copy that is always dark
+        for (int i = 0; i <= 5; i++) {
+            formatModule(i, 0, 8, i);
+        }
+        formatModule(6, 0, 8, 7);
+        formatModule(7, 0, 8, 8);
+        formatModule(8, 0, 7, 8);
+        for (int i = 9; i < 15; i++) {
+            formatModule(i, 0, 14 - i, 8);
+        }
+        for (int i = 0; i < 8; i++) {
+            formatModule(i, 1, size - 1 - i, 8);
+        }
+        for (int i = 8; i < 15; i++) {
+            formatModule(i, 1, 8, size - 15 + i);
+        }
+        set(8, size - 8, true);
+
+        if (version >= 7) {
+            int remainder = version;
+            for (int i = 0; i < 12; i++) {
+                remainder = (remainder << 1) ^ ((remainder >>> 11) * 0x1F25);
+            }
+            long bits = (long) version << 12 | remainder;
+            for (int i = 0; i < 18; i++) {
+                boolean bit = ((bits >>> i) & 1) != 0;
+                int a = size - 11 + i % 3;
+                int b = i / 3;
+                set(a, b, bit);
+                set(b, a, bit);
+            }
+        }
+    }
+
+    static VersionLayout of(int version) {
+        VersionLayout layout = LAYOUTS.get(version);
+        if (layout == null) {
+            layout = new VersionLayout(version);
+            LAYOUTS.set(version, layout);
+        }
+        return layout;
+    }
+
+    int version() {
+        return version;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Whether the module is a function module, format information included.
+     */
+    boolean isFunction(int x, int y) {
+        return function[y][x];
+    }
+
+    /**
+     * Whether the module holds format information.
+     */
+    boolean isFormat(int x, int y) {
+        return format[y][x];
+    }
+
+    /**
+     * The color of a function module other than format information.
+     */
+    boolean isDark(int x, int y) {
+        return dark[y][x];
+    }
+
+    /**
+     * Both copies of each format bit as {@code y * size + x}: entries {@code 2 * i} and {@code 2 * i + 1}
+     * hold bit {@code i}.
+     */
+    int[] formatPositions() {
+        return formatPositions.clone();
+    }
+
+    private int[] alignmentPatternPositions() {
+        if (version == 1) {
+            return new int[0];
+        }
+        int numAlign = version / 7 + 2;
+        int step = (version * 8 + numAlign * 3 + 5) / (numAlign * 4 - 4) * 2;
+        int[] result = new int[numAlign];
+        result[0] = 6;
+        for (int i = result.length - 1, position = size - 7; i >= 1; i--, position -= step) {
+            result[i] = position;
+        }
+        return result;
+    }
+
+    private void drawFinder(int x, int y) {
+        for (int dy = -4; dy <= 4; dy++) {
+            for (int dx = -4; dx <= 4; dx++) {
+                int distance = Math.max(Math.abs(dx), Math.abs(dy));
+                int xx = x + dx;
+                int yy = y + dy;
+                if (0 <= xx && xx < size && 0 <= yy && yy < size) {
+                    set(xx, yy, distance != 2 && distance != 4);
+                }
+            }
+        }
+    }
+
+    private void drawAlignment(int x, int y) {
+        for (int dy = -2; dy <= 2; dy++) {
+            for (int dx = -2; dx <= 2; dx++) {
+                set(x + dx, y + dy, Math.max(Math.abs(dx), Math.abs(dy)) != 1);
+            }
+        }
+    }
+
+    private void formatModule(int bit, int copy, int x, int y) {
+        function[y][x] = true;
+        format[y][x] = true;
+        formatPositions[2 * bit + copy] = y * size + x;
+    }
+
+    private void set(int x, int y, boolean isDark) {
+        dark[y][x] = isDark;
+        function[y][x] = true;
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.qr.shortlink;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Long URLs stored under short keys, for codes that encode a redirect instead of the URL itself.
+ * <p>
+ * Keys use only digits and uppercase letters, so a short URL with an uppercase scheme and host fits the QR
+ * alphanumeric mode, which packs 5.5 bits per character instead of 8. Every link is appended to a log
+ * file and the whole log is held in memory, so redirects never touch the disk; the number of links is
+ * capped to bound both. Shortening the same URL twice returns the same key, which keeps restyled codes
+ * identical and cacheable.
+ */
+@Service
+public class ShortLinkStore implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShortLinkStore.class);
+    private static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9A-Z]{4,16}");
+    private static final int MAX_URL_LENGTH = 2048;
+    private static final int DEFAULT_MAX_LINKS = 100_000;
+
+    private final Path log;
+    private final int keyLength;
+    private final int maxLinks;
+    private final String baseUrl;
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentMap<String, String> urlsByKey = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> keysByUrl = new ConcurrentHashMap<>();
+    private BufferedWriter writer;
+
+    public ShortLinkStore(Path log, int keyLength, String baseUrl) throws IOException {
+        this(log, keyLength, baseUrl, DEFAULT_MAX_LINKS);
+    }
+
+    /**
+     * @param maxLinks links stored before new URLs are refused; existing links keep resolving
+     */
+    @Autowired
+    public ShortLinkStore(@Value("${qr.short-link.file:data/short-links.log}") Path log,
+                          @Value("${qr.short-link.key-length:7}") int keyLength,
+                          @Value("${qr.short-link.base-url:}") String baseUrl,
+                          @Value("${qr.short-link.max-links:100000}") int maxLinks) throws IOException {
+        if (keyLength < 4 || keyLength > 16) {
+            throw new IllegalArgumentException("Short link key length must be between 4 and 16");
+        }
+        if (maxLinks < 1) {
+            throw new IllegalArgumentException("qr.short-link.max-links must be positive");
+        }
+        this.log = log;
+        this.keyLength = keyLength;
+        this.maxLinks = maxLinks;
+        this.baseUrl = baseUrl == null || baseUrl.isEmpty() ? null : stripTrailingSlash(baseUrl);
+        load();
+    }
+
+    /**
+     * Returns the key for {@code url}, storing it under a new key the first time.
+     *
+     * @throws IllegalArgumentException     if the URL is not an absolute http or https URL
+     * @throws ShortLinkStoreFullException if the URL is new and the store already holds {@code max-links} links
+     * @throws IOException                  if the log cannot be written
+     */
+    public String shorten(String url) throws IOException {
+        checkUrl(url);
+        String existing = keysByUrl.get(url);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (this) {
+            existing = keysByUrl.get(url);
+            if (existing != null) {
+                return existing;
+            }
+            if (urlsByKey.size() >= maxLinks) {
+                throw new ShortLinkStoreFullException("Short link store is full (" + maxLinks + " links)");
+            }
+            String key = newKey();
+            if (writer == null) {
+                Path parent = log.toAbsolutePath().getParent();
+                Files.createDirectories(parent);
+                writer = Files.newBufferedWriter(log, StandardCharsets.UTF_8,
+                                                 StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(key);
+            writer.write('\t');
+            writer.write(url);
+            writer.write('\n');
+            writer.flush();
+            urlsByKey.put(key, url);
+            keysByUrl.put(url, key);
+            return key;
+        }
+    }
+
+    /**
+     * The URL a code encodes for {@code key}: {@code <base>/R/<key>} with the scheme and host in uppercase,
+     * so that a base without a path puts every character in the QR alphanumeric set. Schemes, hosts and the
+     * redirect endpoint are case-insensitive, so the uppercase URL reaches the same place. A base path is
+     * kept as it is, since paths are case-sensitive; one with lowercase letters makes the code fall back to
+     * byte mode.
+     *
+     * @param requestBaseUrl base URL of the current request, used when no base URL is configured
+     */
+    public String shortUrl(String key, String requestBaseUrl) {
+        String base = baseUrl != null ? baseUrl : stripTrailingSlash(requestBaseUrl);
+        return uppercaseOrigin(base) + "/R/" + key;
+    }
+
+    /**
+     * Looks up the URL stored under {@code key}, ignoring the key's case.
+     */
+    public Optional<String> resolve(String key) {
+        return Optional.ofNullable(urlsByKey.get(key.toUpperCase(Locale.ROOT)));
+    }
+
+    public int size() {
+        return urlsByKey.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private String newKey() {
+        char[] key = new char[keyLength];
+        String candidate;
+        do {
+            for (int i = 0; i < key.length; i++) {
+                key[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+            candidate = new String(key);
+        } while (urlsByKey.containsKey(candidate));
+        return candidate;
+    }
+
+    private void load() throws IOException {
+        if (!Files.isRegularFile(log)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab < 0 || !KEY_PATTERN.matcher(line.substring(0, tab)).matches()) {
+                    LOGGER.warn("Skipping malformed short link entry in {}", log);
+                    continue;
+                }
+                String key = line.substring(0, tab);
+                String url = line.substring(tab + 1);
+                urlsByKey.put(key, url);
+                keysByUrl.putIfAbsent(url, key);
+            }
+        }
+        LOGGER.info("Loaded {} short links from {}", urlsByKey.size(), log);
+        if (urlsByKey.size() >= maxLinks) {
+            LOGGER.warn("Short link store is full ({} of {} links); new URLs will be refused",
+                        urlsByKey.size(), maxLinks);
+        }
+    }
+
+    /**
+     * Uppercases the scheme, host and port of {@code url}, leaving any user info and path unchanged.
+     */
+    private static String uppercaseOrigin(String url) {
+        int authority = url.indexOf("://");
+        if (authority < 0) {
+            return url;
+        }
+        authority += 3;
+        int path = url.indexOf('/', authority);
+        if (path < 0) {
+            path = url.length();
+        }
+        int host = url.lastIndexOf('@', path - 1) + 1;
+        if (host < authority) {
+            host = authority;
+        }
+        return url.substring(0, authority).toUpperCase(Locale.ROOT) + url.substring(authority, host)
+               + url.substring(host, path).toUpperCase(Locale.ROOT) + url.substring(path);
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private static void checkUrl(String url) {
+        if (url == null || url.isEmpty() || url.length() > MAX_URL_LENGTH) {
+            throw new IllegalArgumentException("Short link URL must be between 1 and " + MAX_URL_LENGTH + " characters");
+        }
+        if (url.indexOf('\n') >= 0 || url.indexOf('\r') >= 0 || url.indexOf('\t') >= 0) {
+            throw new IllegalArgumentException("Short link URL must not contain control characters");
+        }
+        try {
+            URI uri = new URI(url);
+            String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+            if (!(scheme.equals("http") || scheme.equals("https")) || uri.getHost() == null) {
+                throw new IllegalArgumentException("Short links only accept absolute http or https URLs");
+            }
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid short link URL: " + e.getReason());
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.qr.shortlink;
+
+/**
+ * Thrown when a new URL cannot be shortened because the store already holds {@code qr.short-link.max-links}
+ * links. URLs stored earlier still resolve, and shortening them again still returns their key.
+ */
+public class ShortLinkStoreFullException extends RuntimeException {
+
+    public ShortLinkStoreFullException(String message) {
+        super(message);
+    }
+}
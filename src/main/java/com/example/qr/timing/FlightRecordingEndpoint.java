@@ -0,0 +1,90 @@
+package com.example.qr.timing;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@code POST /actuator/jfr} records Flight Recorder data for a while and returns the {@code .jfr} file,
+ * for diagnosing latency live without attaching an agent.
+ * <p>
+ * The recording uses the JDK's {@code profile} settings, which sample CPU and allocation, plus every
+ * {@link RenderStageEvent}. Events that capture the environment, system properties or JVM arguments are
+ * left out, since they can carry secrets such as the peer token. The request blocks for the duration and
+ * only one recording runs at a time.
+ */
+@Component
+@WebEndpoint(id = "jfr")
+public class FlightRecordingEndpoint {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlightRecordingEndpoint.class);
+    private static final Duration DEFAULT_DURATION = Duration.ofSeconds(30);
+    private static final String[] EXCLUDED_EVENTS = {
+            "jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.JVMInformation"
+    };
+
+    private final Duration maxDuration;
+    private final AtomicBoolean recording = new AtomicBoolean();
+
+    public FlightRecordingEndpoint(@Value("${qr.jfr.max-duration:120s}") Duration maxDuration) {
+        this.maxDuration = maxDuration;
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Resource> record(@Nullable Duration duration) {
+        Duration length = duration != null ? duration : DEFAULT_DURATION;
+        if (length.isNegative() || length.isZero() || length.compareTo(maxDuration) > 0) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        if (!recording.compareAndSet(false, true)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        try {
+            return new WebEndpointResponse<>(new ByteArrayResource(recordFor(length)));
+        } catch (IOException | ParseException e) {
+            LOGGER.error("Flight recording failed", e);
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        } finally {
+            recording.set(false);
+        }
+    }
+
+    private static byte[] recordFor(Duration length) throws IOException, ParseException {
+        Path file = Files.createTempFile("qr-", ".jfr");
+        try (Recording recording = new Recording(Configuration.getConfiguration("profile"))) {
+            recording.setName("qr-actuator");
+            recording.enable(RenderStageEvent.NAME).withoutThreshold();
+            for (String event : EXCLUDED_EVENTS) {
+                recording.disable(event);
+            }
+            LOGGER.info("Starting a {} flight recording", length);
+            recording.start();
+            try {
+                Thread.sleep(length);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            recording.stop();
+            recording.dump(file);
+            return Files.readAllBytes(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.qr.timing;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for one stage of rendering a code, committed alongside the stage's
+ * {@link RenderTrace} record.
+ * <p>
+ * Stages are started with {@link RenderTrace#begin} and ended with {@link #finish()}, which records the
+ * duration into the trace and commits the event if Flight Recorder is recording it. Without a recording,
+ * committing costs a flag check. Fields that do not apply to a stage are left at zero or {@code null}.
+ */
+@Name(RenderStageEvent.NAME)
+@Label("QR Render Stage")
+@Category("QR Generator")
+@Description("A stage of validating or rendering a QR code")
+@StackTrace(false)
+public final class RenderStageEvent extends Event {
+
+    public static final String NAME = "com.example.qr.RenderStage";
+
+    @Label("Stage")
+    private final String stage;
+
+    @Label("QR Version")
+    private int qrVersion;
+
+    @Label("Width")
+    @Description("Modules per side when encoding, otherwise pixels")
+    private int width;
+
+    @Label("Height")
+    private int height;
+
+    @Label("Logo Type")
+    private String logoType;
+
+    @Label("Logo Size")
+    @DataAmount
+    private long logoBytes;
+
+    @Label("Output Size")
+    @DataAmount
+    private long outputBytes;
+
+    private final transient RenderTrace trace;
+    private final transient RenderTrace.Stage traceStage;
+    private final transient long startNanos;
+
+    RenderStageEvent(RenderTrace trace, RenderTrace.Stage stage) {
+        this.trace = trace;
+        this.traceStage = stage;
+        this.stage = stage.metric();
+        this.startNanos = System.nanoTime();
+        begin();
+    }
+
+    public RenderStageEvent qrVersion(int qrVersion) {
+        this.qrVersion = qrVersion;
+        return this;
+    }
+
+    public RenderStageEvent dimensions(int width, int height) {
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    public RenderStageEvent logo(String logoType, long logoBytes) {
+        this.logoType = logoType;
+        this.logoBytes = logoBytes;
+        return this;
+    }
+
+    public RenderStageEvent outputBytes(long outputBytes) {
+        this.outputBytes = outputBytes;
+        return this;
+    }
+
+    /**
+     * Adds the stage's duration to the trace it was started from and commits the event.
+     */
+    public void finish() {
+        trace.record(traceStage, startNanos);
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
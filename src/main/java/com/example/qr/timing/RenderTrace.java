@@ -0,0 +1,176 @@
+package com.example.qr.timing;
+
+import java.util.Locale;
+
+/**
+ * Durations of the stages of one request, collected on the thread that handles it.
+ * <p>
+ * {@link ServerTimingFilter} starts a trace for each traced request and the controller and service
+ * record stages into {@link #current()}. Outside a traced request {@code current()} returns an inactive
+ * trace that ignores everything, so rendering code records unconditionally. Stages that run more than once
+ * accumulate. Stages started with {@link #begin} are also reported to Flight Recorder, traced or not.
+ */
+public final class RenderTrace {
+
+    /**
+     * Stages in pipeline order, with their {@code Server-Timing} metric names.
+     */
+    public enum Stage {
+        PARSE("parse", "Multipart parse"),
+        VALIDATE("validate", "Logo validation"),
+        LOGO("logo", "Logo load"),
+        ENCODE("encode", "Encode"),
+        RASTERIZE("raster", "Rasterize"),
+        /** Drawing the badge over a code, or into a new raster template; a render from a template has none. */
+        OVERLAY("overlay", "Logo overlay"),
+        IMAGE_ENCODE("png", "Image encode");
+
+        private final String metric;
+        private final String description;
+
+        Stage(String metric, String description) {
+            this.metric = metric;
+            this.description = description;
+        }
+
+        public String metric() {
+            return metric;
+        }
+    }
+
+    private static final ThreadLocal<RenderTrace> CURRENT = new ThreadLocal<>();
+    private static final RenderTrace INACTIVE = new RenderTrace(false);
+
+    private final boolean active;
+    private final long[] nanos = new long[Stage.values().length];
+    private int version;
+    private String logoType;
+    private long logoBytes;
+    private boolean cacheHit;
+    private String tier;
+
+    private RenderTrace(boolean active) {
+        this.active = active;
+    }
+
+    /**
+     * Starts a trace bound to the current thread, replacing any previous one.
+     */
+    static RenderTrace start() {
+        RenderTrace trace = new RenderTrace(true);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    public static RenderTrace current() {
+        RenderTrace trace = CURRENT.get();
+        return trace != null ? trace : INACTIVE;
+    }
+
+    /**
+     * Starts timing {@code stage}, returning its Flight Recorder event; {@link RenderStageEvent#finish()} ends
+     * the stage.
+     */
+    public RenderStageEvent begin(Stage stage) {
+        return new RenderStageEvent(this, stage);
+    }
+
+    /**
+     * Adds the time since {@code startNanos}, a {@link System#nanoTime()} reading, to {@code stage}.
+     */
+    public void record(Stage stage, long startNanos) {
+        if (active) {
+            nanos[stage.ordinal()] += System.nanoTime() - startNanos;
+        }
+    }
+
+    public void version(int version) {
+        if (active) {
+            this.version = version;
+        }
+    }
+
+    public void logo(String contentType, long bytes) {
+        if (active) {
+            this.logoType = contentType;
+            this.logoBytes = bytes;
+        }
+    }
+
+    public void cacheHit() {
+        if (active) {
+            this.cacheHit = true;
+        }
+    }
+
+    /**
+     * Records the render tier the request was served at.
+     */
+    public void tier(String tier) {
+        if (active) {
+            this.tier = tier;
+        }
+    }
+
+    /**
+     * The recorded render tier, or {@code null} if none was recorded or the trace is inactive.
+     */
+    public String tier() {
+        return tier;
+    }
+
+    public long nanos(Stage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    /**
+     * The recorded stages as a {@code Server-Timing} header value, in milliseconds, or {@code null} when
+     * the trace is inactive.
+     */
+    public String serverTiming() {
+        if (!active) {
+            return null;
+        }
+        StringBuilder header = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            long stageNanos = nanos[stage.ordinal()];
+            if (stageNanos > 0) {
+                if (!header.isEmpty()) {
+                    header.append(", ");
+                }
+                header.append(stage.metric).append(";dur=").append(millis(stageNanos))
+                      .append(";desc=\"").append(stage.description).append('"');
+            }
+        }
+        if (cacheHit) {
+            header.append(header.isEmpty() ? "" : ", ").append("cache;desc=hit");
+        }
+        return header.toString();
+    }
+
+    /**
+     * Stages, QR version, logo, cache and tier as {@code key=value} pairs for the slow-request log. Never includes the
+     * encoded data.
+     */
+    String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            summary.append(stage.metric).append('=').append(millis(nanos[stage.ordinal()])).append("ms ");
+        }
+        summary.append("version=").append(version);
+        summary.append(" logoType=").append(logoType == null ? "default" : logoType + "/" + logoBytes + "B");
+        summary.append(" cache=").append(cacheHit ? "hit" : "miss");
+        if (tier != null) {
+            summary.append(" tier=").append(tier);
+        }
+        return summary.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.qr.timing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Traces render requests: starts a {@link RenderTrace}, times multipart parsing, and logs a sample of the
+ * requests slower than a threshold with their stage breakdown and the bytes their thread allocated.
+ * <p>
+ * Parts are parsed here rather than lazily, so that parsing is timed as its own stage; the container keeps
+ * the parsed parts, and any parse failure, for the dispatcher. Allocation is measured on the handling thread
+ * only, so work done on other threads, such as SVG rasterization, is not included.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    private final long slowThresholdNanos;
+    private final double sampleRate;
+    private final DoubleSupplier random;
+    private final com.sun.management.ThreadMXBean threads = allocationTracking();
+
+    public ServerTimingFilter(long slowThresholdMillis, double sampleRate) {
+        this(slowThresholdMillis, sampleRate, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    ServerTimingFilter(long slowThresholdMillis, double sampleRate, DoubleSupplier random) {
+        this.slowThresholdNanos = slowThresholdMillis * 1_000_000L;
+        this.sampleRate = sampleRate;
+        this.random = random;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        long allocatedBefore = allocatedBytes();
+        RenderTrace trace = RenderTrace.start();
+        try {
+            String contentType = request.getContentType();
+            if (contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) {
+                long parseStart = System.nanoTime();
+                try {
+                    request.getParts();
+                } catch (IOException | ServletException | IllegalStateException e) {
+                    // Reported again by the dispatcher, which maps it to the right status
+                }
+                trace.record(RenderTrace.Stage.PARSE, parseStart);
+            }
+            chain.doFilter(request, response);
+        } finally {
+            RenderTrace.clear();
+            long elapsed = System.nanoTime() - start;
+            if (elapsed >= slowThresholdNanos && random.getAsDouble() < sampleRate) {
+                long allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+                LOGGER.warn("Slow request {} {} took {} ms, status={}: {} allocated={}",
+                            request.getMethod(), request.getRequestURI(), elapsed / 1_000_000,
+                            response.getStatus(), trace.summary(), allocated < 0 ? "n/a" : allocated + "B");
+            }
+        }
+    }
+
+    private long allocatedBytes() {
+        return threads == null ? -1 : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationTracking() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+}
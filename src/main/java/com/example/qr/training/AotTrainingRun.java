@@ -0,0 +1,180 @@
+package com.example.qr.training;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClient;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Training workload for the JDK AOT cache ({@code -XX:AOTCacheOutput}).
+ * <p>
+ * Enabled with {@code qr.training.enabled=true}. Once the application is ready it drives {@code /generate}
+ * over HTTP with the default logo and with SVG, PNG and JPEG custom logos, so that Tomcat's multipart
+ * handling, Batik, the ImageIO codecs and the Java2D loops are all loaded and linked during the training
+ * run. It then reports startup and time-to-first-render and exits, which lets the JVM write the cache.
+ */
+@Component
+@ConditionalOnProperty(name = "qr.training.enabled", havingValue = "true")
+public class AotTrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AotTrainingRun.class);
+    private static final String[] PAYLOADS = {
+            "https://example.com",
+            "https://example.com/products/12345?utm_source=qr&utm_medium=print&utm_campaign=training",
+            "WIFI:T:WPA;S:TrainingNetwork;P:correct-horse-battery-staple;;"
+    };
+
+    private final Resource svgLogo;
+    private final int iterations;
+    private final long maxStartupMillis;
+    private final long maxFirstRenderMillis;
+    private final String reportPath;
+
+    public AotTrainingRun(
+            @Value("classpath:logo.svg") Resource svgLogo,
+            @Value("${qr.training.iterations:20}") int iterations,
+            @Value("${qr.training.max-startup-ms:0}") long maxStartupMillis,
+            @Value("${qr.training.max-first-render-ms:0}") long maxFirstRenderMillis,
+            @Value("${qr.training.report:}") String reportPath) {
+        this.svgLogo = svgLogo;
+        this.iterations = iterations;
+        this.maxStartupMillis = maxStartupMillis;
+        this.maxFirstRenderMillis = maxFirstRenderMillis;
+        this.reportPath = reportPath;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ConfigurableApplicationContext context = event.getApplicationContext();
+        long startupMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        int exitCode;
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            exitCode = train(RestClient.create("http://localhost:" + port), startupMillis);
+        } catch (RuntimeException | IOException e) {
+            LOGGER.error("AOT training run failed", e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private int train(RestClient client, long startupMillis) throws IOException {
+        List<LogoSample> logos = List.of(
+                LogoSample.NONE,
+                new LogoSample("logo.svg", MediaType.valueOf("image/svg+xml"), svgLogo.getContentAsByteArray()),
+                new LogoSample("logo.png", MediaType.IMAGE_PNG, sampleRaster("png", BufferedImage.TYPE_INT_ARGB)),
+                new LogoSample("logo.jpg", MediaType.IMAGE_JPEG, sampleRaster("jpg", BufferedImage.TYPE_INT_RGB)));
+
+        long firstStart = System.nanoTime();
+        generate(client, PAYLOADS[0], "5DADE2", "FFFFFF", LogoSample.NONE);
+        long firstRenderMillis = (System.nanoTime() - firstStart) / 1_000_000;
+
+        long workloadStart = System.nanoTime();
+        int requests = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (LogoSample logo : logos) {
+                String payload = PAYLOADS[i % PAYLOADS.length];
+                generate(client, payload, i % 2 == 0 ? "5DADE2" : "000000", "FFFFFF", logo);
+                requests++;
+            }
+        }
+        long workloadMillis = (System.nanoTime() - workloadStart) / 1_000_000;
+
+        LOGGER.info("AOT training: startup={}ms, firstRender={}ms, timeToFirstRender={}ms, requests={}, workload={}ms",
+                    startupMillis, firstRenderMillis, startupMillis + firstRenderMillis, requests, workloadMillis);
+        writeReport(startupMillis, firstRenderMillis, requests, workloadMillis);
+
+        return withinBudget("startup", startupMillis, maxStartupMillis)
+                & withinBudget("first render", firstRenderMillis, maxFirstRenderMillis) ? 0 : 2;
+    }
+
+    private void generate(RestClient client, String data, String fg, String bg, LogoSample logo) {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("data", data);
+        body.add("foregroundColor", fg);
+        body.add("backgroundColor", bg);
+        if (logo != LogoSample.NONE) {
+            HttpHeaders partHeaders = new HttpHeaders();
+            partHeaders.setContentType(logo.contentType());
+            partHeaders.setContentDispositionFormData("logo", logo.filename());
+            body.add("logo", new HttpEntity<>(new ByteArrayResource(logo.content()), partHeaders));
+        }
+        client.post()
+              .uri("/generate")
+              .contentType(MediaType.MULTIPART_FORM_DATA)
+              .body(body)
+              .retrieve()
+              .toBodilessEntity();
+    }
+
+    private boolean withinBudget(String name, long actualMillis, long budgetMillis) {
+        if (budgetMillis > 0 && actualMillis > budgetMillis) {
+            LOGGER.error("AOT training: {} took {}ms, budget is {}ms", name, actualMillis, budgetMillis);
+            return false;
+        }
+        return true;
+    }
+
+    private void writeReport(long startupMillis, long firstRenderMillis, int requests, long workloadMillis)
+            throws IOException {
+        if (reportPath.isEmpty()) {
+            return;
+        }
+        Properties report = new Properties();
+        report.setProperty("startup.ms", Long.toString(startupMillis));
+        report.setProperty("first-render.ms", Long.toString(firstRenderMillis));
+        report.setProperty("time-to-first-render.ms", Long.toString(startupMillis + firstRenderMillis));
+        report.setProperty("workload.requests", Integer.toString(requests));
+        report.setProperty("workload.ms", Long.toString(workloadMillis));
+        Path path = Path.of(reportPath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (var out = Files.newOutputStream(path)) {
+            report.store(out, "QR AOT training run");
+        }
+    }
+
+    private static byte[] sampleRaster(String format, int imageType) throws IOException {
+        BufferedImage image = new BufferedImage(256, 256, imageType);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setPaint(new GradientPaint(0, 0, new Color(0x5DADE2), 256, 256, new Color(0x9B59B6)));
+        g.fillOval(16, 16, 224, 224);
+        g.dispose();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, format, baos);
+        return baos.toByteArray();
+    }
+
+    private record LogoSample(String filename, MediaType contentType, byte[] content) {
+        static final LogoSample NONE = new LogoSample(null, null, null);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.qr.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final List<String> MEMBERS = List.of("http://a:8080", "http://b:8080", "http://c:8080");
+
+    @Test
+    void owner_ShouldBeTheSameOnEveryInstance() {
+        ConsistentHashRing first = new ConsistentHashRing(MEMBERS, 128);
+        ConsistentHashRing second = new ConsistentHashRing(List.of(MEMBERS.get(2), MEMBERS.get(0), MEMBERS.get(1)), 128);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(first.owner("key-" + i), second.owner("key-" + i), "Member order should not matter");
+        }
+    }
+
+    @Test
+    void owner_ShouldSpreadKeysEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(MEMBERS, 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 30_000; i++) {
+            counts.merge(ring.owner("key-" + i), 1, Integer::sum);
+        }
+
+        for (String member : MEMBERS) {
+            int count = counts.getOrDefault(member, 0);
+            assertTrue(count > 7_500 && count < 12_500, member + " owns " + count + " of 30000 keys");
+        }
+    }
+
+    @Test
+    void owner_ShouldOnlyMoveKeysOfARemovedMember() {
+        ConsistentHashRing full = new ConsistentHashRing(MEMBERS, 128);
+        ConsistentHashRing reduced = new ConsistentHashRing(MEMBERS.subList(0, 2), 128);
+
+        for (int i = 0; i < 10_000; i++) {
+            String owner = full.owner("key-" + i);
+            if (!owner.equals(MEMBERS.get(2))) {
+                assertEquals(owner, reduced.owner("key-" + i), "Keys of remaining members should stay put");
+            }
+        }
+    }
+
+    @Test
+    void constructor_ShouldRejectEmptyMembers() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of(), 128));
+    }
+}
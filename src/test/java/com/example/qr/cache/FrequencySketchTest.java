@@ -0,0 +1,56 @@
+package com.example.qr.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrequencySketchTest {
+
+    @Test
+    void frequency_ShouldCountIncrementsUpToFifteen() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        long hash = FrequencySketch.hash("key");
+
+        for (int i = 0; i < 7; i++) {
+            sketch.increment(hash);
+        }
+        assertEquals(7, sketch.frequency(hash));
+
+        for (int i = 0; i < 20; i++) {
+            sketch.increment(hash);
+        }
+        assertEquals(15, sketch.frequency(hash), "Counters should saturate");
+        assertEquals(0, sketch.frequency(FrequencySketch.hash("other")));
+    }
+
+    @Test
+    void increment_ShouldHalveAllCountersAfterTheSampleSize() {
+        FrequencySketch sketch = new FrequencySketch(64);
+        long hot = FrequencySketch.hash("hot");
+        for (int i = 0; i < 12; i++) {
+            sketch.increment(hot);
+        }
+
+        for (int i = 0; sketch.resets() == 0; i++) {
+            sketch.increment(FrequencySketch.hash("tail-" + i));
+        }
+
+        assertEquals(6, sketch.frequency(hot), "Aging should halve old counts");
+    }
+
+    @Test
+    void frequency_ShouldStayCloseForManyKeys() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        for (int i = 0; i < 1024; i++) {
+            sketch.increment(FrequencySketch.hash("key-" + i));
+        }
+
+        int overestimated = 0;
+        for (int i = 0; i < 1024; i++) {
+            if (sketch.frequency(FrequencySketch.hash("key-" + i)) > 1) {
+                overestimated++;
+            }
+        }
+        assertTrue(overestimated < 10, "Collisions should rarely inflate counts, inflated " + overestimated);
+    }
+}
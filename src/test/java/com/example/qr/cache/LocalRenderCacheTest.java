@@ -0,0 +1,142 @@
+package com.example.qr.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRenderCacheTest {
+
+    @Test
+    void get_ShouldReturnStoredImage() {
+        LocalRenderCache cache = new LocalRenderCache(1 << 20);
+        byte[] image = {1, 2, 3};
+
+        cache.put("key", image);
+
+        assertSame(image, cache.get("key").orElseThrow());
+        assertTrue(cache.get("other").isEmpty());
+    }
+
+    @Test
+    void put_ShouldEvictLeastRecentlyUsedImagesToStayWithinBudget() {
+        long budget = 16 * 64 * 1024;
+        LocalRenderCache cache = new LocalRenderCache(budget);
+
+        for (int i = 0; i < 1000; i++) {
+            String key = "key-" + i;
+            // The newest keys are requested more often than the rest, so admission lets them displace
+            // the least recently used
+            for (int request = 0; request < (i >= 900 ? 4 : 1); request++) {
+                cache.get(key);
+            }
+            cache.put(key, new byte[4096]);
+        }
+
+        assertTrue(cache.bytes() <= budget, "Cache should hold at most its budget, held " + cache.bytes());
+        assertTrue(cache.bytes() > budget / 2, "Cache should use most of its budget, held " + cache.bytes());
+        assertTrue(cache.get("key-999").isPresent(), "The newest image should be kept");
+        assertTrue(cache.get("key-0").isEmpty(), "The oldest image should be evicted");
+    }
+
+    @Test
+    void put_ShouldNotLetOneOffKeysDisplaceHotOnes() {
+        LocalRenderCache cache = new LocalRenderCache(16 * 64 * 1024);
+        List<String> hot = IntStream.range(0, 64).mapToObj(i -> "hot-" + i).toList();
+        for (String key : hot) {
+            for (int request = 0; request < 4; request++) {
+                cache.get(key);
+            }
+            cache.put(key, new byte[4096]);
+        }
+
+        // Every other request is for a hot key; the rest are for payloads requested only once
+        for (int i = 0; i < 5000; i++) {
+            cache.get(hot.get(i % hot.size()));
+            String key = "tail-" + i;
+            cache.get(key);
+            cache.put(key, new byte[4096]);
+        }
+
+        long kept = hot.stream().filter(key -> cache.get(key).isPresent()).count();
+        assertEquals(hot.size(), kept, "The tail should not flush the hot set");
+        assertTrue(cache.rejected() > 0);
+    }
+
+    @Test
+    void hottest_ShouldRankKeysByEstimatedFrequency() {
+        LocalRenderCache cache = new LocalRenderCache(16 << 20, 2);
+        for (int request = 0; request < 5; request++) {
+            cache.get("warm");
+        }
+        for (int request = 0; request < 9; request++) {
+            cache.get("hottest");
+        }
+        for (int i = 0; i < 100; i++) {
+            cache.get("cold-" + i);
+        }
+
+        List<LocalRenderCache.HotKey> hottest = cache.hottest();
+
+        assertEquals(List.of(new LocalRenderCache.HotKey("hottest", 9), new LocalRenderCache.HotKey("warm", 5)),
+                     hottest);
+    }
+
+    @Test
+    void hottest_ShouldRankKeysBeyondTheSketchCap() {
+        LocalRenderCache cache = new LocalRenderCache(16 << 20, 2);
+        for (int request = 0; request < 40; request++) {
+            cache.get("hottest");
+            if (request % 2 == 0) {
+                cache.get("hot");
+            }
+        }
+
+        assertEquals(List.of(new LocalRenderCache.HotKey("hottest", 40), new LocalRenderCache.HotKey("hot", 20)),
+                     cache.hottest(), "Both keys are above 15, so only exact counts can tell them apart");
+    }
+
+    @Test
+    void get_ShouldCountConcurrentLookups() throws InterruptedException {
+        LocalRenderCache cache = new LocalRenderCache(16 << 20, 1);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    cache.get(i % 2 == 0 ? "hot" : "tail-" + thread + "-" + i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals("hot", cache.hottest().getFirst().key());
+        assertTrue(cache.hottest().getFirst().frequency() > 15, "The hot key should be counted past the sketch cap");
+    }
+
+    @Test
+    void put_ShouldAccountForReplacedImages() {
+        LocalRenderCache cache = new LocalRenderCache(1 << 20);
+
+        cache.put("key", new byte[1000]);
+        long once = cache.bytes();
+        cache.put("key", new byte[1000]);
+
+        assertEquals(once, cache.bytes());
+    }
+
+    @Test
+    void put_ShouldSkipImagesLargerThanAStripe() {
+        LocalRenderCache cache = new LocalRenderCache(16 * 1024);
+
+        cache.put("key", new byte[2048]);
+
+        assertTrue(cache.get("key").isEmpty());
+        assertEquals(0, cache.bytes());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.qr.cache;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeerRenderCacheTest {
+
+    private static final String SELF = "http://self.invalid";
+    private static final String TOKEN = "secret";
+
+    private HttpServer peer;
+    private String peerUrl;
+    private final Map<String, byte[]> peerImages = new ConcurrentHashMap<>();
+    private final AtomicInteger peerRequests = new AtomicInteger();
+    private SimpleMeterRegistry registry;
+    private LocalRenderCache local;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        peer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        peer.createContext(PeerRenderCache.PATH, exchange -> {
+            peerRequests.incrementAndGet();
+            String key = exchange.getRequestURI().getPath().substring(PeerRenderCache.PATH.length());
+            if (!TOKEN.equals(exchange.getRequestHeaders().getFirst(PeerRenderCache.TOKEN_HEADER))) {
+                exchange.sendResponseHeaders(403, -1);
+            } else if ("PUT".equals(exchange.getRequestMethod())) {
+                peerImages.put(key, exchange.getRequestBody().readAllBytes());
+                exchange.sendResponseHeaders(204, -1);
+            } else if (peerImages.containsKey(key)) {
+                byte[] image = peerImages.get(key);
+                exchange.sendResponseHeaders(200, image.length);
+                exchange.getResponseBody().write(image);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+            exchange.close();
+        });
+        peer.start();
+        peerUrl = "http://127.0.0.1:" + peer.getAddress().getPort();
+        registry = new SimpleMeterRegistry();
+        local = new LocalRenderCache(1 << 20);
+    }
+
+    @AfterEach
+    void tearDown() {
+        peer.stop(0);
+    }
+
+    @Test
+    void get_ShouldFetchKeysOwnedByThePeer() {
+        try (PeerRenderCache cache = cache(peerUrl)) {
+            String key = keyOwnedBy(peerUrl, peerUrl);
+            peerImages.put(key, new byte[]{7, 8, 9});
+
+            assertArrayEquals(new byte[]{7, 8, 9}, cache.get(key).orElseThrow());
+            assertTrue(local.get(key).isEmpty(), "Images owned by the peer should not be duplicated locally");
+            assertEquals(1, registry.get("qr.render.cache.peer.requests").tag("result", "hit").counter().count());
+        }
+    }
+
+    @Test
+    void put_ShouldSendRenderedImagesToTheOwner() throws InterruptedException {
+        try (PeerRenderCache cache = cache(peerUrl)) {
+            String key = keyOwnedBy(peerUrl, peerUrl);
+
+            assertTrue(cache.get(key).isEmpty());
+            cache.put(key, new byte[]{1, 2});
+
+            for (int i = 0; i < 100 && !peerImages.containsKey(key); i++) {
+                Thread.sleep(20);
+            }
+            assertArrayEquals(new byte[]{1, 2}, peerImages.get(key));
+        }
+    }
+
+    @Test
+    void getAndPut_ShouldUseTheLocalCacheForOwnKeys() {
+        try (PeerRenderCache cache = cache(peerUrl)) {
+            String key = keyOwnedBy(SELF, peerUrl);
+
+            cache.put(key, new byte[]{4});
+
+            assertArrayEquals(new byte[]{4}, cache.get(key).orElseThrow());
+            assertEquals(0, peerRequests.get(), "Own keys should never reach the peer");
+        }
+    }
+
+    @Test
+    void get_ShouldFallBackToTheLocalCache_WhenThePeerIsDown() throws IOException {
+        String downPeer;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            downPeer = "http://127.0.0.1:" + socket.getLocalPort();
+        }
+        try (PeerRenderCache cache = cache(downPeer)) {
+            String key = keyOwnedBy(downPeer, downPeer);
+
+            assertTrue(cache.get(key).isEmpty(), "An unreachable owner should count as a miss");
+            cache.put(key, new byte[]{5});
+
+            assertArrayEquals(new byte[]{5}, cache.get(key).orElseThrow(),
+                              "While the owner is down its keys should be kept locally");
+            assertEquals(1, registry.get("qr.render.cache.peer.requests").tag("result", "error").counter().count(),
+                         "The peer should be skipped after the first failure");
+        }
+    }
+
+    private PeerRenderCache cache(String peer) {
+        return new PeerRenderCache(SELF, new ConsistentHashRing(List.of(SELF, peer), 128), local, TOKEN,
+                                   Duration.ofMillis(200), Duration.ofSeconds(2), Duration.ofSeconds(30), registry);
+    }
+
+    private static String keyOwnedBy(String member, String peer) {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of(SELF, peer), 128);
+        for (int i = 0; ; i++) {
+            String key = "%064x".formatted(i);
+            if (ring.owner(key).equals(member)) {
+                return key;
+            }
+        }
+    }
+}
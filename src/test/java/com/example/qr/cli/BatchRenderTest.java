@@ -0,0 +1,116 @@
+package com.example.qr.cli;
+
+import com.example.qr.model.FileNames;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRenderTest {
+
+    @TempDir
+    Path dir;
+
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @Test
+    void writesOnePngPerLineNamedByLineNumberOrGivenName() throws IOException {
+        String input = "https://example.com/a\n\nsku-42\thttps://example.com/b\n";
+
+        int status = run(input, "--output", dir.toString(), "--threads", "2");
+
+        assertEquals(0, status, err.toString());
+        BufferedImage first = ImageIO.read(dir.resolve("000001.png").toFile());
+        assertNotNull(first);
+        assertEquals(first.getWidth(), first.getHeight());
+        assertNotNull(ImageIO.read(dir.resolve("sku-42.png").toFile()));
+        assertTrue(err.toString().contains("Wrote 2 PNG codes"), err.toString());
+    }
+
+    @Test
+    void writesAnArchiveInInputOrder() throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            input.append("item/").append(i).append('\t').append("https://example.com/items/").append(i).append('\n');
+        }
+
+        int status = run(input.toString(), "--output", dir.toString(), "--archive", "codes.zip",
+                         "--format", "svg", "--threads", "4");
+
+        assertEquals(0, status, err.toString());
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(dir.resolve("codes.zip")))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                assertTrue(new String(zip.readAllBytes(), StandardCharsets.UTF_8).contains("<svg"));
+            }
+        }
+        assertEquals(40, names.size());
+        assertEquals("item_0.svg", names.getFirst());
+        assertEquals("item_39.svg", names.getLast());
+    }
+
+    @Test
+    void spoolsASerialRangeAndResumesFromAnOffset() throws IOException {
+        int status = run("", "--output", dir.toString(), "--from", "1", "--to", "12", "--prefix", "TAG-",
+                         "--padding", "4", "--offset", "9", "--threads", "2");
+
+        assertEquals(0, status, err.toString());
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of("TAG-0010.png", "TAG-0011.png", "TAG-0012.png"),
+                         files.map(file -> file.getFileName().toString()).sorted().toList());
+        }
+        assertEquals(2, run("", "--input", "payloads.txt", "--from", "1", "--to", "2"));
+        assertEquals(2, run("", "--prefix", "TAG-"));
+    }
+
+    @Test
+    void skipsPayloadsThatCannotBeEncodedAndReportsThem() throws IOException {
+        String input = "ok\n" + "x".repeat(5000) + "\ndup\tone\ndup\ttwo\n";
+
+        int status = run(input, "--output", dir.toString());
+
+        assertEquals(1, status);
+        assertTrue(Files.exists(dir.resolve("000001.png")));
+        assertTrue(Files.exists(dir.resolve("dup.png")));
+        assertFalse(Files.exists(dir.resolve("000002.png")));
+        assertTrue(err.toString().contains("Line 2: skipped"), err.toString());
+        assertTrue(err.toString().contains("Line 4: skipped"), err.toString());
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertEquals(2, run("", "--format", "gif"));
+        assertEquals(2, run("", "--threads"));
+        assertEquals(2, run("", "--foreground", "blue"));
+        assertTrue(err.toString().contains("Usage: BatchRender"));
+    }
+
+    @Test
+    void safeNameKeepsNamesInsideTheOutputDirectory() {
+        assertEquals("_._.._etc_passwd", FileNames.safe("../../etc/passwd"));
+        assertEquals("_hidden", FileNames.safe(".hidden"));
+        assertEquals("sku-1.v2", FileNames.safe("sku-1.v2"));
+    }
+
+    private int run(String input, String... args) {
+        InputStream stdin = new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+        return BatchRender.run(args, stdin, new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+}
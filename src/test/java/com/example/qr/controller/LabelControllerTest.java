@@ -0,0 +1,100 @@
+package com.example.qr.controller;
+
+import com.example.qr.model.Label;
+import com.example.qr.model.LabelLayout;
+import com.example.qr.model.LabelSheetRequest;
+import com.example.qr.service.LabelSheet;
+import com.example.qr.service.PreparedStyle;
+import com.example.qr.service.PresetRegistry;
+import com.example.qr.service.QrCodeService;
+import org.apache.batik.transcoder.TranscoderException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class LabelControllerTest {
+
+    private static final List<Label> LABELS = List.of(new Label("https://example.com", "Example"));
+
+    private LabelController labelController;
+    private QrCodeService qrCodeService;
+    private PresetRegistry presetRegistry;
+
+    @BeforeEach
+    void setUp() {
+        qrCodeService = mock(QrCodeService.class);
+        presetRegistry = mock(PresetRegistry.class);
+        labelController = new LabelController(qrCodeService, presetRegistry);
+    }
+
+    @Test
+    void generateLabelSheet_ShouldStreamPdf() throws IOException, TranscoderException {
+        PreparedStyle style = new PreparedStyle(0xFF000000, 0xFFFFFFFF, null);
+        LabelSheet sheet = mock(LabelSheet.class);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write("%PDF".getBytes());
+            return null;
+        }).when(sheet).writePdf(any());
+        when(qrCodeService.prepareStyle("5DADE2", "FFFFFF", null, null)).thenReturn(style);
+        when(qrCodeService.prepareLabelSheet(LABELS, null, style)).thenReturn(sheet);
+
+        ResponseEntity<StreamingResponseBody> response =
+                labelController.generateLabelSheet(new LabelSheetRequest(LABELS, null, null, null, null));
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
+        assertEquals(MediaType.APPLICATION_PDF, response.getHeaders().getContentType(), "Content type should be PDF");
+        assertEquals("%PDF", body.toString(), "Body should be written by the label sheet");
+    }
+
+    @Test
+    void generateLabelSheet_ShouldUsePresetStyle() throws IOException, TranscoderException {
+        PreparedStyle style = new PreparedStyle(0xFFFF0000, 0xFFFFFFFF, null);
+        when(presetRegistry.findStyle("tenant-a")).thenReturn(Optional.of(style));
+        when(qrCodeService.prepareLabelSheet(LABELS, LabelLayout.DEFAULT, style)).thenReturn(mock(LabelSheet.class));
+
+        ResponseEntity<StreamingResponseBody> response = labelController.generateLabelSheet(
+                new LabelSheetRequest(LABELS, LabelLayout.DEFAULT, null, null, "tenant-a"));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
+        verify(qrCodeService, never()).prepareStyle(any(), any(), any(), any());
+    }
+
+    @Test
+    void generateLabelSheet_ShouldReturnNotFound_WhenPresetIsUnknown() {
+        when(presetRegistry.findStyle("missing")).thenReturn(Optional.empty());
+
+        ResponseEntity<StreamingResponseBody> response = labelController.generateLabelSheet(
+                new LabelSheetRequest(LABELS, null, null, null, "missing"));
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode(), "Status should be NOT_FOUND");
+        verifyNoInteractions(qrCodeService);
+    }
+
+    @Test
+    void generateLabelSheet_ShouldReturnBadRequest_WhenLabelsAreInvalid() throws IOException, TranscoderException {
+        PreparedStyle style = new PreparedStyle(0xFF000000, 0xFFFFFFFF, null);
+        when(qrCodeService.prepareStyle("5DADE2", "FFFFFF", null, null)).thenReturn(style);
+        when(qrCodeService.prepareLabelSheet(List.of(), null, style))
+                .thenThrow(new IllegalArgumentException("Label sheet needs at least one label"));
+
+        ResponseEntity<StreamingResponseBody> response =
+                labelController.generateLabelSheet(new LabelSheetRequest(List.of(), null, null, null, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST");
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.qr.controller;
+
+import com.example.qr.model.MatrixResponse;
+import com.example.qr.service.ModuleMatrix;
+import com.example.qr.service.QrCodeService;
+import io.nayuki.qrcodegen.QrCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MatrixControllerTest {
+
+    private static final String DATA = "https://example.com";
+    private static final ModuleMatrix MATRIX = ModuleMatrix.of(QrCode.encodeText(DATA, QrCode.Ecc.MEDIUM));
+
+    private MatrixController matrixController;
+    private QrCodeService qrCodeService;
+
+    @BeforeEach
+    void setUp() {
+        qrCodeService = mock(QrCodeService.class);
+        matrixController = new MatrixController(qrCodeService);
+        when(qrCodeService.encodeMatrix(DATA, QrCode.Ecc.MEDIUM)).thenReturn(MATRIX);
+    }
+
+    @Test
+    void getMatrix_ShouldReturnBase64Modules() {
+        ResponseEntity<MatrixResponse> response = matrixController.getMatrix(DATA, "m");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
+        MatrixResponse body = response.getBody();
+        assertNotNull(body);
+        assertEquals(MATRIX.version(), body.version());
+        assertEquals(MATRIX.size(), body.size());
+        assertEquals("LMQH".substring(MATRIX.ecc().ordinal(), MATRIX.ecc().ordinal() + 1), body.ecc(),
+                     "ECC should be the level actually encoded, which may be boosted above the requested one");
+        assertEquals(MATRIX.mask(), body.mask());
+        assertArrayEquals(MATRIX.modules(), Base64.getDecoder().decode(body.modules()));
+    }
+
+    @Test
+    void getBinaryMatrix_ShouldReturnHeaderAndBitmap() {
+        ResponseEntity<byte[]> response = matrixController.getBinaryMatrix(DATA, "M");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
+        assertEquals(MediaType.APPLICATION_OCTET_STREAM, response.getHeaders().getContentType());
+        assertArrayEquals(MATRIX.toBinary(), response.getBody());
+    }
+
+    @Test
+    void getTextMatrix_ShouldReturnUtf8Text() {
+        ResponseEntity<String> response = matrixController.getTextMatrix(DATA, "M", true);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
+        assertEquals("UTF-8", response.getHeaders().getContentType().getParameter("charset"));
+        assertEquals(MATRIX.toText(true), response.getBody());
+    }
+
+    @Test
+    void getMatrix_ShouldReturnBadRequest_WhenDataIsTooLong() {
+        when(qrCodeService.encodeMatrix("x".repeat(5000), QrCode.Ecc.HIGH))
+                .thenThrow(new IllegalArgumentException("Data too long"));
+
+        ResponseEntity<MatrixResponse> response = matrixController.getMatrix("x".repeat(5000), "H");
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST");
+    }
+
+    @Test
+    void getMatrix_ShouldReturnBadRequest_WhenEccIsUnknown() {
+        ResponseEntity<MatrixResponse> response = matrixController.getMatrix(DATA, "X");
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST");
+        verifyNoInteractions(qrCodeService);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.qr.controller;
+
+import com.example.qr.service.PresetRegistry;
+import com.example.qr.service.QrCodeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PresetControllerTest {
+
+    @TempDir
+    Path directory;
+
+    private PresetRegistry registry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = new PresetRegistry(new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF"),
+                                      directory);
+    }
+
+    @Test
+    void saveAndDelete_ShouldRequireTheAdminToken() throws IOException {
+        PresetController controller = new PresetController(registry, "secret");
+
+        assertEquals(HttpStatus.FORBIDDEN, controller.save(null, "acme", "000000", "FFFFFF", null).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, controller.save("guess", "acme", "000000", "FFFFFF", null).getStatusCode());
+        assertTrue(registry.list().isEmpty(), "A refused preset should not be saved");
+
+        assertEquals(HttpStatus.CREATED, controller.save("secret", "acme", "000000", "FFFFFF", null).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, controller.delete(null, "acme").getStatusCode());
+        assertEquals(HttpStatus.OK, controller.get("acme").getStatusCode(), "Presets should stay readable");
+        assertEquals(HttpStatus.NO_CONTENT, controller.delete("secret", "acme").getStatusCode());
+    }
+
+    @Test
+    void save_ShouldBeRefused_WhenNoTokenIsConfigured() throws IOException {
+        PresetController controller = new PresetController(registry, "");
+
+        assertEquals(HttpStatus.FORBIDDEN, controller.save("", "acme", "000000", "FFFFFF", null).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, controller.delete("", "acme").getStatusCode());
+    }
+}
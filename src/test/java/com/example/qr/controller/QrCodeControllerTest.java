@@ -1,17 +1,33 @@
 package com.example.qr.controller;
 
+import com.example.qr.service.PreparedStyle;
+import com.example.qr.service.PresetRegistry;
+import com.example.qr.service.PrintImage;
 import com.example.qr.service.QrCodeService;
+import com.example.qr.service.RenderCapacityException;
+import com.example.qr.service.RenderTier;
+import com.example.qr.service.RenderedCode;
+import com.example.qr.shortlink.ShortLinkStore;
+import com.example.qr.shortlink.ShortLinkStoreFullException;
 import org.apache.batik.transcoder.TranscoderException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,11 +38,15 @@ class QrCodeControllerTest {
 
     private QrCodeController qrCodeController;
     private QrCodeService qrCodeService;
+    private PresetRegistry presetRegistry;
+    private ShortLinkStore shortLinkStore;
 
     @BeforeEach
     void setUp() {
         qrCodeService = mock(QrCodeService.class);
-        qrCodeController = new QrCodeController(qrCodeService);
+        presetRegistry = mock(PresetRegistry.class);
+        shortLinkStore = mock(ShortLinkStore.class);
+        qrCodeController = new QrCodeController(qrCodeService, presetRegistry, shortLinkStore);
     }
 
     @Test
@@ -40,9 +60,9 @@ class QrCodeControllerTest {
     void generateQrCode_ShouldReturnOk_WhenServiceSucceeds() throws IOException, TranscoderException {
         String testData = "https://example.com";
         byte[] mockQrCode = new byte[]{1, 2, 3, 4, 5};
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
         assertAll(
             () -> assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK"),
@@ -51,87 +71,87 @@ class QrCodeControllerTest {
             () -> assertArrayEquals(mockQrCode, response.getBody(), "Response body should match mock data"),
             () -> assertEquals(mockQrCode.length, response.getHeaders().getContentLength(), "Content length should match")
         );
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldReturnInternalServerError_WhenServiceThrowsIOException() throws IOException, TranscoderException {
         String testData = "https://example.com";
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenThrow(new IOException("Test exception"));
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenThrow(new IOException("Test exception"));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode(), "Status should be INTERNAL_SERVER_ERROR");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldReturnInternalServerError_WhenServiceThrowsTranscoderException() throws IOException, TranscoderException {
         String testData = "https://example.com";
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenThrow(new TranscoderException("Test exception"));
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenThrow(new TranscoderException("Test exception"));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode(), "Status should be INTERNAL_SERVER_ERROR");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldReturnBadRequest_WhenServiceThrowsIllegalArgumentException() throws IOException, TranscoderException {
         String testData = "";
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenThrow(new IllegalArgumentException("QR code data cannot be null or empty"));
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenThrow(new IllegalArgumentException("QR code data cannot be null or empty"));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldWorkWithValidData() throws IOException, TranscoderException {
         String testData = "test-data";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
         assertNotNull(response.getBody(), "Response body should not be null");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldAcceptCustomColors() throws IOException, TranscoderException {
         String testData = "test";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(testData, "FF0000", "00FF00", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "FF0000", "00FF00", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "FF0000", "00FF00", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "FF0000", "00FF00", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
         assertNotNull(response.getBody(), "Response body should not be null");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "FF0000", "00FF00", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "FF0000", "00FF00", null);
     }
 
     @Test
     void generateQrCode_ShouldHandleLongData() throws IOException, TranscoderException {
         String longData = "a".repeat(1000);
         byte[] mockQrCode = new byte[]{1, 2, 3, 4, 5};
-        when(qrCodeService.generateQrCodeWithLogo(longData, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(longData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(longData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(longData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(longData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(longData, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldSetCorrectContentTypeInHeaders() throws IOException, TranscoderException {
         String testData = "test";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(MediaType.IMAGE_PNG, response.getHeaders().getContentType(), "Content type should be IMAGE_PNG");
     }
@@ -140,9 +160,9 @@ class QrCodeControllerTest {
     void generateQrCode_ShouldSetCorrectContentLengthInHeaders() throws IOException, TranscoderException {
         String testData = "test";
         byte[] mockQrCode = new byte[]{1, 2, 3, 4, 5};
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(5, response.getHeaders().getContentLength(), "Content length should be 5");
     }
@@ -151,11 +171,11 @@ class QrCodeControllerTest {
     void generateQrCode_ShouldCallServiceWithCorrectData() throws IOException, TranscoderException {
         String testData = "test-data";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
-        verify(qrCodeService).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
         verifyNoMoreInteractions(qrCodeService);
     }
 
@@ -170,12 +190,12 @@ class QrCodeControllerTest {
         String testData = "test";
         byte[] mockQrCode = new byte[]{1, 2, 3};
         MockMultipartFile logoFile = new MockMultipartFile("logo", filename, contentType, content.getBytes());
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
     }
 
     @Test
@@ -189,7 +209,7 @@ class QrCodeControllerTest {
                 largeContent
         );
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST for oversized file");
         verifyNoInteractions(qrCodeService);
@@ -205,7 +225,7 @@ class QrCodeControllerTest {
                 "not an image".getBytes()
         );
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST for invalid file type");
         verifyNoInteractions(qrCodeService);
@@ -221,7 +241,7 @@ class QrCodeControllerTest {
                 "fake bmp".getBytes()
         );
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST for invalid extension");
         verifyNoInteractions(qrCodeService);
@@ -237,7 +257,7 @@ class QrCodeControllerTest {
                 "fake png".getBytes()
         );
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST for null filename");
         verifyNoInteractions(qrCodeService);
@@ -253,7 +273,7 @@ class QrCodeControllerTest {
                 "fake png".getBytes()
         );
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST for empty filename");
         verifyNoInteractions(qrCodeService);
@@ -269,12 +289,12 @@ class QrCodeControllerTest {
                 "image/jpeg",
                 "fake jpeg".getBytes()
         );
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for .jpeg extension");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
     }
 
     @Test
@@ -287,12 +307,12 @@ class QrCodeControllerTest {
                 "image/png",
                 "fake png".getBytes()
         );
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for uppercase extension");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
     }
 
     @Test
@@ -305,60 +325,60 @@ class QrCodeControllerTest {
                 "image/jpeg",
                 "fake jpeg".getBytes()
         );
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for mixed case extension");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
     }
 
     @Test
     void generateQrCode_ShouldHandleColorWithHashPrefix() throws IOException, TranscoderException {
         String testData = "test";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(testData, "#FF0000", "#00FF00", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "#FF0000", "#00FF00", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "#FF0000", "#00FF00", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "#FF0000", "#00FF00", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for colors with # prefix");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "#FF0000", "#00FF00", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "#FF0000", "#00FF00", null);
     }
 
     @Test
     void generateQrCode_ShouldHandleColorWithLowercase() throws IOException, TranscoderException {
         String testData = "test";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(testData, "ff0000", "00ff00", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "ff0000", "00ff00", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "ff0000", "00ff00", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "ff0000", "00ff00", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for lowercase colors");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "ff0000", "00ff00", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "ff0000", "00ff00", null);
     }
 
     @Test
     void generateQrCode_ShouldHandleComplexUrl() throws IOException, TranscoderException {
         String complexUrl = "https://example.com/path?param1=value1&param2=value2#fragment";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(complexUrl, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(complexUrl, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(complexUrl, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(complexUrl, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for complex URL");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(complexUrl, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(complexUrl, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldHandleSpecialCharacters() throws IOException, TranscoderException {
         String dataWithSpecialChars = "Test!@#$%^&*()_+-=[]{}|;':\"<>?,./~`";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(dataWithSpecialChars, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(dataWithSpecialChars, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(dataWithSpecialChars, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(dataWithSpecialChars, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for special characters");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(dataWithSpecialChars, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(dataWithSpecialChars, "5DADE2", "FFFFFF", null);
     }
 
     @Test
@@ -372,12 +392,12 @@ class QrCodeControllerTest {
                 "image/png",
                 exactlyFiveMB
         );
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for exactly 5MB file");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
     }
 
     @Test
@@ -391,7 +411,7 @@ class QrCodeControllerTest {
                 slightlyOverFiveMB
         );
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST for file > 5MB");
         verifyNoInteractions(qrCodeService);
@@ -407,7 +427,7 @@ class QrCodeControllerTest {
                 "fake png".getBytes()
         );
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST for null content type");
         verifyNoInteractions(qrCodeService);
@@ -417,24 +437,24 @@ class QrCodeControllerTest {
     void generateQrCode_ShouldHandleMultilineData() throws IOException, TranscoderException {
         String multilineData = "Line 1\nLine 2\nLine 3";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(multilineData, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(multilineData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(multilineData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(multilineData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for multiline data");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(multilineData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(multilineData, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldHandleUnicodeData() throws IOException, TranscoderException {
         String unicodeData = "Hello 世界 🌍";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(unicodeData, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(unicodeData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(unicodeData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(unicodeData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for unicode data");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(unicodeData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(unicodeData, "5DADE2", "FFFFFF", null);
     }
 
     @Test
@@ -447,7 +467,7 @@ class QrCodeControllerTest {
                 new byte[6 * 1024 * 1024]
         );
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", oversizedFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", oversizedFile, false);
 
         assertAll(
                 () -> assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode()),
@@ -460,12 +480,12 @@ class QrCodeControllerTest {
     void generateQrCode_ShouldHandleVeryLongData() throws IOException, TranscoderException {
         String veryLongData = "a".repeat(4000);
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(veryLongData, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(veryLongData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(veryLongData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(veryLongData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for very long data");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(veryLongData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(veryLongData, "5DADE2", "FFFFFF", null);
     }
 
     @Test
@@ -479,12 +499,12 @@ class QrCodeControllerTest {
                 new byte[0]
         );
         // Empty file is passed to service - use any() matcher since MockMultipartFile doesn't implement equals properly
-        when(qrCodeService.generateQrCodeWithLogo(eq(testData), eq("5DADE2"), eq("FFFFFF"), any())).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(eq(testData), eq("5DADE2"), eq("FFFFFF"), any())).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", emptyFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", emptyFile, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for empty file");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(eq(testData), eq("5DADE2"), eq("FFFFFF"), any());
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(eq(testData), eq("5DADE2"), eq("FFFFFF"), any());
     }
 
     @Test
@@ -497,7 +517,7 @@ class QrCodeControllerTest {
                 "fake png".getBytes()
         );
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST for file without extension");
         verifyNoInteractions(qrCodeService);
@@ -513,7 +533,7 @@ class QrCodeControllerTest {
                 "fake bmp".getBytes()
         );
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST for invalid extension");
         verifyNoInteractions(qrCodeService);
@@ -529,12 +549,12 @@ class QrCodeControllerTest {
                 "image/png",
                 "fake png".getBytes()
         );
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for valid extension despite multiple dots");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
     }
 
     @Test
@@ -547,7 +567,7 @@ class QrCodeControllerTest {
                 "fake png".getBytes()
         );
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST for hidden file without proper extension");
         verifyNoInteractions(qrCodeService);
@@ -564,12 +584,12 @@ class QrCodeControllerTest {
                 "image/png",
                 "fake png".getBytes()
         );
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for very long filename with valid extension");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
     }
 
     @Test
@@ -582,12 +602,12 @@ class QrCodeControllerTest {
                 "image/png",
                 "fake png".getBytes()
         );
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for filename with spaces");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
     }
 
     @Test
@@ -600,12 +620,12 @@ class QrCodeControllerTest {
                 "image/png",
                 "fake png".getBytes()
         );
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for filename with special characters");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
     }
 
     @Test
@@ -619,12 +639,12 @@ class QrCodeControllerTest {
                 "image/png",
                 justUnderFiveMB
         );
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for file just under 5MB");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
     }
 
     @Test
@@ -637,12 +657,12 @@ class QrCodeControllerTest {
                 "image/svg+xml",
                 "<svg></svg>".getBytes()
         );
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for SVG with correct content type");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
     }
 
     @Test
@@ -655,7 +675,7 @@ class QrCodeControllerTest {
                 "fake gif".getBytes()
         );
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST for GIF format");
         verifyNoInteractions(qrCodeService);
@@ -671,7 +691,7 @@ class QrCodeControllerTest {
                 "fake webp".getBytes()
         );
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", logoFile, false);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST for WebP format");
         verifyNoInteractions(qrCodeService);
@@ -682,84 +702,84 @@ class QrCodeControllerTest {
     void generateQrCode_ShouldHandleWhitespaceInData() throws IOException, TranscoderException {
         String testData = "   data with spaces   ";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for data with whitespace");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldHandleJsonData() throws IOException, TranscoderException {
         String jsonData = "{\"name\":\"John\",\"age\":30,\"city\":\"New York\"}";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(jsonData, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(jsonData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(jsonData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(jsonData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for JSON data");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(jsonData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(jsonData, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldHandlePhoneNumberUri() throws IOException, TranscoderException {
         String phoneUri = "tel:+1-234-567-8900";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(phoneUri, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(phoneUri, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(phoneUri, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(phoneUri, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for phone URI");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(phoneUri, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(phoneUri, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldHandleEmailUri() throws IOException, TranscoderException {
         String emailUri = "mailto:test@example.com?subject=Hello&body=Test";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(emailUri, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(emailUri, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(emailUri, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(emailUri, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for email URI");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(emailUri, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(emailUri, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldHandleWifiConfiguration() throws IOException, TranscoderException {
         String wifiConfig = "WIFI:T:WPA;S:NetworkName;P:password123;;";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(wifiConfig, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(wifiConfig, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(wifiConfig, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(wifiConfig, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for WiFi configuration");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(wifiConfig, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(wifiConfig, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldHandleSmsUri() throws IOException, TranscoderException {
         String smsUri = "SMSTO:+1234567890:Hello World";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(smsUri, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(smsUri, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(smsUri, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(smsUri, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for SMS URI");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(smsUri, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(smsUri, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldHandleGeoLocation() throws IOException, TranscoderException {
         String geoUri = "geo:37.7749,-122.4194";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(geoUri, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(geoUri, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(geoUri, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(geoUri, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for geo location");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(geoUri, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(geoUri, "5DADE2", "FFFFFF", null);
     }
 
     @Test
@@ -772,7 +792,7 @@ class QrCodeControllerTest {
                 "not an image".getBytes()
         );
 
-        qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", invalidFile);
+        qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", invalidFile, false);
 
         verifyNoInteractions(qrCodeService);
     }
@@ -781,9 +801,9 @@ class QrCodeControllerTest {
     void generateQrCode_ShouldHandleServiceReturningEmptyArray() throws IOException, TranscoderException {
         String testData = "test";
         byte[] emptyQrCode = new byte[0];
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(emptyQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(emptyQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
         assertAll(
                 () -> assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK"),
@@ -801,9 +821,9 @@ class QrCodeControllerTest {
     void generateQrCode_ShouldHandleLargeQrCodeResponse() throws IOException, TranscoderException {
         String testData = "test";
         byte[] largeQrCode = new byte[1024 * 1024]; // 1MB
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(largeQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(largeQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
         assertAll(
                 () -> assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK"),
@@ -822,12 +842,12 @@ class QrCodeControllerTest {
         String testData = "test";
         byte[] mockQrCode = new byte[]{1, 2, 3};
         // When backgroundColor is not provided, it defaults to "FFFFFF"
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK with default background color");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
     }
 
     @Test
@@ -835,12 +855,12 @@ class QrCodeControllerTest {
         String testData = "test";
         byte[] mockQrCode = new byte[]{1, 2, 3};
         // When foregroundColor is not provided, it defaults to "5DADE2"
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK with default foreground color");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null);
     }
 
     @ParameterizedTest(name = "Should accept valid hex colors: fg={0}, bg={1}")
@@ -854,45 +874,45 @@ class QrCodeControllerTest {
     void generateQrCode_ShouldAcceptVariousValidHexColors(String fg, String bg) throws IOException, TranscoderException {
         String testData = "test";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(testData, fg, bg, null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(testData, fg, bg, null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, fg, bg, null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, fg, bg, null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for valid hex colors");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(testData, fg, bg, null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(testData, fg, bg, null);
     }
 
     @Test
     void generateQrCode_ShouldHandleNumericOnlyData() throws IOException, TranscoderException {
         String numericData = "1234567890";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(numericData, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(numericData, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(numericData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(numericData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for numeric data");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(numericData, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(numericData, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldHandleSingleCharacterData() throws IOException, TranscoderException {
         String singleChar = "A";
         byte[] mockQrCode = new byte[]{1, 2, 3};
-        when(qrCodeService.generateQrCodeWithLogo(singleChar, "5DADE2", "FFFFFF", null)).thenReturn(mockQrCode);
+        when(qrCodeService.renderQrCodeWithLogo(singleChar, "5DADE2", "FFFFFF", null)).thenReturn(rendered(mockQrCode));
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(singleChar, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(singleChar, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK for single character");
-        verify(qrCodeService, times(1)).generateQrCodeWithLogo(singleChar, "5DADE2", "FFFFFF", null);
+        verify(qrCodeService, times(1)).renderQrCodeWithLogo(singleChar, "5DADE2", "FFFFFF", null);
     }
 
     @Test
     void generateQrCode_ShouldLogErrorMessageOnIOException() throws IOException, TranscoderException {
         String testData = "test";
         IOException testException = new IOException("Test IO error");
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenThrow(testException);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenThrow(testException);
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode(), "Status should be INTERNAL_SERVER_ERROR");
         assertNull(response.getBody(), "Body should be null on error");
@@ -902,11 +922,172 @@ class QrCodeControllerTest {
     void generateQrCode_ShouldLogErrorMessageOnTranscoderException() throws IOException, TranscoderException {
         String testData = "test";
         TranscoderException testException = new TranscoderException("Test transcoder error");
-        when(qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenThrow(testException);
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null)).thenThrow(testException);
 
-        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null);
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode(), "Status should be INTERNAL_SERVER_ERROR");
         assertNull(response.getBody(), "Body should be null on error");
     }
+
+    @Test
+    void generateQrCode_ShouldReturnServiceUnavailable_WhenRendererIsSaturated() throws IOException, TranscoderException {
+        String testData = "test";
+        when(qrCodeService.renderQrCodeWithLogo(testData, "5DADE2", "FFFFFF", null))
+                .thenThrow(new RenderCapacityException("SVG logo renderer is saturated"));
+
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode(testData, "5DADE2", "FFFFFF", null, false);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode(), "Status should be SERVICE_UNAVAILABLE");
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER), "Should ask the client to retry");
+    }
+
+    @Test
+    void generateQrCodeWithPreset_ShouldRenderWithPreparedStyle() throws IOException {
+        PreparedStyle style = new PreparedStyle(0xFF000000, 0xFFFFFFFF, null);
+        byte[] mockQrCode = new byte[]{1, 2, 3};
+        when(presetRegistry.findStyle("tenant-a")).thenReturn(Optional.of(style));
+        when(qrCodeService.renderQrCode("test", style)).thenReturn(rendered(mockQrCode));
+
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCodeWithPreset("test", "tenant-a", false);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
+        assertArrayEquals(mockQrCode, response.getBody(), "Response body should match mock data");
+        assertEquals(MediaType.IMAGE_PNG, response.getHeaders().getContentType(), "Content type should be PNG");
+    }
+
+    @Test
+    void generateQrCode_ShouldReportTheRenderTier_WhenTimingIsDisabled() throws IOException, TranscoderException {
+        // With qr.timing.enabled=false the timing filter never starts a trace, as in this test
+        byte[] mockQrCode = new byte[]{1, 2, 3};
+        when(qrCodeService.renderQrCodeWithLogo("test", "5DADE2", "FFFFFF", null))
+                .thenReturn(new RenderedCode(mockQrCode, RenderTier.FAST_DEFLATE));
+
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCode("test", "5DADE2", "FFFFFF", null, false);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
+        assertEquals("fast-deflate", response.getHeaders().getFirst(QrCodeController.RENDER_TIER_HEADER),
+                     "The tier should be reported without a trace");
+        assertNull(response.getHeaders().getFirst("Server-Timing"), "No stages should be reported without a trace");
+    }
+
+    @Test
+    void generateQrCodeWithPreset_ShouldReportTheRenderTier() throws IOException {
+        PreparedStyle style = new PreparedStyle(0xFF000000, 0xFFFFFFFF, null);
+        when(presetRegistry.findStyle("tenant-a")).thenReturn(Optional.of(style));
+        when(qrCodeService.renderQrCode("test", style))
+                .thenReturn(new RenderedCode(new byte[]{1, 2, 3}, RenderTier.FULL));
+
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCodeWithPreset("test", "tenant-a", false);
+
+        assertEquals("full", response.getHeaders().getFirst(QrCodeController.RENDER_TIER_HEADER));
+    }
+
+    @Test
+    void generateQrCodeWithPreset_ShouldReturnNotFound_WhenPresetIsUnknown() {
+        when(presetRegistry.findStyle("missing")).thenReturn(Optional.empty());
+
+        ResponseEntity<byte[]> response = qrCodeController.generateQrCodeWithPreset("test", "missing", false);
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode(), "Status should be NOT_FOUND");
+        verifyNoInteractions(qrCodeService);
+    }
+
+    @Test
+    void generatePrintQrCode_ShouldStreamPreparedImage() throws IOException, TranscoderException {
+        PrintImage print = mock(PrintImage.class);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(new byte[]{1, 2, 3});
+            return null;
+        }).when(print).writePng(any());
+        when(qrCodeService.preparePrint("test", "5DADE2", "FFFFFF", null, null, 4000, 300)).thenReturn(print);
+
+        ResponseEntity<StreamingResponseBody> response =
+                qrCodeController.generatePrintQrCode("test", "5DADE2", "FFFFFF", 4000, 300, null);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
+        assertEquals(MediaType.IMAGE_PNG, response.getHeaders().getContentType(), "Content type should be PNG");
+        assertArrayEquals(new byte[]{1, 2, 3}, body.toByteArray(), "Body should be written by the print image");
+    }
+
+    @Test
+    void generatePrintQrCode_ShouldReturnBadRequest_WhenSizeIsOutOfRange() throws IOException, TranscoderException {
+        when(qrCodeService.preparePrint("test", "5DADE2", "FFFFFF", null, null, 20000, 300))
+                .thenThrow(new IllegalArgumentException("Print size must be between 400 and 10000 pixels"));
+
+        ResponseEntity<StreamingResponseBody> response =
+                qrCodeController.generatePrintQrCode("test", "5DADE2", "FFFFFF", 20000, 300, null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST");
+        assertNull(response.getBody(), "Body should be null on error");
+    }
+
+    @Test
+    void generateQrCode_ShouldEncodeShortLink_WhenRequested() throws IOException, TranscoderException {
+        String longUrl = "https://example.com/campaign?utm_source=print&utm_medium=poster&utm_campaign=autumn";
+        byte[] expected = "qr-image".getBytes();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        try {
+            when(shortLinkStore.shorten(longUrl)).thenReturn("AB12CD3");
+            when(shortLinkStore.shortUrl("AB12CD3", "http://localhost")).thenReturn("HTTP://LOCALHOST/R/AB12CD3");
+            when(qrCodeService.renderQrCodeWithLogo("HTTP://LOCALHOST/R/AB12CD3", "5DADE2", "FFFFFF", null))
+                    .thenReturn(rendered(expected));
+
+            ResponseEntity<byte[]> response = qrCodeController.generateQrCode(longUrl, "5DADE2", "FFFFFF", null, true);
+
+            assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
+            assertArrayEquals(expected, response.getBody(), "Body should be the short-link code");
+            assertEquals("HTTP://LOCALHOST/R/AB12CD3",
+                         response.getHeaders().getFirst(QrCodeController.SHORT_LINK_HEADER),
+                         "Short URL should be reported in a header");
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    @Test
+    void generateQrCode_ShouldReturnInsufficientStorage_WhenShortLinkStoreIsFull() throws IOException {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        try {
+            when(presetRegistry.findStyle("tenant-a"))
+                    .thenReturn(Optional.of(new PreparedStyle(0xFF000000, 0xFFFFFFFF, null)));
+            when(shortLinkStore.shorten("https://example.com/new"))
+                    .thenThrow(new ShortLinkStoreFullException("Short link store is full (100000 links)"));
+
+            ResponseEntity<byte[]> response =
+                    qrCodeController.generateQrCode("https://example.com/new", "5DADE2", "FFFFFF", null, true);
+            ResponseEntity<byte[]> presetResponse =
+                    qrCodeController.generateQrCodeWithPreset("https://example.com/new", "tenant-a", true);
+
+            assertEquals(HttpStatus.INSUFFICIENT_STORAGE, response.getStatusCode(),
+                         "Status should be INSUFFICIENT_STORAGE");
+            assertEquals(HttpStatus.INSUFFICIENT_STORAGE, presetResponse.getStatusCode(),
+                         "Status should be INSUFFICIENT_STORAGE for presets too");
+            verifyNoInteractions(qrCodeService);
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    @Test
+    void generateQrCode_ShouldReturnBadRequest_WhenShortLinkTargetIsNotAUrl() throws IOException {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        try {
+            when(shortLinkStore.shorten("plain text"))
+                    .thenThrow(new IllegalArgumentException("Short links only accept absolute http or https URLs"));
+
+            ResponseEntity<byte[]> response = qrCodeController.generateQrCode("plain text", "5DADE2", "FFFFFF", null, true);
+
+            assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST");
+            verifyNoInteractions(qrCodeService);
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private static RenderedCode rendered(byte[] png) {
+        return new RenderedCode(png, RenderTier.FULL);
+    }
 }
@@ -0,0 +1,68 @@
+package com.example.qr.controller;
+
+import com.example.qr.cache.LocalRenderCache;
+import com.example.qr.cache.RenderCacheProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderCacheControllerTest {
+
+    private static final String KEY = "a".repeat(64);
+
+    private final LocalRenderCache cache = new LocalRenderCache(1 << 20);
+
+    @Test
+    void putAndGet_ShouldStoreImagesInTheLocalCache() {
+        RenderCacheController controller = controller(List.of("http://a", "http://b"), "secret");
+
+        assertEquals(HttpStatus.NOT_FOUND, controller.getImage(KEY, "secret").getStatusCode());
+        assertEquals(HttpStatus.NO_CONTENT, controller.putImage(KEY, "secret", new byte[]{1, 2}).getStatusCode());
+
+        ResponseEntity<byte[]> response = controller.getImage(KEY, "secret");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertArrayEquals(new byte[]{1, 2}, response.getBody());
+    }
+
+    @Test
+    void getImage_ShouldReturnForbidden_WhenTokenIsWrong() {
+        RenderCacheController controller = controller(List.of("http://a", "http://b"), "secret");
+
+        assertEquals(HttpStatus.FORBIDDEN, controller.getImage(KEY, null).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, controller.putImage(KEY, "guess", new byte[]{1}).getStatusCode());
+    }
+
+    @Test
+    void getImage_ShouldReturnBadRequest_WhenKeyIsMalformed() {
+        RenderCacheController controller = controller(List.of("http://a", "http://b"), "secret");
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.getImage("../etc", "secret").getStatusCode());
+    }
+
+    @Test
+    void properties_ShouldRequireAPeerToken_WhenClustered() {
+        assertThrows(IllegalArgumentException.class, () -> controller(List.of("http://a", "http://b"), null));
+        assertThrows(IllegalArgumentException.class, () -> controller(List.of("http://a", "http://b"), " "));
+    }
+
+    @Test
+    void getImage_ShouldReturnNotFound_WhenCacheIsNotClustered() {
+        cache.put(KEY, new byte[]{1});
+        RenderCacheController controller = controller(List.of(), null);
+
+        assertEquals(HttpStatus.NOT_FOUND, controller.getImage(KEY, null).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.putImage(KEY, null, new byte[]{1}).getStatusCode());
+    }
+
+    private RenderCacheController controller(List<String> members, String token) {
+        RenderCacheProperties properties = new RenderCacheProperties(true, 1 << 20, "http://a", members, token,
+                                                                     Duration.ofMillis(200), Duration.ofMillis(500),
+                                                                     Duration.ofSeconds(10), 128, 20);
+        return new RenderCacheController(cache, properties);
+    }
+}
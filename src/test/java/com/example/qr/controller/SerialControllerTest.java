@@ -0,0 +1,100 @@
+package com.example.qr.controller;
+
+import com.example.qr.model.SerialRange;
+import com.example.qr.model.SerialRunRequest;
+import com.example.qr.service.PreparedStyle;
+import com.example.qr.service.PresetRegistry;
+import com.example.qr.service.QrCodeService;
+import com.example.qr.service.RenderCapacityException;
+import com.example.qr.service.SerialRun;
+import org.apache.batik.transcoder.TranscoderException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SerialControllerTest {
+
+    private static final PreparedStyle STYLE = new PreparedStyle(0xFF000000, 0xFFFFFFFF, null);
+
+    private SerialController serialController;
+    private QrCodeService qrCodeService;
+    private PresetRegistry presetRegistry;
+
+    @BeforeEach
+    void setUp() throws IOException, TranscoderException {
+        qrCodeService = mock(QrCodeService.class);
+        presetRegistry = mock(PresetRegistry.class);
+        serialController = new SerialController(qrCodeService, presetRegistry);
+        when(qrCodeService.prepareStyle("5DADE2", "FFFFFF", null, null)).thenReturn(STYLE);
+    }
+
+    @Test
+    void generateSerials_ShouldStreamZipPaddedToTheLastNumber() throws IOException {
+        SerialRun run = mock(SerialRun.class);
+        when(run.count()).thenReturn(240L);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(new byte[]{'P', 'K'});
+            return null;
+        }).when(run).writeZip(any());
+        when(qrCodeService.prepareSerialRun(new SerialRange("ASSET-", 1, 250, 3), null, 10, STYLE)).thenReturn(run);
+
+        ResponseEntity<StreamingResponseBody> response = serialController.generateSerials(
+                new SerialRunRequest("ASSET-", 1L, 250L, null, null, 10L, null, null, null));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
+        assertEquals("application/zip", response.getHeaders().getContentType().toString());
+        assertEquals("240", response.getHeaders().getFirst(SerialController.COUNT_HEADER));
+        assertEquals("10", response.getHeaders().getFirst(SerialController.OFFSET_HEADER));
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+        assertArrayEquals(new byte[]{'P', 'K'}, body.toByteArray(), "Body should be the archive");
+    }
+
+    @Test
+    void generateSerials_ShouldReturnBadRequest_WhenRangeIsInvalid() {
+        ResponseEntity<StreamingResponseBody> missing = serialController.generateSerials(
+                new SerialRunRequest("A", 1L, null, null, null, null, null, null, null));
+        ResponseEntity<StreamingResponseBody> reversed = serialController.generateSerials(
+                new SerialRunRequest("A", 9L, 1L, null, null, null, null, null, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, missing.getStatusCode(), "Status should be BAD_REQUEST");
+        assertEquals(HttpStatus.BAD_REQUEST, reversed.getStatusCode(), "Status should be BAD_REQUEST");
+        verifyNoMoreInteractions(presetRegistry);
+    }
+
+    @Test
+    void generateSerials_ShouldReturnNotFound_WhenPresetIsUnknown() {
+        when(presetRegistry.findStyle("missing")).thenReturn(Optional.empty());
+
+        ResponseEntity<StreamingResponseBody> response = serialController.generateSerials(
+                new SerialRunRequest("A", 1L, 5L, null, null, null, "missing", null, null));
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode(), "Status should be NOT_FOUND");
+    }
+
+    @Test
+    void generateSerials_ShouldReturnServiceUnavailable_WhenOverCapacity() throws IOException, TranscoderException {
+        when(qrCodeService.prepareStyle("000000", "FFFFFF", null, null)).thenReturn(STYLE);
+        when(qrCodeService.prepareSerialRun(any(), eq("svg"), eq(0L), eq(STYLE)))
+                .thenThrow(new RenderCapacityException("budget"));
+
+        ResponseEntity<StreamingResponseBody> response = serialController.generateSerials(
+                new SerialRunRequest("A", 1L, 5L, 2, "svg", null, null, "000000", null));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.qr.controller;
+
+import com.example.qr.shortlink.ShortLinkStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ShortLinkControllerTest {
+
+    private final ShortLinkStore shortLinkStore = mock(ShortLinkStore.class);
+    private final ShortLinkController shortLinkController = new ShortLinkController(shortLinkStore);
+
+    @Test
+    void redirect_ShouldSendClientToStoredUrl() {
+        when(shortLinkStore.resolve("AB12CD3")).thenReturn(Optional.of("https://example.com/long?x=1"));
+
+        ResponseEntity<Void> response = shortLinkController.redirect("AB12CD3");
+
+        assertEquals(HttpStatus.FOUND, response.getStatusCode(), "Status should be FOUND");
+        assertEquals("https://example.com/long?x=1", response.getHeaders().getFirst(HttpHeaders.LOCATION));
+    }
+
+    @Test
+    void redirect_ShouldReturnNotFound_WhenKeyIsUnknown() {
+        when(shortLinkStore.resolve("ZZZZZZZ")).thenReturn(Optional.empty());
+
+        ResponseEntity<Void> response = shortLinkController.redirect("ZZZZZZZ");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode(), "Status should be NOT_FOUND");
+    }
+}
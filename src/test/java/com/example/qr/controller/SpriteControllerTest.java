@@ -0,0 +1,103 @@
+package com.example.qr.controller;
+
+import com.example.qr.model.SpriteIndex;
+import com.example.qr.model.SpriteSheetRequest;
+import com.example.qr.service.PreparedStyle;
+import com.example.qr.service.PresetRegistry;
+import com.example.qr.service.QrCodeService;
+import com.example.qr.service.SpriteSheet;
+import org.apache.batik.transcoder.TranscoderException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SpriteControllerTest {
+
+    private static final List<String> PAYLOADS = List.of("a", "b");
+    private static final PreparedStyle STYLE = new PreparedStyle(0xFF000000, 0xFFFFFFFF, null);
+
+    private SpriteController spriteController;
+    private QrCodeService qrCodeService;
+    private PresetRegistry presetRegistry;
+
+    @BeforeEach
+    void setUp() throws IOException, TranscoderException {
+        qrCodeService = mock(QrCodeService.class);
+        presetRegistry = mock(PresetRegistry.class);
+        spriteController = new SpriteController(qrCodeService, presetRegistry);
+        when(qrCodeService.prepareStyle("5DADE2", "FFFFFF", null, null)).thenReturn(STYLE);
+    }
+
+    @Test
+    void generateSpriteSheet_ShouldReturnPng() throws IOException {
+        SpriteSheet sheet = mock(SpriteSheet.class);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(new byte[]{1, 2, 3});
+            return null;
+        }).when(sheet).writePng(any());
+        when(qrCodeService.prepareSpriteSheet(PAYLOADS, 2, 100, STYLE)).thenReturn(sheet);
+
+        ResponseEntity<byte[]> response = spriteController.generateSpriteSheet(
+                new SpriteSheetRequest(PAYLOADS, 2, 100, null, null, null));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
+        assertEquals(MediaType.IMAGE_PNG, response.getHeaders().getContentType(), "Content type should be PNG");
+        assertArrayEquals(new byte[]{1, 2, 3}, response.getBody(), "Body should be the rendered sheet");
+    }
+
+    @Test
+    void getSpriteIndex_ShouldReturnTileCoordinates() {
+        SpriteIndex index = new SpriteIndex(200, 100, 100, 2, List.of(new SpriteIndex.Tile(0, "a", 0, 0),
+                                                                       new SpriteIndex.Tile(1, "b", 100, 0)));
+        when(qrCodeService.prepareSpriteIndex(PAYLOADS, null, null)).thenReturn(index);
+
+        ResponseEntity<SpriteIndex> response = spriteController.getSpriteIndex(
+                new SpriteSheetRequest(PAYLOADS, null, null, null, null, null));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
+        assertEquals(index, response.getBody(), "Body should be the sprite index");
+        verify(qrCodeService, never()).prepareSpriteSheet(any(), any(), any(), any());
+    }
+
+    @Test
+    void getSpriteIndex_ShouldReturnNotFound_WhenPresetIsUnknown() {
+        when(presetRegistry.get("missing")).thenReturn(Optional.empty());
+
+        ResponseEntity<SpriteIndex> response = spriteController.getSpriteIndex(
+                new SpriteSheetRequest(PAYLOADS, null, null, null, null, "missing"));
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode(), "Status should be NOT_FOUND");
+    }
+
+    @Test
+    void generateSpriteSheet_ShouldReturnNotFound_WhenPresetIsUnknown() {
+        when(presetRegistry.findStyle("missing")).thenReturn(Optional.empty());
+
+        ResponseEntity<byte[]> response = spriteController.generateSpriteSheet(
+                new SpriteSheetRequest(PAYLOADS, null, null, null, null, "missing"));
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode(), "Status should be NOT_FOUND");
+    }
+
+    @Test
+    void generateSpriteSheet_ShouldReturnBadRequest_WhenRequestIsInvalid() {
+        when(qrCodeService.prepareSpriteSheet(List.of(), null, null, STYLE))
+                .thenThrow(new IllegalArgumentException("Sprite sheet needs at least one payload"));
+
+        ResponseEntity<byte[]> response = spriteController.generateSpriteSheet(
+                new SpriteSheetRequest(List.of(), null, null, null, null, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST");
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.qr.controller;
+
+import com.example.qr.model.VariantSetRequest;
+import com.example.qr.service.PreparedStyle;
+import com.example.qr.service.PresetRegistry;
+import com.example.qr.service.QrCodeService;
+import com.example.qr.service.RenderCapacityException;
+import com.example.qr.service.VariantSet;
+import org.apache.batik.transcoder.TranscoderException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class VariantControllerTest {
+
+    private static final PreparedStyle STYLE = new PreparedStyle(0xFF000000, 0xFFFFFFFF, null);
+    private static final List<Integer> SIZES = List.of(128, 256);
+
+    private VariantController variantController;
+    private QrCodeService qrCodeService;
+    private PresetRegistry presetRegistry;
+
+    @BeforeEach
+    void setUp() throws IOException, TranscoderException {
+        qrCodeService = mock(QrCodeService.class);
+        presetRegistry = mock(PresetRegistry.class);
+        variantController = new VariantController(qrCodeService, presetRegistry);
+        when(qrCodeService.prepareStyle("5DADE2", "FFFFFF", null, null)).thenReturn(STYLE);
+    }
+
+    @Test
+    void generateVariants_ShouldReturnZip() throws IOException {
+        VariantSet variants = mock(VariantSet.class);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(new byte[]{'P', 'K'});
+            return null;
+        }).when(variants).writeZip(any());
+        when(qrCodeService.prepareVariants("data", SIZES, null, null, STYLE)).thenReturn(variants);
+
+        ResponseEntity<StreamingResponseBody> response = variantController.generateVariants(
+                new VariantSetRequest("data", SIZES, null, null, null));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status should be OK");
+        assertEquals("application/zip", response.getHeaders().getContentType().toString());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+        assertArrayEquals(new byte[]{'P', 'K'}, body.toByteArray(), "Body should be the archive");
+    }
+
+    @Test
+    void generateVariants_ShouldReturnNotFound_WhenPresetIsUnknown() {
+        when(presetRegistry.findStyle("missing")).thenReturn(Optional.empty());
+
+        ResponseEntity<StreamingResponseBody> response = variantController.generateVariants(
+                new VariantSetRequest("data", SIZES, null, null, "missing"));
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode(), "Status should be NOT_FOUND");
+    }
+
+    @Test
+    void generateVariants_ShouldReturnBadRequest_WhenVariantsAreInvalid() {
+        when(qrCodeService.prepareVariants("data", List.of(), null, null, STYLE))
+                .thenThrow(new IllegalArgumentException("Variants need at least one size"));
+
+        ResponseEntity<StreamingResponseBody> response = variantController.generateVariants(
+                new VariantSetRequest("data", List.of(), null, null, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Status should be BAD_REQUEST");
+    }
+
+    @Test
+    void generateVariants_ShouldReturnServiceUnavailable_WhenOverBudget() {
+        when(qrCodeService.prepareVariants("data", SIZES, null, null, STYLE))
+                .thenThrow(new RenderCapacityException("budget"));
+
+        ResponseEntity<StreamingResponseBody> response = variantController.generateVariants(
+                new VariantSetRequest("data", SIZES, null, null, null));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.qr.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.ClassPathResource;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Open-loop load test for {@code POST /generate}.
+ * <p>
+ * Excluded from the default build; run it with {@code mvn -Pload-test test}. Requests are issued at a fixed
+ * arrival rate regardless of how quickly the server answers, and latency is measured from each request's
+ * intended start time, so queueing delay is not hidden by a stalled client (coordinated omission).
+ * <p>
+ * Settings (system properties): {@code load.rate} requests per second, {@code load.duration} and
+ * {@code load.warmup} in seconds, {@code load.seed}, {@code load.max-error-rate} and {@code load.output}.
+ * Results are written as JSON to {@code load.output} so that runs can be compared.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = {"logging.level.com.example.qr=WARN", "qr.rate-limit.enabled=false"})
+class GenerateLoadTest {
+
+    private static final String[][] COLORS = {
+            {"5DADE2", "FFFFFF"}, {"000000", "FFFFFF"}, {"9B59B6", "ECF0F1"}, {"FFFFFF", "000000"}
+    };
+    private static final int[] PAYLOAD_LENGTHS = {16, 64, 200, 600};
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void generate_UnderOpenLoopLoad() throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        List<RequestTemplate> corpus = buildCorpus(settings.seed());
+        URI uri = URI.create("http://localhost:" + port + "/generate");
+
+        try (HttpClient client = HttpClient.newBuilder()
+                                           .version(HttpClient.Version.HTTP_1_1)
+                                           .executor(Executors.newVirtualThreadPerTaskExecutor())
+                                           .connectTimeout(Duration.ofSeconds(5))
+                                           .build()) {
+            runPhase(client, uri, corpus, settings.rate(), settings.warmupSeconds(), null);
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            Map<Long, Long> serverCpuBefore = serverThreadCpu(threads);
+            long processCpuBefore = processCpuNanos();
+
+            PhaseResult result = runPhase(client, uri, corpus, settings.rate(), settings.durationSeconds(),
+                                          new PhaseRecorder((int) (settings.rate() * settings.durationSeconds()) + 1));
+
+            long serverCpuNanos = serverCpuDelta(threads, serverCpuBefore);
+            long processCpuNanos = processCpuNanos() - processCpuBefore;
+
+            Report report = Report.of(settings, result, serverCpuNanos, processCpuNanos);
+            Path file = writeReport(settings.output(), report);
+            System.out.printf("Load test: %.1f req/s, p50=%dus p99=%dus p999=%dus, errors=%d, server CPU=%.2f cores -> %s%n",
+                              report.throughputPerSecond(), report.latency().p50Micros(), report.latency().p99Micros(),
+                              report.latency().p999Micros(), report.errors(), report.serverCpuCores(), file);
+
+            assertTrue(report.errorRate() <= settings.maxErrorRate(),
+                       "Error rate " + report.errorRate() + " exceeds " + settings.maxErrorRate());
+        }
+    }
+
+    private PhaseResult runPhase(HttpClient client, URI uri, List<RequestTemplate> corpus, double rate,
+                                 int seconds, PhaseRecorder recorder) throws InterruptedException {
+        long intervalNanos = (long) (1_000_000_000L / rate);
+        int total = (int) (rate * seconds);
+        List<CompletableFuture<?>> inFlight = new ArrayList<>(total);
+        AtomicLong lastCompletion = new AtomicLong();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long intended = start + i * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            RequestTemplate template = corpus.get(i % corpus.size());
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                                             .timeout(Duration.ofSeconds(30))
+                                             .header("Content-Type", template.contentType())
+                                             .POST(HttpRequest.BodyPublishers.ofByteArray(template.body()))
+                                             .build();
+            long sent = System.nanoTime();
+            inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                               .whenComplete((response, error) -> {
+                                   long done = System.nanoTime();
+                                   lastCompletion.accumulateAndGet(done, Math::max);
+                                   if (recorder != null) {
+                                       recorder.record(intended, sent, done, response == null ? -1 : response.statusCode());
+                                   }
+                               }));
+        }
+        for (CompletableFuture<?> future : inFlight) {
+            try {
+                future.get(60, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                // Counted as an error by the recorder
+            }
+        }
+        return new PhaseResult(total, Math.max(lastCompletion.get() - start, 1), recorder);
+    }
+
+    private List<RequestTemplate> buildCorpus(long seed) throws IOException {
+        Random random = new Random(seed);
+        byte[] svg = new ClassPathResource("logo.svg").getContentAsByteArray();
+        byte[] png = sampleRaster("png", BufferedImage.TYPE_INT_ARGB);
+        byte[] jpeg = sampleRaster("jpg", BufferedImage.TYPE_INT_RGB);
+
+        List<RequestTemplate> corpus = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String[] colors = COLORS[random.nextInt(COLORS.length)];
+            MultipartBody body = new MultipartBody()
+                    .field("data", payload(random, PAYLOAD_LENGTHS[random.nextInt(PAYLOAD_LENGTHS.length)]))
+                    .field("foregroundColor", colors[0])
+                    .field("backgroundColor", colors[1]);
+            // Logo mix: 55% default, 15% SVG, 20% PNG, 10% JPEG
+            int logo = random.nextInt(100);
+            if (logo >= 90) {
+                body.file("logo", "logo.jpg", "image/jpeg", jpeg);
+            } else if (logo >= 70) {
+                body.file("logo", "logo.png", "image/png", png);
+            } else if (logo >= 55) {
+                body.file("logo", "logo.svg", "image/svg+xml", svg);
+            }
+            corpus.add(new RequestTemplate(body.contentType(), body.build()));
+        }
+        return corpus;
+    }
+
+    private static String payload(Random random, int length) {
+        StringBuilder sb = new StringBuilder("https://example.com/");
+        while (sb.length() < length) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.substring(0, length);
+    }
+
+    private static byte[] sampleRaster(String format, int imageType) throws IOException {
+        BufferedImage image = new BufferedImage(512, 512, imageType);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(0x5DADE2), 512, 512, new Color(0x9B59B6)));
+        g.fillOval(32, 32, 448, 448);
+        g.dispose();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, format, baos);
+        return baos.toByteArray();
+    }
+
+    private static Map<Long, Long> serverThreadCpu(ThreadMXBean threads) {
+        Map<Long, Long> cpu = new HashMap<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("http-nio-")) {
+                cpu.put(thread.threadId(), Math.max(threads.getThreadCpuTime(thread.threadId()), 0));
+            }
+        }
+        return cpu;
+    }
+
+    private static long serverCpuDelta(ThreadMXBean threads, Map<Long, Long> before) {
+        long total = 0;
+        for (Map.Entry<Long, Long> entry : serverThreadCpu(threads).entrySet()) {
+            total += entry.getValue() - before.getOrDefault(entry.getKey(), 0L);
+        }
+        return total;
+    }
+
+    private static long processCpuNanos() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getProcessCpuTime();
+        }
+        return 0;
+    }
+
+    private static Path writeReport(String directory, Report report) throws IOException {
+        Path dir = Path.of(directory);
+        Files.createDirectories(dir);
+        Path file = dir.resolve("generate-" + report.timestamp().getEpochSecond() + ".json");
+        JsonMapper.builder()
+                  .enable(SerializationFeature.INDENT_OUTPUT)
+                  .build()
+                  .writeValue(file.toFile(), report);
+        return file;
+    }
+
+    private record RequestTemplate(String contentType, byte[] body) {
+    }
+
+    private record Settings(double rate, int durationSeconds, int warmupSeconds, long seed, double maxErrorRate,
+                            String output) {
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Double.parseDouble(System.getProperty("load.rate", "50")),
+                    Integer.parseInt(System.getProperty("load.duration", "30")),
+                    Integer.parseInt(System.getProperty("load.warmup", "5")),
+                    Long.parseLong(System.getProperty("load.seed", "42")),
+                    Double.parseDouble(System.getProperty("load.max-error-rate", "0.01")),
+                    System.getProperty("load.output", "target/load-test"));
+        }
+    }
+
+    private static final class PhaseRecorder {
+        private final LatencyStats latency;
+        private final LatencyStats serviceTime;
+        private final LongAdder completed = new LongAdder();
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        PhaseRecorder(int capacity) {
+            this.latency = new LatencyStats(capacity);
+            this.serviceTime = new LatencyStats(capacity);
+        }
+
+        void record(long intended, long sent, long done, int status) {
+            latency.record(done - intended);
+            serviceTime.record(done - sent);
+            if (status >= 200 && status < 300) {
+                completed.increment();
+            } else {
+                errors.computeIfAbsent(status < 0 ? "transport" : Integer.toString(status), k -> new LongAdder())
+                      .increment();
+            }
+        }
+    }
+
+    private record PhaseResult(int sent, long elapsedNanos, PhaseRecorder recorder) {
+    }
+
+    private record Report(Instant timestamp, Settings settings, int sent, long succeeded, long errors,
+                          double errorRate, Map<String, Long> errorsByStatus, double throughputPerSecond,
+                          LatencyStats.Summary latency, LatencyStats.Summary serviceTime,
+                          double serverCpuSeconds, double serverCpuCores, double serverCpuMillisPerRequest,
+                          double processCpuSeconds, int availableProcessors) {
+
+        static Report of(Settings settings, PhaseResult result, long serverCpuNanos, long processCpuNanos) {
+            PhaseRecorder recorder = result.recorder();
+            long succeeded = recorder.completed.sum();
+            Map<String, Long> errorsByStatus = new TreeMap<>();
+            recorder.errors.forEach((status, count) -> errorsByStatus.put(status, count.sum()));
+            long errors = result.sent() - succeeded;
+            double elapsedSeconds = result.elapsedNanos() / 1e9;
+            return new Report(Instant.now(), settings, result.sent(), succeeded, errors,
+                              result.sent() == 0 ? 0 : (double) errors / result.sent(), errorsByStatus,
+                              succeeded / elapsedSeconds, recorder.latency.summarize(), recorder.serviceTime.summarize(),
+                              serverCpuNanos / 1e9, serverCpuNanos / 1e9 / elapsedSeconds,
+                              succeeded == 0 ? 0 : serverCpuNanos / 1e6 / succeeded,
+                              processCpuNanos / 1e9, Runtime.getRuntime().availableProcessors());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.qr.load;
+
+import java.util.Arrays;
+
+/**
+ * Exact latency percentiles over a fixed number of recorded samples, in microseconds.
+ */
+final class LatencyStats {
+
+    private final long[] samples;
+    private int count;
+
+    LatencyStats(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long nanos) {
+        if (count < samples.length) {
+            samples[count++] = nanos;
+        }
+    }
+
+    synchronized Summary summarize() {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Summary(count, micros(percentile(sorted, 50)), micros(percentile(sorted, 90)),
+                           micros(percentile(sorted, 99)), micros(percentile(sorted, 99.9)),
+                           micros(count == 0 ? 0 : sorted[count - 1]));
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.clamp(index, 0, sorted.length - 1)];
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1_000;
+    }
+
+    record Summary(int samples, long p50Micros, long p90Micros, long p99Micros, long p999Micros, long maxMicros) {
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.qr.load;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Minimal {@code multipart/form-data} encoder for {@link java.net.http.HttpClient}, producing the same
+ * parts that {@code index.html} sends with {@code FormData}.
+ */
+final class MultipartBody {
+
+    private final String boundary = "----qr-load-" + UUID.randomUUID();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    MultipartBody field(String name, String value) {
+        write("--" + boundary + "\r\n");
+        write("Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n");
+        write(value);
+        write("\r\n");
+        return this;
+    }
+
+    MultipartBody file(String name, String filename, String contentType, byte[] content) {
+        write("--" + boundary + "\r\n");
+        write("Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n");
+        write("Content-Type: " + contentType + "\r\n\r\n");
+        out.writeBytes(content);
+        write("\r\n");
+        return this;
+    }
+
+    byte[] build() {
+        write("--" + boundary + "--\r\n");
+        return out.toByteArray();
+    }
+
+    String contentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    private void write(String text) {
+        out.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.qr.perf;
+
+import com.example.qr.cache.RenderCache;
+import com.example.qr.service.BandEncoder;
+import com.example.qr.service.MatrixCache;
+import com.example.qr.service.QrCodeService;
+import com.example.qr.service.RenderMemoryBudget;
+import com.example.qr.service.SvgLogoRasterizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mock.web.MockMultipartFile;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Allocation and throughput budgets for the render hot path.
+ * <p>
+ * Excluded from the default build; run it with {@code mvn -Pperf-test test}, on dedicated hardware when
+ * throughput matters. Each scenario renders a fixed, seeded payload corpus on one thread, first to warm up
+ * and then to measure the bytes allocated per call and the calls per second. It fails when allocation
+ * exceeds its budget in {@code perf/budgets.json} by more than {@code perf.allocation-tolerance}, or
+ * throughput falls short of it by more than {@code perf.throughput-tolerance}.
+ * <p>
+ * Allocation is the total over all threads, so work handed to the SVG and band encoder pools is counted;
+ * the matrix and render caches are disabled so every call does the full work. Settings (system
+ * properties): {@code perf.warmup} and {@code perf.iterations} per scenario, the two tolerances and
+ * {@code perf.output}. Results are written as JSON to {@code perf.output}, in the budget file's format, so
+ * a deliberate change can be accepted by copying them over the budgets.
+ */
+@Tag("perf")
+class RenderBudgetTest {
+
+    private static final int CORPUS_SIZE = 64;
+    private static final int[] PAYLOAD_LENGTHS = {20, 80, 300};
+
+    private static Settings settings;
+    private static Map<String, Budget> budgets;
+    private static final Map<String, Budget> results = new TreeMap<>();
+    private static com.sun.management.ThreadMXBean threads;
+    private static QrCodeService service;
+    private static List<String> corpus;
+    private static byte[] pngLogo;
+    private static byte[] svgLogo;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        settings = Settings.fromSystemProperties();
+        try (InputStream in = new ClassPathResource("perf/budgets.json").getInputStream()) {
+            budgets = JsonMapper.builder().build().readValue(in, new TypeReference<Map<String, Budget>>() { });
+        }
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean mxBean)
+                || !mxBean.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("This JVM does not report allocated bytes per thread");
+        }
+        threads = mxBean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service = new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF",
+                                    new SvgLogoRasterizer(), new BandEncoder(), new MatrixCache(0, registry),
+                                    RenderCache.none(), new RenderMemoryBudget());
+        corpus = buildCorpus();
+        pngLogo = buildPngLogo();
+        try (InputStream in = new ClassPathResource("logo.svg").getInputStream()) {
+            svgLogo = in.readAllBytes();
+        }
+    }
+
+    @AfterAll
+    static void writeResults() throws IOException {
+        Path dir = Path.of(settings.output());
+        Files.createDirectories(dir);
+        JsonMapper.builder()
+                  .enable(SerializationFeature.INDENT_OUTPUT)
+                  .build()
+                  .writeValue(dir.resolve("budgets-" + Instant.now().getEpochSecond() + ".json").toFile(), results);
+    }
+
+    @Test
+    void generateWithDefaultLogo() throws Exception {
+        measure("generate-default-logo", 1, i -> service.generateQrCodeWithLogo(payload(i), "5DADE2", "FFFFFF", null));
+    }
+
+    @Test
+    void generateWithPngLogo() throws Exception {
+        MockMultipartFile logo = new MockMultipartFile("logo", "logo.png", "image/png", pngLogo);
+        measure("generate-png-logo", 1, i -> service.generateQrCodeWithLogo(payload(i), "000000", "FFFFFF", logo));
+    }
+
+    @Test
+    void generateWithSvgLogo() throws Exception {
+        MockMultipartFile logo = new MockMultipartFile("logo", "logo.svg", "image/svg+xml", svgLogo);
+        measure("generate-svg-logo", 4, i -> service.generateQrCodeWithLogo(payload(i), "000000", "FFFFFF", logo));
+    }
+
+    @Test
+    void printAt2400Pixels() throws Exception {
+        measure("print-2400", 8, i -> service.preparePrint(payload(i), "5DADE2", "FFFFFF", null, null, 2400, 300)
+                                             .writePng(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Runs {@code call} for the warm-up and then the measured iterations, each divided by {@code cost} for
+     * scenarios that are that many times slower than a standard render, and checks the result against the
+     * scenario's budget.
+     */
+    private static void measure(String scenario, int cost, Call call) throws Exception {
+        int warmup = Math.max(1, settings.warmup() / cost);
+        int iterations = Math.max(1, settings.iterations() / cost);
+        for (int i = 0; i < warmup; i++) {
+            call.run(i);
+        }
+
+        long allocatedBefore = threads.getTotalThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            call.run(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getTotalThreadAllocatedBytes() - allocatedBefore;
+
+        Budget measured = new Budget(allocated / iterations, iterations / (elapsed / 1e9));
+        results.put(scenario, measured);
+        System.out.printf("%s: %,d bytes/call, %.1f calls/s%n", scenario, measured.allocatedBytesPerCall(),
+                          measured.callsPerSecond());
+
+        Budget budget = budgets.get(scenario);
+        if (budget == null) {
+            fail("No budget for " + scenario + " in perf/budgets.json; measured " + measured);
+        }
+        List<String> violations = new ArrayList<>();
+        long maxAllocated = (long) (budget.allocatedBytesPerCall() * (1 + settings.allocationTolerance()));
+        if (measured.allocatedBytesPerCall() > maxAllocated) {
+            violations.add(String.format("allocated %,d bytes/call, budget %,d + %.0f%%",
+                                         measured.allocatedBytesPerCall(), budget.allocatedBytesPerCall(),
+                                         settings.allocationTolerance() * 100));
+        }
+        double minThroughput = budget.callsPerSecond() * (1 - settings.throughputTolerance());
+        if (measured.callsPerSecond() < minThroughput) {
+            violations.add(String.format("%.1f calls/s, budget %.1f - %.0f%%", measured.callsPerSecond(),
+                                         budget.callsPerSecond(), settings.throughputTolerance() * 100));
+        }
+        assertTrue(violations.isEmpty(), scenario + " is over budget: " + String.join("; ", violations));
+    }
+
+    private static String payload(int i) {
+        return corpus.get(i % corpus.size());
+    }
+
+    private static List<String> buildCorpus() {
+        Random random = new Random(42);
+        List<String> payloads = new ArrayList<>(CORPUS_SIZE);
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            int length = PAYLOAD_LENGTHS[i % PAYLOAD_LENGTHS.length];
+            StringBuilder payload = new StringBuilder("https://example.com/");
+            while (payload.length() < length) {
+                payload.append((char) ('a' + random.nextInt(26)));
+            }
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+
+    private static byte[] buildPngLogo() throws IOException {
+        BufferedImage image = new BufferedImage(512, 512, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(0x2E86C1));
+        g.fillOval(0, 0, 512, 512);
+        g.setColor(Color.WHITE);
+        g.fillRect(160, 160, 192, 192);
+        g.dispose();
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return png.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        void run(int iteration) throws Exception;
+    }
+
+    /**
+     * A scenario's budget, or its measurement.
+     */
+    record Budget(long allocatedBytesPerCall, double callsPerSecond) {
+    }
+
+    private record Settings(int warmup, int iterations, double allocationTolerance, double throughputTolerance,
+                            String output) {
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.parseInt(System.getProperty("perf.warmup", "200")),
+                    Integer.parseInt(System.getProperty("perf.iterations", "400")),
+                    Double.parseDouble(System.getProperty("perf.allocation-tolerance", "0.10")),
+                    Double.parseDouble(System.getProperty("perf.throughput-tolerance", "0.25")),
+                    System.getProperty("perf.output", "target/perf-test"));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.qr.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.mock.web.MockMultipartHttpServletRequest;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitInterceptorTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private SimpleMeterRegistry registry;
+    private RateLimitInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.Endpoint endpoint = new RateLimitProperties.Endpoint("/generate", 5, 1, 1);
+        RateLimitProperties properties = new RateLimitProperties(true, "X-API-Key", Set.of("partner"), 1000, 5,
+                                                                 Map.of("generate", endpoint));
+        registry = new SimpleMeterRegistry();
+        interceptor = new RateLimitInterceptor("generate", endpoint, properties, new TokenBucketTable(1000),
+                                               registry, clock::get);
+    }
+
+    @Test
+    void preHandle_ShouldSetRateLimitHeaders() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request("10.0.0.1", null), response, null));
+
+        assertEquals("5", response.getHeader("X-RateLimit-Limit"));
+        assertEquals("4", response.getHeader("X-RateLimit-Remaining"));
+    }
+
+    @Test
+    void preHandle_ShouldReturn429WithRetryAfter_WhenBucketIsEmpty() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(interceptor.preHandle(request("10.0.0.1", null), new MockHttpServletResponse(), null));
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(interceptor.preHandle(request("10.0.0.1", null), response, null));
+
+        assertEquals(429, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals("0", response.getHeader("X-RateLimit-Remaining"));
+        assertEquals(1.0, registry.get("qr.ratelimit.throttled").tag("endpoint", "generate").counter().count(),
+                     "Throttled requests should be counted");
+    }
+
+    @Test
+    void preHandle_ShouldPreferApiKeyOverRemoteAddress() {
+        for (int i = 0; i < 5; i++) {
+            interceptor.preHandle(request("10.0.0.1", "partner"), new MockHttpServletResponse(), null);
+        }
+
+        assertFalse(interceptor.preHandle(request("10.0.0.2", "partner"), new MockHttpServletResponse(), null),
+                    "Same API key from another address should share the bucket");
+        assertTrue(interceptor.preHandle(request("10.0.0.1", null), new MockHttpServletResponse(), null),
+                   "Requests without a key should be limited by address");
+    }
+
+    @Test
+    void preHandle_ShouldLimitUnknownApiKeysByRemoteAddress() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(interceptor.preHandle(request("10.0.0.1", "made-up-" + i), new MockHttpServletResponse(),
+                                             null));
+        }
+
+        assertFalse(interceptor.preHandle(request("10.0.0.1", "made-up-5"), new MockHttpServletResponse(), null),
+                    "A fresh unknown key per request should not escape the address limit");
+        assertTrue(interceptor.preHandle(request("10.0.0.1", "partner"), new MockHttpServletResponse(), null),
+                   "A configured key should have its own bucket");
+    }
+
+    @Test
+    void preHandle_ShouldChargeSvgLogoUploadsMore() {
+        MockMultipartHttpServletRequest upload = new MockMultipartHttpServletRequest();
+        upload.setRemoteAddr("10.0.0.1");
+        upload.addFile(new MockMultipartFile("logo", "logo.svg", "image/svg+xml", "<svg/>".getBytes()));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(upload, response, null));
+
+        assertEquals("0", response.getHeader("X-RateLimit-Remaining"), "SVG upload should cost five tokens");
+        assertFalse(interceptor.preHandle(request("10.0.0.1", null), new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    void preHandle_ShouldAdmitSvgLogoUploadsToPrint_WithTheShippedLimits() throws IOException {
+        Properties shipped = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+        RateLimitProperties properties = new Binder(ConfigurationPropertySources.from(
+                new PropertiesPropertySource("application", shipped)))
+                .bind("qr.rate-limit", RateLimitProperties.class).get();
+        RateLimitProperties.Endpoint print = properties.endpoints().get("print");
+        RateLimitInterceptor printLimit = new RateLimitInterceptor("print", print, properties,
+                                                                   new TokenBucketTable(1000), registry, clock::get);
+        MockMultipartHttpServletRequest upload = new MockMultipartHttpServletRequest();
+        upload.setRequestURI("/generate/print");
+        upload.setRemoteAddr("10.0.0.1");
+        upload.addFile(new MockMultipartFile("logo", "logo.svg", "image/svg+xml", "<svg/>".getBytes()));
+
+        assertTrue(printLimit.preHandle(upload, new MockHttpServletResponse(), null),
+                   "A first SVG upload to /generate/print should be admitted");
+    }
+
+    @Test
+    void properties_ShouldRejectCapacitiesBelowTheSvgLogoCost() {
+        RateLimitProperties.Endpoint small = new RateLimitProperties.Endpoint("/generate/print", 4, 0.5, 1);
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> new RateLimitProperties(true, "X-API-Key", Set.of(), 1000, 5, Map.of("print", small)));
+
+        assertTrue(exception.getMessage().contains("qr.rate-limit.endpoints.print.capacity"));
+    }
+
+    @Test
+    void preHandle_ShouldAllowAgainAfterRefill() {
+        for (int i = 0; i < 6; i++) {
+            interceptor.preHandle(request("10.0.0.1", null), new MockHttpServletResponse(), null);
+        }
+
+        clock.addAndGet(1_000_000_000L);
+
+        assertTrue(interceptor.preHandle(request("10.0.0.1", null), new MockHttpServletResponse(), null));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/generate");
+        request.setRemoteAddr(remoteAddr);
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.qr.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTableTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final TokenBucketTable.Limit LIMIT = new TokenBucketTable.Limit(3, 1);
+
+    @Test
+    void tryAcquire_ShouldAllowBurstUpToCapacity() {
+        TokenBucketTable table = new TokenBucketTable(1000);
+
+        for (int i = 2; i >= 0; i--) {
+            TokenBucketTable.Decision decision = table.tryAcquire("client", LIMIT, 1, 0);
+            assertTrue(decision.allowed(), "Requests within the burst should be allowed");
+            assertEquals(i, decision.remaining());
+        }
+        TokenBucketTable.Decision rejected = table.tryAcquire("client", LIMIT, 1, 0);
+
+        assertFalse(rejected.allowed(), "Request beyond the burst should be rejected");
+        assertEquals(SECOND, rejected.retryAfterNanos(), "One token refills after one second");
+    }
+
+    @Test
+    void tryAcquire_ShouldRefillOverTimeUpToCapacity() {
+        TokenBucketTable table = new TokenBucketTable(1000);
+        table.tryAcquire("client", LIMIT, 3, 0);
+
+        assertTrue(table.tryAcquire("client", LIMIT, 1, SECOND).allowed(), "A token should refill after a second");
+        assertFalse(table.tryAcquire("client", LIMIT, 1, SECOND).allowed());
+
+        TokenBucketTable.Decision later = table.tryAcquire("client", LIMIT, 1, 100 * SECOND);
+        assertEquals(2, later.remaining(), "Refill should stop at capacity");
+    }
+
+    @Test
+    void tryAcquire_ShouldChargeWeightedCost() {
+        TokenBucketTable table = new TokenBucketTable(1000);
+
+        assertFalse(table.tryAcquire("client", LIMIT, 5, 0).allowed(), "Cost above capacity never fits");
+        assertTrue(table.tryAcquire("client", LIMIT, 2.5, 0).allowed());
+        assertFalse(table.tryAcquire("client", LIMIT, 1, 0).allowed(), "Only half a token should remain");
+    }
+
+    @Test
+    void tryAcquire_ShouldKeepClientsIndependent() {
+        TokenBucketTable table = new TokenBucketTable(1000);
+        table.tryAcquire("a", LIMIT, 3, 0);
+
+        assertTrue(table.tryAcquire("b", LIMIT, 1, 0).allowed(), "Another client should have its own bucket");
+    }
+
+    @Test
+    void size_ShouldStayBoundedByMaxClients() {
+        TokenBucketTable table = new TokenBucketTable(640);
+
+        for (int i = 0; i < 100_000; i++) {
+            table.tryAcquire("client-" + i, LIMIT, 1, 0);
+        }
+
+        assertTrue(table.size() <= 640, "Tracked clients should not exceed the bound, was " + table.size());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.qr.service;
+
+import com.example.qr.cache.RenderCache;
+import io.nayuki.qrcodegen.QrCode;
+import org.apache.batik.transcoder.TranscoderException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BandEncoderTest {
+
+    @ParameterizedTest(name = "Parallel stream of {0}px in {1}-byte bands should match sequential")
+    @CsvSource({
+            "1000, 8192",
+            "1000, 100000",
+            "2500, 1048576"
+    })
+    void encode_ShouldProduceSameDataInParallel(int size, int bandBytes) throws IOException, DataFormatException {
+        QrCode qr = QrCode.encodeText("https://example.com/parallel", QrCode.Ecc.HIGH);
+        ScanlineRaster raster = new ScanlineRaster(ModuleMatrix.of(qr), size, size / (qr.size + 2), 0xFF5DADE2, 0xFFFFFFFF, null);
+
+        try (BandEncoder sequential = new BandEncoder(1, Integer.MAX_VALUE, bandBytes);
+             BandEncoder parallel = new BandEncoder(4, 0, bandBytes)) {
+            byte[] expected = inflate(encode(sequential, raster));
+            byte[] actual = inflate(encode(parallel, raster));
+
+            assertEquals((long) size * raster.scanlineLength(), actual.length, "Should contain every scanline");
+            assertArrayEquals(expected, actual, "Parallel bands should inflate to the same scanlines");
+        }
+    }
+
+    @Test
+    void writePng_ShouldDecodeToSamePixelsWithParallelBands() throws IOException, TranscoderException {
+        ClassPathResource logo = new ClassPathResource("logo.svg");
+        try (BandEncoder parallel = new BandEncoder(4, 0, 64 * 1024);
+             BandEncoder sequential = new BandEncoder(1, Integer.MAX_VALUE, 64 * 1024)) {
+            QrCodeService parallelService = new QrCodeService(logo, "5DADE2", "FFFFFF", new SvgLogoRasterizer(), parallel,
+                                                              new MatrixCache(), RenderCache.none(), new RenderMemoryBudget());
+            QrCodeService sequentialService = new QrCodeService(logo, "5DADE2", "FFFFFF", new SvgLogoRasterizer(), sequential,
+                                                              new MatrixCache(), RenderCache.none(), new RenderMemoryBudget());
+
+            BufferedImage expected = decode(sequentialService.preparePrint("test", "5DADE2", "FFFFFF", null, null, 1200, 300));
+            BufferedImage actual = decode(parallelService.preparePrint("test", "5DADE2", "FFFFFF", null, null, 1200, 300));
+
+            assertNotNull(actual, "Parallel output should be a valid PNG");
+            for (int y = 0; y < 1200; y += 7) {
+                for (int x = 0; x < 1200; x += 7) {
+                    assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "Pixel (" + x + "," + y + ") should match");
+                }
+            }
+        }
+    }
+
+    @Test
+    void adler32Combine_ShouldMatchChecksumOfConcatenation() {
+        Random random = new Random(42);
+        byte[] first = new byte[100_003];
+        byte[] second = new byte[70_001];
+        random.nextBytes(first);
+        random.nextBytes(second);
+
+        Adler32 whole = new Adler32();
+        whole.update(first);
+        whole.update(second);
+        Adler32 a = new Adler32();
+        a.update(first);
+        Adler32 b = new Adler32();
+        b.update(second);
+
+        assertEquals(whole.getValue(), BandEncoder.adler32Combine(a.getValue(), b.getValue(), second.length));
+        assertEquals(a.getValue(), BandEncoder.adler32Combine(1, a.getValue(), first.length),
+                     "Combining with the empty checksum should be the identity");
+    }
+
+    private static byte[] encode(BandEncoder encoder, ScanlineRaster raster) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.encode(raster, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Inflates a zlib stream; the inflater verifies the Adler-32 trailer.
+     */
+    private static byte[] inflate(byte[] zlib) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(zlib);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        while (!inflater.finished()) {
+            int n = inflater.inflate(buffer);
+            if (n == 0 && inflater.needsInput()) {
+                fail("zlib stream ended early");
+            }
+            out.write(buffer, 0, n);
+        }
+        assertEquals(0, inflater.getRemaining(), "No bytes should follow the trailer");
+        inflater.end();
+        return out.toByteArray();
+    }
+
+    private static BufferedImage decode(PrintImage print) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        print.writePng(out);
+        return ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
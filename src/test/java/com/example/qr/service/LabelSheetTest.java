@@ -0,0 +1,159 @@
+package com.example.qr.service;
+
+import com.example.qr.model.Label;
+import com.example.qr.model.LabelLayout;
+import org.apache.batik.transcoder.TranscoderException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LabelSheetTest {
+
+    private QrCodeService qrCodeService;
+    private PreparedStyle style;
+
+    @BeforeEach
+    void setUp() throws IOException, TranscoderException {
+        qrCodeService = new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF");
+        style = qrCodeService.prepareStyle("000000", "FFFFFF", null, null);
+    }
+
+    @Test
+    void writePdf_ShouldWriteOnePagePerGridOfLabels() throws IOException {
+        List<Label> labels = labels(50, null);
+
+        String pdf = write(qrCodeService.prepareLabelSheet(labels, LabelLayout.DEFAULT, style));
+
+        assertTrue(pdf.startsWith("%PDF-1.4"), "Should start with the PDF header");
+        assertTrue(pdf.endsWith("%%EOF\n"), "Should end with the EOF marker");
+        assertTrue(pdf.contains("/Type /Pages /Kids ["), "Should contain the page tree");
+        assertTrue(pdf.contains("/Count 3 >>"), "50 labels on a 3 x 8 grid need three pages");
+        assertEquals(3, count(pdf, "/Type /Page /Parent"), "Should write three page objects");
+        assertEquals(1, count(pdf, "/Subtype /Image /ColorSpace /DeviceRGB"), "Logo should be embedded once");
+    }
+
+    @Test
+    void writePdf_ShouldWriteValidCrossReferenceTable() throws IOException {
+        String pdf = write(qrCodeService.prepareLabelSheet(labels(30, "Item"), LabelLayout.DEFAULT, style));
+
+        Matcher startXref = Pattern.compile("startxref\n(\\d+)\n%%EOF\n$").matcher(pdf);
+        assertTrue(startXref.find(), "Should end with startxref");
+        int xref = Integer.parseInt(startXref.group(1));
+        assertTrue(pdf.startsWith("xref\n0 ", xref), "startxref should point at the xref table");
+
+        Matcher entries = Pattern.compile("(\\d{10}) 00000 n \n").matcher(pdf.substring(xref));
+        int object = 0;
+        while (entries.find()) {
+            object++;
+            int offset = Integer.parseInt(entries.group(1));
+            assertTrue(pdf.startsWith(object + " 0 obj\n", offset), "Offset of object " + object + " should be exact");
+        }
+        assertTrue(object > 5, "Should list every object");
+    }
+
+    @Test
+    void writePdf_ShouldDrawCodesAsVectorRunsWithLogoAndCaptions() throws IOException, DataFormatException {
+        LabelSheet sheet = qrCodeService.prepareLabelSheet(labels(2, "Shelf (A)"), LabelLayout.DEFAULT, style);
+
+        String pdf = write(sheet);
+        String content = firstPageContent(pdf);
+
+        assertEquals(2, count(content, "/Logo Do"), "Every label should reference the shared logo");
+        assertEquals(2, count(content, "(Shelf \\(A\\) 0)") + count(content, "(Shelf \\(A\\) 1)"),
+                     "Captions should be escaped PDF strings");
+        assertTrue(content.contains("0 0 7 1 re"), "Position pattern rows should be merged into one run");
+        assertTrue(pdf.contains("/BaseFont /Helvetica"), "Captions should use Helvetica");
+    }
+
+    @Test
+    void writePdf_ShouldOmitFontWithoutCaptions() throws IOException {
+        String pdf = write(qrCodeService.prepareLabelSheet(labels(1, null), LabelLayout.DEFAULT, style));
+
+        assertFalse(pdf.contains("/Font"), "No font should be embedded without captions");
+    }
+
+    @Test
+    void prepareLabelSheet_ShouldRejectInvalidLabels() {
+        assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.prepareLabelSheet(List.of(), LabelLayout.DEFAULT, style));
+        assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.prepareLabelSheet(List.of(new Label("", null)), LabelLayout.DEFAULT, style));
+        assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.prepareLabelSheet(List.of(new Label("A".repeat(1274), null)),
+                                                      LabelLayout.DEFAULT, style));
+        assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.prepareLabelSheet(List.of(new Label("A", "C".repeat(257))),
+                                                      LabelLayout.DEFAULT, style));
+    }
+
+    @Test
+    void prepareLabelSheet_ShouldRejectLayoutWithTinyCodes() {
+        LabelLayout dense = new LabelLayout(LabelLayout.PageSize.LETTER, 20, 30, null, null, null);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.prepareLabelSheet(labels(1, null), dense, style));
+    }
+
+    @Test
+    void fit_ShouldTruncateLongCaptionsWithEllipsis() {
+        String caption = LabelSheet.fit("A very long caption that cannot fit on a small label", 60, 8);
+
+        assertTrue(caption.endsWith("..."), "Truncated caption should end with an ellipsis");
+        assertTrue(LabelSheet.width(caption, 8) <= 60, "Truncated caption should fit");
+        assertEquals("Short", LabelSheet.fit("Short", 60, 8), "Short captions should be unchanged");
+        assertEquals("A...", LabelSheet.fit("AAAAAAAA", (667 + 3 * 278) * 8 / 1000.0, 8),
+                     "Should keep the longest prefix that fits with the ellipsis");
+        assertEquals("...", LabelSheet.fit("WWW", 1, 8), "Should keep nothing when no prefix fits");
+    }
+
+    private static List<Label> labels(int count, String caption) {
+        return IntStream.range(0, count)
+                        .mapToObj(i -> new Label("https://example.com/item/" + i, caption == null ? null : caption + " " + i))
+                        .toList();
+    }
+
+    private static String write(LabelSheet sheet) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sheet.writePdf(out);
+        return out.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    private static String firstPageContent(String pdf) throws DataFormatException {
+        Matcher page = Pattern.compile("/Contents (\\d+) 0 R").matcher(pdf);
+        assertTrue(page.find(), "Should reference a content stream");
+        String header = page.group(1) + " 0 obj\n<< /Filter /FlateDecode /Length ";
+        int start = pdf.indexOf(header) + header.length();
+        int length = Integer.parseInt(pdf.substring(start, pdf.indexOf(' ', start)));
+        int data = pdf.indexOf("stream\n", start) + "stream\n".length();
+
+        Inflater inflater = new Inflater();
+        inflater.setInput(pdf.substring(data, data + length).getBytes(StandardCharsets.ISO_8859_1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        while (!inflater.finished()) {
+            out.write(buffer, 0, inflater.inflate(buffer));
+        }
+        inflater.end();
+        return out.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    private static int count(String text, String needle) {
+        int count = 0;
+        for (int i = text.indexOf(needle); i >= 0; i = text.indexOf(needle, i + needle.length())) {
+            count++;
+        }
+        return count;
+    }
+}
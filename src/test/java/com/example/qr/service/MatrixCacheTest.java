@@ -0,0 +1,68 @@
+package com.example.qr.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nayuki.qrcodegen.QrCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixCacheTest {
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void encode_ShouldReuseTheMatrixForTheSamePayload() {
+        MatrixCache cache = new MatrixCache(1 << 20, registry);
+
+        ModuleMatrix first = cache.encode("https://example.com", QrCode.Ecc.HIGH);
+        ModuleMatrix second = cache.encode("https://example.com", QrCode.Ecc.HIGH);
+
+        assertSame(first, second, "The second lookup should be served from the cache");
+        assertEquals(ModuleMatrix.of(QrCode.encodeText("https://example.com", QrCode.Ecc.HIGH)), first);
+        assertEquals(1, registry.get("qr.matrix.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1, registry.get("qr.matrix.cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void encode_ShouldKeyByErrorCorrectionLevel() {
+        MatrixCache cache = new MatrixCache(1 << 20, registry);
+
+        ModuleMatrix low = cache.encode("https://example.com/ecc", QrCode.Ecc.LOW);
+        ModuleMatrix high = cache.encode("https://example.com/ecc", QrCode.Ecc.HIGH);
+
+        assertNotEquals(low, high);
+        assertEquals(QrCode.Ecc.HIGH, high.ecc());
+    }
+
+    @Test
+    void encode_ShouldEvictLeastRecentlyUsedEntriesToStayWithinBudget() {
+        long budget = 64 * 1024;
+        MatrixCache cache = new MatrixCache(budget, registry);
+
+        for (int i = 0; i < 2000; i++) {
+            cache.encode("https://example.com/item/" + i, QrCode.Ecc.HIGH);
+        }
+
+        assertTrue(cache.bytes() <= budget, "Cache should hold at most its budget, held " + cache.bytes());
+        assertTrue(cache.bytes() > budget / 2, "Cache should use most of its budget, held " + cache.bytes());
+        assertEquals(cache.bytes(), registry.get("qr.matrix.cache.bytes").gauge().value());
+    }
+
+    @Test
+    void encode_ShouldNotCacheWhenBudgetIsZero() {
+        MatrixCache cache = new MatrixCache(0, registry);
+
+        ModuleMatrix first = cache.encode("https://example.com", QrCode.Ecc.HIGH);
+        ModuleMatrix second = cache.encode("https://example.com", QrCode.Ecc.HIGH);
+
+        assertNotSame(first, second);
+        assertEquals(first, second);
+        assertEquals(0, cache.bytes());
+    }
+}
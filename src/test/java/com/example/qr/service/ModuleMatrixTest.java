@@ -0,0 +1,73 @@
+package com.example.qr.service;
+
+import io.nayuki.qrcodegen.QrCode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModuleMatrixTest {
+
+    private static final String DATA = "https://example.com/matrix";
+
+    @Test
+    void of_ShouldPackEveryModuleOfTheCode() {
+        QrCode qrCode = QrCode.encodeText(DATA, QrCode.Ecc.HIGH);
+
+        ModuleMatrix matrix = ModuleMatrix.of(qrCode);
+
+        assertEquals(qrCode.version, matrix.version());
+        assertEquals(qrCode.size, matrix.size());
+        assertEquals(QrCode.Ecc.HIGH, matrix.ecc());
+        assertEquals(qrCode.mask, matrix.mask());
+        assertEquals((qrCode.size * qrCode.size + 7) / 8, matrix.modules().length, "Rows should not be padded");
+        for (int y = 0; y < qrCode.size; y++) {
+            for (int x = 0; x < qrCode.size; x++) {
+                assertEquals(qrCode.getModule(x, y), matrix.isDark(x, y), "Module (" + x + "," + y + ")");
+            }
+        }
+    }
+
+    @Test
+    void modules_ShouldStartWithTheTopRowMostSignificantBitFirst() {
+        ModuleMatrix matrix = ModuleMatrix.of(QrCode.encodeText(DATA, QrCode.Ecc.LOW));
+
+        // The top row opens with the seven dark modules of a position pattern and a light separator
+        assertEquals((byte) 0xFE, matrix.modules()[0]);
+    }
+
+    @Test
+    void toBinary_ShouldPrefixTheHeader() {
+        ModuleMatrix matrix = ModuleMatrix.of(QrCode.encodeText(DATA, QrCode.Ecc.QUARTILE));
+
+        byte[] binary = matrix.toBinary();
+
+        assertEquals(matrix.version(), binary[0]);
+        assertEquals(matrix.size(), binary[1] & 0xFF);
+        assertEquals(2, binary[2], "Quartile should be ECC level 2");
+        assertEquals(matrix.mask(), binary[3]);
+        byte[] modules = matrix.modules();
+        assertEquals(ModuleMatrix.BINARY_HEADER_LENGTH + modules.length, binary.length);
+        assertEquals(modules[modules.length - 1], binary[binary.length - 1]);
+    }
+
+    @Test
+    void toText_ShouldDrawTwoRowsPerLineInsideAQuietZone() {
+        ModuleMatrix matrix = ModuleMatrix.of(QrCode.encodeText("A", QrCode.Ecc.LOW));
+
+        String[] lines = matrix.toText(false).split("\n");
+
+        assertEquals((matrix.size() + 4 + 1) / 2, lines.length);
+        assertEquals(matrix.size() + 4, lines[0].length());
+        assertTrue(lines[0].isBlank(), "The first line should be quiet zone only");
+        assertEquals("  █▀▀▀▀▀█ ", lines[1].substring(0, 10), "The second line should open with the position pattern");
+        assertEquals("██ ▄▄▄▄▄ █", matrix.toText(true).split("\n")[1].substring(0, 10));
+    }
+
+    @Test
+    void equals_ShouldCompareTheModules() {
+        assertEquals(ModuleMatrix.of(QrCode.encodeText(DATA, QrCode.Ecc.HIGH)),
+                     ModuleMatrix.of(QrCode.encodeText(DATA, QrCode.Ecc.HIGH)));
+        assertNotEquals(ModuleMatrix.of(QrCode.encodeText(DATA, QrCode.Ecc.HIGH)),
+                        ModuleMatrix.of(QrCode.encodeText(DATA + "/other", QrCode.Ecc.HIGH)));
+    }
+}
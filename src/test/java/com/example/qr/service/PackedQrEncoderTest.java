@@ -0,0 +1,115 @@
+package com.example.qr.service;
+
+import io.nayuki.qrcodegen.DataTooLongException;
+import io.nayuki.qrcodegen.QrCode;
+import io.nayuki.qrcodegen.QrSegment;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedQrEncoderTest {
+
+    private static final String NUMERIC = "0123456789";
+    private static final String ALPHANUMERIC = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+    private static final String BYTES = "abcdefghijklmnopqrstuvwxyz0123456789-._~:/?#[]@!&'()*+,;=%";
+    private static final int MAX_LENGTH = 7089;
+
+    private final PackedQrEncoder packed = new PackedQrEncoder();
+    private final Set<Integer> masks = new HashSet<>();
+
+    @Test
+    void encode_ShouldMatchTheLibraryAtEveryVersionBoundary() {
+        Random random = new Random(47);
+        for (QrCode.Ecc ecc : QrCode.Ecc.values()) {
+            for (String alphabet : new String[]{NUMERIC, ALPHANUMERIC, BYTES}) {
+                String text = randomText(random, alphabet, MAX_LENGTH);
+                int low = 0;
+                for (int version = 1; version <= 40; version++) {
+                    // Longest prefix that still fits this version, found with the library alone
+                    int high = MAX_LENGTH;
+                    while (low < high) {
+                        int mid = (low + high + 1) >>> 1;
+                        if (fits(text.substring(0, mid), ecc, version)) {
+                            low = mid;
+                        } else {
+                            high = mid - 1;
+                        }
+                    }
+                    assertSameEncoding(text.substring(0, low), ecc);
+                    if (low < MAX_LENGTH) {
+                        assertSameEncoding(text.substring(0, low + 1), ecc);
+                    }
+                }
+            }
+        }
+        assertEquals(8, masks.size(), "Every mask pattern should have been chosen at least once");
+    }
+
+    @Test
+    void encode_ShouldMatchTheLibraryForRandomPayloads() {
+        Random random = new Random(4711);
+        String[] alphabets = {NUMERIC, ALPHANUMERIC, BYTES, "héllo wörld ☃ 日本語 🙂"};
+        assertSameEncoding("", QrCode.Ecc.HIGH);
+        for (int i = 0; i < 600; i++) {
+            String alphabet = alphabets[i % alphabets.length];
+            int length = random.nextInt(i % 10 == 0 ? 1500 : 120) + 1;
+            assertSameEncoding(randomText(random, alphabet, length), QrCode.Ecc.values()[random.nextInt(4)]);
+        }
+    }
+
+    @Test
+    void encode_ShouldRejectDataThatFitsNoVersion() {
+        String tooLong = "a".repeat(2954);
+
+        assertThrows(DataTooLongException.class, () -> QrCode.encodeText(tooLong, QrCode.Ecc.LOW));
+        assertThrows(DataTooLongException.class, () -> packed.encode(tooLong, QrCode.Ecc.LOW));
+        assertThrows(DataTooLongException.class, () -> packed.encode("1".repeat(7090), QrCode.Ecc.LOW));
+    }
+
+    @Test
+    void named_ShouldSelectTheEncoder() {
+        assertSame(QrEncoder.NAYUKI, QrEncoder.named("nayuki"));
+        assertInstanceOf(PackedQrEncoder.class, QrEncoder.named("PACKED"));
+        assertThrows(IllegalArgumentException.class, () -> QrEncoder.named("zxing"));
+    }
+
+    private void assertSameEncoding(String text, QrCode.Ecc ecc) {
+        QrCode expected;
+        try {
+            expected = QrCode.encodeText(text, ecc);
+        } catch (DataTooLongException e) {
+            assertThrows(DataTooLongException.class, () -> packed.encode(text, ecc));
+            return;
+        }
+        ModuleMatrix actual = packed.encode(text, ecc);
+        assertEquals(ModuleMatrix.of(expected), actual,
+                     () -> "Length " + text.length() + " at " + ecc + " version " + expected.version);
+        assertEquals(expected.size, actual.size());
+        masks.add(actual.mask());
+    }
+
+    /**
+     * Whether the library fits {@code text} in {@code version}, with a fixed mask so no mask is scored.
+     */
+    private static boolean fits(String text, QrCode.Ecc ecc, int version) {
+        try {
+            QrCode.encodeSegments(QrSegment.makeSegments(text), ecc, 1, version, 0, false);
+            return true;
+        } catch (DataTooLongException e) {
+            return false;
+        }
+    }
+
+    private static String randomText(Random random, String alphabet, int length) {
+        int[] codePoints = alphabet.codePoints().toArray();
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            text.appendCodePoint(codePoints[random.nextInt(codePoints.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.qr.service;
+
+import com.example.qr.model.StylePreset;
+import org.apache.batik.transcoder.TranscoderException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PresetRegistryTest {
+
+    @TempDir
+    Path directory;
+
+    private QrCodeService qrCodeService;
+    private PresetRegistry registry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        qrCodeService = new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF");
+        registry = new PresetRegistry(qrCodeService, directory);
+    }
+
+    @Test
+    void save_ShouldPrepareStyleAndNormalizeColors() throws IOException, TranscoderException {
+        StylePreset preset = registry.save("tenant-a", "#ff0000", "ffffff", null, null);
+
+        assertEquals(new StylePreset("tenant-a", "FF0000", "FFFFFF", null), preset);
+        PreparedStyle style = registry.findStyle("tenant-a").orElseThrow();
+        assertEquals(0xFFFF0000, style.foregroundColor(), "Foreground should be prepared");
+        assertNotNull(style.badge(), "Badge should be prepared");
+    }
+
+    @Test
+    void save_ShouldPersistPresetsAcrossRestarts() throws IOException, TranscoderException {
+        registry.save("tenant-b", "000000", "FFFFFF", pngLogo(), "image/png");
+
+        PresetRegistry reloaded = new PresetRegistry(qrCodeService, directory);
+
+        assertEquals(registry.list(), reloaded.list(), "Presets should be reloaded from disk");
+        assertTrue(reloaded.findStyle("tenant-b").isPresent(), "Reloaded preset should be prepared");
+        assertTrue(Files.exists(directory.resolve("tenant-b.logo")), "Logo should be stored next to the preset");
+    }
+
+    @Test
+    void save_ShouldRejectInvalidIdWithoutWriting() throws IOException {
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.save("../escape", "000000", "FFFFFF", null, null));
+
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count(), "Nothing should be written for an invalid preset");
+        }
+    }
+
+    @Test
+    void save_ShouldRejectInvalidColorWithoutWriting() {
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.save("tenant-c", "GGGGGG", "FFFFFF", null, null));
+
+        assertTrue(registry.get("tenant-c").isEmpty(), "Invalid preset should not be registered");
+    }
+
+    @Test
+    void save_ShouldCapPresetCountAndLogoSize() throws IOException, TranscoderException {
+        PresetRegistry small = new PresetRegistry(qrCodeService, directory.resolve("small"), 2, 1024);
+        small.save("one", "000000", "FFFFFF", null, null);
+        small.save("two", "000000", "FFFFFF", null, null);
+
+        assertThrows(IllegalArgumentException.class, () -> small.save("three", "000000", "FFFFFF", null, null));
+        assertEquals("FF0000", small.save("two", "FF0000", "FFFFFF", null, null).foregroundColor(),
+                     "Replacing a preset should not count against the limit");
+        assertThrows(IllegalArgumentException.class,
+                () -> small.save("one", "000000", "FFFFFF", new byte[1025], "image/png"));
+        assertEquals(2, small.list().size());
+    }
+
+    @Test
+    void delete_ShouldRemovePresetAndFiles() throws IOException, TranscoderException {
+        registry.save("tenant-d", "000000", "FFFFFF", pngLogo(), "image/png");
+
+        assertTrue(registry.delete("tenant-d"), "Existing preset should be deleted");
+
+        assertAll(
+                () -> assertTrue(registry.findStyle("tenant-d").isEmpty(), "Preset should be gone"),
+                () -> assertFalse(Files.exists(directory.resolve("tenant-d.json")), "Metadata should be deleted"),
+                () -> assertFalse(Files.exists(directory.resolve("tenant-d.logo")), "Logo should be deleted"),
+                () -> assertFalse(registry.delete("tenant-d"), "Deleting twice should report missing")
+        );
+    }
+
+    @Test
+    void generateQrCode_ShouldRenderWithPreset() throws IOException, TranscoderException {
+        registry.save("tenant-e", "9B59B6", "ECF0F1", pngLogo(), "image/png");
+
+        byte[] result = qrCodeService.generateQrCode("https://example.com", registry.findStyle("tenant-e").orElseThrow());
+
+        assertNotNull(ImageIO.read(new ByteArrayInputStream(result)), "Result should be a readable image");
+    }
+
+    private static byte[] pngLogo() throws IOException {
+        BufferedImage img = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", baos);
+        return baos.toByteArray();
+    }
+}
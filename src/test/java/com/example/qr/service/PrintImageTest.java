@@ -0,0 +1,122 @@
+package com.example.qr.service;
+
+import org.apache.batik.transcoder.TranscoderException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.core.io.ClassPathResource;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrintImageTest {
+
+    private QrCodeService qrCodeService;
+
+    @BeforeEach
+    void setUp() {
+        qrCodeService = new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF");
+    }
+
+    @ParameterizedTest(name = "Should render {0}px at {1} dpi")
+    @CsvSource({
+            "400, 72",
+            "1000, 300",
+            "2500, 600"
+    })
+    void writePng_ShouldProduceDecodablePngOfRequestedSize(int size, int dpi) throws IOException, TranscoderException {
+        PrintImage print = qrCodeService.preparePrint("https://example.com", "5DADE2", "FFFFFF", null, null, size, dpi);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(write(print)));
+
+        assertNotNull(image, "Output should be a valid PNG");
+        assertEquals(size, image.getWidth(), "Width should match the requested size");
+        assertEquals(size, image.getHeight(), "Height should match the requested size");
+    }
+
+    @Test
+    void writePng_ShouldDrawModulesPositionPatternsAndBadge() throws IOException, TranscoderException {
+        PrintImage print = qrCodeService.preparePrint("https://example.com", "FF0000", "00FF00", null, null, 1000, 300);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(write(print)));
+
+        assertEquals(0xFF00FF00, image.getRGB(2, 2), "Quiet zone should use the background color");
+        int module = 1000 / 31;
+        int origin = (1000 - 29 * module) / 2;
+        assertEquals(0xFF000000, image.getRGB(origin + module / 2, origin + module / 2),
+                     "Position patterns should be black");
+        boolean hasForeground = false;
+        for (int y = origin; y < 1000 - origin && !hasForeground; y += module) {
+            for (int x = origin + 8 * module; x < 1000 - origin - 8 * module; x += module) {
+                if (image.getRGB(x + module / 2, y + module / 2) == 0xFFFF0000) {
+                    hasForeground = true;
+                    break;
+                }
+            }
+        }
+        assertTrue(hasForeground, "Data modules should use the foreground color");
+        assertNotEquals(0xFFFF0000, image.getRGB(500 - 85, 500), "Badge background should cover the center");
+    }
+
+    @Test
+    void writePng_ShouldWritePhysicalResolution() throws IOException, TranscoderException {
+        PrintImage print = qrCodeService.preparePrint("https://example.com", "000000", "FFFFFF", null, null, 600, 300);
+
+        try (ImageInputStream stream = ImageIO.createImageInputStream(new ByteArrayInputStream(write(print)))) {
+            ImageReader reader = ImageIO.getImageReaders(stream).next();
+            reader.setInput(stream);
+            IIOMetadata metadata = reader.getImageMetadata(0);
+            Element root = (Element) metadata.getAsTree("javax_imageio_png_1.0");
+            NodeList phys = root.getElementsByTagName("pHYs");
+
+            assertEquals(1, phys.getLength(), "Should contain a pHYs chunk");
+            Element chunk = (Element) phys.item(0);
+            assertEquals("11811", chunk.getAttribute("pixelsPerUnitXAxis"), "300 dpi is 11811 pixels per metre");
+            assertEquals("meter", chunk.getAttribute("unitSpecifier"));
+        }
+    }
+
+    @Test
+    void preparePrint_ShouldScaleCustomLogoWithTheCode() throws IOException, TranscoderException {
+        BufferedImage logo = new BufferedImage(2000, 2000, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(logo, "png", baos);
+
+        PrintImage print = qrCodeService.preparePrint("https://example.com", "000000", "FFFFFF",
+                                                      baos.toByteArray(), "image/png", 4000, 300);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(write(print)));
+
+        assertEquals(0xFF000000, image.getRGB(2000, 2000), "Logo should be drawn at the center");
+        assertEquals(0xFF000000, image.getRGB(2000 - 290, 2000), "Logo should be scaled to 600px");
+        assertNotEquals(0xFF000000, image.getRGB(2000 - 310, 2000), "Badge padding should surround the logo");
+    }
+
+    @ParameterizedTest(name = "Should reject size {0} and dpi {1}")
+    @CsvSource({
+            "399, 300",
+            "10001, 300",
+            "4000, 71",
+            "4000, 2401"
+    })
+    void preparePrint_ShouldRejectOutOfRangeSizeOrDpi(int size, int dpi) {
+        assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.preparePrint("test", "000000", "FFFFFF", null, null, size, dpi));
+    }
+
+    private static byte[] write(PrintImage print) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        print.writePng(out);
+        return out.toByteArray();
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.qr.service;
 
+import com.example.qr.cache.LocalRenderCache;
+import com.example.qr.cache.RenderCache;
+import com.example.qr.timing.RenderTrace;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.batik.transcoder.TranscoderException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +15,7 @@ import org.springframework.mock.web.MockMultipartFile;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -243,6 +248,22 @@ class QrCodeServiceTest {
                 "Should throw IOException for corrupted image");
     }
 
+    @Test
+    void generateQrCodeWithLogo_ShouldScaleDownVeryLargePngLogo() throws IOException, TranscoderException {
+        String testData = "https://example.com";
+
+        BufferedImage img = new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_ARGB);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", baos);
+
+        MockMultipartFile logoFile = new MockMultipartFile("logo", "logo.png", "image/png", baos.toByteArray());
+
+        byte[] result = qrCodeService.generateQrCodeWithLogo(testData, "5DADE2", "FFFFFF", logoFile);
+
+        assertNotNull(result, "QR code byte array should not be null");
+        assertTrue(result.length > 0, "QR code byte array should not be empty");
+    }
+
     @ParameterizedTest(name = "Should handle logo dimensions: {2}")
     @CsvSource({
             "200, 50, Wide aspect ratio (200x50)",
@@ -353,5 +374,170 @@ class QrCodeServiceTest {
         assertTrue(result.length > 0, "QR code byte array should not be empty");
     }
 
-}
+    // Prepared style tests
+    @Test
+    void generateQrCode_ShouldRenderSameImageAsUnpreparedRequest() throws IOException, TranscoderException {
+        String testData = "https://example.com";
+        PreparedStyle style = qrCodeService.prepareStyle("FF0000", "FFFFFF", null, null);
 
+        byte[] prepared = qrCodeService.generateQrCode(testData, style);
+        byte[] direct = qrCodeService.generateQrCodeWithLogo(testData, "FF0000", "FFFFFF", null);
+
+        assertArrayEquals(direct, prepared, "Prepared style should render the same image");
+    }
+
+    @Test
+    void prepareStyle_ShouldComposeCustomLogoBadge() throws IOException, TranscoderException {
+        BufferedImage img = new BufferedImage(120, 60, BufferedImage.TYPE_INT_ARGB);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", baos);
+
+        PreparedStyle style = qrCodeService.prepareStyle("#000000", "FFFFFF", baos.toByteArray(), "image/png");
+
+        assertAll(
+                () -> assertEquals(0xFF000000, style.foregroundColor(), "Foreground should be parsed"),
+                () -> assertEquals(0xFFFFFFFF, style.backgroundColor(), "Background should be parsed"),
+                () -> assertEquals(60, style.badge().logoWidth(), "Logo should be scaled to the logo size"),
+                () -> assertEquals(30, style.badge().logoHeight(), "Logo should keep its aspect ratio")
+        );
+    }
+
+    @Test
+    void prepareStyle_ShouldRejectInvalidColor() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.prepareStyle("XYZ", "FFFFFF", null, null));
+        assertTrue(exception.getMessage().contains("Invalid hex color format"));
+    }
+
+    @Test
+    void generateQrCodeWithLogo_ShouldServeRepeatedRequestsFromRenderCache() throws IOException, TranscoderException {
+        LocalRenderCache cache = new LocalRenderCache(1 << 20);
+        QrCodeService cachingService = new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF",
+                                                         new SvgLogoRasterizer(), new BandEncoder(),
+                                                         new MatrixCache(), cache, new RenderMemoryBudget());
+
+        byte[] first = cachingService.generateQrCodeWithLogo("https://github.com", "#5dade2", "FFFFFF", null);
+        byte[] second = cachingService.generateQrCodeWithLogo("https://github.com", "5DADE2", "FFFFFF", null);
+        byte[] restyled = cachingService.generateQrCodeWithLogo("https://github.com", "FF0000", "FFFFFF", null);
+
+        assertSame(first, second, "Equal colors in another notation should hit the cache");
+        assertNotSame(first, restyled, "Other colors should render again");
+        assertArrayEquals(qrCodeService.generateQrCodeWithLogo("https://github.com", "5DADE2", "FFFFFF", null), first,
+                          "Cached images should match uncached renders");
+    }
+
+    @Test
+    void prepareStyle_ShouldFingerprintInputsForCaching() throws IOException, TranscoderException {
+        PreparedStyle style = qrCodeService.prepareStyle("5DADE2", "FFFFFF", null, null);
+
+        assertEquals(style.fingerprint(), qrCodeService.prepareStyle("#5dade2", "ffffff", null, null).fingerprint());
+        assertNotEquals(style.fingerprint(), qrCodeService.prepareStyle("5DADE2", "000000", null, null).fingerprint());
+        assertEquals(style.fingerprint(),
+                     new QrCodeService(new ClassPathResource("logo.svg"), "000000", "FFFFFF")
+                             .prepareStyle("5DADE2", "FFFFFF", null, null).fingerprint(),
+                     "Fingerprints should match across instances");
+    }
+
+    @Test
+    void generateQrCodeWithLogo_ShouldBeRejected_WhenMemoryBudgetIsExhausted() {
+        RenderMemoryBudget budget = new RenderMemoryBudget(1 << 20, 0, new SimpleMeterRegistry());
+        QrCodeService budgetedService = new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF",
+                                                          new SvgLogoRasterizer(), new BandEncoder(),
+                                                          new MatrixCache(), RenderCache.none(), budget);
+
+        try (RenderMemoryBudget.Reservation held = budget.reserve("print", 1 << 20)) {
+            assertThrows(RenderCapacityException.class,
+                         () -> budgetedService.generateQrCodeWithLogo("https://github.com"));
+        }
+        assertEquals(0, budget.reservedBytes(), "A rejected render should not hold any memory");
+    }
+
+    @Test
+    void preparePrint_ShouldHoldItsReservationUntilWritten() throws IOException, TranscoderException {
+        RenderMemoryBudget budget = new RenderMemoryBudget(256L << 20, 0, new SimpleMeterRegistry());
+        QrCodeService budgetedService = new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF",
+                                                          new SvgLogoRasterizer(), new BandEncoder(),
+                                                          new MatrixCache(), RenderCache.none(), budget);
+
+        PrintImage image = budgetedService.preparePrint("https://github.com", "5DADE2", "FFFFFF", null, null, 2000, 300);
+        assertTrue(budget.reservedBytes() > 0, "The badge and bands should stay reserved until written");
+
+        image.writePng(new ByteArrayOutputStream());
+        assertEquals(0, budget.reservedBytes());
+    }
+
+    @Test
+    void generateQrCodeWithLogo_ShouldServeOnlyCachedCodes_AtCachedOnlyTier() throws IOException, TranscoderException {
+        LocalRenderCache cache = new LocalRenderCache(1 << 20);
+        QrCodeService fullService = tieredService(cache, new RenderTierPolicy());
+        QrCodeService sheddingService = tieredService(cache, policyAt(RenderTier.CACHED_ONLY));
+        byte[] cached = fullService.generateQrCodeWithLogo("https://github.com", "5DADE2", "FFFFFF", null);
+
+        assertSame(cached, sheddingService.generateQrCodeWithLogo("https://github.com", "5DADE2", "FFFFFF", null));
+        assertSame(cached, sheddingService.generateQrCodeWithLogo("https://github.com", "5DADE2", "FFFFFF", pngLogo()),
+                   "An uploaded logo should fall back to the cached code with the default logo");
+        assertThrows(RenderCapacityException.class,
+                     () -> sheddingService.generateQrCodeWithLogo("https://example.com", "5DADE2", "FFFFFF", null));
+    }
+
+    @Test
+    void generateQrCodeWithLogo_ShouldRenderTheDefaultLogoWithoutCaching_AtDefaultLogoTier()
+            throws IOException, TranscoderException {
+        LocalRenderCache cache = new LocalRenderCache(1 << 20);
+        QrCodeService degradedService = tieredService(cache, policyAt(RenderTier.DEFAULT_LOGO));
+
+        byte[] degraded = degradedService.generateQrCodeWithLogo("https://github.com", "5DADE2", "FFFFFF", pngLogo());
+        byte[] full = qrCodeService.generateQrCodeWithLogo("https://github.com", "5DADE2", "FFFFFF", null);
+
+        BufferedImage expected = ImageIO.read(new ByteArrayInputStream(full));
+        BufferedImage actual = ImageIO.read(new ByteArrayInputStream(degraded));
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "Pixel (" + x + ", " + y + ")");
+            }
+        }
+        assertTrue(degraded.length > full.length, "The fastest deflate level should compress less");
+        assertEquals(0, cache.bytes(), "Degraded codes should not be cached");
+    }
+
+    @Test
+    void renderQrCodeWithLogo_ShouldReportTheTier_WithoutATrace() throws IOException, TranscoderException {
+        LocalRenderCache cache = new LocalRenderCache(1 << 20);
+        tieredService(cache, new RenderTierPolicy()).generateQrCodeWithLogo("https://github.com", "5DADE2", "FFFFFF", null);
+        QrCodeService degradedService = tieredService(cache, policyAt(RenderTier.DEFAULT_LOGO));
+        QrCodeService sheddingService = tieredService(cache, policyAt(RenderTier.CACHED_ONLY));
+
+        assertNull(RenderTrace.current().tier(), "No trace should be active");
+        assertEquals(RenderTier.DEFAULT_LOGO,
+                     degradedService.renderQrCodeWithLogo("https://example.com", "5DADE2", "FFFFFF", null).tier());
+        assertEquals(RenderTier.CACHED_ONLY,
+                     sheddingService.renderQrCodeWithLogo("https://github.com", "5DADE2", "FFFFFF", null).tier(),
+                     "A cached code should report the tier it was served at");
+    }
+
+    private static QrCodeService tieredService(RenderCache cache, RenderTierPolicy tiers) {
+        return new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF", new SvgLogoRasterizer(),
+                                 new BandEncoder(), new MatrixCache(), cache, new RenderMemoryBudget(), tiers);
+    }
+
+    /**
+     * A policy stepped down to {@code tier} by two requests held in flight, which then stays there: single
+     * requests are too little load to step down further, and it recovers only after an hour.
+     */
+    private static RenderTierPolicy policyAt(RenderTier tier) {
+        RenderTierPolicy policy = new RenderTierPolicy(true, 2, 60_000, 0.5, 0, 3_600_000,
+                                                       new SimpleMeterRegistry(), System::nanoTime);
+        try (RenderTierPolicy.Admission first = policy.admit(); RenderTierPolicy.Admission second = policy.admit()) {
+            for (RenderTier current = policy.current(); current != tier; current = policy.current()) {
+                assertNotEquals(RenderTier.CACHED_ONLY, current);
+            }
+        }
+        return policy;
+    }
+
+    private static MockMultipartFile pngLogo() throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB), "png", png);
+        return new MockMultipartFile("logo", "logo.png", "image/png", png.toByteArray());
+    }
+}
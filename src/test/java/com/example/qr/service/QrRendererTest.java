@@ -0,0 +1,111 @@
+package com.example.qr.service;
+
+import io.nayuki.qrcodegen.QrCode;
+import org.apache.batik.transcoder.TranscoderException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrRendererTest {
+
+    private static final String DATA = "https://example.com/catalog/item/42";
+    private static final Pattern MODULE = Pattern.compile("h1v1h-1z");
+
+    private SvgLogoRasterizer svgLogoRasterizer;
+    private BandEncoder bandEncoder;
+    private QrRenderer renderer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        svgLogoRasterizer = new SvgLogoRasterizer();
+        bandEncoder = new BandEncoder();
+        renderer = new QrRenderer(new ClassPathResource("logo.svg").getContentAsByteArray(), svgLogoRasterizer,
+                                  bandEncoder, new MatrixCache(), new RenderMemoryBudget());
+    }
+
+    @AfterEach
+    void tearDown() {
+        svgLogoRasterizer.close();
+        bandEncoder.close();
+    }
+
+    @Test
+    void renderPng_MatchesTheServiceRender() throws IOException, TranscoderException {
+        QrCodeService service = new QrCodeService(new ClassPathResource("logo.svg"), "000000", "FFFFFF");
+        PreparedStyle style = renderer.prepareStyle(0xFF5DADE2, 0xFFFFFFFF, null, null);
+
+        byte[] png = renderer.renderPng(DATA, style);
+
+        assertArrayEquals(service.generateQrCode(DATA, service.prepareStyle("5DADE2", "FFFFFF", null, null)), png);
+        assertNull(style.fingerprint(), "Core styles are not cacheable");
+    }
+
+    @Test
+    void renderPng_DrawsTheSameCodeWithAndWithoutARasterTemplate() throws IOException, TranscoderException {
+        PreparedStyle style = renderer.prepareStyle(0xFF5DADE2, 0xFFFFF0E0, null, null);
+
+        byte[] direct = renderer.renderPng(DATA, style);
+        byte[] buildingTemplate = renderer.renderPng(DATA, style);
+        byte[] fromTemplate = renderer.renderPng(DATA, style);
+
+        assertArrayEquals(direct, buildingTemplate);
+        assertArrayEquals(direct, fromTemplate);
+    }
+
+    @Test
+    void renderSvg_DrawsEveryDarkModuleWithTheSameGeometryAsThePng() throws Exception {
+        PreparedStyle style = renderer.prepareStyle(0xFF5DADE2, 0xFFFFF0E0, null, null);
+
+        String svg = renderer.renderSvg(DATA, style);
+
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                                                  .parse(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)));
+        BufferedImage png = ImageIO.read(new ByteArrayInputStream(renderer.renderPng(DATA, style)));
+        Element root = document.getDocumentElement();
+        assertEquals(String.valueOf(png.getWidth()), root.getAttribute("width"));
+        assertEquals(String.valueOf(png.getHeight()), root.getAttribute("height"));
+
+        NodeList paths = root.getElementsByTagName("path");
+        assertEquals(2, paths.getLength());
+        Element data = (Element) paths.item(0);
+        Element patterns = (Element) paths.item(1);
+        assertEquals("#5DADE2", data.getAttribute("fill"));
+        assertEquals("#000000", patterns.getAttribute("fill"));
+        assertEquals(3 * (24 + 9), MODULE.matcher(patterns.getAttribute("d")).results().count(),
+                     "Three finder patterns of 24 ring and 9 center modules");
+
+        ModuleMatrix matrix = ModuleMatrix.of(QrCode.encodeText(DATA, QrCode.Ecc.HIGH));
+        long dark = 0;
+        for (int y = 0; y < matrix.size(); y++) {
+            for (int x = 0; x < matrix.size(); x++) {
+                dark += matrix.isDark(x, y) ? 1 : 0;
+            }
+        }
+        assertEquals(dark, MODULE.matcher(data.getAttribute("d")).results().count() + 3 * (24 + 9));
+
+        Element badge = (Element) root.getElementsByTagName("image").item(0);
+        assertTrue(badge.getAttribute("href").startsWith("data:image/png;base64,"));
+        assertEquals(style.badge().x(png.getWidth()), Integer.parseInt(badge.getAttribute("x")));
+    }
+
+    @Test
+    void parseHexColor_AcceptsBothFormsAndRejectsOthers() {
+        assertEquals(0xFF5DADE2, QrRenderer.parseHexColor("5DADE2"));
+        assertEquals(0xFF5DADE2, QrRenderer.parseHexColor("#5dade2"));
+        assertThrows(IllegalArgumentException.class, () -> QrRenderer.parseHexColor("5DADE"));
+    }
+}
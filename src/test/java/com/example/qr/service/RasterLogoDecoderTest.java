@@ -0,0 +1,123 @@
+package com.example.qr.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RasterLogoDecoderTest {
+
+    @Test
+    void readDimensions_ShouldReadHeaderOnly() throws IOException {
+        byte[] png = pngWithHeaderDimensions(20000, 15000);
+
+        Dimension dimension = RasterLogoDecoder.readDimensions(new ByteArrayInputStream(png));
+
+        assertEquals(new Dimension(20000, 15000), dimension, "Dimensions should come from the IHDR chunk");
+    }
+
+    @Test
+    void decode_ShouldRejectOversizedImageBeforeDecodingPixels() throws IOException {
+        byte[] png = pngWithHeaderDimensions(20000, 20000);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> RasterLogoDecoder.decode(new ByteArrayInputStream(png), 60),
+                "Should reject images larger than the dimension limit");
+        assertTrue(exception.getMessage().contains("20000x20000"));
+    }
+
+    @Test
+    void decode_ShouldRejectImageExceedingPixelBudget() throws IOException {
+        byte[] png = pngWithHeaderDimensions(8000, 8000);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> RasterLogoDecoder.decode(new ByteArrayInputStream(png), 60),
+                "Should reject images with more than the maximum pixel count");
+    }
+
+    @Test
+    void decode_ShouldThrowIOException_WhenDataIsNotAnImage() {
+        assertThrows(IOException.class,
+                () -> RasterLogoDecoder.decode(new ByteArrayInputStream("not an image".getBytes()), 60),
+                "Should throw IOException for unreadable data");
+    }
+
+    @ParameterizedTest(name = "Should decode {0}x{1} {2} to {3}x{4}")
+    @CsvSource({
+            "3000, 2000, png, 60, 40",
+            "2000, 3000, jpg, 40, 60",
+            "600, 600, png, 60, 60",
+            "30, 30, png, 60, 60"
+    })
+    void decode_ShouldScaleToLogoSizeKeepingAspectRatio(int width, int height, String format,
+                                                        int expectedWidth, int expectedHeight) throws IOException {
+        byte[] encoded = encode(width, height, format);
+
+        BufferedImage logo = RasterLogoDecoder.decode(new ByteArrayInputStream(encoded), 60);
+
+        assertEquals(expectedWidth, logo.getWidth(), "Width should fit the logo size");
+        assertEquals(expectedHeight, logo.getHeight(), "Height should fit the logo size");
+    }
+
+    @ParameterizedTest(name = "Subsampling for {0}x{1} should be {2}")
+    @CsvSource({
+            "10000, 10000, 84",
+            "3000, 2000, 25",
+            "241, 241, 3",
+            "240, 240, 2",
+            "119, 119, 1",
+            "60, 60, 1"
+    })
+    void subsamplingFor_ShouldLeaveAtMostTwiceTheTargetResolution(int width, int height, int expected) {
+        int subsampling = RasterLogoDecoder.subsamplingFor(width, height, 60);
+
+        assertEquals(expected, subsampling);
+        int decoded = (Math.max(width, height) + subsampling - 1) / subsampling;
+        assertTrue(decoded <= 120, "Decoded side " + decoded + " should be at most twice the target");
+        assertTrue(decoded >= Math.min(60, Math.max(width, height)), "Decoded side should keep the target");
+    }
+
+    @Test
+    void scaleToFit_ShouldPreserveColors() {
+        BufferedImage source = new BufferedImage(1024, 1024, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = source.createGraphics();
+        g.setColor(new Color(0x5DADE2));
+        g.fillRect(0, 0, 1024, 1024);
+        g.dispose();
+
+        BufferedImage scaled = RasterLogoDecoder.scaleToFit(source, 60);
+
+        assertEquals(0xFF5DADE2, scaled.getRGB(30, 30), "Solid colors should survive progressive downscaling");
+    }
+
+    private static byte[] encode(int width, int height, String format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, format, baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Writes a tiny PNG and rewrites its IHDR chunk so the header claims the given dimensions.
+     */
+    private static byte[] pngWithHeaderDimensions(int width, int height) throws IOException {
+        byte[] png = encode(1, 1, "png");
+        ByteBuffer buffer = ByteBuffer.wrap(png);
+        buffer.putInt(16, width);
+        buffer.putInt(20, height);
+        CRC32 crc = new CRC32();
+        crc.update(png, 12, 17);
+        buffer.putInt(29, (int) crc.getValue());
+        return png;
+    }
+}
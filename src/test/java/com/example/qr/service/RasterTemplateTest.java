@@ -0,0 +1,128 @@
+package com.example.qr.service;
+
+import io.nayuki.qrcodegen.QrCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RasterTemplateTest {
+
+    private SvgLogoRasterizer svgLogoRasterizer;
+    private BandEncoder bandEncoder;
+    private LogoBadge badge;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        svgLogoRasterizer = new SvgLogoRasterizer();
+        bandEncoder = new BandEncoder();
+        QrRenderer renderer = new QrRenderer(new ClassPathResource("logo.svg").getContentAsByteArray(),
+                                             svgLogoRasterizer, bandEncoder, new MatrixCache(),
+                                             new RenderMemoryBudget());
+        badge = renderer.badge(null, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        svgLogoRasterizer.close();
+        bandEncoder.close();
+    }
+
+    @Test
+    void render_MatchesDrawingEveryModuleAndOverlayingTheBadge() {
+        int foreground = 0xFF5DADE2;
+        int background = 0xFFFFF0E0;
+        String[] payloads = {"https://example.com/a", "https://example.com/catalog/item/42?ref=newsletter",
+                             "x".repeat(150), "y".repeat(400), "z".repeat(1200)};
+        for (String payload : payloads) {
+            ModuleMatrix matrix = ModuleMatrix.of(QrCode.encodeText(payload, QrCode.Ecc.HIGH));
+            int scale = QrRenderer.STANDARD_SIZE / matrix.size();
+            RasterTemplate template = new RasterTemplate(matrix.version(), scale, 1, foreground, background, badge);
+
+            assertPixelsEqual(reference(matrix, scale, foreground, background), template.render(matrix),
+                              "version " + matrix.version());
+        }
+    }
+
+    @Test
+    void render_ReusesOneTemplateForDifferentPayloadsOfAVersion() {
+        ModuleMatrix first = ModuleMatrix.of(QrCode.encodeText("https://example.com/first", QrCode.Ecc.HIGH));
+        ModuleMatrix second = ModuleMatrix.of(QrCode.encodeText("https://example.com/other", QrCode.Ecc.HIGH));
+        assertEquals(first.version(), second.version());
+        assertNotEquals(first, second);
+        int scale = QrRenderer.STANDARD_SIZE / first.size();
+        RasterTemplate template = new RasterTemplate(first.version(), scale, 1, 0xFF000000, 0xFFFFFFFF, badge);
+
+        template.render(first);
+
+        assertPixelsEqual(reference(second, scale, 0xFF000000, 0xFFFFFFFF), template.render(second), "second");
+    }
+
+    @Test
+    void cache_AdmitsAStyleTheSecondTimeItIsSeen() {
+        RasterTemplate.Cache cache = new RasterTemplate.Cache(2);
+        RasterTemplate template = new RasterTemplate(1, 16, 1, 0xFF000000, 0xFFFFFFFF, badge);
+        RasterTemplate.Key key = new RasterTemplate.Key(1, 0xFF000000, 0xFFFFFFFF, badge);
+
+        assertFalse(cache.admit(key), "A style seen once should not get a template");
+        assertTrue(cache.admit(key));
+        cache.put(key, template);
+        assertSame(template, cache.get(key));
+
+        for (int version = 2; version <= 3; version++) {
+            RasterTemplate.Key other = new RasterTemplate.Key(version, 0xFF000000, 0xFFFFFFFF, badge);
+            cache.admit(other);
+            cache.admit(other);
+            cache.put(other, template);
+        }
+        assertEquals(2, cache.size());
+        assertNull(cache.get(key), "The least recently used template should be evicted");
+    }
+
+    /**
+     * Every dark module drawn on the background, position patterns in black, and the badge drawn on top.
+     */
+    private BufferedImage reference(ModuleMatrix matrix, int scale, int foreground, int background) {
+        int side = (matrix.size() + 2) * scale;
+        BufferedImage code = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = code.createGraphics();
+        g.setColor(new Color(background));
+        g.fillRect(0, 0, side, side);
+        for (int y = 0; y < matrix.size(); y++) {
+            for (int x = 0; x < matrix.size(); x++) {
+                if (matrix.isDark(x, y)) {
+                    g.setColor(ScanlineRaster.isInPositionPattern(x, y, matrix.size()) ? Color.BLACK
+                                                                                        : new Color(foreground));
+                    g.fillRect((x + 1) * scale, (y + 1) * scale, scale, scale);
+                }
+            }
+        }
+        g.dispose();
+        BufferedImage composed = new BufferedImage(side, side, BufferedImage.TYPE_INT_ARGB);
+        g = composed.createGraphics();
+        g.drawImage(code, 0, 0, null);
+        g.drawImage(badge.image(), badge.x(side), badge.y(side), null);
+        g.dispose();
+        return composed;
+    }
+
+    private static void assertPixelsEqual(BufferedImage expected, BufferedImage actual, String message) {
+        assertEquals(expected.getWidth(), actual.getWidth(), message);
+        assertEquals(expected.getHeight(), actual.getHeight(), message);
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int expectedPixel = expected.getRGB(x, y);
+                int actualPixel = actual.getRGB(x, y);
+                if (expectedPixel != actualPixel) {
+                    fail(String.format("%s: pixel (%d, %d) is %08X, expected %08X", message, x, y, actualPixel,
+                                       expectedPixel));
+                }
+            }
+        }
+    }
+}
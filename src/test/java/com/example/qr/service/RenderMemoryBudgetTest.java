@@ -0,0 +1,69 @@
+package com.example.qr.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderMemoryBudgetTest {
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void reserve_ShouldTrackReservedBytesUntilClosed() {
+        RenderMemoryBudget budget = new RenderMemoryBudget(1 << 20, 0, registry);
+
+        RenderMemoryBudget.Reservation reservation = budget.reserve("render", 100_000);
+
+        assertEquals(98 * 1024, budget.reservedBytes(), "Reservations should be rounded up to whole kilobytes");
+        assertEquals(98 * 1024, registry.get("qr.render.memory.reserved").gauge().value());
+        reservation.close();
+        reservation.close();
+        assertEquals(0, budget.reservedBytes(), "Closing twice should release once");
+    }
+
+    @Test
+    void reserve_ShouldRejectWhenTheBudgetIsExhausted() {
+        RenderMemoryBudget budget = new RenderMemoryBudget(1 << 20, 10, registry);
+
+        try (RenderMemoryBudget.Reservation held = budget.reserve("print", 800 * 1024)) {
+            assertThrows(RenderCapacityException.class, () -> budget.reserve("logo", 300 * 1024));
+            assertEquals(1, registry.get("qr.render.memory.rejected").tag("purpose", "logo").counter().count());
+            assertDoesNotThrow(() -> budget.reserve("logo", 200 * 1024).close(),
+                               "Smaller reservations should still fit");
+        }
+    }
+
+    @Test
+    void reserve_ShouldWaitBrieflyForReleasedMemory() throws Exception {
+        RenderMemoryBudget budget = new RenderMemoryBudget(1 << 20, 5_000, registry);
+        RenderMemoryBudget.Reservation held = budget.reserve("print", 1 << 20);
+
+        CompletableFuture<RenderMemoryBudget.Reservation> waiting =
+                CompletableFuture.supplyAsync(() -> budget.reserve("render", 1 << 19));
+        Thread.sleep(50);
+        assertFalse(waiting.isDone(), "The reservation should wait while the budget is held");
+        held.close();
+
+        waiting.get(5, TimeUnit.SECONDS).close();
+        assertEquals(0, budget.reservedBytes());
+    }
+
+    @Test
+    void reserve_ShouldLimitOversizedReservationsToTheWholeBudget() {
+        RenderMemoryBudget budget = new RenderMemoryBudget(1 << 20, 0, registry);
+
+        try (RenderMemoryBudget.Reservation reservation = budget.reserve("sprites", 1L << 30)) {
+            assertEquals(budget.capacityBytes(), budget.reservedBytes());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.qr.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderTierPolicyTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    /** Overloaded at 4 requests in flight or 100 ms renders; down after 1 s, up after 5 s below half load. */
+    private final RenderTierPolicy policy = new RenderTierPolicy(true, 4, 100, 0.5, 1000, 5000, registry, now::get);
+
+    @Test
+    void current_StepsDownOneTierPerPeriodOfSustainedOverload() {
+        render(300);
+        assertEquals(RenderTier.FULL, policy.current());
+        advance(1000);
+        assertEquals(RenderTier.FULL, policy.current(), "A single slow render should not count as overload");
+
+        overload();
+        assertEquals(RenderTier.FULL, policy.current(), "Overload should last a while before the tier drops");
+
+        advance(1000);
+        assertEquals(RenderTier.PLAIN_BADGE, policy.current());
+        advance(500);
+        assertEquals(RenderTier.PLAIN_BADGE, policy.current(), "Each step should wait the full period again");
+        advance(500);
+        assertEquals(RenderTier.FAST_DEFLATE, policy.current());
+        for (int i = 0; i < 5; i++) {
+            advance(1000);
+            policy.current();
+        }
+        assertEquals(RenderTier.CACHED_ONLY, policy.current());
+        assertEquals(1, registry.get("qr.render.tier.changes").tag("tier", "cached-only").counter().count());
+        assertEquals(4, registry.get("qr.render.tier").gauge().value());
+    }
+
+    @Test
+    void current_CountsRequestsInFlight() {
+        RenderTierPolicy.Admission[] admissions = new RenderTierPolicy.Admission[4];
+        for (int i = 0; i < admissions.length; i++) {
+            admissions[i] = policy.admit();
+        }
+        advance(1000);
+        assertEquals(RenderTier.PLAIN_BADGE, policy.current());
+        assertEquals(4, registry.get("qr.render.in-flight").gauge().value());
+
+        for (RenderTierPolicy.Admission admission : admissions) {
+            admission.close();
+            admission.close();
+        }
+        assertEquals(0, registry.get("qr.render.in-flight").gauge().value(), "Closing twice should count once");
+    }
+
+    @Test
+    void current_HoldsTheTierBetweenThresholdsAndRecoversSlowly() {
+        overload();
+        advance(1000);
+        assertEquals(RenderTier.PLAIN_BADGE, policy.current());
+
+        // 70 ms on average is below the overload threshold but above the recovery threshold
+        for (int i = 0; i < 20; i++) {
+            render(70);
+        }
+        advance(60_000);
+        render(70);
+        assertEquals(RenderTier.PLAIN_BADGE, policy.current(), "Load between the thresholds should keep the tier");
+
+        for (int i = 0; i < 20; i++) {
+            render(10);
+        }
+        advance(4000);
+        assertEquals(RenderTier.PLAIN_BADGE, policy.current(), "Recovery should wait longer than degrading");
+        advance(1000);
+        assertEquals(RenderTier.FULL, policy.current());
+    }
+
+    @Test
+    void current_RecoversFromCachedOnlyOnceRendersStop() {
+        overload();
+        for (int i = 0; i < 4; i++) {
+            advance(1000);
+            policy.current();
+        }
+        assertEquals(RenderTier.CACHED_ONLY, policy.current());
+
+        // No renders run at this tier; the last render's latency stops counting after the recovery period
+        advance(5000);
+        assertEquals(RenderTier.CACHED_ONLY, policy.current());
+        advance(5000);
+        assertEquals(RenderTier.DEFAULT_LOGO, policy.current());
+    }
+
+    @Test
+    void current_IsAlwaysFull_WhenDisabled() {
+        RenderTierPolicy disabled = new RenderTierPolicy(false, 1, 1, 0.5, 0, 0, registry, now::get);
+        try (RenderTierPolicy.Admission first = disabled.admit();
+             RenderTierPolicy.Admission second = disabled.admit()) {
+            first.rendering();
+            advance(1000);
+            assertEquals(RenderTier.FULL, second.tier());
+            assertEquals(RenderTier.FULL, disabled.current());
+        }
+    }
+
+    /**
+     * Three slow renders, enough to bring the latency average above the target.
+     */
+    private void overload() {
+        for (int i = 0; i < 3; i++) {
+            render(300);
+        }
+    }
+
+    private void render(long millis) {
+        try (RenderTierPolicy.Admission admission = policy.admit()) {
+            admission.rendering();
+            advance(millis);
+        }
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
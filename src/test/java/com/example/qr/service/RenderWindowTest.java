@@ -0,0 +1,81 @@
+package com.example.qr.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderWindowTest {
+
+    private final ExecutorService workers = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        workers.shutdownNow();
+    }
+
+    @Test
+    void submit_ShouldWriteInSubmissionOrderWithBoundedRendersInFlight() throws IOException {
+        List<Integer> written = new ArrayList<>();
+        AtomicInteger submitted = new AtomicInteger();
+        try (RenderWindow<Integer> window = new RenderWindow<>(workers::submit, 3, (key, image) -> {
+            assertTrue(submitted.get() - written.size() <= 3, "No more than the window should be in flight");
+            written.add(key);
+        })) {
+            for (int i = 0; i < 20; i++) {
+                int key = i;
+                submitted.incrementAndGet();
+                // Later renders finish first, so order comes from the window rather than the workers
+                window.submit(key, () -> {
+                    Thread.sleep((20 - key) % 4);
+                    return new byte[]{(byte) key};
+                });
+            }
+            window.finish();
+        }
+
+        assertEquals(20, written.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, written.get(i));
+        }
+    }
+
+    @Test
+    void failed_ShouldEndTheRunAndCancelRendersInFlight() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        List<Future<byte[]>> futures = new ArrayList<>();
+        RenderWindow<String> window = new RenderWindow<>(render -> {
+            Future<byte[]> future = workers.submit(render);
+            futures.add(future);
+            return future;
+        }, 3, (key, image) -> fail("Nothing should be written"));
+
+        IOException failure = assertThrows(IOException.class, () -> {
+            window.submit("first", () -> {
+                throw new IOException("broken");
+            });
+            window.submit("second", () -> {
+                blocked.await();
+                return new byte[0];
+            });
+            window.submit("third", () -> new byte[0]);
+        });
+        window.close();
+
+        assertEquals("broken", failure.getMessage());
+        assertTrue(futures.get(1).isCancelled(), "Renders still in flight should be cancelled");
+        blocked.countDown();
+        workers.shutdown();
+        assertTrue(workers.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.qr.service;
+
+import com.example.qr.cache.RenderCache;
+import com.example.qr.model.SerialRange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.batik.transcoder.TranscoderException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerialRunTest {
+
+    private QrCodeService qrCodeService;
+    private PreparedStyle style;
+
+    @BeforeEach
+    void setUp() throws IOException, TranscoderException {
+        qrCodeService = new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF");
+        style = qrCodeService.prepareStyle("5DADE2", "FFFFFF", null, null);
+    }
+
+    @Test
+    void writeZip_ShouldRenderEveryNumberInOrderMatchingSingleRenders() throws IOException {
+        SerialRange range = new SerialRange("ASSET-", 98, 137, 6);
+
+        Map<String, byte[]> entries = unzip(qrCodeService.prepareSerialRun(range, "png", 0, style));
+
+        assertEquals(40, entries.size());
+        assertEquals("ASSET-000098.png", entries.keySet().iterator().next());
+        assertEquals(List.copyOf(entries.keySet()).getLast(), "ASSET-000137.png");
+        assertArrayEquals(qrCodeService.generateQrCode("ASSET-000120", style), entries.get("ASSET-000120.png"));
+    }
+
+    @Test
+    void writeZip_ShouldResumeFromAnOffsetWithIdenticalEntries() throws IOException {
+        SerialRange range = new SerialRange("https://example.com/t/", 1, 30, 0);
+
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        qrCodeService.prepareSerialRun(range, "svg", 0, style).writeZip(full);
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        qrCodeService.prepareSerialRun(range, "svg", 0, style).writeZip(again);
+        SerialRun resumed = qrCodeService.prepareSerialRun(range, "svg", 25, style);
+        Map<String, byte[]> tail = unzip(resumed);
+
+        assertArrayEquals(full.toByteArray(), again.toByteArray(), "The same range should give the same bytes");
+        assertEquals(5, resumed.count());
+        assertEquals(List.of("https___example.com_t_26.svg", "https___example.com_t_27.svg",
+                             "https___example.com_t_28.svg", "https___example.com_t_29.svg",
+                             "https___example.com_t_30.svg"),
+                     List.copyOf(tail.keySet()));
+        Map<String, byte[]> head = unzip(full.toByteArray());
+        for (Map.Entry<String, byte[]> entry : tail.entrySet()) {
+            assertArrayEquals(head.get(entry.getKey()), entry.getValue(), entry.getKey());
+        }
+    }
+
+    @Test
+    void prepareSerialRun_ShouldRejectInvalidRuns() {
+        SerialRange range = new SerialRange("A", 1, 10, 2);
+
+        assertThrows(IllegalArgumentException.class, () -> qrCodeService.prepareSerialRun(range, "gif", 0, style));
+        assertThrows(IllegalArgumentException.class, () -> qrCodeService.prepareSerialRun(range, "png", 10, style));
+        assertThrows(IllegalArgumentException.class,
+                     () -> qrCodeService.prepareSerialRun(new SerialRange("A", 0, 2_000_000, 0), "png", 0, style));
+        assertThrows(IllegalArgumentException.class, () -> new SerialRange("A", 5, 4, 0));
+        assertThrows(IllegalArgumentException.class, () -> new SerialRange("A", 0, 4, 19));
+        assertThrows(IllegalArgumentException.class, () -> new SerialRange("x".repeat(257), 0, 4, 0));
+    }
+
+    @Test
+    void prepareSerialRun_ShouldAdmitOnlyTheConfiguredNumberOfRuns() throws IOException {
+        SerialRange range = new SerialRange("A", 1, 3, 0);
+        try (SerialRenderPool pool = new SerialRenderPool(1, 1)) {
+            QrCodeService service = serviceWith(new RenderMemoryBudget(), pool);
+            SerialRun first = service.prepareSerialRun(range, "png", 0, style);
+
+            assertThrows(RenderCapacityException.class, () -> service.prepareSerialRun(range, "png", 0, style));
+            first.writeZip(new ByteArrayOutputStream());
+            assertEquals(3, unzip(service.prepareSerialRun(range, "png", 0, style)).size(),
+                         "Writing a run should free its slot");
+        }
+    }
+
+    @Test
+    void writeZip_ShouldWaitForMemoryInsteadOfAbortingTheArchive() throws Exception {
+        RenderMemoryBudget budget = new RenderMemoryBudget(64 * 1024 * 1024, 10, new SimpleMeterRegistry());
+        try (SerialRenderPool pool = new SerialRenderPool(2, 1)) {
+            SerialRun run = serviceWith(budget, pool).prepareSerialRun(new SerialRange("A", 1, 10, 0), "png", 0, style);
+            assertTrue(budget.reservedBytes() > 0, "The central directory should be reserved");
+            RenderMemoryBudget.Reservation everything = budget.reserve("test",
+                                                                       budget.capacityBytes() - budget.reservedBytes());
+
+            CompletableFuture<Map<String, byte[]>> entries = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return unzip(run);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            Thread.sleep(300);
+            assertFalse(entries.isDone(), "Renders should wait while the budget is exhausted");
+            everything.close();
+
+            assertEquals(10, entries.get(30, TimeUnit.SECONDS).size());
+            assertEquals(0, budget.reservedBytes(), "Everything should be released once the archive is written");
+        }
+    }
+
+    @Test
+    void serialRange_ShouldPadNumbersToTheMinimumDigits() {
+        SerialRange range = new SerialRange("", 7, 1234, 3);
+
+        assertEquals(1228, range.count());
+        assertEquals("007", range.payload(0));
+        assertEquals("1234", range.payload(1227));
+        assertThrows(IndexOutOfBoundsException.class, () -> range.payload(1228));
+    }
+
+    private static QrCodeService serviceWith(RenderMemoryBudget budget, SerialRenderPool pool) {
+        return new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF", new SvgLogoRasterizer(),
+                                 new BandEncoder(), new MatrixCache(), RenderCache.none(), budget,
+                                 new RenderTierPolicy(), pool);
+    }
+
+    private static Map<String, byte[]> unzip(SerialRun run) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        run.writeZip(out);
+        return unzip(out.toByteArray());
+    }
+
+    private static Map<String, byte[]> unzip(byte[] archive) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
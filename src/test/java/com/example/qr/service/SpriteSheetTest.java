@@ -0,0 +1,163 @@
+package com.example.qr.service;
+
+import com.example.qr.cache.RenderCache;
+import com.example.qr.model.SpriteIndex;
+import io.nayuki.qrcodegen.QrCode;
+import org.apache.batik.transcoder.TranscoderException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpriteSheetTest {
+
+    private QrCodeService qrCodeService;
+    private PreparedStyle style;
+
+    @BeforeEach
+    void setUp() throws IOException, TranscoderException {
+        qrCodeService = new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF");
+        style = qrCodeService.prepareStyle("FF0000", "00FF00", null, null);
+    }
+
+    @Test
+    void index_ShouldMapPayloadsToTilesRowByRow() {
+        SpriteSheet sheet = qrCodeService.prepareSpriteSheet(payloads(5), 2, 100, style);
+
+        SpriteIndex index = sheet.index();
+
+        assertEquals(200, index.width());
+        assertEquals(300, index.height(), "Five tiles in two columns need three rows");
+        assertEquals(new SpriteIndex.Tile(3, "https://example.com/3", 100, 100), index.tiles().get(3));
+        assertEquals(new SpriteIndex.Tile(4, "https://example.com/4", 0, 200), index.tiles().get(4));
+    }
+
+    @Test
+    void index_ShouldDefaultToSquareGrid() {
+        SpriteIndex index = qrCodeService.prepareSpriteSheet(payloads(10), null, null, style).index();
+
+        assertEquals(4, index.columns(), "Ten tiles should be laid out four wide");
+        assertEquals(200, index.tileSize(), "Default tile size should be 200 pixels");
+    }
+
+    @Test
+    void writePng_ShouldDrawEveryTileInItsRegion() throws IOException {
+        SpriteSheet sheet = qrCodeService.prepareSpriteSheet(payloads(6), 3, 160, style);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sheet.writePng(out);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(480, image.getWidth());
+        assertEquals(320, image.getHeight());
+        for (SpriteIndex.Tile tile : sheet.index().tiles()) {
+            QrCode qr = QrCode.encodeText(tile.data(), QrCode.Ecc.HIGH);
+            int scale = 160 / (qr.size + 2);
+            int origin = (160 - qr.size * scale) / 2;
+            assertEquals(0xFF00FF00, image.getRGB(tile.x() + 1, tile.y() + 1),
+                         "Tile " + tile.index() + " quiet zone should use the background color");
+            assertEquals(0xFF000000, image.getRGB(tile.x() + origin + scale / 2, tile.y() + origin + scale / 2),
+                         "Tile " + tile.index() + " position pattern should be black");
+            assertEquals(0xFFFFFFFF, image.getRGB(tile.x() + 80 - 12, tile.y() + 80),
+                         "Tile " + tile.index() + " should have the white badge background at its center");
+        }
+    }
+
+    @Test
+    void prepareSpriteIndex_ShouldMatchTheSheetWithoutEncoding() {
+        MatrixCache matrixCache = new MatrixCache();
+        QrCodeService service = new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF",
+                                                  new SvgLogoRasterizer(), new BandEncoder(), matrixCache,
+                                                  RenderCache.none(), new RenderMemoryBudget());
+        // Far too long for 64 px tiles, which only the sheet itself detects
+        List<String> payloads = List.of("short", "X".repeat(800));
+
+        SpriteIndex index = service.prepareSpriteIndex(payloads, null, 64);
+
+        assertEquals(2, index.tiles().size());
+        assertEquals(128, index.width());
+        assertEquals(0, matrixCache.bytes(), "The index should not encode anything");
+    }
+
+    @Test
+    void prepareSpriteSheet_ShouldNotFillTheMatrixCache() {
+        MatrixCache matrixCache = new MatrixCache();
+        QrCodeService service = new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF",
+                                                  new SvgLogoRasterizer(), new BandEncoder(), matrixCache,
+                                                  RenderCache.none(), new RenderMemoryBudget());
+
+        assertEquals(qrCodeService.prepareSpriteSheet(payloads(20), null, null, style).index(),
+                     service.prepareSpriteSheet(payloads(20), null, null, style).index());
+        assertEquals(0, matrixCache.bytes(), "One-off sprite payloads should not be cached");
+    }
+
+    @Test
+    void render_ShouldComposeTheBadgeForTilesLargerThanStandard() throws IOException, TranscoderException {
+        SpriteSheet sheet = qrCodeService.prepareSpriteSheet(List.of("https://example.com"), null, 800, style);
+        PrintImage print = qrCodeService.preparePrint("https://example.com", "FF0000", "00FF00", null, null, 800, 72);
+
+        BufferedImage tile = sheet.render();
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        print.writePng(printed);
+        BufferedImage expected = ImageIO.read(new ByteArrayInputStream(printed.toByteArray()));
+
+        // The print render composes its badge from the logo at full size; an enlarged badge would differ
+        for (int y = 370; y < 430; y++) {
+            for (int x = 370; x < 430; x++) {
+                assertEquals(expected.getRGB(x, y) & 0xFFFFFF, tile.getRGB(x, y) & 0xFFFFFF, "Pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void render_ShouldBeDeterministicAcrossParallelRuns() throws IOException {
+        SpriteSheet sheet = qrCodeService.prepareSpriteSheet(payloads(40), 8, 96, style);
+
+        BufferedImage first = sheet.render();
+        BufferedImage second = sheet.render();
+
+        for (int y = 0; y < first.getHeight(); y += 3) {
+            for (int x = 0; x < first.getWidth(); x += 3) {
+                assertEquals(first.getRGB(x, y), second.getRGB(x, y), "Pixel (" + x + "," + y + ") should match");
+            }
+        }
+    }
+
+    @Test
+    void prepareSpriteSheet_ShouldRejectInvalidRequests() {
+        assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.prepareSpriteSheet(List.of(), null, null, style));
+        assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.prepareSpriteSheet(payloads(2), 3, null, style), "More columns than payloads");
+        assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.prepareSpriteSheet(payloads(2), null, 32, style), "Tiles too small");
+        assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.prepareSpriteSheet(payloads(1000), null, 1000, style), "Too many pixels");
+    }
+
+    @Test
+    void prepareSpriteSheet_ShouldRejectTilesTooSmallForTheirCode() {
+        // 800 characters need a code well over 100 modules wide
+        List<String> payloads = List.of("short", "X".repeat(800));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.prepareSpriteSheet(payloads, null, 100, style));
+
+        assertTrue(exception.getMessage().contains("payload 1"), exception.getMessage());
+        assertEquals(2, qrCodeService.prepareSpriteSheet(payloads, null, 200, style).index().tiles().size(),
+                     "A tile with a pixel per module should be accepted");
+    }
+
+    private static List<String> payloads(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "https://example.com/" + i).toList();
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.qr.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.batik.transcoder.TranscoderException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SvgLogoRasterizerTest {
+
+    private SimpleMeterRegistry registry;
+    private SvgLogoRasterizer rasterizer;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        rasterizer = new SvgLogoRasterizer(1, 4, 5000, 1000, 16, 2, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        rasterizer.close();
+    }
+
+    @Test
+    void rasterize_ShouldRenderDefaultLogo() throws IOException, TranscoderException {
+        byte[] svg = Files.readAllBytes(Paths.get("src/main/resources/logo.svg"));
+
+        BufferedImage image = rasterizer.rasterize(svg, 60);
+
+        assertEquals(60, image.getWidth(), "Width should match the requested size");
+        assertEquals(60, image.getHeight(), "Height should match the requested size");
+    }
+
+    @ParameterizedTest(name = "Should reject SVG: {1}")
+    @CsvSource(delimiter = '|', value = {
+            "<svg xmlns='http://www.w3.org/2000/svg'><image href='http://example.com/a.png'/></svg> | external-reference",
+            "<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink'><use xlink:href='file:///etc/passwd#x'/></svg> | external-reference",
+            "<svg xmlns='http://www.w3.org/2000/svg'><rect style='fill:url(http://example.com/p.svg#g)'/></svg> | external-reference",
+            "<svg xmlns='http://www.w3.org/2000/svg'><style>@import url(http://example.com/x.css);</style></svg> | external-reference",
+            "<svg xmlns='http://www.w3.org/2000/svg'><image href='data:image/svg+xml;base64,PHN2Zy8+'/></svg> | external-reference",
+            "<svg xmlns='http://www.w3.org/2000/svg'><image href='data:image/png;base64,bm90IGEgcG5n'/></svg> | embedded-image",
+            "<svg xmlns='http://www.w3.org/2000/svg'><script>alert(1)</script></svg> | script",
+            "<svg xmlns='http://www.w3.org/2000/svg' onload='alert(1)'></svg> | script",
+            "<svg xmlns='http://www.w3.org/2000/svg'><filter><feGaussianBlur/><feOffset/></filter></svg> | filters",
+            "<svg xmlns='http://www.w3.org/2000/svg'><rect></svg> | malformed"
+    })
+    void rasterize_ShouldRejectUnsafeOrExpensiveSvg(String svg, String reason) {
+        SvgRejectedException exception = assertThrows(SvgRejectedException.class,
+                () -> rasterizer.rasterize(svg.getBytes(StandardCharsets.UTF_8), 60));
+
+        assertEquals(reason, exception.getReason(), "Should report the violated limit");
+        assertEquals(1.0, registry.get("qr.logo.svg.rejected").tag("reason", reason).counter().count(),
+                     "Rejection should be counted");
+    }
+
+    @Test
+    void rasterize_ShouldRejectDeeplyNestedSvg() {
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg'>" + "<g>".repeat(20) + "</g>".repeat(20) + "</svg>";
+
+        SvgRejectedException exception = assertThrows(SvgRejectedException.class,
+                () -> rasterizer.rasterize(svg.getBytes(StandardCharsets.UTF_8), 60));
+
+        assertEquals("depth", exception.getReason());
+    }
+
+    @Test
+    void rasterize_ShouldRejectSvgWithTooManyElements() {
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg'>" + "<rect width='1' height='1'/>".repeat(1000) + "</svg>";
+
+        SvgRejectedException exception = assertThrows(SvgRejectedException.class,
+                () -> rasterizer.rasterize(svg.getBytes(StandardCharsets.UTF_8), 60));
+
+        assertEquals("elements", exception.getReason());
+    }
+
+    @Test
+    void rasterize_ShouldCountElementsCopiedByUse() {
+        // Ten elements that <use> multiplies ten thousand times
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink'><defs>"
+                     + "<rect id='a' width='1' height='1'/>"
+                     + "<g id='b'>" + "<use xlink:href='#a'/>".repeat(10) + "</g>"
+                     + "<g id='c'>" + "<use xlink:href='#b'/>".repeat(10) + "</g></defs>"
+                     + "<use xlink:href='#c'/>".repeat(10) + "</svg>";
+
+        SvgRejectedException exception = assertThrows(SvgRejectedException.class,
+                () -> rasterizer.rasterize(svg.getBytes(StandardCharsets.UTF_8), 60));
+
+        assertEquals("elements", exception.getReason());
+    }
+
+    @Test
+    void rasterize_ShouldRejectLargeEmbeddedImages() throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(2100, 2000, BufferedImage.TYPE_BYTE_BINARY), "png", png);
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg'><image href='data:image/png;base64,"
+                     + Base64.getEncoder().encodeToString(png.toByteArray()) + "'/></svg>";
+
+        SvgRejectedException exception = assertThrows(SvgRejectedException.class,
+                () -> rasterizer.rasterize(svg.getBytes(StandardCharsets.UTF_8), 60));
+
+        assertEquals("embedded-image", exception.getReason());
+    }
+
+    @Test
+    void rasterize_ShouldAllowFragmentAndDataReferences() throws IOException, TranscoderException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB), "png", png);
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink' viewBox='0 0 10 10'>"
+                     + "<defs><linearGradient id='g'><stop offset='0' stop-color='red'/></linearGradient>"
+                     + "<rect id='r' width='10' height='10'/></defs>"
+                     + "<use xlink:href='#r' fill='url(#g)'/>"
+                     + "<image width='4' height='4' xlink:href='data:image/png;base64,"
+                     + Base64.getEncoder().encodeToString(png.toByteArray()) + "'/></svg>";
+
+        BufferedImage image = rasterizer.rasterize(svg.getBytes(StandardCharsets.UTF_8), 60);
+
+        assertNotNull(image, "Local references should be allowed");
+    }
+
+    @Test
+    void rasterize_ShouldCancelRenderThatMissesDeadline() throws IOException {
+        byte[] svg = Files.readAllBytes(Paths.get("src/main/resources/logo.svg"));
+        try (SvgLogoRasterizer impatient = new SvgLogoRasterizer(1, 4, 1, 10_000, 64, 8, registry)) {
+            SvgRejectedException exception = assertThrows(SvgRejectedException.class,
+                    () -> impatient.rasterize(svg, 60));
+
+            assertEquals("timeout", exception.getReason());
+            assertEquals(1.0, registry.get("qr.logo.svg.timeouts").counter().count(), "Timeout should be counted");
+        }
+    }
+
+    @Test
+    void rasterize_ShouldHaltRenderThatMissesDeadline() throws IOException, TranscoderException, InterruptedException {
+        byte[] logo = Files.readAllBytes(Paths.get("src/main/resources/logo.svg"));
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        try (SvgLogoRasterizer single = new SvgLogoRasterizer(1, 4, 1000, 10_000, 64, 8, meters)) {
+            single.rasterize(logo, 60);
+
+            // Takes minutes to finish unless Batik is halted
+            SvgRejectedException exception = assertThrows(SvgRejectedException.class,
+                    () -> single.rasterize(blurredCircles(9000), 1000));
+            assertEquals("timeout", exception.getReason());
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (meters.get("qr.logo.svg.overdue").gauge().value() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0.0, meters.get("qr.logo.svg.overdue").gauge().value(), "The halted render should stop");
+            BufferedImage image = single.rasterize(logo, 60);
+            assertEquals(60, image.getWidth(), "The only worker should be free again once the render is halted");
+        }
+    }
+
+    private static byte[] blurredCircles(int count) {
+        StringBuilder svg = new StringBuilder("<svg xmlns='http://www.w3.org/2000/svg' viewBox='0 0 100 100'>"
+                                              + "<filter id='b'><feGaussianBlur stdDeviation='3'/></filter>");
+        for (int i = 0; i < count; i++) {
+            svg.append("<circle cx='").append(i % 100).append("' cy='").append(i / 90)
+               .append("' r='30' fill-opacity='0.5' filter='url(#b)'/>");
+        }
+        return svg.append("</svg>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.qr.service;
+
+import com.example.qr.cache.RenderCache;
+import com.example.qr.model.VariantSetRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.batik.transcoder.TranscoderException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VariantSetTest {
+
+    private static final String DATA = "https://example.com/products/12345";
+    private static final List<VariantSetRequest.Colors> LIGHT_AND_DARK = List.of(
+            new VariantSetRequest.Colors("light", "000000", "FFFFFF"),
+            new VariantSetRequest.Colors("dark", "FFFFFF", "101010"));
+
+    private QrCodeService qrCodeService;
+    private PreparedStyle style;
+
+    @BeforeEach
+    void setUp() throws IOException, TranscoderException {
+        qrCodeService = new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF");
+        style = qrCodeService.prepareStyle("5DADE2", "FFFFFF", null, null);
+    }
+
+    @Test
+    void writeZip_ShouldContainEveryCombinationInRequestOrder() throws IOException {
+        VariantSet variants = qrCodeService.prepareVariants(DATA, List.of(128, 256, 512), LIGHT_AND_DARK,
+                                                            List.of("png", "svg"), style);
+
+        Map<String, byte[]> entries = unzip(variants);
+
+        assertEquals(List.of("light-128.png", "light-128.svg", "light-256.png", "light-256.svg",
+                             "light-512.png", "light-512.svg", "dark-128.png", "dark-128.svg",
+                             "dark-256.png", "dark-256.svg", "dark-512.png", "dark-512.svg"),
+                     List.copyOf(entries.keySet()));
+        for (int size : new int[]{128, 256, 512}) {
+            BufferedImage png = ImageIO.read(new ByteArrayInputStream(entries.get("dark-" + size + ".png")));
+            assertEquals(size, png.getWidth());
+            assertEquals(size, png.getHeight());
+            assertEquals(0x101010, png.getRGB(0, 0) & 0xFFFFFF, "Quiet zone takes the background color");
+            String svg = new String(entries.get("light-" + size + ".svg"), StandardCharsets.UTF_8);
+            assertTrue(svg.contains("width=\"" + size + "\""), svg.substring(0, 200));
+            assertTrue(svg.contains("data:image/png;base64,"), "Badge should be embedded");
+        }
+    }
+
+    @Test
+    void writeZip_ShouldScaleTheBadgeWithTheCode() throws IOException {
+        VariantSet variants = qrCodeService.prepareVariants(DATA, List.of(200, 400, 1600), List.of(
+                new VariantSetRequest.Colors("red", "000000", "FF0000")), null, style);
+
+        Map<String, byte[]> entries = unzip(variants);
+        BufferedImage small = ImageIO.read(new ByteArrayInputStream(entries.get("red-200.png")));
+        BufferedImage standard = ImageIO.read(new ByteArrayInputStream(entries.get("red-400.png")));
+        BufferedImage large = ImageIO.read(new ByteArrayInputStream(entries.get("red-1600.png")));
+
+        // Only the badge background and the logo are white, so the badge width shows in the white pixels
+        // across the center; a logo rasterized at a larger size keeps a little more of its own white
+        int standardBadge = whiteAcrossCenter(standard);
+        assertEquals(standardBadge / 2.0, whiteAcrossCenter(small), standardBadge * 0.1);
+        assertEquals(standardBadge * 4.0, whiteAcrossCenter(large), standardBadge * 0.4);
+        assertTrue(standardBadge > 40, "Badge should cover the center");
+    }
+
+    @Test
+    void writeZip_ShouldRasterizeTheLogoForSizesAboveStandard() throws IOException, TranscoderException {
+        VariantSet variants = qrCodeService.prepareVariants(DATA, List.of(1200), List.of(
+                new VariantSetRequest.Colors("plain", "000000", "FFFFFF")), null, style);
+        PrintImage print = qrCodeService.preparePrint(DATA, "000000", "FFFFFF", null, null, 1200, 72);
+
+        BufferedImage variant = ImageIO.read(new ByteArrayInputStream(unzip(variants).get("plain-1200.png")));
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        print.writePng(printed);
+        BufferedImage expected = ImageIO.read(new ByteArrayInputStream(printed.toByteArray()));
+
+        // The print render composes its badge from the logo at full size, so an enlarged badge would differ
+        for (int y = 500; y < 700; y++) {
+            for (int x = 500; x < 700; x++) {
+                assertEquals(expected.getRGB(x, y), variant.getRGB(x, y), "Pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void prepareVariants_ShouldHoldItsReservationUntilWritten() throws IOException {
+        RenderMemoryBudget budget = new RenderMemoryBudget(256L << 20, 0, new SimpleMeterRegistry());
+        QrCodeService budgetedService = new QrCodeService(new ClassPathResource("logo.svg"), "5DADE2", "FFFFFF",
+                                                          new SvgLogoRasterizer(), new BandEncoder(),
+                                                          new MatrixCache(), RenderCache.none(), budget);
+
+        VariantSet variants = budgetedService.prepareVariants(DATA, List.of(400, 1600), null, List.of("png", "svg"),
+                                                              style);
+        assertTrue(budget.reservedBytes() > 0, "The set should stay reserved until written");
+
+        variants.writeZip(new ByteArrayOutputStream());
+        assertEquals(0, budget.reservedBytes());
+
+        try (RenderMemoryBudget.Reservation held = budget.reserve("print", 256L << 20)) {
+            assertThrows(RenderCapacityException.class,
+                         () -> budgetedService.prepareVariants(DATA, List.of(400), null, null, style));
+        }
+    }
+
+    @Test
+    void prepareVariants_ShouldRejectInvalidRequests() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> qrCodeService.prepareVariants(DATA, List.of(), null, null, style));
+        assertThrows(IllegalArgumentException.class,
+                     () -> qrCodeService.prepareVariants(DATA, List.of(32), null, null, style));
+        assertThrows(IllegalArgumentException.class,
+                     () -> qrCodeService.prepareVariants(DATA, List.of(128), null, List.of("gif"), style));
+        assertThrows(IllegalArgumentException.class,
+                     () -> qrCodeService.prepareVariants(DATA, List.of(128, 128), null, null, style));
+        assertThrows(IllegalArgumentException.class,
+                     () -> qrCodeService.prepareVariants("x".repeat(1000), List.of(64), null, null, style),
+                     "A 64 px image cannot hold a large code");
+        assertThrows(IllegalArgumentException.class,
+                     () -> qrCodeService.prepareVariants(DATA, List.of(100, 200, 300, 400, 500, 600, 700),
+                                                         LIGHT_AND_DARK, List.of("png", "svg", "png", "svg"), style));
+        assertThrows(IllegalArgumentException.class,
+                     () -> qrCodeService.prepareVariants(DATA, List.of(128),
+                                                         List.of(new VariantSetRequest.Colors("../x", "000000", "FFFFFF")),
+                                                         null, style));
+    }
+
+    @Test
+    void prepareVariants_ShouldNameUnnamedColorPairsAfterTheirColors() {
+        VariantSet variants = qrCodeService.prepareVariants(DATA, List.of(128), List.of(
+                new VariantSetRequest.Colors(null, "#1a2b3c", "ffffff")), List.of("svg"), style);
+
+        assertEquals("1A2B3C-FFFFFF-128.svg", variants.outputs().getFirst().name());
+    }
+
+    private static int whiteAcrossCenter(BufferedImage image) {
+        int white = 0;
+        int y = image.getHeight() / 2;
+        for (int x = 0; x < image.getWidth(); x++) {
+            white += (image.getRGB(x, y) & 0xFFFFFF) == 0xFFFFFF ? 1 : 0;
+        }
+        return white;
+    }
+
+    private static Map<String, byte[]> unzip(VariantSet variants) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        variants.writeZip(out);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.qr.shortlink;
+
+import io.nayuki.qrcodegen.QrCode;
+import io.nayuki.qrcodegen.QrSegment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortLinkStoreTest {
+
+    private static final String LONG_URL =
+            "https://example.com/campaigns/2026/autumn?utm_source=print&utm_medium=poster&utm_campaign=launch";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shorten_ShouldReturnSameKeyForSameUrl() throws IOException {
+        try (ShortLinkStore store = new ShortLinkStore(directory.resolve("links.log"), 7, "")) {
+            String key = store.shorten(LONG_URL);
+
+            assertTrue(key.matches("[0-9A-Z]{7}"), "Key should be seven uppercase alphanumerics: " + key);
+            assertEquals(key, store.shorten(LONG_URL));
+            assertNotEquals(key, store.shorten(LONG_URL + "&other=1"));
+            assertEquals(LONG_URL, store.resolve(key.toLowerCase()).orElseThrow(), "Lookup should ignore case");
+        }
+    }
+
+    @Test
+    void constructor_ShouldReloadStoredLinks() throws IOException {
+        Path log = directory.resolve("nested/links.log");
+        String key;
+        try (ShortLinkStore store = new ShortLinkStore(log, 7, "")) {
+            key = store.shorten(LONG_URL);
+        }
+
+        try (ShortLinkStore reloaded = new ShortLinkStore(log, 7, "")) {
+            assertEquals(1, reloaded.size());
+            assertEquals(LONG_URL, reloaded.resolve(key).orElseThrow());
+            assertEquals(key, reloaded.shorten(LONG_URL), "Reloaded URLs should keep their key");
+        }
+    }
+
+    @Test
+    void shortUrl_ShouldFitAlphanumericModeAndShrinkTheCode() throws IOException {
+        try (ShortLinkStore store = new ShortLinkStore(directory.resolve("links.log"), 7, "https://qr.example.com/")) {
+            String shortUrl = store.shortUrl(store.shorten(LONG_URL), "http://ignored");
+
+            assertTrue(shortUrl.matches("HTTPS://QR\\.EXAMPLE\\.COM/R/[0-9A-Z]{7}"), shortUrl);
+            assertTrue(QrSegment.isAlphanumeric(shortUrl), "Short URL should fit alphanumeric mode");
+            assertTrue(QrCode.encodeText(shortUrl, QrCode.Ecc.HIGH).version
+                               < QrCode.encodeText(LONG_URL, QrCode.Ecc.HIGH).version,
+                       "Short link code should use a lower version");
+        }
+    }
+
+    @Test
+    void shortUrl_ShouldFallBackToRequestBaseUrl() throws IOException {
+        try (ShortLinkStore store = new ShortLinkStore(directory.resolve("links.log"), 7, "")) {
+            assertEquals("HTTP://LOCALHOST:8080/R/ABC1234", store.shortUrl("ABC1234", "http://localhost:8080"));
+        }
+    }
+
+    @Test
+    void shortUrl_ShouldKeepTheCaseOfABasePath() throws IOException {
+        try (ShortLinkStore store = new ShortLinkStore(directory.resolve("links.log"), 7, "https://Qr.example.com/go/")) {
+            assertEquals("HTTPS://QR.EXAMPLE.COM/go/R/ABC1234", store.shortUrl("ABC1234", "http://ignored"));
+        }
+        try (ShortLinkStore store = new ShortLinkStore(directory.resolve("links.log"), 7, "")) {
+            assertEquals("HTTP://user@LOCALHOST:8080/app/R/ABC1234",
+                         store.shortUrl("ABC1234", "http://user@localhost:8080/app"));
+        }
+    }
+
+    @Test
+    void shorten_ShouldRefuseNewUrlsOnceFull() throws IOException {
+        Path log = directory.resolve("links.log");
+        try (ShortLinkStore store = new ShortLinkStore(log, 7, "", 2)) {
+            String first = store.shorten(LONG_URL);
+            store.shorten(LONG_URL + "&n=2");
+
+            assertThrows(ShortLinkStoreFullException.class, () -> store.shorten(LONG_URL + "&n=3"));
+            assertEquals(first, store.shorten(LONG_URL), "Stored URLs should still get their key");
+            assertEquals(2, store.size());
+        }
+        try (ShortLinkStore reloaded = new ShortLinkStore(log, 7, "", 2)) {
+            assertEquals(2, reloaded.size(), "A refused URL should not reach the log");
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"plain text", "ftp://example.com/file", "/relative/path", "javascript:alert(1)",
+                            "https://example.com/a\nb"})
+    void shorten_ShouldRejectAnythingButHttpUrls(String url) throws IOException {
+        try (ShortLinkStore store = new ShortLinkStore(directory.resolve("links.log"), 7, "")) {
+            assertThrows(IllegalArgumentException.class, () -> store.shorten(url));
+            assertEquals(0, store.size());
+        }
+    }
+}
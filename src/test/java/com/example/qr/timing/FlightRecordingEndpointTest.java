@@ -0,0 +1,53 @@
+package com.example.qr.timing;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingEndpointTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void record_ShouldReturnARecordingWithRenderStageEvents() throws Exception {
+        FlightRecordingEndpoint endpoint = new FlightRecordingEndpoint(Duration.ofSeconds(10));
+
+        CompletableFuture<WebEndpointResponse<Resource>> response =
+                CompletableFuture.supplyAsync(() -> endpoint.record(Duration.ofMillis(1500)));
+        while (!response.isDone()) {
+            RenderTrace.current().begin(RenderTrace.Stage.ENCODE).qrVersion(7).dimensions(45, 45).finish();
+            Thread.sleep(20);
+        }
+
+        assertEquals(200, response.get().getStatus());
+        Path file = tempDir.resolve("recording.jfr");
+        Files.write(file, response.get().getBody().getContentAsByteArray());
+        List<RecordedEvent> stages = RecordingFile.readAllEvents(file).stream()
+                                                  .filter(e -> e.getEventType().getName().equals(RenderStageEvent.NAME))
+                                                  .toList();
+        assertFalse(stages.isEmpty(), "Stages committed during the recording should be in it");
+        assertEquals("encode", stages.getFirst().getString("stage"));
+        assertEquals(7, stages.getFirst().getInt("qrVersion"));
+        assertEquals(45, stages.getFirst().getInt("width"));
+    }
+
+    @Test
+    void record_ShouldRejectDurationsOverTheLimit() {
+        FlightRecordingEndpoint endpoint = new FlightRecordingEndpoint(Duration.ofSeconds(10));
+
+        assertEquals(400, endpoint.record(Duration.ofMinutes(1)).getStatus());
+        assertEquals(400, endpoint.record(Duration.ZERO).getStatus());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.qr.timing;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartHttpServletRequest;
+import org.springframework.mock.web.MockPart;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTimingFilterTest {
+
+    @Test
+    void doFilter_ShouldTraceTheRequestAndClearTheTraceAfterwards() throws Exception {
+        ServerTimingFilter filter = new ServerTimingFilter(500, 1.0);
+        AtomicReference<String> header = new AtomicReference<>();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/generate"), new MockHttpServletResponse(),
+                        (request, response) -> {
+                            RenderTrace trace = RenderTrace.current();
+                            trace.record(RenderTrace.Stage.ENCODE, System.nanoTime() - 2_500_000);
+                            header.set(trace.serverTiming());
+                        });
+
+        assertTrue(header.get().matches("encode;dur=2\\.\\d\\d;desc=\"Encode\""), header.get());
+        assertNull(RenderTrace.current().serverTiming(), "The trace should not outlive the request");
+    }
+
+    @Test
+    void doFilter_ShouldTimeMultipartParsing() throws Exception {
+        ServerTimingFilter filter = new ServerTimingFilter(500, 1.0);
+        MockMultipartHttpServletRequest request = new MockMultipartHttpServletRequest();
+        request.setContentType("multipart/form-data; boundary=x");
+        request.addPart(new MockPart("data", "https://example.com".getBytes(StandardCharsets.UTF_8)));
+        AtomicReference<String> header = new AtomicReference<>();
+
+        filter.doFilter(request, new MockHttpServletResponse(),
+                        (req, res) -> header.set(RenderTrace.current().serverTiming()));
+
+        assertTrue(header.get().startsWith("parse;dur="), header.get());
+    }
+
+    @Test
+    void doFilter_ShouldOnlySampleRequestsOverTheThreshold() throws Exception {
+        AtomicInteger draws = new AtomicInteger();
+        ServerTimingFilter fast = new ServerTimingFilter(60_000, 1.0, () -> {
+            draws.incrementAndGet();
+            return 0;
+        });
+        ServerTimingFilter slow = new ServerTimingFilter(0, 0.5, () -> {
+            draws.incrementAndGet();
+            return 0.75;
+        });
+
+        fast.doFilter(new MockHttpServletRequest("POST", "/generate"), new MockHttpServletResponse(),
+                      (req, res) -> { });
+        assertEquals(0, draws.get(), "Fast requests should not be sampled");
+
+        slow.doFilter(new MockHttpServletRequest("POST", "/generate"), new MockHttpServletResponse(),
+                      (req, res) -> { });
+        assertEquals(1, draws.get(), "Slow requests should be sampled");
+    }
+
+    @Test
+    void serverTiming_ShouldReportCacheHitsAndSkipUnrecordedStages() {
+        RenderTrace trace = RenderTrace.start();
+        try {
+            trace.record(RenderTrace.Stage.PARSE, System.nanoTime() - 1_000_000);
+            trace.cacheHit();
+            trace.version(4);
+            trace.logo("image/png", 1234);
+
+            String header = trace.serverTiming();
+            assertTrue(header.startsWith("parse;dur="), header);
+            assertTrue(header.endsWith(", cache;desc=hit"), header);
+            assertFalse(header.contains("encode"), header);
+            assertTrue(trace.summary().endsWith("version=4 logoType=image/png/1234B cache=hit"), trace.summary());
+        } finally {
+            RenderTrace.clear();
+        }
+    }
+
+    @Test
+    void current_ShouldIgnoreRecordsOutsideATracedRequest() {
+        RenderTrace trace = RenderTrace.current();
+
+        trace.record(RenderTrace.Stage.ENCODE, System.nanoTime() - 1_000_000);
+
+        assertEquals(0, trace.nanos(RenderTrace.Stage.ENCODE));
+        assertNull(trace.serverTiming());
+    }
+}